@@ -29,6 +29,12 @@ CREATE INDEX certificatedata_idx6 ON CertificateData (issuerDN,status);
 CREATE INDEX certificatedata_idx7 ON CertificateData(certificateProfileId);
 -- The following index is currently needed for finding expired/expiring certificates
 -- CREATE INDEX certificatedata_idx8 ON CertificateData(expireDate, status);
+-- The Certificate Expiration Notifier Service and the expiring certificates APIs page through the certificates in (expireDate, fingerprint)
+-- order. The following index lets every page be read with a range scan, so reading through all certificates takes linear time.
+-- CREATE INDEX certificatedata_idx21 ON CertificateData(expireDate, fingerprint);
+-- The OCSP revocation status index (ocsp.statusindex.enabled) reads the certificates of each CA updated since its last refresh, every few
+-- seconds. The following index is needed when it is enabled, or every refresh reads through all certificates of the CA.
+-- CREATE INDEX certificatedata_idx22 ON CertificateData(issuerDN, updateTime);
 CREATE INDEX certificatedata_idx11 ON CertificateData (subjectKeyId);
 -- UNIQUE increases certainty the no two certificate with the same issuer and serial number can be issued
 -- this index can not be unique when CVC CAs are used, because CV Certificates don't have serial numbers so all is 0
@@ -127,3 +133,11 @@ CREATE INDEX ocspresponsedata_idx1 ON OcspResponseData (cAId);
 CREATE INDEX ocspresponsedata_idx2 ON OcspResponseData (serialNumber);
 CREATE INDEX ocspresponsedata_idx3 ON OcspResponseData (producedAt);
 
+-- Index for reading the revocation journal when creating delta CRLs, and for pruning it after a base CRL has been created.
+CREATE INDEX revocationjournaldata_idx1 ON RevocationJournalData (issuerDN,crlPartitionIndex,changeTime);
+
+-- Index for reading the cache invalidation events of other nodes, and for pruning old events.
+CREATE INDEX cacheinvalidationdata_idx1 ON CacheInvalidationData (changeTime);
+
+-- Index for reading the node and shard leases of a sharded service.
+CREATE INDEX serviceleasedata_idx1 ON ServiceLeaseData (serviceId);
@@ -472,6 +472,46 @@ CREATE TABLE IncompleteIssuanceJournalData (
     PRIMARY KEY (serialNumberAndCaId)
 );
 
+CREATE TABLE RevocationJournalData (
+    id VARCHAR(254) NOT NULL,
+    issuerDN VARCHAR(254) NOT NULL,
+    crlPartitionIndex INTEGER NOT NULL,
+    fingerprint VARCHAR(254) NOT NULL,
+    serialNumber VARCHAR(254) NOT NULL,
+    changeTime BIGINT NOT NULL,
+    expireDate BIGINT NOT NULL,
+    revocationDate BIGINT NOT NULL,
+    revocationReason INTEGER NOT NULL,
+    invalidityDate BIGINT,
+    rowProtection CLOB(10K),
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE CacheInvalidationData (
+    id VARCHAR(254) NOT NULL,
+    cacheName VARCHAR(254) NOT NULL,
+    entityId INTEGER NOT NULL,
+    nodeId VARCHAR(254) NOT NULL,
+    changeTime BIGINT NOT NULL,
+    rowProtection CLOB(10K),
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ServiceLeaseData (
+    id VARCHAR(254) NOT NULL,
+    serviceId INTEGER NOT NULL,
+    shard INTEGER NOT NULL,
+    nodeName VARCHAR(254),
+    leaseExpiration BIGINT NOT NULL,
+    runTimeStamp BIGINT NOT NULL,
+    nextRunTimeStamp BIGINT NOT NULL,
+    rowProtection CLOB(10K),
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
 alter table AccessRulesData add constraint FKABB4C1DFDBBC970 foreign key (AdminGroupData_accessRules) references AdminGroupData;
 
 alter table AdminEntityData add constraint FKD9A99EBCB3A110AD foreign key (AdminGroupData_adminEntities) references AdminGroupData;
@@ -476,3 +476,43 @@ CREATE TABLE IncompleteIssuanceJournalData (
     rowVersion INTEGER NOT NULL,
     PRIMARY KEY (serialNumberAndCaId)
 );
+
+CREATE TABLE RevocationJournalData (
+    id VARCHAR(256) NOT NULL,
+    issuerDN VARCHAR(256) NOT NULL,
+    crlPartitionIndex INTEGER NOT NULL,
+    fingerprint VARCHAR(256) NOT NULL,
+    serialNumber VARCHAR(256) NOT NULL,
+    changeTime BIGINT NOT NULL,
+    expireDate BIGINT NOT NULL,
+    revocationDate BIGINT NOT NULL,
+    revocationReason INTEGER NOT NULL,
+    invalidityDate BIGINT,
+    rowProtection VARCHAR,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE CacheInvalidationData (
+    id VARCHAR(256) NOT NULL,
+    cacheName VARCHAR(256) NOT NULL,
+    entityId INTEGER NOT NULL,
+    nodeId VARCHAR(256) NOT NULL,
+    changeTime BIGINT NOT NULL,
+    rowProtection VARCHAR,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ServiceLeaseData (
+    id VARCHAR(256) NOT NULL,
+    serviceId INTEGER NOT NULL,
+    shard INTEGER NOT NULL,
+    nodeName VARCHAR(256),
+    leaseExpiration BIGINT NOT NULL,
+    runTimeStamp BIGINT NOT NULL,
+    nextRunTimeStamp BIGINT NOT NULL,
+    rowProtection VARCHAR,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -475,3 +475,43 @@ CREATE TABLE IncompleteIssuanceJournalData (
     rowVersion INTEGER NOT NULL,
     PRIMARY KEY (serialNumberAndCaId)
 );
+
+CREATE TABLE RevocationJournalData (
+    id VARCHAR(255,0) NOT NULL,
+    issuerDN VARCHAR(255,0) NOT NULL,
+    crlPartitionIndex INTEGER NOT NULL,
+    fingerprint VARCHAR(255,0) NOT NULL,
+    serialNumber VARCHAR(255,0) NOT NULL,
+    changeTime DECIMAL(18,0) NOT NULL,
+    expireDate DECIMAL(18,0) NOT NULL,
+    revocationDate DECIMAL(18,0) NOT NULL,
+    revocationReason INTEGER NOT NULL,
+    invalidityDate DECIMAL(18,0),
+    rowProtection TEXT,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE CacheInvalidationData (
+    id VARCHAR(255,0) NOT NULL,
+    cacheName VARCHAR(255,0) NOT NULL,
+    entityId INTEGER NOT NULL,
+    nodeId VARCHAR(255,0) NOT NULL,
+    changeTime DECIMAL(18,0) NOT NULL,
+    rowProtection TEXT,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ServiceLeaseData (
+    id VARCHAR(255,0) NOT NULL,
+    serviceId INTEGER NOT NULL,
+    shard INTEGER NOT NULL,
+    nodeName VARCHAR(255,0),
+    leaseExpiration DECIMAL(18,0) NOT NULL,
+    runTimeStamp DECIMAL(18,0) NOT NULL,
+    nextRunTimeStamp DECIMAL(18,0) NOT NULL,
+    rowProtection TEXT,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
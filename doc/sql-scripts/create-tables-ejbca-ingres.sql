@@ -476,3 +476,43 @@ CREATE TABLE IncompleteIssuanceJournalData (
     rowVersion INT4 NOT NULL,
     PRIMARY KEY (serialNumberAndCaId)
 );
+
+CREATE TABLE RevocationJournalData (
+    id VARCHAR(256) NOT NULL,
+    issuerDN VARCHAR(256) NOT NULL,
+    crlPartitionIndex INT4 NOT NULL,
+    fingerprint VARCHAR(256) NOT NULL,
+    serialNumber VARCHAR(256) NOT NULL,
+    changeTime INT8 NOT NULL,
+    expireDate INT8 NOT NULL,
+    revocationDate INT8 NOT NULL,
+    revocationReason INT4 NOT NULL,
+    invalidityDate INT8,
+    rowProtection LONG VARCHAR,
+    rowVersion INT4 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE CacheInvalidationData (
+    id VARCHAR(256) NOT NULL,
+    cacheName VARCHAR(256) NOT NULL,
+    entityId INT4 NOT NULL,
+    nodeId VARCHAR(256) NOT NULL,
+    changeTime INT8 NOT NULL,
+    rowProtection LONG VARCHAR,
+    rowVersion INT4 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ServiceLeaseData (
+    id VARCHAR(256) NOT NULL,
+    serviceId INT4 NOT NULL,
+    shard INT4 NOT NULL,
+    nodeName VARCHAR(256),
+    leaseExpiration INT8 NOT NULL,
+    runTimeStamp INT8 NOT NULL,
+    nextRunTimeStamp INT8 NOT NULL,
+    rowProtection LONG VARCHAR,
+    rowVersion INT4 NOT NULL,
+    PRIMARY KEY (id)
+);
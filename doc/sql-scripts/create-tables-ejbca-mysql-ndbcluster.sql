@@ -481,3 +481,43 @@ CREATE TABLE IncompleteIssuanceJournalData (
     rowVersion INT(11) NOT NULL,
     PRIMARY KEY (serialNumberAndCaId)
 ) TABLESPACE ejbca_ts STORAGE DISK ENGINE=NDB;
+
+CREATE TABLE RevocationJournalData (
+    id VARCHAR(250) BINARY NOT NULL,
+    issuerDN VARCHAR(250) BINARY NOT NULL,
+    crlPartitionIndex INT(11) NOT NULL,
+    fingerprint VARCHAR(250) BINARY NOT NULL,
+    serialNumber VARCHAR(250) BINARY NOT NULL,
+    changeTime BIGINT(20) NOT NULL,
+    expireDate BIGINT(20) NOT NULL,
+    revocationDate BIGINT(20) NOT NULL,
+    revocationReason INT(11) NOT NULL,
+    invalidityDate BIGINT(20),
+    rowProtection LONGTEXT,
+    rowVersion INT(11) NOT NULL,
+    PRIMARY KEY (id)
+) TABLESPACE ejbca_ts STORAGE DISK ENGINE=NDB;
+
+CREATE TABLE CacheInvalidationData (
+    id VARCHAR(250) BINARY NOT NULL,
+    cacheName VARCHAR(250) BINARY NOT NULL,
+    entityId INT(11) NOT NULL,
+    nodeId VARCHAR(250) BINARY NOT NULL,
+    changeTime BIGINT(20) NOT NULL,
+    rowProtection LONGTEXT,
+    rowVersion INT(11) NOT NULL,
+    PRIMARY KEY (id)
+) TABLESPACE ejbca_ts STORAGE DISK ENGINE=NDB;
+
+CREATE TABLE ServiceLeaseData (
+    id VARCHAR(250) BINARY NOT NULL,
+    serviceId INT(11) NOT NULL,
+    shard INT(11) NOT NULL,
+    nodeName VARCHAR(250) BINARY,
+    leaseExpiration BIGINT(20) NOT NULL,
+    runTimeStamp BIGINT(20) NOT NULL,
+    nextRunTimeStamp BIGINT(20) NOT NULL,
+    rowProtection LONGTEXT,
+    rowVersion INT(11) NOT NULL,
+    PRIMARY KEY (id)
+) TABLESPACE ejbca_ts STORAGE DISK ENGINE=NDB;
@@ -476,3 +476,43 @@ CREATE TABLE IncompleteIssuanceJournalData (
     rowVersion NUMBER(10) NOT NULL,
     PRIMARY KEY (serialNumberAndCaId)
 );
+
+CREATE TABLE RevocationJournalData (
+    id VARCHAR(255 byte) NOT NULL,
+    issuerDN VARCHAR(255 byte) NOT NULL,
+    crlPartitionIndex NUMBER(10) NOT NULL,
+    fingerprint VARCHAR(255 byte) NOT NULL,
+    serialNumber VARCHAR(255 byte) NOT NULL,
+    changeTime NUMBER(19) NOT NULL,
+    expireDate NUMBER(19) NOT NULL,
+    revocationDate NUMBER(19) NOT NULL,
+    revocationReason NUMBER(10) NOT NULL,
+    invalidityDate NUMBER(19),
+    rowProtection CLOB,
+    rowVersion NUMBER(10) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE CacheInvalidationData (
+    id VARCHAR(255 byte) NOT NULL,
+    cacheName VARCHAR(255 byte) NOT NULL,
+    entityId NUMBER(10) NOT NULL,
+    nodeId VARCHAR(255 byte) NOT NULL,
+    changeTime NUMBER(19) NOT NULL,
+    rowProtection CLOB,
+    rowVersion NUMBER(10) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ServiceLeaseData (
+    id VARCHAR(255 byte) NOT NULL,
+    serviceId NUMBER(10) NOT NULL,
+    shard NUMBER(10) NOT NULL,
+    nodeName VARCHAR(255 byte),
+    leaseExpiration NUMBER(19) NOT NULL,
+    runTimeStamp NUMBER(19) NOT NULL,
+    nextRunTimeStamp NUMBER(19) NOT NULL,
+    rowProtection CLOB,
+    rowVersion NUMBER(10) NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -473,6 +473,46 @@ CREATE TABLE IncompleteIssuanceJournalData (
     PRIMARY KEY (serialNumberAndCaId)
 );
 
+CREATE TABLE RevocationJournalData (
+    id TEXT NOT NULL,
+    issuerDN TEXT NOT NULL,
+    crlPartitionIndex INT4 NOT NULL,
+    fingerprint TEXT NOT NULL,
+    serialNumber TEXT NOT NULL,
+    changeTime INT8 NOT NULL,
+    expireDate INT8 NOT NULL,
+    revocationDate INT8 NOT NULL,
+    revocationReason INT4 NOT NULL,
+    invalidityDate INT8,
+    rowProtection TEXT,
+    rowVersion INT4 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE CacheInvalidationData (
+    id TEXT NOT NULL,
+    cacheName TEXT NOT NULL,
+    entityId INT4 NOT NULL,
+    nodeId TEXT NOT NULL,
+    changeTime INT8 NOT NULL,
+    rowProtection TEXT,
+    rowVersion INT4 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ServiceLeaseData (
+    id TEXT NOT NULL,
+    serviceId INT4 NOT NULL,
+    shard INT4 NOT NULL,
+    nodeName TEXT,
+    leaseExpiration INT8 NOT NULL,
+    runTimeStamp INT8 NOT NULL,
+    nextRunTimeStamp INT8 NOT NULL,
+    rowProtection TEXT,
+    rowVersion INT4 NOT NULL,
+    PRIMARY KEY (id)
+);
+
 alter table AccessRulesData add constraint FKABB4C1DFDBBC970 foreign key (AdminGroupData_accessRules) references AdminGroupData;
 
 alter table AdminEntityData add constraint FKD9A99EBCB3A110AD foreign key (AdminGroupData_adminEntities) references AdminGroupData;
@@ -476,3 +476,43 @@ CREATE TABLE IncompleteIssuanceJournalData (
     rowVersion INTEGER NOT NULL,
     PRIMARY KEY (serialNumberAndCaId)
 );
+
+CREATE TABLE RevocationJournalData (
+    id VARCHAR(255) NOT NULL,
+    issuerDN VARCHAR(255) NOT NULL,
+    crlPartitionIndex INTEGER NOT NULL,
+    fingerprint VARCHAR(255) NOT NULL,
+    serialNumber VARCHAR(255) NOT NULL,
+    changeTime DECIMAL(20,0) NOT NULL,
+    expireDate DECIMAL(20,0) NOT NULL,
+    revocationDate DECIMAL(20,0) NOT NULL,
+    revocationReason INTEGER NOT NULL,
+    invalidityDate DECIMAL(20,0),
+    rowProtection TEXT,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE CacheInvalidationData (
+    id VARCHAR(255) NOT NULL,
+    cacheName VARCHAR(255) NOT NULL,
+    entityId INTEGER NOT NULL,
+    nodeId VARCHAR(255) NOT NULL,
+    changeTime DECIMAL(20,0) NOT NULL,
+    rowProtection TEXT,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ServiceLeaseData (
+    id VARCHAR(255) NOT NULL,
+    serviceId INTEGER NOT NULL,
+    shard INTEGER NOT NULL,
+    nodeName VARCHAR(255),
+    leaseExpiration DECIMAL(20,0) NOT NULL,
+    runTimeStamp DECIMAL(20,0) NOT NULL,
+    nextRunTimeStamp DECIMAL(20,0) NOT NULL,
+    rowProtection TEXT,
+    rowVersion INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
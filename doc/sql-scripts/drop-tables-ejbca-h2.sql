@@ -37,3 +37,6 @@ drop table AcmeOrderData if exists;
 drop table SctData if exists;
 drop table OcspResponseData if exists;
 drop table IncompleteIssuanceJournalData if exists;
+drop table RevocationJournalData if exists;
+drop table CacheInvalidationData if exists;
+drop table ServiceLeaseData if exists;
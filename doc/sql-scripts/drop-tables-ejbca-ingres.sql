@@ -35,3 +35,6 @@ drop table AcmeOrderData;
 drop table SctData;
 drop table OcspResponseData;
 drop table IncompleteIssuanceJournalData;
+drop table RevocationJournalData;
+drop table CacheInvalidationData;
+drop table ServiceLeaseData;
@@ -37,3 +37,6 @@ drop table if exists AcmeOrderData;
 drop table if exists SctData;
 drop table if exists OcspResponseData;
 drop table if exists IncompleteIssuanceJournalData;
+drop table if exists RevocationJournalData;
+drop table if exists CacheInvalidationData;
+drop table if exists ServiceLeaseData;
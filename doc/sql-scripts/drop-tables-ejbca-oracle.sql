@@ -35,3 +35,6 @@ drop table AcmeOrderData cascade constraints;
 drop table SctData cascade constraints;
 drop table OcspResponseData cascade constraints;
 drop table IncompleteIssuanceJournalData cascade constraints;
+drop table RevocationJournalData cascade constraints;
+drop table CacheInvalidationData cascade constraints;
+drop table ServiceLeaseData cascade constraints;
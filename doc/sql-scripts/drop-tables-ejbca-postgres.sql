@@ -37,3 +37,6 @@ drop table if exists AcmeOrderData cascade;
 drop table if exists SctData cascade;
 drop table if exists OcspResponseData cascade;
 drop table if exists IncompleteIssuanceJournalData;
+drop table if exists RevocationJournalData;
+drop table if exists CacheInvalidationData;
+drop table if exists ServiceLeaseData;
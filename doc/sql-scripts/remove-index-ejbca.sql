@@ -17,6 +17,8 @@ DROP INDEX certificatedata_idx5 ON CertificateData;
 DROP INDEX certificatedata_idx6 ON CertificateData;
 DROP INDEX certificatedata_idx7 ON CertificateData;
 -- DROP INDEX certificatedata_idx8 ON CertificateData;
+-- DROP INDEX certificatedata_idx21 ON CertificateData;
+-- DROP INDEX certificatedata_idx22 ON CertificateData;
 DROP INDEX certificatedata_idx11 ON CertificateData;
 DROP INDEX certificatedata_idx12 ON CertificateData;
 -- Only added when MySQL partition pruning is used:
@@ -62,3 +64,9 @@ DROP INDEX acmechallengedata_idx1 ON AcmeChallengeData;
 DROP INDEX ocspresponsedata_idx1 ON OcspResponseData;
 DROP INDEX ocspresponsedata_idx2 ON OcspResponseData;
 DROP INDEX ocspresponsedata_idx3 ON OcspResponseData;
+
+DROP INDEX revocationjournaldata_idx1 ON RevocationJournalData;
+
+DROP INDEX cacheinvalidationdata_idx1 ON CacheInvalidationData;
+
+DROP INDEX serviceleasedata_idx1 ON ServiceLeaseData;
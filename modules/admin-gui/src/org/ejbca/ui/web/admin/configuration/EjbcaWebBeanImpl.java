@@ -83,6 +83,8 @@ import org.cesecore.config.AvailableExtendedKeyUsagesConfiguration;
 import org.cesecore.config.EABConfiguration;
 import org.cesecore.config.OAuthConfiguration;
 import org.cesecore.configuration.GlobalConfigurationSessionLocal;
+import org.cesecore.internal.CacheInvalidationBus;
+import org.cesecore.internal.CacheInvalidationEvent;
 import org.cesecore.roles.management.RoleSessionLocal;
 import org.cesecore.util.LogRedactionUtils;
 import org.cesecore.util.ValidityDate;
@@ -1332,6 +1334,16 @@ public class EjbcaWebBeanImpl implements EjbcaWebBean {
         }
         // Clear local caches by direct EJB invocation
         clearCacheSession.clearCaches(excludeActiveCryptoTokens);
+        final CacheInvalidationBus cacheInvalidationBus = CacheInvalidationBus.getInstance();
+        if (cacheInvalidationBus.isDistributed()) {
+            // The other nodes clear their caches when they read the event, so there is no need to contact them
+            cacheInvalidationBus.publish(CacheInvalidationEvent.ALL_CACHES, excludeActiveCryptoTokens ? 1 : 0);
+            authState.initialized = false;
+            if (log.isTraceEnabled()) {
+                log.trace("<clearClusterCache");
+            }
+            return;
+        }
         String localhostName = "localhost";
         final StringBuilder failedHosts = new StringBuilder();
         final StringBuilder succeededHost = new StringBuilder();
@@ -15,6 +15,7 @@ package org.cesecore.certificates.ca;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -51,6 +52,10 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.x500.X500Principal;
 
@@ -432,6 +437,34 @@ public class X509CAUnitTest extends X509CAUnitTestBase {
         assertTrue("nextUpdate of CRL should be maxvalue from RFC5280 (" + cal.getTime() + ") but was " + xcrl.getNextUpdate(), xcrl.getNextUpdate().equals(cal.getTime()));
     }
 
+    /** Tests that copies of a CA can be used to sign CRLs at the same time, like when the CRLs of the partitions of a CA are created in parallel */
+    @Test
+    public void testCopiesSignCrlsConcurrently() throws Exception {
+        final CryptoToken cryptoToken = getNewCryptoToken();
+        final X509CA x509ca = createTestCA(cryptoToken, CADN);
+        final X509Certificate cacert = (X509Certificate) x509ca.getCACertificate();
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<X509CRLHolder>> crls = new ArrayList<>();
+            for (int i = 1; i <= 8; i++) {
+                final X509CA copy = (X509CA) CAFactory.INSTANCE.getCopy(x509ca);
+                assertNotSame("Each thread should have an instance of its own.", x509ca, copy);
+                assertEquals(x509ca.getCAId(), copy.getCAId());
+                assertEquals(x509ca.getSubjectDN(), copy.getSubjectDN());
+                final int crlNumber = i;
+                crls.add(executorService.submit(() -> copy.generateCRL(cryptoToken, CertificateConstants.NO_CRL_PARTITION, new ArrayList<>(),
+                        crlNumber, null)));
+            }
+            for (int i = 0; i < crls.size(); i++) {
+                final X509CRL crl = CertTools.getCRLfromByteArray(crls.get(i).get(30, TimeUnit.SECONDS).getEncoded());
+                crl.verify(cacert.getPublicKey(), BouncyCastleProvider.PROVIDER_NAME);
+                assertEquals(BigInteger.valueOf(i + 1L), CrlExtensions.getCrlNumber(crl));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     @Test
     public void testStoreAndLoadRSA() throws Exception {
         doTestStoreAndLoad(AlgorithmConstants.SIGALG_SHA256_WITH_RSA);
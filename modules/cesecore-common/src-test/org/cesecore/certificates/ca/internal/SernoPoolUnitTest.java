@@ -0,0 +1,117 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.ca.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the pool of serial numbers that are generated ahead of time.
+ */
+public class SernoPoolUnitTest {
+    private static final Logger log = Logger.getLogger(SernoPoolUnitTest.class);
+
+    private static final int CA_ID = 4711;
+
+    @After
+    public void after() {
+        SernoPool.INSTANCE.shutdown();
+    }
+
+    @Test(timeout = 60_000)
+    public void sernosAreGeneratedOnDemandWhenPoolIsNotStarted() {
+        log.trace(">sernosAreGeneratedOnDemandWhenPoolIsNotStarted");
+        assertFalse(SernoPool.INSTANCE.isStarted());
+        final long generatedBefore = SernoPool.INSTANCE.getGeneratedCount();
+        final BigInteger serno = SernoPool.INSTANCE.getSerno(CA_ID, 8);
+        assertEquals("Serial number should have the requested size.", 8, serno.bitLength() / 8 + 1);
+        assertEquals(0, SernoPool.INSTANCE.getAvailableCount(CA_ID));
+        // Serial numbers generated on demand without a pool are not counted, since the pool is not used
+        assertEquals(generatedBefore, SernoPool.INSTANCE.getGeneratedCount());
+        log.trace("<sernosAreGeneratedOnDemandWhenPoolIsNotStarted");
+    }
+
+    @Test(timeout = 60_000)
+    public void poolIsRefilledInTheBackground() throws InterruptedException {
+        log.trace(">poolIsRefilledInTheBackground");
+        SernoPool.INSTANCE.start(100);
+        assertTrue(SernoPool.INSTANCE.isStarted());
+        final long pooledBefore = SernoPool.INSTANCE.getPooledCount();
+        final long generatedBefore = SernoPool.INSTANCE.getGeneratedCount();
+        final Set<BigInteger> sernos = new HashSet<>();
+        // The first serial number is generated on demand, and makes the producer fill the pool of the CA
+        sernos.add(SernoPool.INSTANCE.getSerno(CA_ID, 20));
+        assertEquals(generatedBefore + 1, SernoPool.INSTANCE.getGeneratedCount());
+        waitForAvailable(CA_ID, 100);
+        for (int i = 0; i < 60; i++) {
+            final BigInteger serno = SernoPool.INSTANCE.getSerno(CA_ID, 20);
+            assertEquals("Serial number should have the requested size.", 20, serno.bitLength() / 8 + 1);
+            sernos.add(serno);
+        }
+        assertTrue("Most serial numbers should have been taken from the pool.", SernoPool.INSTANCE.getPooledCount() - pooledBefore >= 50);
+        assertEquals("Serial numbers should be unique.", 61, sernos.size());
+        // Falling below half of the pool size makes the producer fill it up again
+        waitForAvailable(CA_ID, 100);
+        log.trace("<poolIsRefilledInTheBackground");
+    }
+
+    @Test(timeout = 60_000)
+    public void poolIsReplacedWhenSernoSizeChanges() throws InterruptedException {
+        log.trace(">poolIsReplacedWhenSernoSizeChanges");
+        SernoPool.INSTANCE.start(10);
+        SernoPool.INSTANCE.getSerno(CA_ID, 20);
+        waitForAvailable(CA_ID, 10);
+        final BigInteger serno = SernoPool.INSTANCE.getSerno(CA_ID, 8);
+        assertEquals("Serial number should have the new size.", 8, serno.bitLength() / 8 + 1);
+        waitForAvailable(CA_ID, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Pooled serial numbers should have the new size.", 8, SernoPool.INSTANCE.getSerno(CA_ID, 8).bitLength() / 8 + 1);
+        }
+        log.trace("<poolIsReplacedWhenSernoSizeChanges");
+    }
+
+    @Test(timeout = 60_000)
+    public void restartStopsOldProducer() throws InterruptedException {
+        log.trace(">restartStopsOldProducer");
+        SernoPool.INSTANCE.start(10);
+        SernoPool.INSTANCE.shutdown();
+        // Started again right away, like when the application is redeployed
+        SernoPool.INSTANCE.start(10);
+        while (countProducerThreads() > 1) {
+            Thread.sleep(10);
+        }
+        SernoPool.INSTANCE.getSerno(CA_ID, 20);
+        waitForAvailable(CA_ID, 10);
+        assertEquals("Only the new producer should be running.", 1, countProducerThreads());
+        log.trace("<restartStopsOldProducer");
+    }
+
+    private static long countProducerThreads() {
+        return Thread.getAllStackTraces().keySet().stream().filter(thread -> thread.isAlive() && "SernoPool".equals(thread.getName())).count();
+    }
+
+    private void waitForAvailable(final int caId, final int count) throws InterruptedException {
+        while (SernoPool.INSTANCE.getAvailableCount(caId) < count) {
+            Thread.sleep(10);
+        }
+    }
+}
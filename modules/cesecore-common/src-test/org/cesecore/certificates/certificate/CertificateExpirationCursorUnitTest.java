@@ -0,0 +1,79 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.keyfactor.util.CertTools;
+import com.keyfactor.util.CryptoProviderTools;
+import com.keyfactor.util.crypto.algorithm.AlgorithmConstants;
+import com.keyfactor.util.keys.KeyTools;
+
+/**
+ * Tests the positions of keyset paged scans over certificates ordered by expiration date and fingerprint.
+ */
+public class CertificateExpirationCursorUnitTest {
+
+    @Test
+    public void positionsAreOrderedByExpireDateAndFingerprint() {
+        final CertificateExpirationCursor a = CertificateExpirationCursor.after(1000L, "bb");
+        final CertificateExpirationCursor b = CertificateExpirationCursor.after(1000L, "cc");
+        final CertificateExpirationCursor c = CertificateExpirationCursor.after(2000L, "aa");
+        final List<CertificateExpirationCursor> sorted = Arrays.asList(CertificateExpirationCursor.FIRST, a, b, c);
+        assertEquals(sorted, Arrays.asList(new TreeSet<>(Arrays.asList(c, b, CertificateExpirationCursor.FIRST, a)).toArray()));
+        assertTrue(CertificateExpirationCursor.FIRST.isFirst());
+        assertFalse(a.isFirst());
+        assertEquals(a, CertificateExpirationCursor.after(1000L, "bb"));
+    }
+
+    @Test
+    public void tokensCanBeParsed() {
+        final CertificateExpirationCursor cursor = CertificateExpirationCursor.after(1700000000000L, "caba75f68c833c3c2d33f3f5052b7d5a76e80383");
+        assertEquals("1700000000000:caba75f68c833c3c2d33f3f5052b7d5a76e80383", cursor.getToken());
+        assertEquals(cursor, CertificateExpirationCursor.fromToken(cursor.getToken()));
+        assertEquals("", CertificateExpirationCursor.FIRST.getToken());
+        assertEquals(CertificateExpirationCursor.FIRST, CertificateExpirationCursor.fromToken(""));
+        assertEquals(CertificateExpirationCursor.FIRST, CertificateExpirationCursor.fromToken(null));
+        for (final String malformed : Arrays.asList("1700000000000", ":abc", "1700000000000:", "never:abc")) {
+            try {
+                CertificateExpirationCursor.fromToken(malformed);
+                fail("Token '" + malformed + "' should not be accepted.");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void positionOfCertificateMatchesDatabase() throws Exception {
+        CryptoProviderTools.installBCProviderIfNotAvailable();
+        final KeyPair keyPair = KeyTools.genKeys("512", AlgorithmConstants.KEYALGORITHM_RSA);
+        final X509Certificate certificate = CertTools.genSelfCert("CN=CertificateExpirationCursorUnitTest", 10, null, keyPair.getPrivate(),
+                keyPair.getPublic(), AlgorithmConstants.SIGALG_SHA256_WITH_RSA, false);
+        final CertificateExpirationCursor cursor = CertificateExpirationCursor.after(certificate);
+        assertEquals("The expiration date should be stored the same way as in CertificateData", certificate.getNotAfter().getTime(),
+                cursor.getExpireDate());
+        assertEquals(CertTools.getFingerprintAsString(certificate), cursor.getFingerprint());
+    }
+}
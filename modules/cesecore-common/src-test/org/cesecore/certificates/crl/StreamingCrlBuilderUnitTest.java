@@ -0,0 +1,123 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.crl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Date;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CRLEntryHolder;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.keyfactor.util.CryptoProviderTools;
+
+/**
+ * Unit tests of CRL generation with {@link StreamingCrlBuilder}.
+ */
+public class StreamingCrlBuilderUnitTest {
+
+    private static final X500Name ISSUER = new X500Name("CN=StreamingCrlBuilderUnitTest");
+    // RSA PKCS#1 v1.5 signatures are deterministic, so the CRLs can be compared byte by byte
+    private static final String SIGNATURE_ALGORITHM = "SHA256WithRSA";
+
+    private static KeyPair keyPair;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        CryptoProviderTools.installBCProviderIfNotAvailable();
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA", BouncyCastleProvider.PROVIDER_NAME);
+        keyPairGenerator.initialize(2048);
+        keyPair = keyPairGenerator.generateKeyPair();
+    }
+
+    @Test
+    public void testSameEncodingAsX509v2CRLBuilder() throws Exception {
+        final Date thisUpdate = new Date(1700000000000L);
+        final Date nextUpdate = new Date(1700086400000L);
+        final X509v2CRLBuilder expectedBuilder = new X509v2CRLBuilder(ISSUER, thisUpdate);
+        expectedBuilder.setNextUpdate(nextUpdate);
+        expectedBuilder.addCRLEntry(BigInteger.valueOf(1), thisUpdate, RevokedCertInfo.REVOCATION_REASON_UNSPECIFIED);
+        expectedBuilder.addCRLEntry(BigInteger.valueOf(2), thisUpdate, RevokedCertInfo.REVOCATION_REASON_KEYCOMPROMISE, new Date(1699000000000L));
+        expectedBuilder.addCRLEntry(BigInteger.valueOf(3), thisUpdate, RevokedCertInfo.REVOCATION_REASON_REMOVEFROMCRL);
+        expectedBuilder.addExtension(Extension.cRLNumber, false, new CRLNumber(BigInteger.valueOf(42)));
+        final X509CRLHolder expected = expectedBuilder.build(createSigner());
+        try (StreamingCrlBuilder builder = new StreamingCrlBuilder(ISSUER, thisUpdate)) {
+            builder.setNextUpdate(nextUpdate);
+            builder.addCRLEntry(BigInteger.valueOf(1), thisUpdate, RevokedCertInfo.REVOCATION_REASON_UNSPECIFIED, null);
+            builder.addCRLEntry(BigInteger.valueOf(2), thisUpdate, RevokedCertInfo.REVOCATION_REASON_KEYCOMPROMISE, new Date(1699000000000L));
+            builder.addCRLEntry(BigInteger.valueOf(3), thisUpdate, RevokedCertInfo.REVOCATION_REASON_REMOVEFROMCRL);
+            builder.addExtension(Extension.cRLNumber, false, new CRLNumber(BigInteger.valueOf(42)));
+            final X509CRLHolder crl = builder.build(createSigner());
+            assertArrayEquals("CRL should be encoded like X509v2CRLBuilder does.", expected.getEncoded(), crl.getEncoded());
+            assertTrue(builder.isSignatureValid(createVerifierProvider()));
+        }
+    }
+
+    @Test
+    public void testEmptyCrl() throws Exception {
+        final Date thisUpdate = new Date(1700000000000L);
+        final X509v2CRLBuilder expectedBuilder = new X509v2CRLBuilder(ISSUER, thisUpdate);
+        final X509CRLHolder expected = expectedBuilder.build(createSigner());
+        try (StreamingCrlBuilder builder = new StreamingCrlBuilder(ISSUER, thisUpdate)) {
+            assertArrayEquals(expected.getEncoded(), builder.build(createSigner()).getEncoded());
+        }
+    }
+
+    @Test
+    public void testLargeCrlUsesTemporaryFile() throws Exception {
+        final int entryCount = 100000;
+        final Date now = new Date();
+        final X509CRLHolder crl;
+        try (StreamingCrlBuilder builder = new StreamingCrlBuilder(ISSUER, now)) {
+            builder.setNextUpdate(new Date(now.getTime() + 3600000L));
+            for (int i = 0; i < entryCount; i++) {
+                builder.addCRLEntry(BigInteger.valueOf(i).shiftLeft(64), now, RevokedCertInfo.REVOCATION_REASON_SUPERSEDED);
+            }
+            assertEquals(entryCount, builder.getEntryCount());
+            crl = builder.build(createSigner());
+            assertTrue(builder.isSignatureValid(createVerifierProvider()));
+        }
+        // Parse the encoding again, to make sure it is a complete and correctly signed CRL
+        final X509CRLHolder parsed = new X509CRLHolder(crl.getEncoded());
+        assertTrue(parsed.isSignatureValid(createVerifierProvider()));
+        assertEquals(entryCount, parsed.getRevokedCertificates().size());
+        final X509CRLEntryHolder lastEntry = parsed.getRevokedCertificate(BigInteger.valueOf(entryCount - 1).shiftLeft(64));
+        assertNotNull(lastEntry);
+        assertEquals(ISSUER, parsed.getIssuer());
+    }
+
+    private static ContentSigner createSigner() throws Exception {
+        return new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).setProvider(BouncyCastleProvider.PROVIDER_NAME).build(keyPair.getPrivate());
+    }
+
+    private static ContentVerifierProvider createVerifierProvider() throws Exception {
+        return new JcaContentVerifierProviderBuilder().setProvider(BouncyCastleProvider.PROVIDER_NAME).build(keyPair.getPublic());
+    }
+}
@@ -0,0 +1,155 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.ocsp.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.ocsp.CertID;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.junit.Test;
+
+/**
+ * Unit tests of the lookup index used by {@link OcspSigningCache}.
+ */
+public class CertificateIdIndexTest {
+
+    private static final Logger log = Logger.getLogger(CertificateIdIndexTest.class);
+
+    private static final int LARGE_INDEX_SIZE = 10_000;
+    private static final int LOOKUP_ROUNDS = 50;
+
+    @Test
+    public void testEmptyIndex() {
+        final CertificateIdIndex<String> index = CertificateIdIndex.empty();
+        assertNull("Empty index should not return anything.", index.get(createCertificateId(OIWObjectIdentifiers.idSHA1, 1, 1)));
+        assertEquals(0, index.size());
+        assertTrue(index.values().isEmpty());
+    }
+
+    @Test
+    public void testLookupMatchesAllFields() {
+        final Map<CertificateIdIndex.Key, String> source = new LinkedHashMap<>();
+        source.put(new CertificateIdIndex.Key(createCertificateId(OIWObjectIdentifiers.idSHA1, 1, 2)), "sha1");
+        source.put(new CertificateIdIndex.Key(createCertificateId(NISTObjectIdentifiers.id_sha256, 1, 2)), "sha256");
+        source.put(new CertificateIdIndex.Key(createCertificateId(OIWObjectIdentifiers.idSHA1, 2, 1)), "swapped");
+        final CertificateIdIndex<String> index = new CertificateIdIndex<>(source);
+        assertEquals(3, index.size());
+        assertEquals("sha1", index.get(createCertificateId(OIWObjectIdentifiers.idSHA1, 1, 2)));
+        assertEquals("sha256", index.get(createCertificateId(NISTObjectIdentifiers.id_sha256, 1, 2)));
+        assertEquals("swapped", index.get(createCertificateId(OIWObjectIdentifiers.idSHA1, 2, 1)));
+        assertNull("Hash algorithm is part of the key.", index.get(createCertificateId(NISTObjectIdentifiers.id_sha384, 1, 2)));
+        assertNull("Issuer key hash is part of the key.", index.get(createCertificateId(OIWObjectIdentifiers.idSHA1, 1, 3)));
+        assertEquals("Values should be returned in insertion order.", List.of("sha1", "sha256", "swapped"), new ArrayList<>(index.values()));
+        assertEquals("Copy of the index should have the same content.", source, index.toMap());
+    }
+
+    @Test
+    public void testLargeIndex() {
+        final List<CertificateID> certificateIds = createCertificateIds(LARGE_INDEX_SIZE);
+        final Map<CertificateIdIndex.Key, Integer> source = new LinkedHashMap<>();
+        for (int i = 0; i < certificateIds.size(); i++) {
+            source.put(new CertificateIdIndex.Key(certificateIds.get(i)), i);
+        }
+        final CertificateIdIndex<Integer> index = new CertificateIdIndex<>(source);
+        assertEquals(LARGE_INDEX_SIZE, index.size());
+        for (int i = 0; i < certificateIds.size(); i++) {
+            assertEquals(Integer.valueOf(i), index.get(certificateIds.get(i)));
+        }
+        assertNull(index.get(createCertificateId(OIWObjectIdentifiers.idSHA1, LARGE_INDEX_SIZE + 1, LARGE_INDEX_SIZE + 1)));
+    }
+
+    /**
+     * Compares lookups in the index with the previous approach of deriving an Integer cache id from each CertificateID
+     * and using it as a HashMap key. Only logs the result, since timing is not reliable enough to assert on in a unit test.
+     */
+    @Test
+    public void testLookupPerformanceComparedToCacheIdHashMap() {
+        final List<CertificateID> certificateIds = createCertificateIds(LARGE_INDEX_SIZE);
+        final Map<CertificateIdIndex.Key, Integer> source = new LinkedHashMap<>();
+        final Map<Integer, Integer> legacy = new HashMap<>();
+        for (int i = 0; i < certificateIds.size(); i++) {
+            source.put(new CertificateIdIndex.Key(certificateIds.get(i)), i);
+            legacy.put(legacyCacheId(certificateIds.get(i)), i);
+        }
+        final CertificateIdIndex<Integer> index = new CertificateIdIndex<>(source);
+        long found = 0;
+        long legacyFound = 0;
+        long indexTime = 0;
+        long legacyTime = 0;
+        for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (final CertificateID certificateId : certificateIds) {
+                if (index.get(certificateId) != null) {
+                    found++;
+                }
+            }
+            indexTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            for (final CertificateID certificateId : certificateIds) {
+                if (legacy.get(legacyCacheId(certificateId)) != null) {
+                    legacyFound++;
+                }
+            }
+            legacyTime += System.nanoTime() - start;
+        }
+        final long lookups = (long) LOOKUP_ROUNDS * LARGE_INDEX_SIZE;
+        assertEquals("All lookups in the index should have found an entry.", lookups, found);
+        assertEquals("All lookups in the HashMap should have found an entry.", lookups, legacyFound);
+        log.info("Lookups in " + LARGE_INDEX_SIZE + " entries: index " + (indexTime / lookups) + " ns/op, cache id HashMap "
+                + (legacyTime / lookups) + " ns/op.");
+    }
+
+    /** The cache id that OcspSigningCache used before the index, i.e. XOR of the hash codes of the issuer hashes. */
+    private static int legacyCacheId(final CertificateID certificateId) {
+        return new BigInteger(certificateId.getIssuerNameHash()).hashCode() ^ new BigInteger(certificateId.getIssuerKeyHash()).hashCode();
+    }
+
+    private static List<CertificateID> createCertificateIds(final int count) {
+        final List<CertificateID> ret = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ret.add(createCertificateId(OIWObjectIdentifiers.idSHA1, i, LARGE_INDEX_SIZE - i));
+        }
+        return ret;
+    }
+
+    private static CertificateID createCertificateId(final ASN1ObjectIdentifier hashAlgorithm, final int issuerNameSeed, final int issuerKeySeed) {
+        return new CertificateID(new CertID(new AlgorithmIdentifier(hashAlgorithm), new DEROctetString(hashBytes(issuerNameSeed)),
+                new DEROctetString(hashBytes(issuerKeySeed)), new ASN1Integer(BigInteger.ONE)));
+    }
+
+    /** @return 20 bytes, like a SHA-1 digest, derived from the seed */
+    private static byte[] hashBytes(final int seed) {
+        final ByteBuffer buffer = ByteBuffer.allocate(20);
+        for (int i = 0; i < 5; i++) {
+            buffer.putInt(seed * (31 + i) + i);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,154 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.ocsp.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cesecore.certificates.certificate.CertificateStatus;
+import org.cesecore.certificates.crl.RevokedCertInfo;
+import org.cesecore.config.ConfigurationHolder;
+import org.cesecore.config.OcspConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test of the in-memory revocation status index used by the OCSP responder.
+ */
+public class OcspRevocationStatusIndexTest {
+
+    private static final String ISSUER_DN = "CN=OcspRevocationStatusIndexTest";
+    private static final BigInteger SERIAL_REVOKED = new BigInteger("1001");
+    private static final BigInteger SERIAL_GOOD = new BigInteger("1002");
+
+    private String defaultMaxStaleness = null;
+    private String defaultMaxEntries = null;
+
+    @Before
+    public void before() {
+        OcspRevocationStatusIndex.INSTANCE.flush();
+        defaultMaxStaleness = ConfigurationHolder.getString(OcspConfiguration.STATUS_INDEX_MAX_STALENESS);
+        defaultMaxEntries = ConfigurationHolder.getString(OcspConfiguration.STATUS_INDEX_MAX_ENTRIES);
+    }
+
+    @After
+    public void after() {
+        OcspRevocationStatusIndex.INSTANCE.flush();
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.STATUS_INDEX_MAX_STALENESS, defaultMaxStaleness);
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.STATUS_INDEX_MAX_ENTRIES, defaultMaxEntries);
+    }
+
+    @Test
+    public void testNotLoaded() {
+        assertFalse(OcspRevocationStatusIndex.INSTANCE.isLoaded(ISSUER_DN));
+        assertEquals(-1L, OcspRevocationStatusIndex.INSTANCE.getHighWaterMark(ISSUER_DN));
+        assertNull("Lookups for issuers that are not loaded should fall back to the database.",
+                OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_REVOKED));
+        OcspRevocationStatusIndex.INSTANCE.putIfAbsent(ISSUER_DN, SERIAL_GOOD, good());
+        assertFalse("Read-through should not load an issuer.", OcspRevocationStatusIndex.INSTANCE.isLoaded(ISSUER_DN));
+    }
+
+    @Test
+    public void testLoadAndLookup() {
+        OcspRevocationStatusIndex.INSTANCE.load(ISSUER_DN, Collections.singletonMap(SERIAL_REVOKED, revoked()), 1000L);
+        assertTrue(OcspRevocationStatusIndex.INSTANCE.isLoaded(ISSUER_DN));
+        assertEquals(1000L, OcspRevocationStatusIndex.INSTANCE.getHighWaterMark(ISSUER_DN));
+        final CertificateStatus status = OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_REVOKED);
+        assertEquals(CertificateStatus.REVOKED, status);
+        assertEquals(RevokedCertInfo.REVOCATION_REASON_KEYCOMPROMISE, status.revocationReason);
+        assertEquals(12345L, status.revocationDate.getTime());
+        assertEquals(4711, status.certificateProfileId);
+        assertEquals(99999L, status.getExpirationDate());
+        assertNull("Serial numbers that are not in the index should fall back to the database.",
+                OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_GOOD));
+        assertNull(OcspRevocationStatusIndex.INSTANCE.getStatus("CN=Other", SERIAL_REVOKED));
+    }
+
+    @Test
+    public void testUpdateAndReadThrough() {
+        OcspRevocationStatusIndex.INSTANCE.load(ISSUER_DN, Collections.emptyMap(), 1000L);
+        OcspRevocationStatusIndex.INSTANCE.putIfAbsent(ISSUER_DN, SERIAL_GOOD, good());
+        OcspRevocationStatusIndex.INSTANCE.putIfAbsent(ISSUER_DN, SERIAL_REVOKED, CertificateStatus.NOT_AVAILABLE);
+        assertEquals(CertificateStatus.OK, OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_GOOD));
+        assertNull("Unknown certificates should not be kept in the index.", OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_REVOKED));
+        // A refresh that sees the revocation replaces the cached good status
+        final Map<BigInteger, CertificateStatus> changes = new HashMap<>();
+        changes.put(SERIAL_GOOD, revoked());
+        OcspRevocationStatusIndex.INSTANCE.update(ISSUER_DN, changes, 2000L);
+        assertEquals(CertificateStatus.REVOKED, OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_GOOD));
+        assertEquals(2000L, OcspRevocationStatusIndex.INSTANCE.getHighWaterMark(ISSUER_DN));
+        // A late read-through with an older status must not replace it
+        OcspRevocationStatusIndex.INSTANCE.putIfAbsent(ISSUER_DN, SERIAL_GOOD, good());
+        assertEquals(CertificateStatus.REVOKED, OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_GOOD));
+        // Reactivation (e.g. removed from certificate hold) is applied
+        changes.put(SERIAL_GOOD, good());
+        OcspRevocationStatusIndex.INSTANCE.update(ISSUER_DN, changes, 1500L);
+        assertEquals(CertificateStatus.OK, OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_GOOD));
+        assertEquals("High water mark should never move backwards.", 2000L, OcspRevocationStatusIndex.INSTANCE.getHighWaterMark(ISSUER_DN));
+    }
+
+    @Test
+    public void testStaleIndexFallsBackToDatabase() throws InterruptedException {
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.STATUS_INDEX_MAX_STALENESS, "50");
+        OcspRevocationStatusIndex.INSTANCE.load(ISSUER_DN, Collections.singletonMap(SERIAL_REVOKED, revoked()), 1000L);
+        assertEquals(CertificateStatus.REVOKED, OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_REVOKED));
+        Thread.sleep(100);
+        assertNull("Stale index should not be used.", OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_REVOKED));
+        OcspRevocationStatusIndex.INSTANCE.update(ISSUER_DN, Collections.emptyMap(), 1100L);
+        assertEquals("Index should be used again after a refresh.", CertificateStatus.REVOKED,
+                OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_REVOKED));
+    }
+
+    @Test
+    public void testMaxEntriesOnlyLimitsGoodEntries() {
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.STATUS_INDEX_MAX_ENTRIES, "1");
+        OcspRevocationStatusIndex.INSTANCE.load(ISSUER_DN, Collections.singletonMap(SERIAL_REVOKED, revoked()), 1000L);
+        OcspRevocationStatusIndex.INSTANCE.putIfAbsent(ISSUER_DN, SERIAL_GOOD, good());
+        assertNull("Good entries should not be added to a full index.", OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, SERIAL_GOOD));
+        final BigInteger newlyRevoked = new BigInteger("1003");
+        OcspRevocationStatusIndex.INSTANCE.update(ISSUER_DN, Collections.singletonMap(newlyRevoked, revoked()), 2000L);
+        assertEquals("Revoked entries should always be added.", CertificateStatus.REVOKED,
+                OcspRevocationStatusIndex.INSTANCE.getStatus(ISSUER_DN, newlyRevoked));
+        assertEquals(2, OcspRevocationStatusIndex.INSTANCE.size(ISSUER_DN));
+    }
+
+    @Test
+    public void testRetainIssuers() {
+        OcspRevocationStatusIndex.INSTANCE.load(ISSUER_DN, Collections.emptyMap(), 1000L);
+        OcspRevocationStatusIndex.INSTANCE.load("CN=Other", Collections.emptyMap(), 1000L);
+        OcspRevocationStatusIndex.INSTANCE.retainIssuers(Collections.singleton(ISSUER_DN));
+        assertTrue(OcspRevocationStatusIndex.INSTANCE.isLoaded(ISSUER_DN));
+        assertFalse(OcspRevocationStatusIndex.INSTANCE.isLoaded("CN=Other"));
+    }
+
+    private static CertificateStatus revoked() {
+        final CertificateStatus ret = new CertificateStatus(CertificateStatus.REVOKED.toString(), 12345L,
+                RevokedCertInfo.REVOCATION_REASON_KEYCOMPROMISE, 4711);
+        ret.setExpirationDate(99999L);
+        return ret;
+    }
+
+    private static CertificateStatus good() {
+        final CertificateStatus ret = new CertificateStatus(CertificateStatus.OK.toString(), -1L, RevokedCertInfo.NOT_REVOKED, 4711);
+        ret.setExpirationDate(99999L);
+        return ret;
+    }
+}
@@ -0,0 +1,121 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Tests delivery of cache invalidation events between nodes with {@link LoopbackCacheInvalidationTransport}.
+ */
+public class CacheInvalidationBusUnitTest {
+
+    private static final Logger log = Logger.getLogger(CacheInvalidationBusUnitTest.class);
+
+    private static final String CACHE_NAME = "TestCache";
+
+    @Test
+    public void eventsAreDeliveredToOtherNodesOnly() {
+        log.trace(">eventsAreDeliveredToOtherNodesOnly");
+        final CacheInvalidationBus node1 = new CacheInvalidationBus("node1");
+        final CacheInvalidationBus node2 = new CacheInvalidationBus("node2");
+        final CacheInvalidationBus node3 = new CacheInvalidationBus("node3");
+        final List<CacheInvalidationEvent> received1 = new ArrayList<>();
+        final List<CacheInvalidationEvent> received2 = new ArrayList<>();
+        final List<CacheInvalidationEvent> received3 = new ArrayList<>();
+        node1.addListener(CACHE_NAME, received1::add);
+        node2.addListener(CACHE_NAME, received2::add);
+        node3.addListener("OtherCache", received3::add);
+        // Without a transport, nothing is sent
+        assertFalse(node1.isDistributed());
+        node1.publish(CACHE_NAME, 1);
+        final LoopbackCacheInvalidationTransport transport = new LoopbackCacheInvalidationTransport();
+        transport.connect(node1);
+        transport.connect(node2);
+        transport.connect(node3);
+        assertTrue(node1.isDistributed());
+        node1.publish(CACHE_NAME, 42);
+        assertEquals("The node that published the event should not receive it.", 0, received1.size());
+        assertEquals(1, received2.size());
+        assertEquals(42, received2.get(0).getId());
+        assertEquals("node1", received2.get(0).getNodeId());
+        assertEquals("Listeners of other caches should not receive the event.", 0, received3.size());
+        transport.disconnect(node2);
+        node1.publish(CACHE_NAME, 43);
+        assertEquals("A disconnected node should not receive events.", 1, received2.size());
+        log.trace("<eventsAreDeliveredToOtherNodesOnly");
+    }
+
+    @Test
+    public void failingListenerDoesNotStopDelivery() {
+        log.trace(">failingListenerDoesNotStopDelivery");
+        final CacheInvalidationBus sender = new CacheInvalidationBus("sender");
+        final CacheInvalidationBus receiver = new CacheInvalidationBus("receiver");
+        final LoopbackCacheInvalidationTransport transport = new LoopbackCacheInvalidationTransport();
+        transport.connect(sender);
+        transport.connect(receiver);
+        final List<CacheInvalidationEvent> received = new ArrayList<>();
+        final Consumer<CacheInvalidationEvent> failing = event -> {
+            throw new IllegalStateException("Failing on purpose");
+        };
+        final Consumer<CacheInvalidationEvent> recorder = received::add;
+        receiver.addListener(CACHE_NAME, failing);
+        receiver.addListener(CACHE_NAME, recorder);
+        sender.publish(CACHE_NAME, 1);
+        assertEquals("Listeners after a failing listener should still be called.", 1, received.size());
+        receiver.removeListener(CACHE_NAME, failing);
+        receiver.removeListener(CACHE_NAME, recorder);
+        sender.publish(CACHE_NAME, 2);
+        assertEquals("A removed listener should not be called.", 1, received.size());
+        log.trace("<failingListenerDoesNotStopDelivery");
+    }
+
+    @Test
+    public void expiredEntryIsCheckedForUpdatesOnce() {
+        log.trace(">expiredEntryIsCheckedForUpdatesOnce");
+        final CommonCacheBase<String> cache = new CommonCacheBase<String>() {
+            @Override
+            protected long getCacheTime() {
+                return Long.MAX_VALUE / 2;
+            }
+            @Override
+            protected long getMaxCacheLifeTime() {
+                return 0L;
+            }
+        };
+        cache.updateWith(1, 1, "name", "object");
+        assertFalse(cache.shouldCheckForUpdates(1));
+        final CacheInvalidationBus sender = new CacheInvalidationBus("sender");
+        final CacheInvalidationBus receiver = new CacheInvalidationBus("receiver");
+        final LoopbackCacheInvalidationTransport transport = new LoopbackCacheInvalidationTransport();
+        transport.connect(sender);
+        transport.connect(receiver);
+        receiver.addListener(CACHE_NAME, event -> cache.expireEntry(event.getId()));
+        sender.publish(CACHE_NAME, 1);
+        assertEquals("The cached object should be kept until it has been read again.", "object", cache.getEntry(1));
+        assertTrue("The object should be read again after it was changed on another node.", cache.shouldCheckForUpdates(1));
+        assertFalse("Only one caller should be told to read the object again.", cache.shouldCheckForUpdates(1));
+        // Unknown ids are ignored
+        sender.publish(CACHE_NAME, 2);
+        assertTrue(cache.shouldCheckForUpdates(2));
+        log.trace("<expiredEntryIsCheckedForUpdatesOnce");
+    }
+}
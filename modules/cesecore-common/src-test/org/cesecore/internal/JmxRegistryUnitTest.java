@@ -0,0 +1,73 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Tests that statistics beans are published through JMX, and removed when the application is undeployed.
+ */
+public class JmxRegistryUnitTest {
+
+    private static final Logger log = Logger.getLogger(JmxRegistryUnitTest.class);
+
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    private static class Counter implements CounterMXBean {
+        private final long count;
+        Counter(final long count) {
+            this.count = count;
+        }
+        @Override
+        public long getCount() {
+            return count;
+        }
+    }
+
+    @Test
+    public void beansAreReplacedAndUnregistered() throws Exception {
+        log.trace(">beansAreReplacedAndUnregistered");
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final String first = "org.cesecore:type=JmxRegistryUnitTest,name=first";
+        final String second = "org.cesecore:type=JmxRegistryUnitTest,name=second";
+        try {
+            JmxRegistry.INSTANCE.register(new Counter(1), first);
+            assertEquals(1L, mBeanServer.getAttribute(new ObjectName(first), "Count"));
+            // Registering a bean with the same name again replaces the old one, like when an application is redeployed
+            JmxRegistry.INSTANCE.register(new Counter(2), first);
+            assertEquals(2L, mBeanServer.getAttribute(new ObjectName(first), "Count"));
+            JmxRegistry.INSTANCE.register(new Counter(3), second);
+            assertTrue(JmxRegistry.INSTANCE.isRegistered(second));
+            JmxRegistry.INSTANCE.unregisterAll();
+            assertFalse("Beans should be removed when the application is undeployed.", mBeanServer.isRegistered(new ObjectName(first)));
+            assertFalse(mBeanServer.isRegistered(new ObjectName(second)));
+            assertFalse(JmxRegistry.INSTANCE.isRegistered(second));
+        } finally {
+            JmxRegistry.INSTANCE.unregister(first);
+            JmxRegistry.INSTANCE.unregister(second);
+        }
+        log.trace("<beansAreReplacedAndUnregistered");
+    }
+}
@@ -0,0 +1,243 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Tests the bounds, statistics and registration of {@link ManagedCache}, and the {@link CommonCacheBase} built on it.
+ */
+public class ManagedCacheUnitTest {
+
+    private static final Logger log = Logger.getLogger(ManagedCacheUnitTest.class);
+
+    @Test
+    public void statisticsCountHitsMissesAndLoads() {
+        log.trace(">statisticsCountHitsMissesAndLoads");
+        final ManagedCache<String, String> cache = ManagedCache.<String, String>newBuilder().build(key -> key.equals("missing") ? null : key + "-value");
+        assertEquals("foo-value", cache.get("foo"));
+        assertEquals("foo-value", cache.get("foo"));
+        assertEquals("foo-value", cache.getIfPresent("foo"));
+        assertNull(cache.get("missing"));
+        assertNull(cache.getIfPresent("bar"));
+        final CacheStatistics statistics = cache.getStatistics();
+        log.info(statistics);
+        assertEquals("Wrong number of hits.", 2, statistics.getHitCount());
+        assertEquals("Wrong number of misses.", 3, statistics.getMissCount());
+        assertEquals("Wrong number of successful loads.", 1, statistics.getLoadSuccessCount());
+        assertEquals("A load without a value should count as failed.", 1, statistics.getLoadFailureCount());
+        assertEquals("Wrong size.", 1, statistics.getEstimatedSize());
+        assertEquals(0.4, statistics.getHitRate(), 0.001);
+        log.trace("<statisticsCountHitsMissesAndLoads");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getWithoutLoaderFails() {
+        ManagedCache.<String, String>newBuilder().build().get("foo");
+    }
+
+    @Test
+    public void sizeBoundEvictsEntries() {
+        log.trace(">sizeBoundEvictsEntries");
+        final List<Integer> evicted = new ArrayList<>();
+        final ManagedCache<Integer, String> cache = ManagedCache.<Integer, String>newBuilder()
+                .maximumSize(10)
+                .evictionListener((key, value) -> evicted.add(key))
+                .build();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "value" + i);
+        }
+        cache.cleanUp();
+        assertEquals("Cache should not grow beyond its maximum size.", 10, cache.getEstimatedSize());
+        assertEquals("Wrong number of evictions.", 90, cache.getEvictionCount());
+        assertEquals("Eviction listener should be called for each evicted entry.", 90, evicted.size());
+        // Removing or replacing entries is not an eviction
+        cache.invalidateAll();
+        assertEquals(90, evicted.size());
+        log.trace("<sizeBoundEvictsEntries");
+    }
+
+    @Test
+    public void timeBoundsExpireAndRefreshEntries() throws InterruptedException {
+        log.trace(">timeBoundsExpireAndRefreshEntries");
+        final ManagedCache<String, String> expiring = ManagedCache.<String, String>newBuilder().expireAfterWrite(100).build();
+        expiring.put("foo", "bar");
+        assertEquals("bar", expiring.getIfPresent("foo"));
+        Thread.sleep(150);
+        assertNull("Entry should have expired.", expiring.getIfPresent("foo"));
+
+        final AtomicInteger loads = new AtomicInteger();
+        // Run refreshes when the test says so, to see what is returned while a refresh is in progress
+        final List<Runnable> pendingRefreshes = new ArrayList<>();
+        final ManagedCache<String, String> refreshing = ManagedCache.<String, String>newBuilder()
+                .refreshAfterWrite(100)
+                .executor(pendingRefreshes::add)
+                .build(key -> key + loads.incrementAndGet());
+        assertEquals("foo1", refreshing.get("foo"));
+        Thread.sleep(150);
+        // The cached value is returned while it is refreshed, and the refreshed value is returned after that
+        assertEquals("foo1", refreshing.get("foo"));
+        assertEquals("Refresh should not have run yet.", 1, loads.get());
+        assertEquals("foo1", refreshing.get("foo"));
+        new ArrayList<>(pendingRefreshes).forEach(Runnable::run);
+        assertEquals("foo2", refreshing.get("foo"));
+        assertEquals(2, loads.get());
+        log.trace("<timeBoundsExpireAndRefreshEntries");
+    }
+
+    @Test
+    public void namedCacheIsRegistered() throws Exception {
+        log.trace(">namedCacheIsRegistered");
+        final String name = "ManagedCacheUnitTest";
+        final ManagedCache<String, String> cache = ManagedCache.<String, String>newBuilder().name(name).build();
+        try {
+            cache.put("foo", "bar");
+            cache.getIfPresent("foo");
+            assertSame(cache, CacheRegistry.INSTANCE.getCache(name));
+            CacheStatistics statistics = null;
+            for (final CacheStatistics current : CacheRegistry.INSTANCE.getStatistics()) {
+                if (name.equals(current.getName())) {
+                    statistics = current;
+                }
+            }
+            assertNotNull("Statistics of the cache were not found in the registry.", statistics);
+            assertEquals(1, statistics.getHitCount());
+            final ObjectName objectName = new ObjectName("org.cesecore:type=Cache,name=" + ObjectName.quote(name));
+            assertEquals("Statistics should be available through JMX.", 1L,
+                    ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "HitCount"));
+            // Registering a cache with the same name again replaces the old one, like when an application is redeployed
+            final ManagedCache<String, String> replacement = ManagedCache.<String, String>newBuilder().name(name).build();
+            assertSame(replacement, CacheRegistry.INSTANCE.getCache(name));
+            assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "HitCount"));
+            CacheRegistry.INSTANCE.unregister(name);
+            assertNull(CacheRegistry.INSTANCE.getCache(name));
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+        } finally {
+            CacheRegistry.INSTANCE.unregister(name);
+        }
+        log.trace("<namedCacheIsRegistered");
+    }
+
+    @Test
+    public void commonCacheSizeBoundUpdatesNameToIdMap() {
+        log.trace(">commonCacheSizeBoundUpdatesNameToIdMap");
+        final CommonCacheBase<String> cache = new CommonCacheBase<String>() {
+            @Override
+            protected long getCacheTime() {
+                return 60000L;
+            }
+            @Override
+            protected long getMaxCacheLifeTime() {
+                return 0L;
+            }
+            @Override
+            protected long getMaxCacheSize() {
+                return 5L;
+            }
+        };
+        for (int i = 0; i < 50; i++) {
+            cache.updateWith(i, i, "name" + i, "object" + i);
+        }
+        assertEquals("Name to id map should only contain the entries left in the cache.", cache.getAllNames().size(), cache.getNameToIdMap().size());
+        assertTrue("Cache should not grow beyond its maximum size.", cache.getNameToIdMap().size() <= 5);
+        cache.flush();
+        assertTrue(cache.getNameToIdMap().isEmpty());
+        log.trace("<commonCacheSizeBoundUpdatesNameToIdMap");
+    }
+
+    /** A cache whose maximum size is set by the constructor of the subclass, which runs after the constructor of CommonCacheBase */
+    private static class SizedCache extends CommonCacheBase<String> {
+        private final long maxCacheSize;
+        SizedCache(final long maxCacheSize) {
+            this.maxCacheSize = maxCacheSize;
+        }
+        @Override
+        protected long getCacheTime() {
+            return 60000L;
+        }
+        @Override
+        protected long getMaxCacheLifeTime() {
+            return 0L;
+        }
+        @Override
+        protected long getMaxCacheSize() {
+            return maxCacheSize;
+        }
+    }
+
+    @Test
+    public void commonCacheSizeCanBeSetBySubclass() {
+        log.trace(">commonCacheSizeCanBeSetBySubclass");
+        final SizedCache cache = new SizedCache(5L);
+        for (int i = 0; i < 50; i++) {
+            cache.updateWith(i, i, "name" + i, "object" + i);
+        }
+        assertTrue("Maximum size set in the constructor of the subclass should be used.", cache.getNameToIdMap().size() <= 5);
+        log.trace("<commonCacheSizeCanBeSetBySubclass");
+    }
+
+    @Test
+    public void onlyOneThreadIsToldToUpdateAnExpiredEntry() throws Exception {
+        log.trace(">onlyOneThreadIsToldToUpdateAnExpiredEntry");
+        final CommonCacheBase<String> cache = new CommonCacheBase<String>() {
+            @Override
+            protected long getCacheTime() {
+                return 50L;
+            }
+            @Override
+            protected long getMaxCacheLifeTime() {
+                return 0L;
+            }
+        };
+        cache.updateWith(1, 1, "name", "object");
+        assertFalse(cache.shouldCheckForUpdates(1));
+        Thread.sleep(100);
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(() -> cache.shouldCheckForUpdates(1));
+            }
+            int updaters = 0;
+            for (final Future<Boolean> future : executorService.invokeAll(tasks)) {
+                if (future.get()) {
+                    updaters++;
+                }
+            }
+            assertEquals("Exactly one thread should be told to check for updates.", 1, updaters);
+            assertEquals("The cached object should still be used while it is updated.", "object", cache.getEntry(1));
+        } finally {
+            executorService.shutdown();
+        }
+        log.trace("<onlyOneThreadIsToldToUpdateAnExpiredEntry");
+    }
+}
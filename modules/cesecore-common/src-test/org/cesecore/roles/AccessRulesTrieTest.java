@@ -0,0 +1,186 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.roles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Test of access rules compiled into a prefix tree, which must give the same result as {@link AccessRulesHelper}.
+ */
+public class AccessRulesTrieTest {
+
+    private static final Logger log = Logger.getLogger(AccessRulesTrieTest.class);
+
+    @Test
+    public void testLongestMatchingRuleDecides() {
+        final HashMap<String, Boolean> accessRules = new HashMap<>();
+        accessRules.put("/a/", Role.STATE_ALLOW);
+        accessRules.put("/a/b/", Role.STATE_DENY);
+        accessRules.put("/a/b/c/", Role.STATE_ALLOW);
+        accessRules.put("/ab/", Role.STATE_ALLOW);
+        final AccessRulesTrie accessRulesTrie = AccessRulesTrie.compile(accessRules);
+        assertTrue(accessRulesTrie.hasAccessToResource("/a"));
+        assertTrue(accessRulesTrie.hasAccessToResource("/a/"));
+        assertTrue(accessRulesTrie.hasAccessToResource("/a/x/y"));
+        assertFalse(accessRulesTrie.hasAccessToResource("/a/b"));
+        assertFalse(accessRulesTrie.hasAccessToResource("/a/b/x"));
+        assertTrue(accessRulesTrie.hasAccessToResource("/a/b/c"));
+        assertTrue(accessRulesTrie.hasAccessToResource("/a/b/c/d/"));
+        assertTrue(accessRulesTrie.hasAccessToResource("/ab"));
+        assertFalse(accessRulesTrie.hasAccessToResource("/abc"));
+        assertFalse(accessRulesTrie.hasAccessToResource("/"));
+        assertFalse(accessRulesTrie.hasAccessToResource("a"));
+        assertFalse(accessRulesTrie.hasAccessToResource(""));
+        assertFalse(accessRulesTrie.hasAccessToResource(null));
+        assertTrue(accessRulesTrie.hasAccessToResources("/a", "/ab"));
+        assertFalse(accessRulesTrie.hasAccessToResources("/a", "/a/b"));
+    }
+
+    @Test
+    public void testRootAndNonNormalizedRules() {
+        final HashMap<String, Boolean> accessRules = new HashMap<>();
+        accessRules.put("/", Role.STATE_ALLOW);
+        accessRules.put("/a", Role.STATE_DENY);
+        // The non-normalized form takes precedence
+        accessRules.put("/b", Role.STATE_DENY);
+        accessRules.put("/b/", Role.STATE_ALLOW);
+        assertSameAsHelper(accessRules, "/", "/x", "/a", "/a/", "/a/x", "/b", "/b/x");
+        assertFalse(AccessRulesTrie.compile(accessRules).hasAccessToResource("/b/x"));
+        accessRules.put("", Role.STATE_DENY);
+        assertSameAsHelper(accessRules, "/", "/x");
+        assertFalse(AccessRulesTrie.compile(accessRules).hasAccessToResource("/x"));
+    }
+
+    @Test
+    public void testEmptySegments() {
+        final HashMap<String, Boolean> accessRules = new HashMap<>();
+        accessRules.put("/a/", Role.STATE_ALLOW);
+        accessRules.put("/b//", Role.STATE_ALLOW);
+        assertSameAsHelper(accessRules, "/a//b", "//", "/b", "/b/", "/b//", "/b//c", "/a/b");
+        accessRules.remove("/b//");
+        assertSameAsHelper(accessRules, "/a//b", "//", "/a/b");
+        // With both forms of a rule, the form that is found first depends on the empty segments of the resource
+        accessRules.put("/a", Role.STATE_DENY);
+        assertSameAsHelper(accessRules, "/a//", "/a/x//", "/a/x//y", "/a", "/a/x");
+    }
+
+    @Test
+    public void testEmptyAccessRules() {
+        assertFalse(AccessRulesTrie.compile(new HashMap<>()).hasAccessToResource("/"));
+        assertFalse(AccessRulesTrie.compile(null).hasAccessToResource("/a"));
+    }
+
+    @Test
+    public void testRandomRulesSameAsHelper() {
+        final Random random = new Random(42);
+        final String[] segments = { "a", "b", "c", "ab", "1", "12", "-1", "x y" };
+        for (int round = 0; round < 200; round++) {
+            final HashMap<String, Boolean> accessRules = new HashMap<>();
+            for (int i = 0; i < 1 + random.nextInt(20); i++) {
+                accessRules.put(randomPath(random, segments, random.nextBoolean()), random.nextBoolean());
+            }
+            final AccessRulesTrie accessRulesTrie = AccessRulesTrie.compile(accessRules);
+            for (int i = 0; i < 100; i++) {
+                final String resource = randomPath(random, segments, random.nextBoolean());
+                assertEquals("Different result for " + resource + " with rules " + accessRules, AccessRulesHelper.hasAccessToResource(accessRules, resource),
+                        accessRulesTrie.hasAccessToResource(resource));
+            }
+        }
+    }
+
+    /** Compares the time of access checks with many CA and profile rules, as used by administrators of large installations. */
+    @Test
+    public void testAccessCheckTime() {
+        final HashMap<String, Boolean> accessRules = new HashMap<>();
+        accessRules.put("/administrator/", Role.STATE_ALLOW);
+        accessRules.put("/ra_functionality/", Role.STATE_ALLOW);
+        accessRules.put("/system_functionality/edit_systemconfiguration/", Role.STATE_DENY);
+        final List<String> resources = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            final int caId = 1000000 + i * 7919;
+            final int profileId = 2000000 + i * 104729;
+            accessRules.put("/ca/" + caId + "/", i % 10 != 0);
+            accessRules.put("/endentityprofilesrules/" + profileId + "/", Role.STATE_ALLOW);
+            accessRules.put("/endentityprofilesrules/" + profileId + "/revoke_end_entity/", i % 5 != 0);
+            resources.add("/ca/" + caId);
+            resources.add("/endentityprofilesrules/" + profileId + "/view_end_entity");
+            resources.add("/endentityprofilesrules/" + profileId + "/revoke_end_entity");
+        }
+        resources.add("/administrator");
+        resources.add("/system_functionality/edit_systemconfiguration");
+        resources.add("/cryptotoken/use/12345");
+        final AccessRulesTrie accessRulesTrie = AccessRulesTrie.compile(accessRules);
+        for (final String resource : resources) {
+            assertEquals(resource, AccessRulesHelper.hasAccessToResource(accessRules, resource), accessRulesTrie.hasAccessToResource(resource));
+        }
+        final int rounds = 300;
+        long helperNanos = Long.MAX_VALUE;
+        long trieNanos = Long.MAX_VALUE;
+        int granted = 0;
+        // Best of a few runs, to reduce the influence of JIT compilation and garbage collection
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (final String resource : resources) {
+                    granted += AccessRulesHelper.hasAccessToResource(accessRules, resource) ? 1 : 0;
+                }
+            }
+            helperNanos = Math.min(helperNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (final String resource : resources) {
+                    granted -= accessRulesTrie.hasAccessToResource(resource) ? 1 : 0;
+                }
+            }
+            trieNanos = Math.min(trieNanos, System.nanoTime() - start);
+        }
+        assertEquals("Both should grant access to the same resources.", 0, granted);
+        final long checks = (long) rounds * resources.size();
+        log.info("Access check with " + accessRules.size() + " rules: " + helperNanos / checks + " ns with AccessRulesHelper, " + trieNanos / checks
+                + " ns with AccessRulesTrie.");
+    }
+
+    private static String randomPath(final Random random, final String[] segments, final boolean trailingSlash) {
+        final StringBuilder sb = new StringBuilder();
+        final int depth = random.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            sb.append('/');
+            // Occasionally create an empty segment
+            if (random.nextInt(50) != 0) {
+                sb.append(segments[random.nextInt(segments.length)]);
+            }
+        }
+        if (trailingSlash || depth == 0) {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameAsHelper(final HashMap<String, Boolean> accessRules, final String... resources) {
+        final AccessRulesTrie accessRulesTrie = AccessRulesTrie.compile(accessRules);
+        for (final String resource : resources) {
+            assertEquals("Different result for " + resource, AccessRulesHelper.hasAccessToResource(accessRules, resource),
+                    accessRulesTrie.hasAccessToResource(resource));
+        }
+    }
+}
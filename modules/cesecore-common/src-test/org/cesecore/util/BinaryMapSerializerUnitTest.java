@@ -0,0 +1,227 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+import org.cesecore.certificates.ca.X509CA;
+import org.cesecore.certificates.ca.X509CAUnitTestBase;
+import org.cesecore.certificates.certificateprofile.CertificatePolicy;
+import org.cesecore.certificates.certificateprofile.CertificateProfile;
+import org.cesecore.certificates.certificateprofile.CertificateProfileConstants;
+import org.cesecore.certificates.certificateprofile.PKIDisclosureStatement;
+import org.cesecore.config.ConfigurationHolder;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the binary encoding of data maps, and compares decoding time with XML. Extends {@link X509CAUnitTestBase} to get a real CA.
+ */
+public class BinaryMapSerializerUnitTest extends X509CAUnitTestBase {
+
+    private static final Logger log = Logger.getLogger(BinaryMapSerializerUnitTest.class);
+
+    @After
+    public void tearDown() {
+        ConfigurationHolder.updateConfiguration("database.binarydatamaps", "false");
+    }
+
+    private static LinkedHashMap<Object, Object> getMapWithAllTypes() {
+        final LinkedHashMap<Object, Object> map = new LinkedHashMap<>();
+        map.put("version", 47.0F);
+        map.put("string", "I am from Sweden");
+        map.put("utf8", "baråäö 中文");
+        map.put("null", null);
+        map.put("int", Integer.MIN_VALUE);
+        map.put("long", Long.MAX_VALUE);
+        map.put("true", true);
+        map.put("false", false);
+        map.put("double", 1.25D);
+        map.put("short", (short) 4711);
+        map.put("byte", (byte) -1);
+        map.put("char", 'ö');
+        map.put("date", new Date(1588783538788L));
+        map.put("class", CertificateProfile.class);
+        map.put(4712, "integer key");
+        final Properties properties = new Properties();
+        properties.setProperty("certSignKey", "signKey");
+        properties.setProperty("defaultKey", "encryptKey");
+        map.put("properties", properties);
+        final HashMap<Object, Object> hashMap = new HashMap<>();
+        hashMap.put(1, new LinkedHashMap<>(Map.of("nested", Arrays.asList(1, 2, 3).toString())));
+        hashMap.put(2, new TreeMap<>(Map.of("b", 2, "a", 1)));
+        map.put("hashmap", hashMap);
+        map.put("list", new ArrayList<>(Arrays.asList("a", null, 3, new CertificatePolicy("2.5.29.32.0", CertificatePolicy.id_qt_cps, "https://x"))));
+        map.put("set", new HashSet<>(Arrays.asList(3, 1, 2)));
+        map.put("pkids", new PKIDisclosureStatement("https://example.com/pds", "en"));
+        return map;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final LinkedHashMap<Object, Object> map = getMapWithAllTypes();
+        final String encoded = BinaryMapSerializer.encode(map);
+        assertTrue(BinaryMapSerializer.isBinary(encoded));
+        final LinkedHashMap<Object, Object> decoded = BinaryMapSerializer.decode(encoded);
+        assertEquals(map, decoded);
+        assertEquals("Order of entries was not kept.", new ArrayList<>(map.keySet()), new ArrayList<>(decoded.keySet()));
+        assertEquals(Properties.class, decoded.get("properties").getClass());
+        assertEquals(TreeMap.class, ((Map<?, ?>) decoded.get("hashmap")).get(2).getClass());
+        assertEquals("Same map must always give the same encoding.", encoded, BinaryMapSerializer.encode(decoded));
+    }
+
+    @Test
+    public void testUnorderedCollectionsAreEncodedInStableOrder() {
+        final HashMap<Object, Object> first = new HashMap<>(4);
+        final HashMap<Object, Object> second = new HashMap<>(1024);
+        for (int i = 0; i < 100; i++) {
+            first.put("key" + i, i);
+            second.put("key" + (99 - i), 99 - i);
+        }
+        assertEquals(BinaryMapSerializer.encode(Map.of("map", first)), BinaryMapSerializer.encode(Map.of("map", second)));
+    }
+
+    @Test
+    public void testDataMapIsTheSameAsFromXml() throws IOException {
+        ConfigurationHolder.updateConfiguration("database.binarydatamaps", "false");
+        final String xml = BinaryMapSerializer.encodeDataMap(getMapWithAllTypes());
+        assertFalse(BinaryMapSerializer.isBinary(xml));
+        ConfigurationHolder.updateConfiguration("database.binarydatamaps", "true");
+        final String binary = BinaryMapSerializer.encodeDataMap(getMapWithAllTypes());
+        assertTrue(BinaryMapSerializer.isBinary(binary));
+        assertTrue("Binary data map should be smaller than XML.", binary.length() < xml.length());
+        final LinkedHashMap<Object, Object> fromXml = BinaryMapSerializer.decodeDataMap(xml);
+        final LinkedHashMap<Object, Object> fromBinary = BinaryMapSerializer.decodeDataMap(binary);
+        // Compare the stored entries, Base64GetHashMap.get decodes Base64 encoded strings so Map.equals can not be used
+        assertEquals(new ArrayList<>(fromXml.entrySet()), new ArrayList<>(fromBinary.entrySet()));
+        // Database protection of ProfileData is calculated over the decoded map
+        assertEquals(fromXml.toString(), fromBinary.toString());
+        assertEquals("baråäö 中文", fromBinary.get("utf8"));
+    }
+
+    @Test
+    public void testUnsupportedTypeFallsBackToXml() throws IOException {
+        final LinkedHashMap<Object, Object> map = new LinkedHashMap<>();
+        map.put("enum", Thread.State.NEW);
+        try {
+            BinaryMapSerializer.encode(map);
+            fail("Enums should not be supported.");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        map.clear();
+        map.put("class", String.class);
+        try {
+            BinaryMapSerializer.encode(map);
+            fail("Classes from outside of our own packages should not be allowed.");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        ConfigurationHolder.updateConfiguration("database.binarydatamaps", "true");
+        map.put("class", CertificateProfile.class);
+        map.put("enum", Thread.State.NEW);
+        final String encoded = BinaryMapSerializer.encodeDataMap(map);
+        assertFalse("Data map with an unsupported type should have been stored as XML.", BinaryMapSerializer.isBinary(encoded));
+    }
+
+    @Test
+    public void testInvalidData() {
+        final String valid = BinaryMapSerializer.encode(getMapWithAllTypes());
+        final byte[] bytes = Base64.getDecoder().decode(valid.substring(BinaryMapSerializer.PREFIX.length()));
+        assertDecodeFails(BinaryMapSerializer.PREFIX + Base64.getEncoder().encodeToString(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertDecodeFails(BinaryMapSerializer.PREFIX + Base64.getEncoder().encodeToString(Arrays.copyOf(bytes, bytes.length + 1)));
+        assertDecodeFails(BinaryMapSerializer.PREFIX + "!");
+        // Unknown version of the format
+        final byte[] otherVersion = bytes.clone();
+        otherVersion[0] = 2;
+        assertDecodeFails(BinaryMapSerializer.PREFIX + Base64.getEncoder().encodeToString(otherVersion));
+        // A class from outside of our own packages, version 1, one entry of null -> class java.lang.Runtime
+        final byte[] className = "java.lang.Runtime".getBytes();
+        final byte[] unauthorizedClass = new byte[1 + 4 + 1 + 1 + 4 + className.length];
+        unauthorizedClass[0] = 1;
+        unauthorizedClass[4] = 1;
+        unauthorizedClass[6] = 13;
+        unauthorizedClass[10] = (byte) className.length;
+        System.arraycopy(className, 0, unauthorizedClass, 11, className.length);
+        assertDecodeFails(BinaryMapSerializer.PREFIX + Base64.getEncoder().encodeToString(unauthorizedClass));
+    }
+
+    private static void assertDecodeFails(final String data) {
+        try {
+            BinaryMapSerializer.decode(data);
+            fail("Invalid binary data map should not have been decoded.");
+        } catch (IOException e) {
+            log.debug("Got expected exception: " + e.getMessage());
+        }
+    }
+
+    /** Compares the time to decode the data of a large certificate profile and a CA, as XML and in the binary format */
+    @Test
+    public void testDecodeTime() throws Exception {
+        final CertificateProfile certificateProfile = new CertificateProfile(CertificateProfileConstants.CERTPROFILE_FIXED_ENDUSER);
+        final List<Integer> availableCas = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            certificateProfile.addCertificatePolicy(new CertificatePolicy("1.2.3.4." + i, CertificatePolicy.id_qt_cps, "https://example.com/cps/" + i));
+            availableCas.add(1000000 + i);
+        }
+        certificateProfile.setAvailableCAs(availableCas);
+        certificateProfile.setUseCertificatePolicies(true);
+        final X509CA ca = createTestCA(getNewCryptoToken(), CADN);
+        ca.setDescription("Description of the test CA with non ASCII characters: åäö");
+        measureDecodeTime("certificate profile", certificateProfile.saveData());
+        measureDecodeTime("X509 CA", ca.saveData());
+    }
+
+    private static void measureDecodeTime(final String name, final Object dataMap) throws IOException {
+        final Map<?, ?> map = (Map<?, ?>) dataMap;
+        ConfigurationHolder.updateConfiguration("database.binarydatamaps", "false");
+        final String xml = BinaryMapSerializer.encodeDataMap(map);
+        ConfigurationHolder.updateConfiguration("database.binarydatamaps", "true");
+        final String binary = BinaryMapSerializer.encodeDataMap(map);
+        assertTrue("The " + name + " should be possible to store in the binary format.", BinaryMapSerializer.isBinary(binary));
+        assertEquals(BinaryMapSerializer.decodeDataMap(xml).toString(), BinaryMapSerializer.decodeDataMap(binary).toString());
+        final int rounds = 300;
+        // Warm up both decoders before measuring
+        decode(xml, rounds);
+        decode(binary, rounds);
+        final long xmlNanos = decode(xml, rounds);
+        final long binaryNanos = decode(binary, rounds);
+        log.info("Decoding the " + name + ": XML " + xml.length() + " chars, " + (xmlNanos / rounds / 1000) + " us. Binary " + binary.length()
+                + " chars, " + (binaryNanos / rounds / 1000) + " us.");
+    }
+
+    private static long decode(final String data, final int rounds) throws IOException {
+        final long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            BinaryMapSerializer.decodeDataMap(data);
+        }
+        return System.nanoTime() - start;
+    }
+}
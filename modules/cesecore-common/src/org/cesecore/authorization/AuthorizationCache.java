@@ -24,6 +24,7 @@ import org.cesecore.authentication.AuthenticationFailedException;
 import org.cesecore.authentication.tokens.AuthenticationToken;
 import org.cesecore.authorization.access.AuthorizationCacheReload;
 import org.cesecore.authorization.access.AuthorizationCacheReloadListener;
+import org.cesecore.roles.AccessRulesTrie;
 import org.cesecore.util.ValidityDate;
 
 /**
@@ -46,14 +47,28 @@ public enum AuthorizationCache {
     public static class AuthorizationResult {
         final HashMap<String, Boolean> accessRules;
         final int updateNumber;
+        private AccessRulesTrie accessRulesTrie;
 
         public AuthorizationResult(final HashMap<String, Boolean> accessRules, final int updateNumber) {
+            this(accessRules, updateNumber, null);
+        }
+
+        private AuthorizationResult(final HashMap<String, Boolean> accessRules, final int updateNumber, final AccessRulesTrie accessRulesTrie) {
             this.accessRules = accessRules;
             this.updateNumber = updateNumber;
+            this.accessRulesTrie = accessRulesTrie;
         }
 
         public HashMap<String, Boolean> getAccessRules() { return accessRules; }
         public int getUpdateNumeber() { return updateNumber; }
+
+        /** @return the access rules compiled for fast access checks. Compiled once for each cache entry. */
+        public AccessRulesTrie getAccessRulesTrie() {
+            if (accessRulesTrie == null) {
+                accessRulesTrie = AccessRulesTrie.compile(accessRules);
+            }
+            return accessRulesTrie;
+        }
     }
     
     /** Call-back interface for loading access rules on cache miss */
@@ -70,6 +85,7 @@ public enum AuthorizationCache {
     
     private class AuthorizationCacheEntry {
         HashMap<String, Boolean> accessRules;
+        AccessRulesTrie accessRulesTrie;
         int updateNumber = 0;
         long timeOfLastUse = 0L;
         AuthenticationToken authenticationToken;
@@ -178,6 +194,7 @@ public enum AuthorizationCache {
                     // Cache a copy of the loaded access rules map
                     ret.accessRules.putAll(authorizationResult.accessRules);
                 }
+                ret.accessRulesTrie = AccessRulesTrie.compile(ret.accessRules);
             } finally {
                 // Ensure that we release any waiting thread
                 ret.countDownLatch.countDown();
@@ -209,7 +226,7 @@ public enum AuthorizationCache {
         }
         // Weak indication of last use, so rebuild can eventually purge unused entries
         ret.timeOfLastUse = System.currentTimeMillis();
-        return new AuthorizationResult(ret.accessRules, ret.updateNumber);
+        return new AuthorizationResult(ret.accessRules, ret.updateNumber, ret.accessRulesTrie);
     }
     
     public int getLastUpdateNumber() {
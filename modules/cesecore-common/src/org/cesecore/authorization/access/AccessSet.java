@@ -25,7 +25,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
-import org.cesecore.roles.AccessRulesHelper;
+import org.cesecore.roles.AccessRulesTrie;
 
 /**
  * Represents all access rules that a given AuthenticationToken is allowed to access.
@@ -187,10 +187,11 @@ public final class AccessSet implements Serializable {
      */
     public static AccessSet fromAccessRules(final HashMap<String, Boolean> accessRules, final Set<String> allResources) {
         final Set<String> set = new HashSet<>();
+        final AccessRulesTrie accessRulesTrie = AccessRulesTrie.compile(accessRules);
         for (final String current : allResources) {
             // De-normalize if needed
             final String resource = (current.length()>1 && current.charAt(current.length()-1)=='/') ? current.substring(0, current.length()-1) : current;
-            final boolean authorizedToResource = AccessRulesHelper.hasAccessToResource(accessRules, resource);
+            final boolean authorizedToResource = accessRulesTrie.hasAccessToResource(resource);
             if (authorizedToResource) {
                 set.add(resource);
                 // Check if we have an (integer) ID in the resource
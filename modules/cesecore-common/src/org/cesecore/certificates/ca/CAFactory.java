@@ -147,6 +147,33 @@ public enum CAFactory {
         return null;
     }
 
+    /**
+     * Creates a new instance of a CA from its data, the same way as when the CA is read from the database. Used to give another thread its
+     * own instance of a CA, since CA instances are not thread safe. The data is copied shallowly, so the copy must not be used to edit the CA.
+     *
+     * @param ca the CA to copy
+     * @return a new instance of the CA, or null if the implementation of the CA type is not available
+     */
+    @SuppressWarnings("unchecked")
+    public CACommon getCopy(final CACommon ca) {
+        final HashMap<Object, Object> data = (HashMap<Object, Object>) ca.saveData();
+        final Date updateTime = ca.getCAInfo().getUpdateTime();
+        switch (ca.getCAType()) {
+        case CAInfo.CATYPE_X509:
+            return getX509CAImpl(data, ca.getCAId(), ca.getSubjectDN(), ca.getName(), ca.getStatus(), updateTime, ca.getExpireTime());
+        case CAInfo.CATYPE_CVC:
+            return getCvcCaImpl(data, ca.getCAId(), ca.getSubjectDN(), ca.getName(), ca.getStatus(), updateTime, ca.getExpireTime());
+        case CAInfo.CATYPE_SSH:
+            return getSshCaImpl(data, ca.getCAId(), ca.getSubjectDN(), ca.getName(), ca.getStatus(), updateTime, ca.getExpireTime());
+        case CAInfo.CATYPE_CITS:
+            return getCitsCaImpl(data, ca.getCAId(), ca.getSubjectDN(), ca.getName(), ca.getStatus(), updateTime, ca.getExpireTime());
+        case CAInfo.CATYPE_PROXY:
+            return getProxyCa(data, ca.getCAId(), ca.getSubjectDN(), ca.getName(), ca.getStatus(), updateTime, ca.getExpireTime());
+        default:
+            throw new IllegalArgumentException("Unknown CA type " + ca.getCAType());
+        }
+    }
+
     private <T extends CAInfo> CACommon createCaByImpl(final String impl, final Class<T> caClass, final T caInfo)  {
         try {
             return caImplMap.get(impl).getClass().getConstructor(caClass).newInstance(caInfo);
@@ -0,0 +1,180 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.ca.internal;
+
+import java.math.BigInteger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Pool of random certificate serial numbers for each CA, generated ahead of time by a background thread, so issuance does not have to
+ * wait for the random number generator.
+ * <p>
+ * The serial numbers are generated by the same {@link SernoGeneratorRandom} as when they are generated on demand, so they are equally
+ * random and have the same size. When the pool of a CA falls below half its size, the producer thread fills it up again. If the pool is
+ * empty, or the pool has not been started, the serial number is generated by the calling thread as before. Serial numbers in the pool
+ * have not been checked against the database, so they are handled like any other newly generated serial number.
+ *
+ * @see org.cesecore.config.CesecoreConfiguration#getSerialNumberPoolSize()
+ */
+public enum SernoPool {
+    INSTANCE;
+
+    private static final Logger log = Logger.getLogger(SernoPool.class);
+
+    private static final class CaSernoPool {
+        private final int caId;
+        private final int noOctets;
+        private final BlockingQueue<BigInteger> sernos;
+        private final AtomicBoolean refillRequested = new AtomicBoolean(false);
+
+        private CaSernoPool(final int caId, final int noOctets, final int poolSize) {
+            this.caId = caId;
+            this.noOctets = noOctets;
+            this.sernos = new ArrayBlockingQueue<>(poolSize);
+        }
+    }
+
+    private final ConcurrentMap<Integer, CaSernoPool> pools = new ConcurrentHashMap<>();
+    /** Pools that are waiting to be filled up by the producer thread */
+    private final BlockingQueue<CaSernoPool> refillQueue = new LinkedBlockingQueue<>();
+    private final AtomicLong pooledCount = new AtomicLong(0);
+    private final AtomicLong generatedCount = new AtomicLong(0);
+    /** Everything below is only changed while holding the lock of this object */
+    private volatile int poolSize = 0;
+    private Thread producerThread;
+    /** Tells the current producer thread to stop. Each producer thread has its own, so a stopped thread never runs next to a new one */
+    private AtomicBoolean producerRunning;
+
+    /**
+     * Starts the producer thread, unless it is already running.
+     *
+     * @param poolSize maximum number of serial numbers kept for each CA
+     */
+    public synchronized void start(final int poolSize) {
+        if (producerThread != null || poolSize <= 0) {
+            return;
+        }
+        this.poolSize = poolSize;
+        final AtomicBoolean running = new AtomicBoolean(true);
+        producerRunning = running;
+        producerThread = new Thread(() -> produceSernos(running), "SernoPool");
+        producerThread.setDaemon(true);
+        producerThread.start();
+        log.info("Started serial number pool with " + poolSize + " serial numbers for each CA.");
+    }
+
+    /** @return true if the producer thread is running */
+    public boolean isStarted() {
+        return poolSize > 0;
+    }
+
+    /** Stops the producer thread and discards the pooled serial numbers. Serial numbers are generated on demand until the pool is started again. */
+    public synchronized void shutdown() {
+        if (producerThread == null) {
+            return;
+        }
+        poolSize = 0;
+        producerRunning.set(false);
+        producerThread.interrupt();
+        producerThread = null;
+        producerRunning = null;
+        pools.clear();
+        refillQueue.clear();
+        log.info("Stopped serial number pool.");
+    }
+
+    /**
+     * Returns a serial number from the pool of the CA, or generates one if the pool is empty.
+     *
+     * @param caId id of the CA that will use the serial number
+     * @param noOctets size of the serial number in octets
+     * @return a random serial number
+     */
+    public BigInteger getSerno(final int caId, final int noOctets) {
+        final int currentPoolSize = poolSize;
+        // Serial numbers of size 0 are only used in tests to get collisions, so they are never pooled
+        if (currentPoolSize <= 0 || noOctets == 0) {
+            return SernoGeneratorRandom.instance(noOctets).getSerno();
+        }
+        CaSernoPool pool = pools.get(caId);
+        if (pool == null || pool.noOctets != noOctets) {
+            // Only lock the entry of the CA when its pool is created, or replaced because the size of its serial numbers has changed
+            pool = pools.compute(caId,
+                    (id, existing) -> existing != null && existing.noOctets == noOctets ? existing : new CaSernoPool(caId, noOctets, currentPoolSize));
+        }
+        final BigInteger serno = pool.sernos.poll();
+        if (pool.sernos.size() < currentPoolSize / 2 && pool.refillRequested.compareAndSet(false, true)) {
+            refillQueue.offer(pool);
+        }
+        if (serno != null) {
+            pooledCount.incrementAndGet();
+            return serno;
+        }
+        generatedCount.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Serial number pool of CA " + caId + " is empty, generating serial number on demand.");
+        }
+        return SernoGeneratorRandom.instance(noOctets).getSerno();
+    }
+
+    /** @return the number of serial numbers taken from a pool */
+    public long getPooledCount() {
+        return pooledCount.get();
+    }
+
+    /** @return the number of serial numbers generated on demand, because the pool was empty or not started */
+    public long getGeneratedCount() {
+        return generatedCount.get();
+    }
+
+    /** @return the number of serial numbers in the pool of the CA */
+    public int getAvailableCount(final int caId) {
+        final CaSernoPool pool = pools.get(caId);
+        return pool == null ? 0 : pool.sernos.size();
+    }
+
+    private void produceSernos(final AtomicBoolean running) {
+        while (running.get()) {
+            final CaSernoPool pool;
+            try {
+                pool = refillQueue.take();
+            } catch (InterruptedException e) {
+                if (running.get()) {
+                    log.warn("Serial number producer was interrupted.");
+                }
+                return;
+            }
+            try {
+                final SernoGenerator sernoGenerator = SernoGeneratorRandom.instance(pool.noOctets);
+                // The producer is the only thread adding to a pool, so it never generates more than the pool can hold.
+                // Stop if the pool has been replaced, since the size of serial numbers of the CA has changed.
+                while (running.get() && pools.get(pool.caId) == pool && pool.sernos.remainingCapacity() > 0
+                        && !Thread.currentThread().isInterrupted()) {
+                    pool.sernos.offer(sernoGenerator.getSerno());
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to generate serial numbers for CA " + pool.caId + ": " + e.getMessage(), e);
+            } finally {
+                pool.refillRequested.set(false);
+            }
+        }
+    }
+}
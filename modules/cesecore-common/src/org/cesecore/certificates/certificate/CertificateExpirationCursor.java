@@ -0,0 +1,131 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+import java.io.Serializable;
+import java.security.cert.Certificate;
+import java.util.Objects;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.keyfactor.util.CertTools;
+
+/**
+ * Position in a scan of certificates ordered by expiration date and fingerprint.
+ * <p>
+ * A page of certificates is read with a seek on the position of the last certificate of the previous page, instead of skipping an offset,
+ * so every page is read equally fast no matter how far into the scan it is. The fingerprint makes the order unique, since many
+ * certificates can expire at the same time. Certificates that change status or are added during the scan do not shift the following pages.
+ */
+public final class CertificateExpirationCursor implements Serializable, Comparable<CertificateExpirationCursor> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Position before all certificates */
+    public static final CertificateExpirationCursor FIRST = new CertificateExpirationCursor(Long.MIN_VALUE, "");
+
+    private final long expireDate;
+    private final String fingerprint;
+
+    private CertificateExpirationCursor(final long expireDate, final String fingerprint) {
+        this.expireDate = expireDate;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @param expireDate expiration date of the last certificate that was read, in milliseconds since epoch
+     * @param fingerprint fingerprint of the last certificate that was read
+     * @return the position after the certificate
+     */
+    public static CertificateExpirationCursor after(final long expireDate, final String fingerprint) {
+        return new CertificateExpirationCursor(expireDate, Objects.requireNonNull(fingerprint, "fingerprint"));
+    }
+
+    /** @return the position after the certificate */
+    public static CertificateExpirationCursor after(final CertificateInfo certificateInfo) {
+        return after(certificateInfo.getExpireDate().getTime(), certificateInfo.getFingerprint());
+    }
+
+    /** @return the position after the certificate, which has the same expiration date and fingerprint as in the database */
+    public static CertificateExpirationCursor after(final Certificate certificate) {
+        return after(CertTools.getNotAfter(certificate).getTime(), CertTools.getFingerprintAsString(certificate));
+    }
+
+    /**
+     * Parses a position that was returned from {@link #getToken()}, for example to a REST client.
+     *
+     * @param token a token, or null or an empty string for the first position
+     * @return the position
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static CertificateExpirationCursor fromToken(final String token) {
+        if (StringUtils.isEmpty(token)) {
+            return FIRST;
+        }
+        final int separator = token.indexOf(':');
+        if (separator < 1 || separator == token.length() - 1) {
+            throw new IllegalArgumentException("Malformed certificate expiration cursor '" + token + "'.");
+        }
+        try {
+            return after(Long.parseLong(token.substring(0, separator)), token.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed certificate expiration cursor '" + token + "'.", e);
+        }
+    }
+
+    /** @return expiration date of the last certificate that was read, in milliseconds since epoch */
+    public long getExpireDate() {
+        return expireDate;
+    }
+
+    /** @return fingerprint of the last certificate that was read, or an empty string for {@link #FIRST} */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /** @return true if this is the position before all certificates */
+    public boolean isFirst() {
+        return expireDate == Long.MIN_VALUE && fingerprint.isEmpty();
+    }
+
+    /** @return the position as a string that can be parsed with {@link #fromToken(String)}, or an empty string for {@link #FIRST} */
+    public String getToken() {
+        return isFirst() ? "" : expireDate + ":" + fingerprint;
+    }
+
+    /** Orders positions the same way as the certificates are ordered in a scan */
+    @Override
+    public int compareTo(final CertificateExpirationCursor other) {
+        final int ret = Long.compare(expireDate, other.expireDate);
+        return ret != 0 ? ret : fingerprint.compareTo(other.fingerprint);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof CertificateExpirationCursor)) {
+            return false;
+        }
+        final CertificateExpirationCursor other = (CertificateExpirationCursor) o;
+        return expireDate == other.expireDate && fingerprint.equals(other.fingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(expireDate, fingerprint);
+    }
+
+    @Override
+    public String toString() {
+        return isFirst() ? "FIRST" : getToken();
+    }
+}
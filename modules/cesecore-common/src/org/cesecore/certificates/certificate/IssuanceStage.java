@@ -0,0 +1,39 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+/**
+ * Stages of certificate issuance in CertificateCreateSession, which the time spent in is recorded by {@link IssuanceStatistics}.
+ */
+public enum IssuanceStage {
+    /** Validation of the public key by the key validators of the CA */
+    KEY_VALIDATION,
+    /** Validation of the DNS names by the validators of the CA, for example CAA lookups */
+    DNS_VALIDATION,
+    /** Check that no other end entity has a certificate with the same subject DN, if enforced by the CA */
+    SUBJECT_DN_ENFORCEMENT,
+    /** Check that no other end entity has a certificate for the same key, if enforced by the CA */
+    SUBJECT_KEY_ID_ENFORCEMENT,
+    /** Check that the key has not been certified before, if key renewal is enforced by the CA */
+    KEY_RENEWAL_ENFORCEMENT,
+    /** Time the issuing thread spent running or waiting for the checks above, which run concurrently if parallel pre-issuance checks are enabled */
+    PRE_ISSUANCE_CHECKS,
+    /** Creation and signing of the certificate, including pre-certificate submission to CT logs */
+    CERTIFICATE_GENERATION,
+    /** Validation of the created certificate by the validators of the CA */
+    CERTIFICATE_VALIDATION,
+    /** Storage of the certificate in the database */
+    CERTIFICATE_STORAGE,
+    /** The whole issuance, from the authorization check to the audit log of the issued certificate */
+    TOTAL;
+}
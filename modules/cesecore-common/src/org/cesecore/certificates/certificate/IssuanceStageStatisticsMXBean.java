@@ -0,0 +1,31 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+/**
+ * JMX view of the time spent in an {@link IssuanceStage}, registered as <code>org.cesecore:type=IssuanceStage,name=&lt;stage&gt;</code>.
+ */
+public interface IssuanceStageStatisticsMXBean {
+
+    /** @return the number of times the stage has been completed */
+    long getCount();
+
+    double getTotalTimeMillis();
+
+    double getAverageTimeMillis();
+
+    double getMaxTimeMillis();
+
+    /** Sets all values to 0 */
+    void reset();
+}
@@ -0,0 +1,112 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.cesecore.internal.JmxRegistry;
+
+/**
+ * Time spent in each {@link IssuanceStage} of certificate issuance on this node, to see where the latency of issuance comes from. The values
+ * are published through JMX as <code>org.cesecore:type=IssuanceStage,name=&lt;stage&gt;</code>, and can be read from the health check.
+ * Recording does not lock, so it can be done by all issuing threads.
+ */
+public enum IssuanceStatistics {
+    INSTANCE;
+
+    /** Time spent in one stage */
+    public static final class Stage implements IssuanceStageStatisticsMXBean {
+        private final IssuanceStage stage;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Stage(final IssuanceStage stage) {
+            this.stage = stage;
+        }
+
+        private void record(final long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public IssuanceStage getStage() {
+            return stage;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getTotalTimeMillis() {
+            return totalNanos.sum() / 1000000.0;
+        }
+
+        @Override
+        public double getAverageTimeMillis() {
+            final long currentCount = count.sum();
+            return currentCount == 0 ? 0.0 : totalNanos.sum() / 1000000.0 / currentCount;
+        }
+
+        @Override
+        public double getMaxTimeMillis() {
+            return maxNanos.get() / 1000000.0;
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+    }
+
+    private final Map<IssuanceStage, Stage> stages = new EnumMap<>(IssuanceStage.class);
+
+    private IssuanceStatistics() {
+        for (final IssuanceStage issuanceStage : IssuanceStage.values()) {
+            final Stage stage = new Stage(issuanceStage);
+            stages.put(issuanceStage, stage);
+            JmxRegistry.INSTANCE.register(stage, "org.cesecore:type=IssuanceStage,name=" + issuanceStage.name());
+        }
+    }
+
+    /** Records that a stage was completed in the given time */
+    public void record(final IssuanceStage stage, final long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    /** @return the time spent in one stage */
+    public Stage getStage(final IssuanceStage stage) {
+        return stages.get(stage);
+    }
+
+    /** @return the time spent in all stages, in the order of the stages */
+    public List<Stage> getStages() {
+        return new ArrayList<>(stages.values());
+    }
+
+    public void reset() {
+        for (final Stage stage : stages.values()) {
+            stage.reset();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.crl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.CertificateList;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.ContentVerifier;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.OperatorCreationException;
+
+/**
+ * Builds a version 2 X.509 CRL without keeping the revoked certificate entries as ASN.1 objects in memory, as
+ * {@link org.bouncycastle.cert.X509v2CRLBuilder} does. Each entry is DER encoded when it is added and appended to a buffer, which is
+ * moved to a temporary file when it grows large. When the CRL is built, the TBSCertList is streamed from the buffer through the signer,
+ * and the signed CRL is streamed from the buffer into the returned {@link X509CRLHolder}, so the encoding is only held once in memory, by
+ * the CRL itself.
+ * <p>
+ * The encoding is the same as the one produced by X509v2CRLBuilder, and the methods used to add entries and extensions have the same
+ * signatures, so this class can be used in its place. Remember to {@link #close()} the builder to remove the temporary file, after the
+ * signature has been verified with {@link #isSignatureValid(ContentVerifierProvider)}.
+ */
+public class StreamingCrlBuilder implements Closeable {
+
+    private static final Logger log = Logger.getLogger(StreamingCrlBuilder.class);
+
+    /** Entries are kept in memory until they take up this many bytes, and are then moved to a temporary file */
+    private static final int MAX_IN_MEMORY_ENTRIES_SIZE = 1024 * 1024;
+    private static final int SEQUENCE_TAG = 0x30;
+
+    private final X500Name issuer;
+    private final Time thisUpdate;
+    private Time nextUpdate;
+    private final ExtensionsGenerator extensionsGenerator = new ExtensionsGenerator();
+
+    private ByteArrayOutputStream entriesInMemory = new ByteArrayOutputStream();
+    private File entriesFile;
+    private OutputStream entriesOut = entriesInMemory;
+    private long entriesLength = 0;
+    private int entryCount = 0;
+
+    /* The following are set when the CRL has been built */
+    private boolean built = false;
+    private byte[] tbsHeader;
+    private ByteArrayOutputStream headerBytes;
+    private byte[] entriesHeader;
+    private byte[] extensions;
+    private AlgorithmIdentifier signatureAlgorithm;
+    private byte[] signature;
+
+    public StreamingCrlBuilder(final X500Name issuer, final Date thisUpdate) {
+        this.issuer = issuer;
+        this.thisUpdate = new Time(thisUpdate);
+    }
+
+    public StreamingCrlBuilder setNextUpdate(final Date date) {
+        this.nextUpdate = new Time(date);
+        return this;
+    }
+
+    /** Adds a revoked certificate, see {@link #addCRLEntry(BigInteger, Date, int, Date)} */
+    public StreamingCrlBuilder addCRLEntry(final BigInteger userCertificateSerial, final Date revocationDate, final int reason) throws IOException {
+        return addCRLEntry(userCertificateSerial, revocationDate, reason, null);
+    }
+
+    /**
+     * Adds a revoked certificate. Entries appear on the CRL in the order they are added.
+     *
+     * @param userCertificateSerial serial number of the revoked certificate
+     * @param revocationDate date of revocation
+     * @param reason reason code, as defined in {@link CRLReason}. The reason code extension is left out for 0 (unspecified).
+     * @param invalidityDate date the key is known or suspected to have been compromised, or null
+     * @throws IOException if the entry could not be written to the temporary file
+     */
+    public StreamingCrlBuilder addCRLEntry(final BigInteger userCertificateSerial, final Date revocationDate, final int reason,
+            final Date invalidityDate) throws IOException {
+        if (built) {
+            throw new IllegalStateException("The CRL has already been built.");
+        }
+        final ASN1EncodableVector entry = new ASN1EncodableVector(3);
+        entry.add(new ASN1Integer(userCertificateSerial));
+        entry.add(new Time(revocationDate));
+        final ASN1EncodableVector entryExtensions = new ASN1EncodableVector(2);
+        if (reason != 0) {
+            entryExtensions.add(new Extension(Extension.reasonCode, false, new DEROctetString(CRLReason.lookup(reason))));
+        }
+        if (invalidityDate != null) {
+            entryExtensions.add(new Extension(Extension.invalidityDate, false, new DEROctetString(new ASN1GeneralizedTime(invalidityDate))));
+        }
+        if (entryExtensions.size() > 0) {
+            entry.add(new DERSequence(entryExtensions));
+        }
+        final byte[] encodedEntry = new DERSequence(entry).getEncoded(ASN1Encoding.DER);
+        if (entriesFile == null && entriesLength + encodedEntry.length > MAX_IN_MEMORY_ENTRIES_SIZE) {
+            moveEntriesToFile();
+        }
+        entriesOut.write(encodedEntry);
+        entriesLength += encodedEntry.length;
+        entryCount++;
+        return this;
+    }
+
+    /** Adds a CRL extension */
+    public StreamingCrlBuilder addExtension(final ASN1ObjectIdentifier oid, final boolean isCritical, final ASN1Encodable value) throws IOException {
+        extensionsGenerator.addExtension(oid, isCritical, value);
+        return this;
+    }
+
+    /** @return the number of revoked certificates added so far */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Signs and encodes the CRL. The TBSCertList is streamed through the signer, so the signer only sees it once and never as a whole.
+     *
+     * @param signer the signer of the CRL
+     * @return the CRL. The list of revoked certificates is parsed from the encoding when it is first accessed.
+     * @throws IOException if the CRL could not be encoded, for example because it is larger than what fits in a byte array
+     */
+    public X509CRLHolder build(final ContentSigner signer) throws IOException {
+        if (built) {
+            throw new IllegalStateException("The CRL has already been built.");
+        }
+        built = true;
+        entriesOut.flush();
+        signatureAlgorithm = signer.getAlgorithmIdentifier();
+        final ASN1EncodableVector header = new ASN1EncodableVector(5);
+        header.add(new ASN1Integer(1));
+        header.add(signatureAlgorithm);
+        header.add(issuer);
+        header.add(thisUpdate);
+        if (nextUpdate != null) {
+            header.add(nextUpdate);
+        }
+        headerBytes = new ByteArrayOutputStream();
+        for (int i = 0; i < header.size(); i++) {
+            headerBytes.write(header.get(i).toASN1Primitive().getEncoded(ASN1Encoding.DER));
+        }
+        entriesHeader = entryCount == 0 ? new byte[0] : encodeTagAndLength(SEQUENCE_TAG, entriesLength);
+        extensions = extensionsGenerator.isEmpty() ? new byte[0]
+                : new DERTaggedObject(true, 0, extensionsGenerator.generate()).getEncoded(ASN1Encoding.DER);
+        final long tbsContentLength = headerBytes.size() + entriesHeader.length + (entryCount == 0 ? 0 : entriesLength) + extensions.length;
+        tbsHeader = encodeTagAndLength(SEQUENCE_TAG, tbsContentLength);
+        final long tbsTotalLength = tbsHeader.length + tbsContentLength;
+
+        try (OutputStream signerOut = signer.getOutputStream()) {
+            writeTbs(signerOut);
+        }
+        signature = signer.getSignature();
+
+        final byte[] signatureAlgorithmBytes = signatureAlgorithm.getEncoded(ASN1Encoding.DER);
+        final byte[] signatureBytes = new DERBitString(signature).getEncoded(ASN1Encoding.DER);
+        final long contentLength = tbsTotalLength + signatureAlgorithmBytes.length + signatureBytes.length;
+        final byte[] crlHeader = encodeTagAndLength(SEQUENCE_TAG, contentLength);
+        final long totalLength = crlHeader.length + contentLength;
+        if (totalLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("CRL with " + entryCount + " entries is too large to be encoded (" + totalLength + " bytes).");
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Built CRL with " + entryCount + " entries, " + totalLength + " bytes.");
+        }
+        // The encoding is streamed into the parser, which reads the content into a byte array of its own, so no other copy is made.
+        // Lazy parsing then keeps the list of revoked certificates as encoded bytes until someone asks for the entries.
+        final List<InputStream> parts = new ArrayList<>();
+        parts.add(new ByteArrayInputStream(crlHeader));
+        parts.add(new ByteArrayInputStream(tbsHeader));
+        parts.add(new ByteArrayInputStream(headerBytes.toByteArray()));
+        if (entryCount > 0) {
+            parts.add(new ByteArrayInputStream(entriesHeader));
+            parts.add(openEntries());
+        }
+        parts.add(new ByteArrayInputStream(extensions));
+        parts.add(new ByteArrayInputStream(signatureAlgorithmBytes));
+        parts.add(new ByteArrayInputStream(signatureBytes));
+        try (ASN1InputStream asn1InputStream = new ASN1InputStream(new SequenceInputStream(Collections.enumeration(parts)), (int) totalLength, true)) {
+            return new X509CRLHolder(CertificateList.getInstance(asn1InputStream.readObject()));
+        }
+    }
+
+    /**
+     * Verifies the signature of the built CRL, using the TBSCertList as it was signed. The TBSCertList is streamed through the verifier
+     * in the same way as through the signer.
+     *
+     * @param verifierProvider provider of a verifier for the public key of the issuer
+     * @return true if the signature is valid
+     */
+    public boolean isSignatureValid(final ContentVerifierProvider verifierProvider) throws OperatorCreationException, IOException {
+        if (!built) {
+            throw new IllegalStateException("The CRL has not been built.");
+        }
+        final ContentVerifier verifier = verifierProvider.get(signatureAlgorithm);
+        try (OutputStream verifierOut = verifier.getOutputStream()) {
+            writeTbs(verifierOut);
+        }
+        return verifier.verify(signature);
+    }
+
+    /** Removes the temporary file, if one was created */
+    @Override
+    public void close() {
+        try {
+            if (entriesOut != null) {
+                entriesOut.close();
+            }
+        } catch (IOException e) {
+            log.debug("Unable to close temporary CRL entries file: " + e.getMessage());
+        }
+        deleteEntriesFile();
+    }
+
+    private void writeTbs(final OutputStream out) throws IOException {
+        out.write(tbsHeader);
+        headerBytes.writeTo(out);
+        if (entryCount > 0) {
+            out.write(entriesHeader);
+            try (InputStream entriesIn = openEntries()) {
+                final byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = entriesIn.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+        out.write(extensions);
+    }
+
+    /** @return a stream of the encoded entries, from memory or from the temporary file */
+    private InputStream openEntries() throws IOException {
+        if (entriesFile == null) {
+            return new ByteArrayInputStream(entriesInMemory.toByteArray());
+        }
+        return new BufferedInputStream(Files.newInputStream(entriesFile.toPath()), 64 * 1024);
+    }
+
+    private void moveEntriesToFile() throws IOException {
+        entriesFile = File.createTempFile("crlentries", ".tmp");
+        entriesFile.deleteOnExit();
+        if (log.isDebugEnabled()) {
+            log.debug("Writing CRL entries to temporary file " + entriesFile.getAbsolutePath());
+        }
+        entriesOut = new BufferedOutputStream(new FileOutputStream(entriesFile), 64 * 1024);
+        entriesInMemory.writeTo(entriesOut);
+        entriesInMemory = null;
+    }
+
+    private void deleteEntriesFile() {
+        if (entriesFile != null) {
+            try {
+                entriesOut.close();
+            } catch (IOException e) {
+                log.debug("Unable to close temporary CRL entries file: " + e.getMessage());
+            }
+            if (!entriesFile.delete()) {
+                log.info("Unable to remove temporary CRL entries file " + entriesFile.getAbsolutePath());
+            }
+            entriesFile = null;
+        }
+    }
+
+    /** @return the DER identifier and definite length octets of an object with the given tag and content length */
+    private static byte[] encodeTagAndLength(final int tag, final long length) {
+        if (length < 0x80) {
+            return new byte[] { (byte) tag, (byte) length };
+        }
+        int lengthOctets = 0;
+        for (long remaining = length; remaining > 0; remaining >>>= 8) {
+            lengthOctets++;
+        }
+        final byte[] ret = new byte[2 + lengthOctets];
+        ret[0] = (byte) tag;
+        ret[1] = (byte) (0x80 | lengthOctets);
+        for (int i = 0; i < lengthOctets; i++) {
+            ret[ret.length - 1 - i] = (byte) (length >>> (8 * i));
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,158 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.ocsp.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.cert.ocsp.CertificateID;
+
+/**
+ * Immutable index from the issuer part of a {@link CertificateID} (hash algorithm, issuer name hash and issuer key hash)
+ * to a value.
+ * <p>
+ * The index is an open addressing hash table that is built once and then only read. Lookups compare the fields of the
+ * requested CertificateID directly against the stored ones, so no key object is created and nothing is allocated on
+ * the lookup path. Instances are safe to share between threads once they have been published.
+ */
+final class CertificateIdIndex<V> {
+
+    private static final CertificateIdIndex<?> EMPTY = new CertificateIdIndex<>(Collections.emptyMap());
+
+    private final ASN1ObjectIdentifier[] hashAlgorithms;
+    private final byte[][] issuerNameHashes;
+    private final byte[][] issuerKeyHashes;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+    private final List<Key> keyList;
+    private final List<V> valueList;
+
+    /** @param source the mappings to index. Iteration order of the map is kept by {@link #values()}. */
+    CertificateIdIndex(final Map<Key, V> source) {
+        int capacity = 2;
+        while (capacity < source.size() * 2) {
+            capacity <<= 1;
+        }
+        this.hashAlgorithms = new ASN1ObjectIdentifier[capacity];
+        this.issuerNameHashes = new byte[capacity][];
+        this.issuerKeyHashes = new byte[capacity][];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = source.size();
+        final List<Key> keyList = new ArrayList<>(source.size());
+        final List<V> valueList = new ArrayList<>(source.size());
+        for (final Map.Entry<Key, V> entry : source.entrySet()) {
+            final Key key = entry.getKey();
+            int slot = key.hashCode() & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            hashAlgorithms[slot] = key.hashAlgorithm;
+            issuerNameHashes[slot] = key.issuerNameHash;
+            issuerKeyHashes[slot] = key.issuerKeyHash;
+            values[slot] = entry.getValue();
+            keyList.add(key);
+            valueList.add(entry.getValue());
+        }
+        this.keyList = keyList;
+        this.valueList = Collections.unmodifiableList(valueList);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> CertificateIdIndex<V> empty() {
+        return (CertificateIdIndex<V>) EMPTY;
+    }
+
+    /** @return the value mapped to the issuer of the given CertificateID, or null if there is none. */
+    @SuppressWarnings("unchecked")
+    V get(final CertificateID certificateId) {
+        final ASN1ObjectIdentifier hashAlgorithm = certificateId.getHashAlgOID();
+        final byte[] issuerNameHash = certificateId.getIssuerNameHash();
+        final byte[] issuerKeyHash = certificateId.getIssuerKeyHash();
+        int slot = hash(hashAlgorithm, issuerNameHash, issuerKeyHash) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (Arrays.equals(issuerNameHashes[slot], issuerNameHash) && Arrays.equals(issuerKeyHashes[slot], issuerKeyHash)
+                    && Objects.equals(hashAlgorithms[slot], hashAlgorithm)) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /** @return all indexed values, one per key, in the order they were added. */
+    Collection<V> values() {
+        return valueList;
+    }
+
+    /** @return a new mutable map with the same content as this index, in the order it was added. */
+    Map<Key, V> toMap() {
+        final Map<Key, V> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            map.put(keyList.get(i), valueList.get(i));
+        }
+        return map;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int hash(final ASN1ObjectIdentifier hashAlgorithm, final byte[] issuerNameHash, final byte[] issuerKeyHash) {
+        final int h = 31 * (31 * Objects.hashCode(hashAlgorithm) + Arrays.hashCode(issuerNameHash)) + Arrays.hashCode(issuerKeyHash);
+        // Spread the higher bits, since only the lowest bits are used to pick a slot
+        return h ^ (h >>> 16);
+    }
+
+    /** Key used while building an index. Lookups in a built index never create instances of this class. */
+    static final class Key {
+        private final ASN1ObjectIdentifier hashAlgorithm;
+        private final byte[] issuerNameHash;
+        private final byte[] issuerKeyHash;
+        private final int hashCode;
+
+        Key(final CertificateID certificateId) {
+            this.hashAlgorithm = certificateId.getHashAlgOID();
+            this.issuerNameHash = certificateId.getIssuerNameHash();
+            this.issuerKeyHash = certificateId.getIssuerKeyHash();
+            this.hashCode = hash(hashAlgorithm, issuerNameHash, issuerKeyHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return hashCode == key.hashCode && Arrays.equals(issuerNameHash, key.issuerNameHash) && Arrays.equals(issuerKeyHash, key.issuerKeyHash)
+                    && Objects.equals(hashAlgorithm, key.hashAlgorithm);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.ocsp.cache;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.cesecore.certificates.certificate.CertificateStatus;
+import org.cesecore.config.OcspConfiguration;
+
+/**
+ * In-memory index of certificate statuses per issuer, used by the OCSP responder to avoid a database lookup per serial number.
+ * <p>
+ * The index of an issuer is loaded with all revoked certificates of that issuer and is then kept current with the certificates that were
+ * updated in the database since the last refresh. Statuses that were read from the database on a miss can also be added to the index.
+ * A lookup returns null, meaning that the database must be queried, when the serial number is not in the index or when the index of
+ * the issuer has not been refreshed within {@link OcspConfiguration#getRevocationStatusIndexMaxStalenessMs()}.
+ */
+public enum OcspRevocationStatusIndex {
+    INSTANCE;
+
+    private static final Logger log = Logger.getLogger(OcspRevocationStatusIndex.class);
+
+    /** Compact representation of the parts of a {@link CertificateStatus} the OCSP responder needs. */
+    private static final class StatusEntry {
+        private final boolean revoked;
+        private final long revocationDate;
+        private final int revocationReason;
+        private final int certificateProfileId;
+        private final long expirationDate;
+
+        private StatusEntry(final CertificateStatus certificateStatus) {
+            this.revoked = CertificateStatus.REVOKED.equals(certificateStatus);
+            this.revocationDate = certificateStatus.revocationDate.getTime();
+            this.revocationReason = certificateStatus.revocationReason;
+            this.certificateProfileId = certificateStatus.certificateProfileId;
+            this.expirationDate = certificateStatus.getExpirationDate();
+        }
+
+        private CertificateStatus toCertificateStatus() {
+            final CertificateStatus ret = new CertificateStatus(revoked ? CertificateStatus.REVOKED.toString() : CertificateStatus.OK.toString(),
+                    revocationDate, revocationReason, certificateProfileId);
+            ret.setExpirationDate(expirationDate);
+            return ret;
+        }
+    }
+
+    /** Index of a single issuer */
+    private static final class IssuerIndex {
+        private final Map<BigInteger, StatusEntry> entries = new ConcurrentHashMap<>();
+        /** Highest update time of the database rows that have been applied to this index */
+        private volatile long highWaterMark;
+        /** When this index was last successfully refreshed */
+        private volatile long lastRefresh;
+
+        private IssuerIndex(final long highWaterMark) {
+            this.highWaterMark = highWaterMark;
+            this.lastRefresh = System.currentTimeMillis();
+        }
+    }
+
+    private final Map<String, IssuerIndex> issuers = new ConcurrentHashMap<>();
+
+    /**
+     * @param issuerDn the DN of the issuer, in the same format as used when the index was loaded
+     * @param serialNumber the serial number of the certificate
+     * @return the status of the certificate, or null if the certificate is not in the index or the index of the issuer is stale.
+     */
+    public CertificateStatus getStatus(final String issuerDn, final BigInteger serialNumber) {
+        final IssuerIndex issuerIndex = issuers.get(issuerDn);
+        if (issuerIndex == null) {
+            return null;
+        }
+        if (issuerIndex.lastRefresh + OcspConfiguration.getRevocationStatusIndexMaxStalenessMs() < System.currentTimeMillis()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Revocation status index of issuer '" + issuerDn + "' is stale, status will be read from the database.");
+            }
+            return null;
+        }
+        final StatusEntry statusEntry = issuerIndex.entries.get(serialNumber);
+        return statusEntry == null ? null : statusEntry.toCertificateStatus();
+    }
+
+    /** @return true if the index of the given issuer has been loaded */
+    public boolean isLoaded(final String issuerDn) {
+        return issuers.containsKey(issuerDn);
+    }
+
+    /** @return the highest database update time applied to the index of the given issuer, or -1 if the issuer has not been loaded */
+    public long getHighWaterMark(final String issuerDn) {
+        final IssuerIndex issuerIndex = issuers.get(issuerDn);
+        return issuerIndex == null ? -1L : issuerIndex.highWaterMark;
+    }
+
+    /** @return the number of entries in the index of the given issuer */
+    public int size(final String issuerDn) {
+        final IssuerIndex issuerIndex = issuers.get(issuerDn);
+        return issuerIndex == null ? 0 : issuerIndex.entries.size();
+    }
+
+    /**
+     * Replaces the index of an issuer. The new index is built on the side and then published, so lookups never see a partially loaded index.
+     *
+     * @param issuerDn the DN of the issuer
+     * @param statuses statuses, typically of all revoked certificates of the issuer
+     * @param highWaterMark the time up to which changes in the database are reflected in the statuses
+     */
+    public void load(final String issuerDn, final Map<BigInteger, CertificateStatus> statuses, final long highWaterMark) {
+        final IssuerIndex issuerIndex = new IssuerIndex(highWaterMark);
+        for (final Map.Entry<BigInteger, CertificateStatus> entry : statuses.entrySet()) {
+            putEntry(issuerIndex, entry.getKey(), entry.getValue(), true);
+        }
+        issuers.put(issuerDn, issuerIndex);
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded revocation status index of issuer '" + issuerDn + "' with " + issuerIndex.entries.size() + " entries.");
+        }
+    }
+
+    /**
+     * Applies changed statuses to the index of an issuer and marks the index as fresh. Does nothing if the issuer has not been loaded.
+     *
+     * @param issuerDn the DN of the issuer
+     * @param statuses statuses of certificates that have been updated in the database since the last refresh
+     * @param highWaterMark the time up to which changes in the database are reflected in the statuses
+     */
+    public void update(final String issuerDn, final Map<BigInteger, CertificateStatus> statuses, final long highWaterMark) {
+        final IssuerIndex issuerIndex = issuers.get(issuerDn);
+        if (issuerIndex == null) {
+            return;
+        }
+        for (final Map.Entry<BigInteger, CertificateStatus> entry : statuses.entrySet()) {
+            putEntry(issuerIndex, entry.getKey(), entry.getValue(), true);
+        }
+        issuerIndex.highWaterMark = Math.max(issuerIndex.highWaterMark, highWaterMark);
+        issuerIndex.lastRefresh = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds a status that was read from the database after a miss in the index. Never replaces an existing entry, since that may have been
+     * added by a refresh with more recent information.
+     */
+    public void putIfAbsent(final String issuerDn, final BigInteger serialNumber, final CertificateStatus certificateStatus) {
+        final IssuerIndex issuerIndex = issuers.get(issuerDn);
+        if (issuerIndex != null) {
+            putEntry(issuerIndex, serialNumber, certificateStatus, false);
+        }
+    }
+
+    /** Removes the index of all issuers that are not in the given collection, for example CAs that are no longer served. */
+    public void retainIssuers(final Collection<String> issuerDns) {
+        issuers.keySet().retainAll(issuerDns);
+    }
+
+    /** Removes the index of all issuers. */
+    public void flush() {
+        issuers.clear();
+    }
+
+    private static void putEntry(final IssuerIndex issuerIndex, final BigInteger serialNumber, final CertificateStatus certificateStatus,
+            final boolean replaceExisting) {
+        if (certificateStatus == null || CertificateStatus.NOT_AVAILABLE.equals(certificateStatus)) {
+            return;
+        }
+        final StatusEntry statusEntry = new StatusEntry(certificateStatus);
+        if (replaceExisting && (statusEntry.revoked || issuerIndex.entries.containsKey(serialNumber))) {
+            // Revoked entries, and changes to entries we already have, are always kept
+            issuerIndex.entries.put(serialNumber, statusEntry);
+        } else if (issuerIndex.entries.size() < OcspConfiguration.getRevocationStatusIndexMaxEntries()) {
+            if (replaceExisting) {
+                issuerIndex.entries.put(serialNumber, statusEntry);
+            } else {
+                issuerIndex.entries.putIfAbsent(serialNumber, statusEntry);
+            }
+        }
+    }
+}
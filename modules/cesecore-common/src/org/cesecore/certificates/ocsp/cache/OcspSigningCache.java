@@ -16,44 +16,46 @@ import com.keyfactor.util.CertTools;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
-import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
-import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
-import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.cert.ocsp.CertificateID;
-import org.bouncycastle.cert.ocsp.OCSPException;
-import org.bouncycastle.cert.ocsp.jcajce.JcaCertificateID;
-import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.bc.BcDigestCalculatorProvider;
-import org.cesecore.certificates.ocsp.exception.OcspFailureException;
 import org.cesecore.util.LogRedactionUtils;
 
 import java.math.BigInteger;
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Hold information needed to create OCSP responses without database lookups.
+ * <p>
+ * The cache content is an immutable snapshot that is replaced as a whole when the cache is reloaded. Readers always see
+ * either the previous or the new snapshot, never a partially built one, and do not need to take any lock. Writers are
+ * serialized by a lock and build the next snapshot on the side before publishing it.
  */
 public enum OcspSigningCache {
     INSTANCE;
-    
-    private Map<Integer, OcspSigningCacheEntry> cache = new HashMap<>();
-    private Map<Integer, OcspSigningCacheEntry> staging = new HashMap<>();
-    private OcspSigningCacheEntry defaultResponderCacheEntry = null;
+
+    private volatile Snapshot snapshot = new Snapshot(CertificateIdIndex.empty(), null);
+    private Map<CertificateIdIndex.Key, OcspSigningCacheEntry> staging = new LinkedHashMap<>();
     private final ReentrantLock lock = new ReentrantLock(false);
     private final static Logger log = Logger.getLogger(OcspSigningCache.class);
     /** Flag to detect and log non-existence of a default responder once. */
     private boolean logDefaultHasRunOnce = false;
- 
+
+    /** Immutable cache content together with the default responder that was resolved for it. */
+    private static final class Snapshot {
+        private final CertificateIdIndex<OcspSigningCacheEntry> index;
+        private final OcspSigningCacheEntry defaultResponderCacheEntry;
+
+        private Snapshot(final CertificateIdIndex<OcspSigningCacheEntry> index, final OcspSigningCacheEntry defaultResponderCacheEntry) {
+            this.index = index;
+            this.defaultResponderCacheEntry = defaultResponderCacheEntry;
+        }
+    }
+
     public OcspSigningCacheEntry getEntry(final CertificateID certID) {
-        return cache.get(getCacheIdFromCertificateID(certID));
+        return snapshot.index.get(certID);
     }
 
     /**
@@ -61,30 +63,45 @@ public enum OcspSigningCache {
      * @return the entry corresponding to the default responder, or null if it wasn't found.
      */
     public OcspSigningCacheEntry getDefaultEntry() {
-        return defaultResponderCacheEntry;
+        return snapshot.defaultResponderCacheEntry;
     }
 
     /** WARNING: This method potentially exports references to CAs private keys! */
     public Collection<OcspSigningCacheEntry> getEntries() {
-        return cache.values();
+        return snapshot.index.values();
     }
 
     public void stagingStart() {
         lock.lock();
-        staging = new HashMap<>();
+        staging = new LinkedHashMap<>();
     }
 
     public void stagingAdd(OcspSigningCacheEntry ocspSigningCacheEntry) {
+        addToMap(staging, ocspSigningCacheEntry, true);
+    }
+
+    /**
+     * Adds the entry under all its CertificateIDs and under the CertificateIDs of the CAs it signs on behalf of.
+     * 
+     * @param map the map to add to
+     * @param ocspSigningCacheEntry the entry to add
+     * @param replaceExisting true if an existing mapping for any of the entry's own CertificateIDs should be replaced
+     */
+    private static void addToMap(final Map<CertificateIdIndex.Key, OcspSigningCacheEntry> map, final OcspSigningCacheEntry ocspSigningCacheEntry,
+            final boolean replaceExisting) {
         for (CertificateID certID : ocspSigningCacheEntry.getCertificateID()) {
-            staging.put(getCacheIdFromCertificateID(certID), ocspSigningCacheEntry);            
+            final CertificateIdIndex.Key key = new CertificateIdIndex.Key(certID);
+            if (replaceExisting || !map.containsKey(key)) {
+                map.put(key, ocspSigningCacheEntry);
+            }
         }
         for (CertificateID certID : ocspSigningCacheEntry.getSignedBehalfOfCaIds()) {
             // override cache only if no OCSP key binding present or the entry is a placeholder
-            int cacheId = getCacheIdFromCertificateID(certID);
-            if(!staging.containsKey(cacheId) || staging.get(cacheId).isPlaceholder() 
-                            || staging.get(cacheId).getOcspKeyBinding()==null ) {
-                staging.put(cacheId, ocspSigningCacheEntry);
-            }      
+            final CertificateIdIndex.Key key = new CertificateIdIndex.Key(certID);
+            final OcspSigningCacheEntry existing = map.get(key);
+            if (existing == null || existing.isPlaceholder() || existing.getOcspKeyBinding() == null) {
+                map.put(key, ocspSigningCacheEntry);
+            }
         }
     }
 
@@ -106,37 +123,31 @@ public enum OcspSigningCache {
             }
         }
         //Lastly, walk through the list of entries and replace all placeholders with the default responder
-        Map<Integer, OcspSigningCacheEntry> modifiedEntries = new HashMap<>();
-        List<Integer> removedEntries = new ArrayList<>();
-        for (Integer key : staging.keySet()) {
-            OcspSigningCacheEntry entry = staging.get(key);
+        final Map<CertificateIdIndex.Key, OcspSigningCacheEntry> committed = new LinkedHashMap<>();
+        for (final Map.Entry<CertificateIdIndex.Key, OcspSigningCacheEntry> staged : staging.entrySet()) {
+            OcspSigningCacheEntry entry = staged.getValue();
             //If entry has been created without a private key, replace it with the default responder.
             if (entry.isPlaceholder()) {
-                if (stagedDefaultResponder != null) {
-                    entry = new OcspSigningCacheEntry(entry.getIssuerCaCertificate(), entry.getIssuerCaCertificateStatus(),
-                            stagedDefaultResponder.getCaCertificateChain(), stagedDefaultResponder.getOcspSigningCertificate(),
-                            stagedDefaultResponder.getPrivateKey(), stagedDefaultResponder.getSignatureProviderName(),
-                            stagedDefaultResponder.getOcspKeyBinding(), stagedDefaultResponder.getResponderIdType());
-                    entry.setCrlSigningAlgorithm(stagedDefaultResponder.getCrlSigningAlgorithm());
-                    modifiedEntries.put(key, entry);
-                } else {
+                if (stagedDefaultResponder == null) {
                     //If no default responder is defined, remove placeholder. 
-                    removedEntries.add(key);
+                    continue;
                 }
+                entry = new OcspSigningCacheEntry(entry.getIssuerCaCertificate(), entry.getIssuerCaCertificateStatus(),
+                        stagedDefaultResponder.getCaCertificateChain(), stagedDefaultResponder.getOcspSigningCertificate(),
+                        stagedDefaultResponder.getPrivateKey(), stagedDefaultResponder.getSignatureProviderName(),
+                        stagedDefaultResponder.getOcspKeyBinding(), stagedDefaultResponder.getResponderIdType());
+                entry.setCrlSigningAlgorithm(stagedDefaultResponder.getCrlSigningAlgorithm());
             }
+            committed.put(staged.getKey(), entry);
         }
-        staging.putAll(modifiedEntries);
-        for (Integer removedKey : removedEntries) {
-            staging.remove(removedKey);
-        }
-        logDefaultResponderChanges(defaultResponderCacheEntry, stagedDefaultResponder, defaultResponderSubjectDn);
-        cache = staging;
-        defaultResponderCacheEntry = stagedDefaultResponder;
+        logDefaultResponderChanges(snapshot.defaultResponderCacheEntry, stagedDefaultResponder, defaultResponderSubjectDn);
+        // Publish the new content with a single volatile write, so readers never observe a half built cache
+        snapshot = new Snapshot(new CertificateIdIndex<>(committed), stagedDefaultResponder);
+        staging = new LinkedHashMap<>();
         if (log.isDebugEnabled()) {
             log.debug("Committing the following to OCSP cache:");
-            for (final Integer key : staging.keySet()) {
-                final OcspSigningCacheEntry entry = staging.get(key);
-                log.debug(" KeyBindingId: " + key + ", SubjectDN '" + LogRedactionUtils.getSubjectDnLogSafe(entry.getFullCertificateChain().get(0))
+            for (final OcspSigningCacheEntry entry : committed.values()) {
+                log.debug(" SubjectDN '" + LogRedactionUtils.getSubjectDnLogSafe(entry.getFullCertificateChain().get(0))
                         + "', IssuerDN '" + CertTools.getIssuerDN(entry.getFullCertificateChain().get(0)) + "', SerialNumber "
                         + entry.getFullCertificateChain().get(0).getSerialNumber().toString() + "/"
                         + entry.getFullCertificateChain().get(0).getSerialNumber().toString(16));
@@ -205,26 +216,16 @@ public enum OcspSigningCache {
      * @param ocspSigningCacheEntry the entry to add
      */
     public void addSingleEntry(OcspSigningCacheEntry ocspSigningCacheEntry) {
-        List<CertificateID> certIDs = ocspSigningCacheEntry.getCertificateID();
-        for (CertificateID certID : certIDs) {
-            int cacheId = getCacheIdFromCertificateID(certID);
-            lock.lock();
-            try {
-                //Make sure that another thread didn't add the same entry while this one was waiting.
-                if (!cache.containsKey(cacheId)) {
-                    cache.put(cacheId, ocspSigningCacheEntry);
-                }
-                for (CertificateID certIDOnBehalf : ocspSigningCacheEntry.getSignedBehalfOfCaIds()) {
-                    // override cache only if no OCSP key binding present or the entry is a placeholder
-                    int cacheIdOnBehalf = getCacheIdFromCertificateID(certIDOnBehalf);
-                    if(!cache.containsKey(cacheIdOnBehalf) || cache.get(cacheIdOnBehalf).isPlaceholder() 
-                                    || cache.get(cacheIdOnBehalf).getOcspKeyBinding()==null ) {
-                        cache.put(cacheIdOnBehalf, ocspSigningCacheEntry);
-                    }      
-                }
-            } finally {
-                lock.unlock();
-            }
+        lock.lock();
+        try {
+            // Copy the current content, since a published snapshot is never modified
+            final Snapshot current = snapshot;
+            final Map<CertificateIdIndex.Key, OcspSigningCacheEntry> updated = current.index.toMap();
+            //Make sure that another thread didn't add the same entry while this one was waiting.
+            addToMap(updated, ocspSigningCacheEntry, false);
+            snapshot = new Snapshot(new CertificateIdIndex<>(updated), current.defaultResponderCacheEntry);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -94,6 +94,14 @@ public final class CesecoreConfiguration {
         return ConfigurationHolder.getString("ca.rngalgorithm");
     }
 
+    /**
+     * @return the number of random serial numbers to generate ahead of time for each CA, or 0 to generate serial numbers when they are
+     *         needed
+     */
+    public static int getSerialNumberPoolSize() {
+        return (int) Math.max(0L, getLongValue("ca.serialnumberpoolsize", 0L, "serial numbers"));
+    }
+
     /**
      * The date and time from which an expire date of a certificate is to be considered to be too far in the future.
      */
@@ -173,6 +181,34 @@ public final class CesecoreConfiguration {
         return getLongValue("authorization.cachetime", 30000L, "milliseconds to cache authorization");
     }
 
+    /**
+     * @return the maximum number of authentication tokens whose matching role members are cached, or 0 for no limit. Read at startup.
+     */
+    public static long getCacheAuthenticationTokenSize() {
+        return getLongValue("authorization.tokencache.size", 100000L, "authentication tokens");
+    }
+
+    /** @return true if changes of cached objects should be sent to the other nodes of the cluster through the CacheInvalidationData table */
+    public static boolean isCacheInvalidationEnabled() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(ConfigurationHolder.getString("cache.invalidation.enabled"));
+    }
+
+    /** @return how often cache invalidation events of other nodes are read, in milliseconds */
+    public static long getCacheInvalidationPollInterval() {
+        return getLongValue("cache.invalidation.pollinterval", 1000L, "milliseconds between reads of cache invalidation events");
+    }
+
+    /** @return how far back each read of cache invalidation events goes, to catch events of transactions that were committed late */
+    public static long getCacheInvalidationOverlap() {
+        return getLongValue("cache.invalidation.overlap", 60000L, "milliseconds of cache invalidation events to read again");
+    }
+
+    /** @return how long cache invalidation events are kept in the database, in milliseconds */
+    public static long getCacheInvalidationRetention() {
+        return Math.max(getLongValue("cache.invalidation.retention", 600000L, "milliseconds to keep cache invalidation events"),
+                2 * getCacheInvalidationOverlap());
+    }
+
     /**
      * Parameter to specify if retrieving GlobalConfiguration (in GlobalConfigurationSessionBean) should be cached, and in that case for how long.
      */
@@ -246,6 +282,34 @@ public final class CesecoreConfiguration {
         return value;
     }
 
+    /**
+     * @return true if audit records of the integrity protected audit log should be written in batches by a background writer, instead of
+     *         in a transaction of their own for each event.
+     */
+    public static boolean isAuditGroupCommitEnabled() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(ConfigurationHolder.getString("securityeventsaudit.groupcommit.enabled"));
+    }
+
+    /** @return true if logging should wait until the audit record has been committed, when group commit of audit records is enabled */
+    public static boolean isAuditGroupCommitStrict() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(ConfigurationHolder.getString("securityeventsaudit.groupcommit.strict"));
+    }
+
+    /** @return the maximum number of audit records written in one transaction, when group commit of audit records is enabled */
+    public static int getAuditGroupCommitBatchSize() {
+        return Math.max(1, (int) getLongValue("securityeventsaudit.groupcommit.batchsize", 100L, "records"));
+    }
+
+    /** @return the maximum time in milliseconds an audit record waits for its batch to fill up, when group commit of audit records is enabled */
+    public static long getAuditGroupCommitFlushInterval() {
+        return Math.max(1L, getLongValue("securityeventsaudit.groupcommit.flushinterval", 20L, "milliseconds"));
+    }
+
+    /** @return the maximum number of audit records waiting to be written, when group commit of audit records is enabled */
+    public static int getAuditGroupCommitQueueSize() {
+        return Math.max(1, (int) getLongValue("securityeventsaudit.groupcommit.queuesize", 10000L, "records"));
+    }
+
     /** Returns "subalgorithms", e.g. different keylengths or curves */
     public static List<String> getExtraAlgSubAlgs(String algName) {
         return ConfigurationHolder.getPrefixedPropertyNames("extraalgs." + algName + ".subalgs");
@@ -310,10 +374,49 @@ public final class CesecoreConfiguration {
         return Boolean.TRUE.toString().equalsIgnoreCase(ConfigurationHolder.getString("databaseprotection.enableverify"));
     }
 
+    /**
+     * @return the maximum number of rows remembered as verified, so that unchanged rows that are read again are not verified again.
+     * 0 if verified rows should not be remembered.
+     */
+    public static int getDatabaseIntegrityVerificationCacheSize() {
+        return (int) getLongValue("databaseprotection.verifycache.size", 0L, "rows");
+    }
+
+    /**
+     * @return true if the data of CAs and profiles should be stored in the compact binary format instead of as XML.
+     * Both formats are always read.
+     */
+    public static boolean isBinaryDataMapEncodingEnabled() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(ConfigurationHolder.getString("database.binarydatamaps"));
+    }
+
+    /**
+     * @return true if the independent checks of a certificate request should run concurrently in the asynchronous invocation pool of the
+     *         container, instead of one after another in the issuing thread.
+     */
+    public static boolean isParallelPreIssuanceChecks() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(ConfigurationHolder.getString("certificate.issuance.parallelchecks"));
+    }
+
     public static boolean getCaKeepOcspExtendedService() {
         return Boolean.parseBoolean(ConfigurationHolder.getString("ca.keepocspextendedservice").toLowerCase());
     }
 
+    /**
+     * @return the number of CRL partitions of a CA that may be created at the same time. 1 creates the partitions one after another.
+     */
+    public static int getCrlPartitionParallelism() {
+        return Math.max(1, (int) getLongValue("crlgen.partitionparallelism", 1L, "partitions"));
+    }
+
+    /**
+     * @return true if changes of revocation status should be written to RevocationJournalData, and delta CRLs be created from there
+     *         instead of from a scan of CertificateData.
+     */
+    public static boolean isCrlRevocationJournalEnabled() {
+        return Boolean.TRUE.toString().equalsIgnoreCase(ConfigurationHolder.getString("crlgen.revocationjournal.enabled"));
+    }
+
     /** @return the number of rows that should be fetched at the time when creating CRLs. */
     public static int getDatabaseRevokedCertInfoFetchSize() {
         return (int) getLongValue("database.crlgenfetchsize", 500000L, "rows");
@@ -21,6 +21,7 @@ import org.cesecore.certificates.certificateprofile.CertificateProfileConstants;
 
 import com.keyfactor.util.CertTools;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -65,6 +66,17 @@ public class OcspConfiguration {
     
     @Deprecated //Remove this value once upgrading to 6.7.0 has been dropped
     public static final String RESPONDER_ID_TYPE = "ocsp.responderidtype";
+    public static final String STATUS_INDEX_ENABLED = "ocsp.statusindex.enabled";
+    public static final String STATUS_INDEX_REFRESH_INTERVAL = "ocsp.statusindex.refreshinterval";
+    public static final String STATUS_INDEX_MAX_STALENESS = "ocsp.statusindex.maxstaleness";
+    public static final String STATUS_INDEX_MAX_ENTRIES = "ocsp.statusindex.maxentries";
+    public static final String SIGNING_MAX_CONCURRENCY = "ocsp.signing.maxconcurrency";
+    public static final String SIGNING_QUEUE_SIZE = "ocsp.signing.queuesize";
+    public static final String SIGNING_BATCH_WINDOW = "ocsp.signing.batchwindow";
+    public static final String SIGNING_HEALTHCHECK_MAX_REJECTED_PERCENT = "ocsp.signing.healthcheck.maxrejectedpercent";
+    public static final String RESPONSE_STORE_ENABLED = "ocsp.responsestore.enabled";
+    public static final String RESPONSE_STORE_DIRECTORY = "ocsp.responsestore.directory";
+    public static final String RESPONSE_STORE_REFRESH_INTERVAL = "ocsp.responsestore.refreshinterval";
     
     @Deprecated //Remove this value once upgrading VAs to EJBCA 6 has been dropped
     public static final int RESTRICTONISSUER = 0;
@@ -155,6 +167,109 @@ public class OcspConfiguration {
         return timeInSeconds;
     }
 
+    /**
+     * @return true if the responder should answer status requests from the in-memory revocation status index, instead of querying the database
+     * for every serial number.
+     */
+    public static boolean isRevocationStatusIndexEnabled() {
+        return Boolean.parseBoolean(StringUtils.trim(ConfigurationHolder.getString(STATUS_INDEX_ENABLED)));
+    }
+
+    /**
+     * @return how often, in milliseconds, the revocation status index is updated with changes from the database. Default 5 seconds.
+     */
+    public static long getRevocationStatusIndexRefreshIntervalMs() {
+        return getLongValue(STATUS_INDEX_REFRESH_INTERVAL, 5000L);
+    }
+
+    /**
+     * @return how long, in milliseconds, the revocation status index of an issuer may go without a successful update before lookups fall back
+     * to the database. Default 30 seconds.
+     */
+    public static long getRevocationStatusIndexMaxStalenessMs() {
+        return getLongValue(STATUS_INDEX_MAX_STALENESS, 30000L);
+    }
+
+    /**
+     * @return the maximum number of non-revoked entries kept per issuer in the revocation status index. Revoked entries are always kept.
+     * Default 1000000.
+     */
+    public static int getRevocationStatusIndexMaxEntries() {
+        return (int) getLongValue(STATUS_INDEX_MAX_ENTRIES, 1000000L);
+    }
+
+    /**
+     * @return the maximum number of OCSP responses that are signed at the same time with keys of the same crypto token (signature provider).
+     * Should match the number of sessions the HSM allows. Default 16.
+     */
+    public static int getSigningMaxConcurrency() {
+        return (int) Math.max(1L, getLongValue(SIGNING_MAX_CONCURRENCY, 16L));
+    }
+
+    /**
+     * @return the maximum number of OCSP responses waiting to be signed with keys of the same crypto token (signature provider). Requests
+     * that arrive when the queue is full are answered with tryLater. Default 256.
+     */
+    public static int getSigningQueueSize() {
+        return (int) Math.max(1L, getLongValue(SIGNING_QUEUE_SIZE, 256L));
+    }
+
+    /**
+     * @return how long, in milliseconds, OCSP responses to be signed with the same key are collected before they are signed together
+     * as one batch. 0 to sign each response on its own. Default 0.
+     */
+    public static long getSigningBatchWindowMs() {
+        return Math.max(0L, getLongValue(SIGNING_BATCH_WINDOW, 0L));
+    }
+
+    /**
+     * @return the share of OCSP signing requests of a crypto token, in percent, that may be answered with tryLater between two health checks
+     * before the health check fails. 0 to fail on any rejected request. Default 5.
+     */
+    public static int getSigningHealthCheckMaxRejectedPercent() {
+        return (int) Math.min(100L, Math.max(0L, getLongValue(SIGNING_HEALTHCHECK_MAX_REJECTED_PERCENT, 5L)));
+    }
+
+    /**
+     * @return true if pre-produced OCSP responses should be served from a local memory-mapped store, instead of being read from the database
+     * for every request.
+     */
+    public static boolean isPreProducedResponseStoreEnabled() {
+        return Boolean.parseBoolean(StringUtils.trim(ConfigurationHolder.getString(RESPONSE_STORE_ENABLED)));
+    }
+
+    /**
+     * @return the directory of the local store of pre-produced OCSP responses. Default a directory in the temporary directory of the JVM.
+     */
+    public static String getPreProducedResponseStoreDirectory() {
+        final String value = ConfigurationHolder.getString(RESPONSE_STORE_DIRECTORY);
+        if (StringUtils.isBlank(value)) {
+            return System.getProperty("java.io.tmpdir") + File.separator + "ejbca-ocspresponsestore";
+        }
+        return value.trim();
+    }
+
+    /**
+     * @return how often, in milliseconds, the local store of pre-produced OCSP responses is updated with new responses from the database.
+     * Default 5 seconds.
+     */
+    public static long getPreProducedResponseStoreRefreshIntervalMs() {
+        return getLongValue(RESPONSE_STORE_REFRESH_INTERVAL, 5000L);
+    }
+
+    private static long getLongValue(final String key, final long defaultValue) {
+        final String value = ConfigurationHolder.getString(key);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn(key + " is not a decimal long. Using default " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
+
     /**
      * If set to true the responder will enforce OCSP request signing
      */
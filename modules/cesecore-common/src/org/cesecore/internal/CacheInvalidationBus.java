@@ -0,0 +1,128 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+import org.cesecore.config.CesecoreConfiguration;
+
+/**
+ * Pushes changes of cached objects to the other nodes of a cluster, so the caches of all nodes are updated as soon as an object is
+ * changed, instead of when the cache time of the object has passed or when the caches are cleared by the ClearCacheServlet.
+ * <p>
+ * The node that changes an object publishes the name of the cache and the id of the object. The event is sent to the other nodes by the
+ * {@link CacheInvalidationTransport} of the bus, and the listeners of the cache on each receiving node are called with it. Caches that are
+ * built on {@link CommonCacheBase} with a name listen to their own events, and read the object again the next time it is used.
+ * <p>
+ * Without a transport, which is the case unless the cluster wide invalidation is enabled, publishing does nothing and the caches rely on
+ * their cache times as before.
+ */
+public final class CacheInvalidationBus {
+
+    private static final Logger log = Logger.getLogger(CacheInvalidationBus.class);
+
+    private static final class InstanceHolder {
+        private static final CacheInvalidationBus INSTANCE = new CacheInvalidationBus(CesecoreConfiguration.getNodeIdentifier());
+    }
+
+    private final String nodeId;
+    private final ConcurrentMap<String, List<Consumer<CacheInvalidationEvent>>> listeners = new ConcurrentHashMap<>();
+    private volatile CacheInvalidationTransport transport;
+
+    /** Creates a bus for the given node. Use {@link #getInstance()} except in tests that simulate several nodes. */
+    public CacheInvalidationBus(final String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /** @return the bus of this node */
+    public static CacheInvalidationBus getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /** Sets the transport that events are sent to the other nodes with, or null to only update the caches of this node. */
+    public void setTransport(final CacheInvalidationTransport transport) {
+        this.transport = transport;
+    }
+
+    /** @return true if events are sent to other nodes */
+    public boolean isDistributed() {
+        return transport != null;
+    }
+
+    /**
+     * Calls the listener with the events of the given cache that are received from other nodes.
+     *
+     * @param cacheName name of the cache, or {@link CacheInvalidationEvent#ALL_CACHES} for events that clear all caches
+     */
+    public void addListener(final String cacheName, final Consumer<CacheInvalidationEvent> listener) {
+        listeners.computeIfAbsent(cacheName, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void removeListener(final String cacheName, final Consumer<CacheInvalidationEvent> listener) {
+        final List<Consumer<CacheInvalidationEvent>> cacheListeners = listeners.get(cacheName);
+        if (cacheListeners != null) {
+            cacheListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Tells the other nodes that an object has been changed or removed. The caches of this node are not affected, since they are updated
+     * by the code that makes the change.
+     *
+     * @param cacheName name of the cache that holds the object, or {@link CacheInvalidationEvent#ALL_CACHES}
+     * @param id id of the object in the cache
+     */
+    public void publish(final String cacheName, final int id) {
+        final CacheInvalidationTransport currentTransport = transport;
+        if (currentTransport == null) {
+            return;
+        }
+        final CacheInvalidationEvent event = new CacheInvalidationEvent(cacheName, id, nodeId, System.currentTimeMillis());
+        if (log.isDebugEnabled()) {
+            log.debug("Publishing " + event);
+        }
+        currentTransport.send(event);
+    }
+
+    /**
+     * Calls the listeners of the cache of an event received by the transport. Events that were published by this node are ignored.
+     */
+    public void receive(final CacheInvalidationEvent event) {
+        if (nodeId.equals(event.getNodeId())) {
+            return;
+        }
+        final List<Consumer<CacheInvalidationEvent>> cacheListeners = listeners.get(event.getCacheName());
+        if (cacheListeners == null) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Received " + event);
+        }
+        for (final Consumer<CacheInvalidationEvent> listener : cacheListeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Failed to invalidate cache '" + event.getCacheName() + "' for id " + event.getId() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import java.io.Serializable;
+
+/**
+ * Tells the other nodes of a cluster that an object has been changed, so they must read it again instead of using their cached copy.
+ *
+ * @see CacheInvalidationBus
+ */
+public final class CacheInvalidationEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Cache name of events that tell the nodes to clear all their caches. The id is then 1 if active CA and crypto tokens should be kept. */
+    public static final String ALL_CACHES = "*";
+
+    private final String cacheName;
+    private final int id;
+    private final String nodeId;
+    private final long time;
+
+    /**
+     * @param cacheName name of the cache that holds the changed object, or {@link #ALL_CACHES}
+     * @param id id of the changed object in the cache
+     * @param nodeId identifier of the node where the object was changed
+     * @param time when the object was changed, in milliseconds since epoch
+     */
+    public CacheInvalidationEvent(final String cacheName, final int id, final String nodeId, final long time) {
+        this.cacheName = cacheName;
+        this.id = id;
+        this.nodeId = nodeId;
+        this.time = time;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidationEvent [cacheName=" + cacheName + ", id=" + id + ", nodeId=" + nodeId + ", time=" + time + "]";
+    }
+}
@@ -0,0 +1,26 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+/**
+ * Carries {@link CacheInvalidationEvent}s from the {@link CacheInvalidationBus} of one node to the buses of the other nodes, which are
+ * given the events with {@link CacheInvalidationBus#receive(CacheInvalidationEvent)}.
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Sends an event to the other nodes. A transport that takes part in the transaction of the caller should only deliver the event if
+     * the transaction is committed, since the other nodes would otherwise read the old object again.
+     */
+    void send(CacheInvalidationEvent event);
+}
@@ -0,0 +1,72 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Registry of the named {@link ManagedCache}s of this node. The statistics of each cache are published as an MXBean with the name
+ * <code>org.cesecore:type=Cache,name=&lt;cache name&gt;</code>, and can be read from the health check.
+ */
+public enum CacheRegistry {
+    INSTANCE;
+
+    // Logger is not static since static initializers run after the constructor for enums.
+    private final Logger log = Logger.getLogger(CacheRegistry.class);
+
+    private final ConcurrentMap<String, ManagedCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    /** Registers a cache by its name, replacing any cache with the same name. Called when a named cache is built. */
+    void register(final ManagedCache<?, ?> cache) {
+        final ManagedCache<?, ?> replaced = caches.put(cache.getName(), cache);
+        if (replaced != null && log.isDebugEnabled()) {
+            log.debug("Replaced registered cache '" + cache.getName() + "'.");
+        }
+        JmxRegistry.INSTANCE.register(cache, getObjectName(cache.getName()));
+    }
+
+    /** Removes a cache from the registry and from JMX. */
+    public void unregister(final String name) {
+        if (caches.remove(name) == null) {
+            return;
+        }
+        JmxRegistry.INSTANCE.unregister(getObjectName(name));
+    }
+
+    /** @return the cache registered with the given name, or null */
+    public ManagedCache<?, ?> getCache(final String name) {
+        return caches.get(name);
+    }
+
+    /** @return the statistics of all registered caches, sorted by name */
+    public List<CacheStatistics> getStatistics() {
+        final List<CacheStatistics> statistics = new ArrayList<>(caches.size());
+        for (final ManagedCache<?, ?> cache : caches.values()) {
+            statistics.add(cache.getStatistics());
+        }
+        statistics.sort(Comparator.comparing(CacheStatistics::getName));
+        return statistics;
+    }
+
+    private static String getObjectName(final String name) {
+        return "org.cesecore:type=Cache,name=" + ObjectName.quote(name);
+    }
+}
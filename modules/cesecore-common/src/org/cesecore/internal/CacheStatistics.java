@@ -0,0 +1,95 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+/**
+ * Snapshot of the statistics of a {@link ManagedCache}. All counts are since the cache was created.
+ */
+public final class CacheStatistics {
+
+    private final String name;
+    private final long estimatedSize;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTimeNanos;
+    private final long evictionCount;
+
+    CacheStatistics(final String name, final long estimatedSize, final long hitCount, final long missCount, final long loadSuccessCount,
+            final long loadFailureCount, final long totalLoadTimeNanos, final long evictionCount) {
+        this.name = name;
+        this.estimatedSize = estimatedSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTimeNanos = totalLoadTimeNanos;
+        this.evictionCount = evictionCount;
+    }
+
+    /** @return the name the cache is registered with, or null if it is not registered */
+    public String getName() {
+        return name;
+    }
+
+    /** @return the approximate number of entries in the cache */
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /** @return the ratio of lookups that found an entry, or 1.0 if there have been no lookups */
+    public double getHitRate() {
+        final long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /** @return the total time spent loading entries, in nanoseconds */
+    public long getTotalLoadTimeNanos() {
+        return totalLoadTimeNanos;
+    }
+
+    /** @return the average time spent loading an entry, in milliseconds, or 0 if nothing has been loaded */
+    public double getAverageLoadTimeMillis() {
+        final long loadCount = loadSuccessCount + loadFailureCount;
+        return loadCount == 0 ? 0.0 : totalLoadTimeNanos / 1000000.0 / loadCount;
+    }
+
+    /** @return the number of entries that were removed because of the size or time bounds of the cache */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": size=" + estimatedSize + ", hits=" + hitCount + ", misses=" + missCount + ", hitRate=" + String.format("%.3f", getHitRate())
+                + ", loads=" + loadSuccessCount + ", loadFailures=" + loadFailureCount + ", averageLoadTime="
+                + String.format("%.3f", getAverageLoadTimeMillis()) + " ms, evictions=" + evictionCount;
+    }
+}
@@ -0,0 +1,40 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+/**
+ * JMX view of the statistics of a registered {@link ManagedCache}, registered as <code>org.cesecore:type=Cache,name=&lt;cache name&gt;</code>.
+ *
+ * @see CacheStatistics
+ */
+public interface CacheStatisticsMXBean {
+
+    long getEstimatedSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getLoadSuccessCount();
+
+    long getLoadFailureCount();
+
+    double getAverageLoadTimeMillis();
+
+    long getEvictionCount();
+
+    /** Removes all entries from the cache */
+    void invalidateAll();
+}
@@ -19,27 +19,32 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
 /**
  * Object and name to id lookup cache base implementation.
  * 
- * Note that this type of cache is not optimized for short-lived objects, but
- * will prevent memory leaks to some extent through checking for stale data
- * during updates.
+ * Objects are kept in a {@link ManagedCache}. Lookups do not lock, and when the cache time of an object has passed, only one of the threads
+ * looking it up is told to check for updates, while the others continue to use the cached object. Objects are removed when the cache is
+ * told that they are gone, when they have not been used for the maximum cache life time, or when there are more than the maximum cache
+ * size of them.
+ * <p>
+ * A cache with a name also listens to the events of that name on the {@link CacheInvalidationBus}, so objects changed on other nodes are
+ * read again the next time they are used.
  * 
  * @version $Id$
  */
 public abstract class CommonCacheBase<T> implements CommonCache<T> {
     
-    private class CacheEntry {
-        long lastUpdate;
+    private static final class CacheEntry<T> {
+        final AtomicLong lastUpdate;
         final int digest;
         final String name;
         final T object;
         CacheEntry(long lastUpdate, int digest, String name, T object) {
-            this.lastUpdate = lastUpdate;
+            this.lastUpdate = new AtomicLong(lastUpdate);
             this.digest = digest;
             this.name = name;
             this.object = object;
@@ -47,18 +52,85 @@ public abstract class CommonCacheBase<T> implements CommonCache<T> {
     }
     
     private static final Logger log = Logger.getLogger(CommonCacheBase.class);
-    protected Map<Integer, CacheEntry> cache = new HashMap<>();
-    protected Map<String, Integer> nameToIdMap = new HashMap<>();
+    /** Name of the cache, or null if it is not registered */
+    private final String name;
+    /** Built when first used, see {@link #cache()} */
+    private volatile ManagedCache<Integer, CacheEntry<T>> cache;
+    /** Snapshot of the names of the cached objects, replaced whenever the cache is changed */
+    private volatile Map<String, Integer> nameToIdMap = Collections.emptyMap();
+    /** Set when entries have been evicted by the cache, so the name to id map must be rebuilt */
+    private volatile boolean nameToIdMapStale = false;
+    /** Entries of the cache this was copied from, until the cache is built */
+    private Map<Integer, CacheEntry<T>> initialEntries = null;
+
+    /** Creates a cache that is not registered in the {@link CacheRegistry}. */
+    protected CommonCacheBase() {
+        this((String) null);
+    }
+
+    /**
+     * The maximum cache life time and size are read once, when the cache is first used.
+     * 
+     * @param name name to publish the statistics of the cache under and to listen to invalidation events of, or null if this is not a
+     *            long-lived cache
+     */
+    protected CommonCacheBase(final String name) {
+        this.name = name;
+        if (name != null) {
+            CacheInvalidationBus.getInstance().addListener(name, event -> expireEntry(event.getId()));
+        }
+    }
+
+    /** Creates an unregistered cache with the same entries as the given cache. */
+    protected CommonCacheBase(final CommonCacheBase<T> original) {
+        this((String) null);
+        // Entries are copied when the copy is first used, since its maximum cache size and life time can not be read yet
+        initialEntries = new HashMap<>(original.cache().asMap());
+        nameToIdMap = original.getNameToIdMap();
+    }
+
+    /**
+     * Builds the cache the first time it is used, and not in the constructor, since the maximum cache size and life time are read from
+     * methods that subclasses override, which may depend on fields that are not set until the constructor of the subclass has run.
+     */
+    private ManagedCache<Integer, CacheEntry<T>> cache() {
+        ManagedCache<Integer, CacheEntry<T>> ret = cache;
+        if (ret == null) {
+            synchronized (this) {
+                ret = cache;
+                if (ret == null) {
+                    ret = ManagedCache.<Integer, CacheEntry<T>>newBuilder()
+                            .name(name)
+                            .maximumSize(getMaxCacheSize())
+                            .expireAfterAccess(getMaxCacheLifeTime())
+                            // The eviction listener may be called while the cache holds internal locks, so only flag the change here
+                            .evictionListener((id, cacheEntry) -> nameToIdMapStale = true)
+                            .build();
+                    if (initialEntries != null) {
+                        ret.asMap().putAll(initialEntries);
+                        initialEntries = null;
+                    }
+                    cache = ret;
+                }
+            }
+        }
+        return ret;
+    }
 
     /** @return how long to cache objects in milliseconds. */
     protected abstract long getCacheTime();
     
-    /** @return the maximum allowed time an object may reside in the cache before it is purged. 0 means live forever. */
+    /** @return the maximum allowed time an object may reside in the cache without being used before it is purged. 0 means live forever. */
     protected abstract long getMaxCacheLifeTime();
 
+    /** @return the maximum number of objects in the cache, where the least used objects are purged first. 0 means no limit. */
+    protected long getMaxCacheSize() {
+        return 0L;
+    }
+
     @Override
     public T getEntry(final Integer id) {
-        final CacheEntry cacheEntry = getCacheEntry(id);
+        final CacheEntry<T> cacheEntry = cache().getIfPresent(id);
         if (cacheEntry == null) {
             return null;
         }
@@ -72,7 +144,7 @@ public abstract class CommonCacheBase<T> implements CommonCache<T> {
 
     public Set<T> getAllEntries() {
         Set<T> result = new HashSet<>();
-        for(CacheEntry cacheEntry : cache.values()) {
+        for(CacheEntry<T> cacheEntry : cache().asMap().values()) {
             result.add(cacheEntry.object);
         }
         return result;
@@ -80,7 +152,7 @@ public abstract class CommonCacheBase<T> implements CommonCache<T> {
 
     public Set<String> getAllNames() {
         Set<String> result = new HashSet<>();
-        for(CacheEntry cacheEntry : cache.values()) {
+        for(CacheEntry<T> cacheEntry : cache().asMap().values()) {
             result.add(cacheEntry.name);
         }
         return result;
@@ -94,26 +166,31 @@ public abstract class CommonCacheBase<T> implements CommonCache<T> {
             // Cache is disabled, caller should check db
             return true;
         }
-        final Integer key = id;
-        final CacheEntry cacheEntry = cache.get(key);
+        final CacheEntry<T> cacheEntry = getCacheEntry(id);
         if (cacheEntry == null) {
             // No such object in cache, caller should check db
             return true;
         }
-        if (cacheEntry.lastUpdate+cacheTime<now) {
-            // We probably need to update, but re-check using synchronization
-            synchronized (cacheEntry) {
-                if (cacheEntry.lastUpdate+cacheTime<now) {
-                    // Object is present in cache, but cache has expired so the caller should update the cache
-                    // To prevent other threads to ask the database for the same thing, we reset the cache time.
-                    cacheEntry.lastUpdate = now;
-                    return true;
-                }
-            }
+        final long lastUpdate = cacheEntry.lastUpdate.get();
+        if (lastUpdate+cacheTime<now) {
+            // Object is present in cache, but cache has expired so the caller should update the cache.
+            // To prevent other threads to ask the database for the same thing, we reset the cache time, and only the thread that
+            // succeeds in doing so is asked to update.
+            return cacheEntry.lastUpdate.compareAndSet(lastUpdate, now);
         }
         return false;
     }
 
+    /**
+     * Makes the next call to {@link #shouldCheckForUpdates(int)} for the object return true, so it is read again. The cached object is
+     * used until then, which matters for objects like crypto tokens that keep state that is not stored in the database.
+     */
+    public void expireEntry(final int id) {
+        final CacheEntry<T> cacheEntry = getCacheEntry(id);
+        if (cacheEntry != null) {
+            cacheEntry.lastUpdate.set(Long.MIN_VALUE);
+        }
+    }
 
     @Override
     public void removeEntry(int id) {
@@ -123,7 +200,7 @@ public abstract class CommonCacheBase<T> implements CommonCache<T> {
     @Override
     public boolean willUpdate(int id, int digest) {
         // Same version in cache as provided Object?
-        final CacheEntry cacheEntry = getCacheEntry(id);
+        final CacheEntry<T> cacheEntry = getCacheEntry(id);
         if (cacheEntry == null || cacheEntry.digest != digest) {
             return true;
         } else {
@@ -143,9 +220,9 @@ public abstract class CommonCacheBase<T> implements CommonCache<T> {
         } else {
             // Same version in cache as provided Object?
             if (willUpdate(id, digest)) {
-                final CacheEntry cacheEntry = getCacheEntry(key);
+                final CacheEntry<T> cacheEntry = getCacheEntry(key);
                 // Create new object and store it in the cache.
-                final CacheEntry newCacheEntry = new CacheEntry(System.currentTimeMillis(), digest, name, object);
+                final CacheEntry<T> newCacheEntry = new CacheEntry<>(System.currentTimeMillis(), digest, name, object);
                 setCacheEntry(key, newCacheEntry);
                 if (log.isDebugEnabled()) {
                     log.debug("Updated " + object.getClass().getSimpleName() + " cache. Digest was " + digest + ", cacheEntry digest was " + (cacheEntry == null ? "null" : cacheEntry.digest));
@@ -156,82 +233,63 @@ public abstract class CommonCacheBase<T> implements CommonCache<T> {
     
     @Override
     public String getName(int id) {
-        final CacheEntry entry = getCacheEntry(id);
+        final CacheEntry<T> entry = getCacheEntry(id);
         return entry != null ? entry.name : null;
     }
     
-    /** @return cache entry for the requested key or null */
-    private CacheEntry getCacheEntry(final Integer key) {
-        return cache.get(key);
+    /** @return cache entry for the requested key or null. Not counted in the statistics of the cache, since it is not a lookup of the object. */
+    private CacheEntry<T> getCacheEntry(final Integer key) {
+        return cache().asMap().get(key);
     }
     
     /** Set or remove cache entry. */
-    private void setCacheEntry(final Integer key, final CacheEntry cacheEntry) {
-        final Map<Integer, CacheEntry> cacheStage = new HashMap<>();
-        final Map<String, Integer> nameToIdMapStage = new HashMap<>();
-        final long maxCacheLifeTime = getMaxCacheLifeTime();
-        final long staleCutOffTime = System.currentTimeMillis()-maxCacheLifeTime;
+    private void setCacheEntry(final Integer key, final CacheEntry<T> cacheEntry) {
         synchronized (this) {
-            // Process all entries except for the one that will change
-            for (final Entry<Integer,CacheEntry> entry : cache.entrySet()) {
-                final Integer currentId = entry.getKey();
-                if (!key.equals(currentId)) {
-                    final CacheEntry currentCacheEntry = entry.getValue();
-                    // By flushing older entries we at least limit how much
-                    // this registry will grow when used for short-lived objects
-                    // in a clustered environment.
-                    if (maxCacheLifeTime<1 || currentCacheEntry.lastUpdate >= staleCutOffTime) {
-                        // Keep using the current entry in the new cache
-                        cacheStage.put(entry.getKey(), currentCacheEntry);
-                        nameToIdMapStage.put(currentCacheEntry.name, entry.getKey());
-                    }
-                }
-            }
-            // Process the one that will change
             if (cacheEntry == null) {
-                // Don't add if to the new version of the cache if it existed (e.g. remove it)
+                cache().invalidate(key);
             } else {
-                cacheStage.put(key, cacheEntry);
-                nameToIdMapStage.put(cacheEntry.name, key);
+                cache().put(key, cacheEntry);
             }
-            cache = cacheStage;
-            nameToIdMap = Collections.unmodifiableMap(nameToIdMapStage);
+            rebuildNameToIdMap();
+        }
+    }
+
+    /** Replaces the name to id map with one built from the current entries. Must be called while holding the lock of this object. */
+    private void rebuildNameToIdMap() {
+        nameToIdMapStale = false;
+        final Map<String, Integer> nameToIdMapStage = new HashMap<>();
+        for (final Entry<Integer, CacheEntry<T>> entry : cache().asMap().entrySet()) {
+            nameToIdMapStage.put(entry.getValue().name, entry.getKey());
         }
+        nameToIdMap = Collections.unmodifiableMap(nameToIdMapStage);
     }
 
     @Override
     public Map<String,Integer> getNameToIdMap() {
+        if (nameToIdMapStale) {
+            synchronized (this) {
+                if (nameToIdMapStale) {
+                    rebuildNameToIdMap();
+                }
+            }
+        }
         return nameToIdMap;
     }
 
     @Override
     public void flush() {
-        final Map<Integer, CacheEntry> cacheStage = new HashMap<>();
-        final Map<String, Integer> nameToIdMapStage = new HashMap<>();
-        replaceCache(cacheStage, nameToIdMapStage);
+        synchronized (this) {
+            cache().invalidateAll();
+            rebuildNameToIdMap();
+        }
     }
     
     @Override
     public void replaceCacheWith(List<Integer> keys) {
-        Map<Integer, CacheEntry> cacheStage = new HashMap<>();
-        Map<String, Integer> nameToIdMapStage = new HashMap<>();
-        
-        for(Integer key : keys) {
-            CacheEntry entry = cache.get(key);
-            cacheStage.put(key, entry);
-            
-            String name = entry.name;
-            nameToIdMapStage.put(name, nameToIdMap.get(name));
-        }
-        
-        replaceCache(cacheStage, nameToIdMapStage);
-    }
-    
-    private void replaceCache(Map<Integer, CacheEntry> cacheStage, Map<String, Integer> nameToIdMapStage) {
         synchronized (this) {
-            cache = cacheStage;
-            nameToIdMap = nameToIdMapStage;
+            cache().asMap().keySet().retainAll(new HashSet<>(keys));
+            rebuildNameToIdMap();
         }
     }
     
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Publishes statistics MXBeans of this node in the platform MBean server, and remembers them so they can all be removed when the application
+ * is undeployed. The platform MBean server outlives the deployment, so a bean left behind would keep the classes of the undeployed
+ * application loaded.
+ */
+public enum JmxRegistry {
+    INSTANCE;
+
+    // Logger is not static since static initializers run after the constructor for enums.
+    private final Logger log = Logger.getLogger(JmxRegistry.class);
+
+    private final Set<String> objectNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Registers an MXBean, replacing any bean with the same name. Failures are logged, since statistics are not needed to run.
+     *
+     * @param mxBean the bean
+     * @param objectName the object name of the bean, with values quoted where needed
+     */
+    public void register(final Object mxBean, final String objectName) {
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(objectName);
+            // A redeployed application registers its beans again, so remove the beans of an earlier deployment that was not undeployed cleanly
+            if (mBeanServer.isRegistered(name)) {
+                mBeanServer.unregisterMBean(name);
+            }
+            mBeanServer.registerMBean(mxBean, name);
+            objectNames.add(objectName);
+        } catch (JMException | SecurityException e) {
+            log.info("Unable to publish '" + objectName + "' through JMX: " + e.getMessage());
+        }
+    }
+
+    /** Removes an MXBean, if it is registered. */
+    public void unregister(final String objectName) {
+        objectNames.remove(objectName);
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(objectName);
+            if (mBeanServer.isRegistered(name)) {
+                mBeanServer.unregisterMBean(name);
+            }
+        } catch (JMException | SecurityException e) {
+            log.info("Unable to remove '" + objectName + "' from JMX: " + e.getMessage());
+        }
+    }
+
+    /** Removes all MXBeans registered by this application. Called when the application is undeployed. */
+    public void unregisterAll() {
+        for (final String objectName : objectNames) {
+            unregister(objectName);
+        }
+    }
+
+    /** @return true if an MXBean with the given object name is registered by this application */
+    public boolean isRegistered(final String objectName) {
+        return objectNames.contains(objectName);
+    }
+}
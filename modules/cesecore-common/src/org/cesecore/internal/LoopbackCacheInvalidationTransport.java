@@ -0,0 +1,42 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Transport that delivers events directly to other buses in the same JVM, for testing the invalidation of caches without a cluster.
+ */
+public final class LoopbackCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    private final List<CacheInvalidationBus> buses = new CopyOnWriteArrayList<>();
+
+    /** Connects the bus to the other buses of this transport, and sets this as the transport of the bus. */
+    public void connect(final CacheInvalidationBus bus) {
+        buses.add(bus);
+        bus.setTransport(this);
+    }
+
+    public void disconnect(final CacheInvalidationBus bus) {
+        buses.remove(bus);
+        bus.setTransport(null);
+    }
+
+    @Override
+    public void send(final CacheInvalidationEvent event) {
+        for (final CacheInvalidationBus bus : buses) {
+            bus.receive(event);
+        }
+    }
+}
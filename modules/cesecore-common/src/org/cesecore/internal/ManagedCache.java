@@ -0,0 +1,266 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.internal;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Thread safe in-memory cache with optional size and time bounds, refresh-ahead and statistics. This is the cache that all object caches
+ * should be built on, so their memory use can be bounded and their efficiency can be monitored.
+ * <p>
+ * Lookups do not lock. By default, evictions and refreshes are done by the threads that use the cache, so no threads are started outside
+ * of the control of the application server.
+ * <p>
+ * A cache that is given a name when it is built is registered in the {@link CacheRegistry}, which publishes its statistics through JMX
+ * and the health check. Only long-lived caches should be given a name, since the registry keeps a reference to them.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class ManagedCache<K, V> implements CacheStatisticsMXBean {
+
+    private final String name;
+    private final Cache<K, V> cache;
+    private final LoadingCache<K, V> loadingCache;
+
+    private ManagedCache(final String name, final Cache<K, V> cache, final LoadingCache<K, V> loadingCache) {
+        this.name = name;
+        this.cache = cache;
+        this.loadingCache = loadingCache;
+    }
+
+    /** @return a builder for a cache without any bounds */
+    public static <K, V> Builder<K, V> newBuilder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Builder of {@link ManagedCache}. Bounds that are 0 or negative are not used, so configured values can be passed as they are.
+     */
+    public static final class Builder<K, V> {
+        private String name;
+        private long maximumSize = 0;
+        private long expireAfterWriteMs = 0;
+        private long expireAfterAccessMs = 0;
+        private long refreshAfterWriteMs = 0;
+        private BiConsumer<K, V> evictionListener;
+        private Executor executor = Runnable::run;
+
+        private Builder() {}
+
+        /** Registers the cache with this name in the {@link CacheRegistry}, replacing any cache with the same name. */
+        public Builder<K, V> name(final String name) {
+            this.name = name;
+            return this;
+        }
+
+        /** Evicts the least used entries when there are more than this number of entries. */
+        public Builder<K, V> maximumSize(final long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /** Evicts entries this long after they were created or replaced. */
+        public Builder<K, V> expireAfterWrite(final long expireAfterWriteMs) {
+            this.expireAfterWriteMs = expireAfterWriteMs;
+            return this;
+        }
+
+        /** Evicts entries that have not been read or written for this long. */
+        public Builder<K, V> expireAfterAccess(final long expireAfterAccessMs) {
+            this.expireAfterAccessMs = expireAfterAccessMs;
+            return this;
+        }
+
+        /**
+         * Reloads an entry that is read more than this long after it was written. The entry that is already in the cache is returned
+         * until the new value has been loaded. Only used by caches built with a loader.
+         */
+        public Builder<K, V> refreshAfterWrite(final long refreshAfterWriteMs) {
+            this.refreshAfterWriteMs = refreshAfterWriteMs;
+            return this;
+        }
+
+        /** Called with entries that were evicted because of the size or time bounds, but not with entries that were removed or replaced. */
+        public Builder<K, V> evictionListener(final BiConsumer<K, V> evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        /** Executor for eviction listeners and refresh-ahead loads. By default these run in the thread that used the cache. */
+        public Builder<K, V> executor(final Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /** @return a cache where entries are only added with put */
+        public ManagedCache<K, V> build() {
+            return register(new ManagedCache<>(name, caffeine(false).build(), null));
+        }
+
+        /**
+         * @param loader loads the value of a key, or returns null if there is no value. A RuntimeException thrown by the loader is
+         *            thrown to the caller of {@link ManagedCache#get(Object)}.
+         * @return a cache where missing entries are loaded by the loader
+         */
+        public ManagedCache<K, V> build(final Function<? super K, ? extends V> loader) {
+            final LoadingCache<K, V> loadingCache = caffeine(true).build(loader::apply);
+            return register(new ManagedCache<>(name, loadingCache, loadingCache));
+        }
+
+        private Caffeine<K, V> caffeine(final boolean loading) {
+            @SuppressWarnings("unchecked")
+            Caffeine<K, V> caffeine = (Caffeine<K, V>) Caffeine.newBuilder().recordStats().executor(executor);
+            if (maximumSize > 0) {
+                caffeine = caffeine.maximumSize(maximumSize);
+            }
+            if (expireAfterWriteMs > 0) {
+                caffeine = caffeine.expireAfterWrite(expireAfterWriteMs, TimeUnit.MILLISECONDS);
+            }
+            if (expireAfterAccessMs > 0) {
+                caffeine = caffeine.expireAfterAccess(expireAfterAccessMs, TimeUnit.MILLISECONDS);
+            }
+            if (loading && refreshAfterWriteMs > 0) {
+                caffeine = caffeine.refreshAfterWrite(refreshAfterWriteMs, TimeUnit.MILLISECONDS);
+            }
+            if (evictionListener != null) {
+                final BiConsumer<K, V> listener = evictionListener;
+                caffeine = caffeine.removalListener((key, value, cause) -> {
+                    if (cause.wasEvicted()) {
+                        listener.accept(key, value);
+                    }
+                });
+            }
+            return caffeine;
+        }
+
+        private ManagedCache<K, V> register(final ManagedCache<K, V> managedCache) {
+            if (name != null) {
+                CacheRegistry.INSTANCE.register(managedCache);
+            }
+            return managedCache;
+        }
+    }
+
+    /** @return the name of the cache, or null if it is not registered */
+    public String getName() {
+        return name;
+    }
+
+    /** @return the cached value, or null if there is none. Does not load missing entries. */
+    public V getIfPresent(final K key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * @return the cached value, loading it with the loader of the cache if it is missing, or null if the loader has no value
+     * @throws IllegalStateException if the cache was built without a loader
+     */
+    public V get(final K key) {
+        if (loadingCache == null) {
+            throw new IllegalStateException("Cache " + name + " was built without a loader.");
+        }
+        return loadingCache.get(key);
+    }
+
+    /**
+     * @param mappingFunction loads the value if it is missing. Only one thread loads the value of a key at a time, and other threads that
+     *            want the same key wait for it.
+     * @return the cached or loaded value, or null if the mapping function returned null
+     */
+    public V get(final K key, final Function<? super K, ? extends V> mappingFunction) {
+        return cache.get(key, mappingFunction);
+    }
+
+    public void put(final K key, final V value) {
+        cache.put(key, value);
+    }
+
+    public void invalidate(final K key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return a live, thread safe view of the cache. Reads through the map are not counted in the statistics, and atomic operations like
+     *         {@link ConcurrentMap#merge} can be used to update entries.
+     */
+    public ConcurrentMap<K, V> asMap() {
+        return cache.asMap();
+    }
+
+    /** Performs pending evictions now, instead of during later use of the cache. */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /** @return a snapshot of the statistics of the cache */
+    public CacheStatistics getStatistics() {
+        final CacheStats stats = cache.stats();
+        return new CacheStatistics(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.loadSuccessCount(),
+                stats.loadFailureCount(), stats.totalLoadTime(), stats.evictionCount());
+    }
+
+    @Override
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return getStatistics().getHitRate();
+    }
+
+    @Override
+    public long getLoadSuccessCount() {
+        return cache.stats().loadSuccessCount();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return cache.stats().loadFailureCount();
+    }
+
+    @Override
+    public double getAverageLoadTimeMillis() {
+        return getStatistics().getAverageLoadTimeMillis();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+}
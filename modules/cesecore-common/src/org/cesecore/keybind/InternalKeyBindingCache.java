@@ -28,7 +28,10 @@ import org.cesecore.internal.CommonCacheBase;
 public enum InternalKeyBindingCache implements CommonCache<InternalKeyBinding> {
     INSTANCE;
 
-    final private CommonCacheBase<InternalKeyBinding> internalKeyBindingCache = new CommonCacheBase<InternalKeyBinding>() {
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "InternalKeyBindingCache";
+
+    final private CommonCacheBase<InternalKeyBinding> internalKeyBindingCache = new CommonCacheBase<InternalKeyBinding>(NAME) {
         @Override
         protected long getCacheTime() {
             // We never disable storage of InternalKeyBindings in the cache completely
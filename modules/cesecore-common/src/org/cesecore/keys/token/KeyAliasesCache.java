@@ -27,8 +27,7 @@ public class KeyAliasesCache extends CommonCacheBase<PublicKey> {
     public KeyAliasesCache() {}
 
     public KeyAliasesCache(KeyAliasesCache clone) {
-        this.cache.putAll(clone.cache);
-        this.nameToIdMap.putAll(clone.nameToIdMap);
+        super(clone);
     }
     
     @Override
@@ -0,0 +1,217 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.roles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Access rules compiled into an immutable prefix tree over the segments of the resource paths, so that checking access to a resource
+ * is a walk from the root without creating any objects, instead of one or two map lookups of a new substring for each segment.
+ * <p>
+ * Gives the same result as {@link AccessRulesHelper#hasAccessToResource(HashMap, String)} on the access rules it was compiled from: the
+ * rule of the longest matching path decides, and a rule without trailing slash takes precedence over the same rule with trailing slash.
+ * Rules and resources with empty path segments ("//") are left to {@link AccessRulesHelper}, since they do not map to a path of segments.
+ * <p>
+ * Instances are thread safe.
+ */
+public final class AccessRulesTrie {
+
+    private static final AccessRulesTrie EMPTY = new AccessRulesTrie(new HashMap<>());
+
+    private final Node root;
+    private final HashMap<String, Boolean> accessRules;
+    private final boolean irregular;
+
+    /** A path segment, with the state of its rule if there is one, and its child segments in an open addressing hash table */
+    private static final class Node {
+        private final String segment;
+        private final int hash;
+        private Boolean state;
+        private final List<Node> childList = new ArrayList<>();
+        private Node[] children;
+        private int mask;
+
+        private Node(final String segment) {
+            this.segment = segment;
+            this.hash = segment.hashCode();
+        }
+
+        private Node getOrAddChild(final String childSegment) {
+            for (final Node child : childList) {
+                if (child.segment.equals(childSegment)) {
+                    return child;
+                }
+            }
+            final Node child = new Node(childSegment);
+            childList.add(child);
+            return child;
+        }
+
+        /** Builds the hash tables of this node and all nodes below it. */
+        private void seal() {
+            int size = 2;
+            while (size < childList.size() * 2) {
+                size <<= 1;
+            }
+            children = new Node[childList.isEmpty() ? 1 : size];
+            mask = children.length - 1;
+            for (final Node child : childList) {
+                int index = child.hash & mask;
+                while (children[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                children[index] = child;
+                child.seal();
+            }
+            childList.clear();
+        }
+
+        /**
+         * @param segmentHash the {@link String#hashCode()} of the segment
+         * @return the child whose segment is the characters from start (inclusive) to end (exclusive) of the resource, or null
+         */
+        private Node getChild(final String resource, final int start, final int end, final int segmentHash) {
+            final int length = end - start;
+            for (int index = segmentHash & mask;; index = (index + 1) & mask) {
+                final Node child = children[index];
+                if (child == null) {
+                    return null;
+                }
+                if (child.hash == segmentHash && child.segment.length() == length && resource.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+        }
+    }
+
+    private AccessRulesTrie(final HashMap<String, Boolean> accessRules) {
+        this.accessRules = accessRules;
+        this.root = new Node("");
+        boolean irregular = false;
+        // Rules with trailing slash are added first, so that the same rule without trailing slash overwrites them
+        final List<Entry<String, Boolean>> withoutTrailingSlash = new ArrayList<>();
+        for (final Entry<String, Boolean> entry : accessRules.entrySet()) {
+            final String resource = entry.getKey();
+            if (resource == null || entry.getValue() == null) {
+                continue;
+            }
+            if (resource.endsWith("/")) {
+                irregular |= !add(resource.substring(0, resource.length() - 1), entry.getValue());
+            } else {
+                withoutTrailingSlash.add(entry);
+            }
+        }
+        for (final Entry<String, Boolean> entry : withoutTrailingSlash) {
+            irregular |= !add(entry.getKey(), entry.getValue());
+        }
+        this.irregular = irregular;
+        root.seal();
+    }
+
+    /**
+     * Compiles access rules. The access rules must not be modified afterwards, since resources that can not be handled by the tree are
+     * checked against them.
+     *
+     * @param accessRules normalized or non-normalized access rules
+     * @return the compiled access rules
+     */
+    public static AccessRulesTrie compile(final HashMap<String, Boolean> accessRules) {
+        if (accessRules == null || accessRules.isEmpty()) {
+            return EMPTY;
+        }
+        return new AccessRulesTrie(accessRules);
+    }
+
+    /**
+     * Adds a rule for a path without trailing slash.
+     * @return false if the path is not made of non-empty segments, and can not be matched by walking the tree
+     */
+    private boolean add(final String path, final Boolean state) {
+        if (path.isEmpty()) {
+            root.state = state;
+            return true;
+        }
+        if (path.charAt(0) != '/') {
+            // Never matched by AccessRulesHelper either, since all paths it looks up start with a slash
+            return true;
+        }
+        Node node = root;
+        int start = 1;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = path.length();
+            }
+            if (end == start) {
+                return false;
+            }
+            node = node.getOrAddChild(path.substring(start, end));
+            start = end + 1;
+        }
+        node.state = state;
+        return true;
+    }
+
+    /** @return the access rules this was compiled from */
+    public HashMap<String, Boolean> getAccessRules() {
+        return accessRules;
+    }
+
+    /** @return true if the access rules allow access to all the given resources */
+    public boolean hasAccessToResources(final String... resources) {
+        if (resources != null) {
+            for (final String resource : resources) {
+                if (!hasAccessToResource(resource)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** @return true if the access rules allow access to the given resource */
+    public boolean hasAccessToResource(final String resource) {
+        if (resource == null || resource.isEmpty() || resource.charAt(0) != '/') {
+            return false;
+        }
+        if (irregular || resource.contains("//")) {
+            return AccessRulesHelper.hasAccessToResource(accessRules, resource);
+        }
+        Node node = root;
+        Boolean state = root.state;
+        final int length = resource.length();
+        int start = 1;
+        while (start < length && node.mask != 0) {
+            // Find the end of the segment and its hash in one pass
+            int end = start;
+            int segmentHash = 0;
+            char c;
+            while (end < length && (c = resource.charAt(end)) != '/') {
+                segmentHash = 31 * segmentHash + c;
+                end++;
+            }
+            node = node.getChild(resource, start, end, segmentHash);
+            if (node == null) {
+                break;
+            }
+            if (node.state != null) {
+                state = node.state;
+            }
+            start = end + 1;
+        }
+        return state != null && state;
+    }
+}
@@ -0,0 +1,463 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.util;
+
+import java.beans.XMLEncoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+import org.cesecore.certificates.certificateprofile.CertificatePolicy;
+import org.cesecore.certificates.certificateprofile.PKIDisclosureStatement;
+import org.cesecore.config.CesecoreConfiguration;
+
+/**
+ * Compact binary encoding of the data maps of CAs and profiles, as an alternative to XMLEncoder.
+ * <p>
+ * The binary form is stored as text, with a prefix that an XML document can not start with, so the same database column can hold
+ * either format and {@link #decodeDataMap(String)} reads both. The same map always gives the same bytes: ordered maps and lists are
+ * written in their own order, and the entries of unordered maps and sets are sorted when their keys are comparable.
+ * <p>
+ * Only the types used in data maps are supported: null, String, boxed primitives, Date, byte[], classes from our own packages, the
+ * common collections from java.util, {@link CertificatePolicy} and {@link PKIDisclosureStatement}. Maps with other values are written
+ * as XML, see {@link #encodeDataMap(Map)}.
+ */
+public final class BinaryMapSerializer {
+
+    private static final Logger log = Logger.getLogger(BinaryMapSerializer.class);
+
+    /** Prefix of a data map in the binary format. An XML document starts with '<' or white space. */
+    public static final String PREFIX = "BIN:";
+    /** Version of the binary format, written as the first byte */
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN_FALSE = 4;
+    private static final byte BOOLEAN_TRUE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte SHORT = 8;
+    private static final byte BYTE = 9;
+    private static final byte CHARACTER = 10;
+    private static final byte DATE = 11;
+    private static final byte BYTE_ARRAY = 12;
+    private static final byte CLASS = 13;
+    private static final byte LINKED_HASH_MAP = 20;
+    private static final byte HASH_MAP = 21;
+    private static final byte TREE_MAP = 22;
+    private static final byte PROPERTIES = 23;
+    private static final byte ARRAY_LIST = 30;
+    private static final byte LINKED_LIST = 31;
+    private static final byte HASH_SET = 32;
+    private static final byte LINKED_HASH_SET = 33;
+    private static final byte TREE_SET = 34;
+    private static final byte CERTIFICATE_POLICY = 40;
+    private static final byte PKI_DISCLOSURE_STATEMENT = 41;
+
+    private BinaryMapSerializer() {}
+
+    /** @return true if the data is a map in the binary format, false if it is XML (or null) */
+    public static boolean isBinary(final String data) {
+        return data != null && data.startsWith(PREFIX);
+    }
+
+    /**
+     * Encodes the entries of a map in the binary format. The class of the map itself is not stored, the entries are read back into a
+     * LinkedHashMap.
+     *
+     * @param map map to encode
+     * @return the encoded map, starting with {@link #PREFIX}
+     * @throws IllegalArgumentException if the map contains a value of a type that is not supported
+     */
+    public static String encode(final Map<?, ?> map) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+        try (final DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeByte(FORMAT_VERSION);
+            writeEntries(out, map);
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return PREFIX + Base64.getEncoder().encodeToString(baos.toByteArray());
+    }
+
+    /**
+     * Decodes a map encoded by {@link #encode(Map)}.
+     *
+     * @param data the encoded map, starting with {@link #PREFIX}
+     * @return the entries of the map, in the order they were encoded
+     * @throws IOException if the data is not a valid map in a known version of the binary format
+     */
+    public static LinkedHashMap<Object, Object> decode(final String data) throws IOException {
+        if (!isBinary(data)) {
+            throw new IOException("Data is not in the binary data map format.");
+        }
+        final byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(data.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid Base64 encoding of binary data map: " + e.getMessage(), e);
+        }
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            final byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported version " + version + " of binary data map format.");
+            }
+            final LinkedHashMap<Object, Object> map = new LinkedHashMap<>();
+            readEntries(in, map);
+            if (in.available() > 0) {
+                throw new IOException("Data after end of binary data map.");
+            }
+            return map;
+        } catch (EOFException e) {
+            throw new IOException("Unexpected end of binary data map.", e);
+        }
+    }
+
+    /**
+     * Decodes the data map of a database row, stored either as XML or in the binary format. In both cases strings are stored Base64
+     * encoded when needed, and are decoded when read from the returned map.
+     *
+     * @param data data map from the database
+     * @return the data map, as a {@link Base64GetHashMap}
+     * @throws IOException if the data can not be parsed
+     */
+    public static LinkedHashMap<Object, Object> decodeDataMap(final String data) throws IOException {
+        final Map<?, ?> map;
+        if (isBinary(data)) {
+            map = decode(data);
+        } else {
+            try (final SecureXMLDecoder decoder = new SecureXMLDecoder(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))) {
+                map = (Map<?, ?>) decoder.readObject();
+            }
+        }
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<Object, Object> dataMap = new Base64GetHashMap(map);
+        return dataMap;
+    }
+
+    /**
+     * Encodes the data map of a database row, with strings Base64 encoded when needed. The map is encoded in the binary format if
+     * that is enabled and it only contains supported types, and with XMLEncoder otherwise.
+     *
+     * @param dataMap data map to store in the database
+     * @return the encoded data map
+     * @see CesecoreConfiguration#isBinaryDataMapEncodingEnabled()
+     */
+    public static String encodeDataMap(final Map<?, ?> dataMap) {
+        // We must base64 encode string for UTF safety
+        final LinkedHashMap<Object, Object> b64DataMap = new Base64PutHashMap();
+        b64DataMap.putAll(dataMap);
+        if (CesecoreConfiguration.isBinaryDataMapEncodingEnabled()) {
+            try {
+                return encode(b64DataMap);
+            } catch (IllegalArgumentException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Data map can not be encoded in the binary format, using XML: " + e.getMessage());
+                }
+            }
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+        try (final XMLEncoder encoder = new XMLEncoder(baos)) {
+            encoder.writeObject(b64DataMap);
+        }
+        return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void writeEntries(final DataOutputStream out, final Map<?, ?> map) throws IOException {
+        out.writeInt(map.size());
+        for (final Object key : inStableOrder(map.keySet(), map instanceof LinkedHashMap)) {
+            writeValue(out, key);
+            writeValue(out, map.get(key));
+        }
+    }
+
+    private static void writeElements(final DataOutputStream out, final Collection<?> collection, final boolean ordered) throws IOException {
+        out.writeInt(collection.size());
+        for (final Object element : inStableOrder(collection, ordered)) {
+            writeValue(out, element);
+        }
+    }
+
+    /** @return the elements sorted, unless they already have an order or can not be compared with each other */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static Collection<?> inStableOrder(final Collection<?> elements, final boolean ordered) {
+        if (ordered || elements.size() < 2) {
+            return elements;
+        }
+        Class<?> elementClass = null;
+        for (final Object element : elements) {
+            if (!(element instanceof Comparable) || (elementClass != null && element.getClass() != elementClass)) {
+                return elements;
+            }
+            elementClass = element.getClass();
+        }
+        final List sorted = new ArrayList<>(elements);
+        sorted.sort(null);
+        return sorted;
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeNullableString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        // Only exact classes, since a subclass would be read back as its superclass
+        final Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (type == Boolean.class) {
+            out.writeByte((Boolean) value ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) value);
+        } else if (type == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (type == byte[].class) {
+            out.writeByte(BYTE_ARRAY);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else if (type == Class.class) {
+            final String className = ((Class<?>) value).getName();
+            if (!isAllowedClassName(className)) {
+                throw new IllegalArgumentException("Class " + className + " can not be stored in a binary data map.");
+            }
+            out.writeByte(CLASS);
+            writeString(out, className);
+        } else if (type == LinkedHashMap.class) {
+            out.writeByte(LINKED_HASH_MAP);
+            writeEntries(out, (Map<?, ?>) value);
+        } else if (type == HashMap.class) {
+            out.writeByte(HASH_MAP);
+            writeEntries(out, (Map<?, ?>) value);
+        } else if (type == TreeMap.class && ((TreeMap<?, ?>) value).comparator() == null) {
+            out.writeByte(TREE_MAP);
+            writeEntries(out, (Map<?, ?>) value);
+        } else if (type == Properties.class) {
+            out.writeByte(PROPERTIES);
+            writeEntries(out, (Map<?, ?>) value);
+        } else if (type == ArrayList.class) {
+            out.writeByte(ARRAY_LIST);
+            writeElements(out, (Collection<?>) value, true);
+        } else if (type == LinkedList.class) {
+            out.writeByte(LINKED_LIST);
+            writeElements(out, (Collection<?>) value, true);
+        } else if (type == HashSet.class) {
+            out.writeByte(HASH_SET);
+            writeElements(out, (Collection<?>) value, false);
+        } else if (type == LinkedHashSet.class) {
+            out.writeByte(LINKED_HASH_SET);
+            writeElements(out, (Collection<?>) value, true);
+        } else if (type == TreeSet.class && ((TreeSet<?>) value).comparator() == null) {
+            out.writeByte(TREE_SET);
+            writeElements(out, (Collection<?>) value, true);
+        } else if (type == CertificatePolicy.class) {
+            final CertificatePolicy policy = (CertificatePolicy) value;
+            out.writeByte(CERTIFICATE_POLICY);
+            writeNullableString(out, policy.getPolicyID());
+            writeNullableString(out, policy.getQualifierId());
+            writeNullableString(out, policy.getQualifier());
+        } else if (type == PKIDisclosureStatement.class) {
+            final PKIDisclosureStatement statement = (PKIDisclosureStatement) value;
+            out.writeByte(PKI_DISCLOSURE_STATEMENT);
+            writeNullableString(out, statement.getUrl());
+            writeNullableString(out, statement.getLanguage());
+        } else {
+            throw new IllegalArgumentException("Type " + type.getName() + " can not be stored in a binary data map.");
+        }
+    }
+
+    /** Only allow classes from our own hierarchy, the same as {@link SecureXMLDecoder} */
+    private static boolean isAllowedClassName(final String className) {
+        return className.startsWith("org.ejbca.") || className.startsWith("org.cesecore.") || className.startsWith("org.signserver.");
+    }
+
+    /** @return the length read from the stream, after checking that there is that much data left */
+    private static int readLength(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid length " + length + " in binary data map.");
+        }
+        return length;
+    }
+
+    private static void readEntries(final DataInputStream in, final Map<Object, Object> map) throws IOException {
+        final int size = readLength(in);
+        for (int i = 0; i < size; i++) {
+            final Object key = readValue(in);
+            map.put(key, readValue(in));
+        }
+    }
+
+    private static <T extends Collection<Object>> T readElements(final DataInputStream in, final T collection) throws IOException {
+        final int size = readLength(in);
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(in));
+        }
+        return collection;
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readNullableString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private static Object readValue(final DataInputStream in) throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case STRING:
+            return readString(in);
+        case INTEGER:
+            return in.readInt();
+        case LONG:
+            return in.readLong();
+        case BOOLEAN_FALSE:
+            return Boolean.FALSE;
+        case BOOLEAN_TRUE:
+            return Boolean.TRUE;
+        case FLOAT:
+            return in.readFloat();
+        case DOUBLE:
+            return in.readDouble();
+        case SHORT:
+            return in.readShort();
+        case BYTE:
+            return in.readByte();
+        case CHARACTER:
+            return in.readChar();
+        case DATE:
+            return new Date(in.readLong());
+        case BYTE_ARRAY: {
+            final byte[] bytes = new byte[readLength(in)];
+            in.readFully(bytes);
+            return bytes;
+        }
+        case CLASS: {
+            final String className = readString(in);
+            if (!isAllowedClassName(className)) {
+                throw new IOException("Unauthorized class was decoded from binary data map: " + className);
+            }
+            try {
+                return Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown class in binary data map: " + className, e);
+            }
+        }
+        case LINKED_HASH_MAP: {
+            final Map<Object, Object> map = new LinkedHashMap<>();
+            readEntries(in, map);
+            return map;
+        }
+        case HASH_MAP: {
+            final Map<Object, Object> map = new HashMap<>();
+            readEntries(in, map);
+            return map;
+        }
+        case TREE_MAP: {
+            final Map<Object, Object> map = new TreeMap<>();
+            readEntries(in, map);
+            return map;
+        }
+        case PROPERTIES: {
+            final Properties properties = new Properties();
+            readEntries(in, properties);
+            return properties;
+        }
+        case ARRAY_LIST:
+            return readElements(in, new ArrayList<>());
+        case LINKED_LIST:
+            return readElements(in, new LinkedList<>());
+        case HASH_SET:
+            return readElements(in, new HashSet<>());
+        case LINKED_HASH_SET:
+            return readElements(in, new LinkedHashSet<>());
+        case TREE_SET:
+            return readElements(in, new TreeSet<>());
+        case CERTIFICATE_POLICY: {
+            final String policyId = readNullableString(in);
+            final String qualifierId = readNullableString(in);
+            final String qualifier = readNullableString(in);
+            return new CertificatePolicy(policyId, qualifierId, qualifier);
+        }
+        case PKI_DISCLOSURE_STATEMENT: {
+            final String url = readNullableString(in);
+            final String language = readNullableString(in);
+            return new PKIDisclosureStatement(url, language);
+        }
+        default:
+            throw new IOException("Unsupported type " + tag + " in binary data map.");
+        }
+    }
+}
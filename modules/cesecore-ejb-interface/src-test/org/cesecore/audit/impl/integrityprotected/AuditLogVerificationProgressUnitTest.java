@@ -0,0 +1,247 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.audit.impl.integrityprotected;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Date;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.cesecore.audit.audit.AuditLogReportElem;
+import org.cesecore.audit.audit.AuditLogValidationReport;
+import org.cesecore.dbprotection.DatabaseProtectionException;
+import org.cesecore.dbprotection.ProtectedData;
+import org.cesecore.dbprotection.ProtectedDataImpl;
+import org.cesecore.dbprotection.ProtectedDataNoopImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests of putting together the results of audit log ranges verified in parallel.
+ */
+public class AuditLogVerificationProgressUnitTest {
+
+    private static final long MAX_AGE_MS = 60000L;
+
+    /** Protects checkpoints with an HMAC, like the database integrity protection of the audit log, which is not available in unit tests */
+    private static final class HmacProtection implements ProtectedDataImpl {
+        private final byte[] key;
+
+        private HmacProtection(final String key) {
+            this.key = key.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void setTableName(final String table) {
+            // Same key for all tables
+        }
+
+        @Override
+        public void protectData(final ProtectedData obj) throws DatabaseProtectionException {
+            obj.setRowProtection(calculateProtection(obj));
+        }
+
+        @Override
+        public void verifyData(final ProtectedData obj) throws DatabaseProtectionException {
+            if (!calculateProtection(obj).equals(obj.getRowProtection())) {
+                ((AuditLogVerificationCheckpoint) obj).onDataVerificationError(new DatabaseProtectionException("Invalid protection.", obj));
+            }
+        }
+
+        @Override
+        public String calculateProtection(final ProtectedData obj) throws DatabaseProtectionException {
+            try {
+                final Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(new SecretKeySpec(key, "HmacSHA256"));
+                final String protectString = ((AuditLogVerificationCheckpoint) obj).getProtectString(0);
+                return Hex.toHexString(mac.doFinal(protectString.getBytes(StandardCharsets.UTF_8)));
+            } catch (GeneralSecurityException e) {
+                throw new DatabaseProtectionException(e);
+            }
+        }
+
+        @Override
+        public void onDataVerificationError(final DatabaseProtectionException e) {
+            // Not used, see AuditLogVerificationCheckpoint
+        }
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void before() {
+        AuditLogVerificationCheckpoint.protectionImplForTests = new HmacProtection("key");
+    }
+
+    @After
+    public void after() {
+        AuditLogVerificationCheckpoint.protectionImplForTests = null;
+    }
+
+    @Test
+    public void testContiguousRangesHaveNoWarnings() {
+        final AuditLogVerificationProgress progress = new AuditLogVerificationProgress(new Date());
+        final AuditLogValidationReport report = new AuditLogValidationReport();
+        progress.add(createRangeResult("node1", 0, 9, 0, 9), report);
+        progress.add(createRangeResult("node2", 0, 9, 0, 4), report);
+        progress.add(createRangeResult("node1", 10, 19, 10, 19), report);
+        assertTrue("Unexpected warnings: " + report.warnings().size(), report.warnings().isEmpty());
+        assertEquals(25, progress.getCount());
+        assertEquals(19, progress.getLastSequenceNumber("node1"));
+        assertEquals(4, progress.getLastSequenceNumber("node2"));
+        assertEquals(-1, progress.getLastSequenceNumber("node3"));
+    }
+
+    @Test
+    public void testMissingEntriesBetweenRangesAreReported() {
+        final AuditLogVerificationProgress progress = new AuditLogVerificationProgress(new Date());
+        final AuditLogValidationReport report = new AuditLogValidationReport();
+        // The log of a node is expected to start with sequence number 0
+        progress.add(createRangeResult("node1", 0, 9, 2, 7), report);
+        // An empty range does not move the position of the node
+        progress.add(createRangeResult("node1", 10, 19, -1, -1), report);
+        progress.add(createRangeResult("node1", 20, 29, 21, 29), report);
+        assertEquals(2, report.warnings().size());
+        assertWarning(-1, 2, report.warnings().get(0));
+        assertWarning(7, 21, report.warnings().get(1));
+        assertEquals(2, progress.getWarnings().size());
+    }
+
+    @Test
+    public void testWarningsWithinRangeAreReported() {
+        final AuditLogVerificationProgress progress = new AuditLogVerificationProgress(new Date());
+        final AuditLogValidationReport report = new AuditLogValidationReport();
+        final AuditLogVerificationRangeResult result = createRangeResult("node1", 0, 9, 0, 9);
+        result.warn(new AuditLogReportElem(3L, 5L, "missing log with sequence number 4 on nodeId node1"));
+        progress.add(result, report);
+        assertEquals(1, report.warnings().size());
+        assertWarning(3, 5, report.warnings().get(0));
+    }
+
+    @Test
+    public void testSaveAndLoadCheckpoint() throws Exception {
+        final File checkpointFile = new File(temporaryFolder.getRoot(), "checkpoint");
+        assertNull("No checkpoint should be loaded when there is no file.", AuditLogVerificationProgress.load(checkpointFile, "verifier", MAX_AGE_MS));
+        final Date timestamp = new Date();
+        final AuditLogVerificationProgress progress = createProgress(timestamp);
+        assertTrue(progress.save(checkpointFile, "verifier"));
+        assertFalse("Temporary file should have been moved.", new File(checkpointFile.getPath() + ".tmp").exists());
+        final AuditLogVerificationProgress loadedProgress = AuditLogVerificationProgress.load(checkpointFile, "verifier", MAX_AGE_MS);
+        assertNotNull("Checkpoint should have been loaded.", loadedProgress);
+        assertEquals(timestamp, loadedProgress.getTimestamp());
+        assertEquals(0, loadedProgress.getFirstSequenceNumber("node1"));
+        assertEquals(-1, loadedProgress.getFirstSequenceNumber("node3"));
+        assertEquals(15, loadedProgress.getCount());
+        assertEquals(9, loadedProgress.getLastSequenceNumber("node1"));
+        assertEquals(5, loadedProgress.getLastSequenceNumber("node2"));
+        final AuditLogValidationReport report = new AuditLogValidationReport();
+        loadedProgress.addWarningsTo(report);
+        assertEquals(1, report.warnings().size());
+        assertWarning(-1, 1, report.warnings().get(0));
+    }
+
+    @Test
+    public void testCheckpointOfOtherNodeIsIgnored() throws Exception {
+        final File checkpointFile = new File(temporaryFolder.getRoot(), "checkpoint");
+        assertTrue(createProgress(new Date()).save(checkpointFile, "verifier"));
+        assertNull(AuditLogVerificationProgress.load(checkpointFile, "otherverifier", MAX_AGE_MS));
+    }
+
+    @Test
+    public void testOldCheckpointIsIgnored() throws Exception {
+        final File checkpointFile = new File(temporaryFolder.getRoot(), "checkpoint");
+        assertTrue(createProgress(new Date()).save(checkpointFile, "verifier"));
+        Thread.sleep(10);
+        assertNull(AuditLogVerificationProgress.load(checkpointFile, "verifier", 1L));
+    }
+
+    @Test
+    public void testModifiedCheckpointIsIgnored() throws Exception {
+        final File checkpointFile = new File(temporaryFolder.getRoot(), "checkpoint");
+        assertTrue(createProgress(new Date()).save(checkpointFile, "verifier"));
+        try (final RandomAccessFile randomAccessFile = new RandomAccessFile(checkpointFile, "rw")) {
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            final int lastByte = randomAccessFile.read();
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            randomAccessFile.write(lastByte ^ 1);
+        }
+        assertNull("A checkpoint that has been changed should be ignored.", AuditLogVerificationProgress.load(checkpointFile, "verifier", MAX_AGE_MS));
+    }
+
+    @Test
+    public void testCheckpointWithOtherKeyIsIgnored() throws Exception {
+        final File checkpointFile = new File(temporaryFolder.getRoot(), "checkpoint");
+        assertTrue(createProgress(new Date()).save(checkpointFile, "verifier"));
+        AuditLogVerificationCheckpoint.protectionImplForTests = new HmacProtection("otherkey");
+        assertNull(AuditLogVerificationProgress.load(checkpointFile, "verifier", MAX_AGE_MS));
+    }
+
+    @Test
+    public void testCheckpointIsNotSavedWithoutProtection() throws Exception {
+        AuditLogVerificationCheckpoint.protectionImplForTests = new ProtectedDataNoopImpl();
+        final File checkpointFile = new File(temporaryFolder.getRoot(), "checkpoint");
+        assertFalse(createProgress(new Date()).save(checkpointFile, "verifier"));
+        assertFalse("Checkpoint without protection should not be written.", checkpointFile.exists());
+    }
+
+    @Test
+    public void testInvalidCheckpointIsIgnored() throws Exception {
+        final File checkpointFile = new File(temporaryFolder.getRoot(), "checkpoint");
+        try (final FileOutputStream fileOutputStream = new FileOutputStream(checkpointFile)) {
+            fileOutputStream.write(new byte[] { 1, 2, 3, 4 });
+        }
+        assertNull("An unreadable checkpoint should be ignored.", AuditLogVerificationProgress.load(checkpointFile, "verifier", MAX_AGE_MS));
+    }
+
+    private static AuditLogVerificationProgress createProgress(final Date timestamp) {
+        final AuditLogVerificationProgress progress = new AuditLogVerificationProgress(timestamp);
+        progress.setFirstSequenceNumber("node1", 0);
+        progress.setFirstSequenceNumber("node2", 0);
+        progress.add(createRangeResult("node1", 0, 9, 1, 9), new AuditLogValidationReport());
+        progress.add(createRangeResult("node2", 0, 9, 0, 5), new AuditLogValidationReport());
+        return progress;
+    }
+
+    /** @param firstFound first sequence number found in the range, or -1 if the range was empty */
+    private static AuditLogVerificationRangeResult createRangeResult(final String nodeId, final long first, final long last, final long firstFound,
+            final long lastFound) {
+        final AuditLogVerificationRangeResult result = new AuditLogVerificationRangeResult(new AuditLogVerificationRange(nodeId, first, last));
+        if (firstFound >= 0) {
+            for (long sequenceNumber = firstFound; sequenceNumber <= lastFound; sequenceNumber++) {
+                result.addSequenceNumber(sequenceNumber);
+            }
+        }
+        return result;
+    }
+
+    private static void assertWarning(final long first, final long second, final AuditLogReportElem warning) {
+        assertEquals(Long.valueOf(first), warning.getFirst());
+        assertEquals(Long.valueOf(second), warning.getSecond());
+    }
+}
@@ -206,6 +206,35 @@ public class AuditDevicesConfig {
         return getInt(properties, "export.fetchsize", 1000);
     }
 
+    /** Parameter to specify the number of ranges of the log that are verified in parallel during validation and export. */
+    public static int getAuditLogValidationThreads(final Properties properties) {
+        return Math.max(1, getInt(properties, "validate.threads", 4));
+    }
+
+    /** Parameter to specify the number of sequence numbers of a node that are verified as one unit of work during validation. */
+    public static int getAuditLogValidationRangeSize(final Properties properties) {
+        return Math.max(1, getInt(properties, "validate.rangesize", 100000));
+    }
+
+    /** @return the file where the progress of a validation is saved, so that an interrupted validation can be resumed. */
+    public static File getAuditLogValidationCheckpointFile(final Properties properties) {
+        final String p = properties.getProperty("validate.checkpoint.dir", properties.getProperty("export.dir", System.getProperty("java.io.tmpdir")));
+        return new File(p, "cesecore-validate.checkpoint");
+    }
+
+    /**
+     * @return true if an interrupted validation should continue from its checkpoint. Checkpoints are only used when this is explicitly
+     *         enabled, since a resumed validation does not verify the entries verified before the interruption again.
+     */
+    public static boolean isAuditLogValidationResumeEnabled(final Properties properties) {
+        return Boolean.parseBoolean(properties.getProperty("validate.checkpoint.resume", "false").trim());
+    }
+
+    /** @return the maximum age in milliseconds of a checkpoint that a validation continues from */
+    public static long getAuditLogValidationCheckpointMaxAge(final Properties properties) {
+        return Math.max(0, getInt(properties, "validate.checkpoint.maxage", 86400)) * 1000L;
+    }
+
     private static int getInt(final Properties properties, final String key, final int defaultValue) {
         int ret = defaultValue;
         try {
@@ -0,0 +1,110 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.audit.impl.integrityprotected;
+
+import org.apache.commons.lang.StringUtils;
+import org.cesecore.dbprotection.DatabaseProtectionException;
+import org.cesecore.dbprotection.ProtectedData;
+import org.cesecore.dbprotection.ProtectedDataImpl;
+import org.cesecore.dbprotection.ProtectionStringBuilder;
+
+/**
+ * Integrity protection of a saved {@link AuditLogVerificationProgress}. The checkpoint is protected with the same key as the audit log itself,
+ * by using the database integrity protection of the AuditRecordData table, so a checkpoint file can not be edited to skip parts of the log.
+ * Without database integrity protection of the audit log, checkpoints can not be protected, and are not used.
+ */
+final class AuditLogVerificationCheckpoint extends ProtectedData {
+
+    private static final int LATEST_PROTECT_VERSON = 1;
+
+    /** Used instead of the database integrity protection of the audit log, by tests only */
+    static volatile ProtectedDataImpl protectionImplForTests = null;
+
+    private final String nodeId;
+    private final long savedAt;
+    private final String digest;
+    private String rowProtection;
+
+    /**
+     * @param nodeId identifier of the node that saved the checkpoint
+     * @param savedAt when the checkpoint was saved, in milliseconds since epoch
+     * @param digest hex encoded hash of the serialized progress
+     * @param rowProtection the saved protection, or null for a new checkpoint
+     */
+    AuditLogVerificationCheckpoint(final String nodeId, final long savedAt, final String digest, final String rowProtection) {
+        super();
+        if (protectionImplForTests != null) {
+            impl = protectionImplForTests;
+        }
+        this.nodeId = nodeId;
+        this.savedAt = savedAt;
+        this.digest = digest;
+        this.rowProtection = rowProtection;
+    }
+
+    /** @return the protection of the checkpoint, or null if the audit log is not integrity protected */
+    String protect() throws DatabaseProtectionException {
+        final String protection = calculateProtection();
+        return StringUtils.isEmpty(protection) ? null : protection;
+    }
+
+    /** @return true if the checkpoint has a protection, and it is valid */
+    boolean isValid() {
+        if (StringUtils.isEmpty(rowProtection)) {
+            return false;
+        }
+        try {
+            verifyData();
+            return true;
+        } catch (DatabaseProtectionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getRowProtection() {
+        return rowProtection;
+    }
+
+    @Override
+    public void setRowProtection(final String rowProtection) {
+        this.rowProtection = rowProtection;
+    }
+
+    @Override
+    protected String getProtectString(final int version) {
+        return new ProtectionStringBuilder().append(nodeId).append(savedAt).append(digest).toString();
+    }
+
+    @Override
+    protected int getProtectVersion() {
+        return LATEST_PROTECT_VERSON;
+    }
+
+    @Override
+    protected String getRowId() {
+        return new ProtectionStringBuilder().append("validate.checkpoint").append(nodeId).toString();
+    }
+
+    @Override
+    protected String getTableName() {
+        // Protected with the key of the audit log
+        return AuditRecordData.class.getSimpleName();
+    }
+
+    /** A checkpoint that fails verification is never used, whether or not failed verifications of database rows are errors */
+    @Override
+    protected void onDataVerificationError(final DatabaseProtectionException e) throws DatabaseProtectionException {
+        throw e;
+    }
+}
@@ -0,0 +1,247 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.audit.impl.integrityprotected;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.bouncycastle.util.encoders.Hex;
+import org.cesecore.audit.audit.AuditLogReportElem;
+import org.cesecore.audit.audit.AuditLogValidationReport;
+import org.cesecore.dbprotection.DatabaseProtectionException;
+import org.cesecore.util.LookAheadObjectInputStream;
+
+/**
+ * The state of an audit log verification: how far the log of each node has been verified, and the problems found so far.
+ * <p>
+ * Results of verified ranges must be added in sequence number order for each node, so that missing log entries between two ranges
+ * are found. The state can be saved to a checkpoint file, so an interrupted verification can continue where it was instead of starting
+ * from the beginning.
+ * <p>
+ * A checkpoint is protected with the key of the audit log, see {@link AuditLogVerificationCheckpoint}, and is bound to the node that saved
+ * it and to the first sequence number of the log of each node. It is only used by the node that saved it, and only until it is older than
+ * the configured maximum age.
+ */
+public final class AuditLogVerificationProgress implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger log = Logger.getLogger(AuditLogVerificationProgress.class);
+
+    private Date timestamp;
+    private final LinkedHashMap<String, Long> firstSequenceNumbers = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> lastSequenceNumbers = new LinkedHashMap<>();
+    private final ArrayList<AuditLogReportElem> warnings = new ArrayList<>();
+    private long count = 0;
+
+    /** @param timestamp entries up until this time are verified */
+    public AuditLogVerificationProgress(final Date timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /** @return the time up until which entries have been verified */
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    /** Continues the verification up until a later time. Entries already verified are not verified again. */
+    public void setTimestamp(final Date timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /** Records the first sequence number of the log of a node when the verification started, which a resumed verification must match. */
+    public void setFirstSequenceNumber(final String nodeId, final long firstSequenceNumber) {
+        firstSequenceNumbers.put(nodeId, firstSequenceNumber);
+    }
+
+    /** @return the first sequence number of the log of the node when the verification started, or -1 if the node had no log */
+    public long getFirstSequenceNumber(final String nodeId) {
+        final Long firstSequenceNumber = firstSequenceNumbers.get(nodeId);
+        return firstSequenceNumber == null ? -1L : firstSequenceNumber;
+    }
+
+    /** @return true if some of the log of the node has been verified */
+    public boolean containsNode(final String nodeId) {
+        return lastSequenceNumbers.containsKey(nodeId);
+    }
+
+    /** @return the node identifiers of which some of the log has been verified */
+    public List<String> getNodeIds() {
+        return new ArrayList<>(lastSequenceNumbers.keySet());
+    }
+
+    /** @return the last verified sequence number of the node, or -1 if none has been verified */
+    public long getLastSequenceNumber(final String nodeId) {
+        final Long lastSequenceNumber = lastSequenceNumbers.get(nodeId);
+        return lastSequenceNumber == null ? -1L : lastSequenceNumber;
+    }
+
+    /** @return the problems found so far, in the order they were found */
+    public List<AuditLogReportElem> getWarnings() {
+        return warnings;
+    }
+
+    /** @return the number of log entries verified so far */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Adds the result of the next range of a node, and reports any problem found in it, or between it and the previous range, to the report.
+     *
+     * @param result the result of the range following the ranges already added for its node
+     * @param report the report of the verification
+     */
+    public void add(final AuditLogVerificationRangeResult result, final AuditLogValidationReport report) {
+        final String nodeId = result.getRange().getNodeId();
+        if (result.getFirstSequenceNumber() != null) {
+            final long lastSequenceNumber = getLastSequenceNumber(nodeId);
+            if (result.getFirstSequenceNumber() != lastSequenceNumber + 1) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Log verification failure for log on node " + nodeId + ". Missing entry. Last sequenceNumber was " + lastSequenceNumber
+                            + " and current is " + result.getFirstSequenceNumber());
+                }
+                warn(new AuditLogReportElem(lastSequenceNumber, result.getFirstSequenceNumber(),
+                        "missing log with sequence number " + (lastSequenceNumber + 1) + " on nodeId " + nodeId), report);
+            }
+            lastSequenceNumbers.put(nodeId, result.getLastSequenceNumber());
+        }
+        for (final AuditLogReportElem warning : result.getWarnings()) {
+            warn(warning, report);
+        }
+        count += result.getCount();
+    }
+
+    /** Adds the problems found before this progress was saved to the report of a resumed verification. */
+    public void addWarningsTo(final AuditLogValidationReport report) {
+        for (final AuditLogReportElem warning : warnings) {
+            report.warn(warning);
+        }
+    }
+
+    private void warn(final AuditLogReportElem warning, final AuditLogValidationReport report) {
+        warnings.add(warning);
+        report.warn(warning);
+    }
+
+    /**
+     * Saves the progress to a checkpoint file. The file is replaced atomically, so an interruption never leaves a partially written file.
+     *
+     * @param file the checkpoint file
+     * @param nodeId identifier of the node that saves the checkpoint
+     * @return true if the checkpoint was saved, or false if it could not be protected since the audit log is not integrity protected
+     * @throws IOException if the file could not be written
+     * @throws DatabaseProtectionException if the protection of the checkpoint could not be calculated
+     */
+    public boolean save(final File file, final String nodeId) throws IOException, DatabaseProtectionException {
+        final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (final ObjectOutputStream objectOutputStream = new ObjectOutputStream(serialized)) {
+            objectOutputStream.writeObject(this);
+        }
+        final byte[] bytes = serialized.toByteArray();
+        final long savedAt = System.currentTimeMillis();
+        final String protection = new AuditLogVerificationCheckpoint(nodeId, savedAt, digest(bytes), null).protect();
+        if (protection == null) {
+            return false;
+        }
+        final File temporaryFile = new File(file.getPath() + ".tmp");
+        try (final DataOutputStream dataOutputStream = new DataOutputStream(new FileOutputStream(temporaryFile))) {
+            dataOutputStream.writeUTF(nodeId);
+            dataOutputStream.writeLong(savedAt);
+            dataOutputStream.writeUTF(protection);
+            dataOutputStream.writeInt(bytes.length);
+            dataOutputStream.write(bytes);
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Reads the progress saved in a checkpoint file. The progress is only read if the checkpoint was saved by the given node, is not older
+     * than the given age, and its protection is valid.
+     *
+     * @param file the checkpoint file
+     * @param nodeId identifier of the node that resumes the verification
+     * @param maxAgeMs maximum age of the checkpoint in milliseconds
+     * @return the saved progress, or null if there is no checkpoint file or it could not be used
+     */
+    public static AuditLogVerificationProgress load(final File file, final String nodeId, final long maxAgeMs) {
+        if (!file.isFile()) {
+            return null;
+        }
+        final byte[] bytes;
+        try (final DataInputStream dataInputStream = new DataInputStream(new FileInputStream(file))) {
+            final String savedBy = dataInputStream.readUTF();
+            final long savedAt = dataInputStream.readLong();
+            final String protection = dataInputStream.readUTF();
+            final int length = dataInputStream.readInt();
+            if (length < 0 || length > file.length()) {
+                throw new IOException("Invalid length " + length + ".");
+            }
+            bytes = new byte[length];
+            dataInputStream.readFully(bytes);
+            if (!savedBy.equals(nodeId)) {
+                log.info("Audit log verification checkpoint " + file.getPath() + " was saved by node " + savedBy + ", verifying from the beginning.");
+                return null;
+            }
+            final long age = System.currentTimeMillis() - savedAt;
+            if (age < 0 || age > maxAgeMs) {
+                log.info("Audit log verification checkpoint " + file.getPath() + " was saved " + age / 1000 + " seconds ago, which is older than the "
+                        + "maximum of " + maxAgeMs / 1000 + " seconds, verifying from the beginning.");
+                return null;
+            }
+            if (!new AuditLogVerificationCheckpoint(savedBy, savedAt, digest(bytes), protection).isValid()) {
+                log.warn("The protection of audit log verification checkpoint " + file.getPath() + " is not valid, verifying from the beginning.");
+                return null;
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read audit log verification checkpoint " + file.getPath() + ", verifying from the beginning: " + e.getMessage());
+            return null;
+        }
+        try (final LookAheadObjectInputStream lookAheadObjectInputStream = new LookAheadObjectInputStream(new ByteArrayInputStream(bytes))) {
+            lookAheadObjectInputStream.setAcceptedClasses(Arrays.asList(AuditLogVerificationProgress.class, AuditLogReportElem.class,
+                    LinkedHashMap.class, HashMap.class, ArrayList.class, Date.class));
+            lookAheadObjectInputStream.setEnabledMaxObjects(false);
+            return (AuditLogVerificationProgress) lookAheadObjectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException | SecurityException e) {
+            log.warn("Unable to read audit log verification checkpoint " + file.getPath() + ", verifying from the beginning: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String digest(final byte[] bytes) {
+        try {
+            return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
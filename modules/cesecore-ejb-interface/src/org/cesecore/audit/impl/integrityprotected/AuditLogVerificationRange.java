@@ -0,0 +1,55 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.audit.impl.integrityprotected;
+
+import java.io.Serializable;
+
+/**
+ * A range of sequence numbers of the audit log of one node, that is verified as one unit of work.
+ */
+public final class AuditLogVerificationRange implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String nodeId;
+    private final long firstSequenceNumber;
+    private final long lastSequenceNumber;
+
+    /**
+     * @param nodeId the node that wrote the audit log
+     * @param firstSequenceNumber first sequence number of the range, inclusive
+     * @param lastSequenceNumber last sequence number of the range, inclusive
+     */
+    public AuditLogVerificationRange(final String nodeId, final long firstSequenceNumber, final long lastSequenceNumber) {
+        this.nodeId = nodeId;
+        this.firstSequenceNumber = firstSequenceNumber;
+        this.lastSequenceNumber = lastSequenceNumber;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getFirstSequenceNumber() {
+        return firstSequenceNumber;
+    }
+
+    public long getLastSequenceNumber() {
+        return lastSequenceNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "nodeId " + nodeId + ", sequence numbers " + firstSequenceNumber + " to " + lastSequenceNumber;
+    }
+}
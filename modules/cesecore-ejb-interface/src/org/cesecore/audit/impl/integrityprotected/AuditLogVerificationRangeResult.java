@@ -0,0 +1,84 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.audit.impl.integrityprotected;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cesecore.audit.audit.AuditLogReportElem;
+
+/**
+ * The outcome of verifying an {@link AuditLogVerificationRange}.
+ * <p>
+ * Missing sequence numbers are only reported within the range. Whether the range continues where the previous range ended is checked
+ * when the results are added to an {@link AuditLogVerificationProgress} in order, since that is not known while ranges are verified in
+ * parallel.
+ */
+public final class AuditLogVerificationRangeResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AuditLogVerificationRange range;
+    private final List<AuditLogReportElem> warnings = new ArrayList<>();
+    private final List<AuditRecordData> auditRecords = new ArrayList<>();
+    private Long firstSequenceNumber = null;
+    private Long lastSequenceNumber = null;
+    private long count = 0;
+
+    public AuditLogVerificationRangeResult(final AuditLogVerificationRange range) {
+        this.range = range;
+    }
+
+    public AuditLogVerificationRange getRange() {
+        return range;
+    }
+
+    /** @return the problems found within the range, in sequence number order */
+    public List<AuditLogReportElem> getWarnings() {
+        return warnings;
+    }
+
+    public void warn(final AuditLogReportElem warning) {
+        warnings.add(warning);
+    }
+
+    /** @return the records of the range in sequence number order, if they were requested for export, otherwise an empty list */
+    public List<AuditRecordData> getAuditRecords() {
+        return auditRecords;
+    }
+
+    /** @return the first sequence number found in the range, or null if the range was empty */
+    public Long getFirstSequenceNumber() {
+        return firstSequenceNumber;
+    }
+
+    /** @return the last sequence number found in the range, or null if the range was empty */
+    public Long getLastSequenceNumber() {
+        return lastSequenceNumber;
+    }
+
+    /** @return the number of records found in the range */
+    public long getCount() {
+        return count;
+    }
+
+    /** Records that a log entry with the given sequence number was read, in sequence number order. */
+    public void addSequenceNumber(final long sequenceNumber) {
+        if (firstSequenceNumber == null) {
+            firstSequenceNumber = sequenceNumber;
+        }
+        lastSequenceNumber = sequenceNumber;
+        count++;
+    }
+}
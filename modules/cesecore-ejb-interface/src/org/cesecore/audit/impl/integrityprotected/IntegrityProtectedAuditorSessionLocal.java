@@ -14,6 +14,7 @@ package org.cesecore.audit.impl.integrityprotected;
 
 import java.util.Date;
 import java.util.Properties;
+import java.util.concurrent.Future;
 
 import javax.ejb.Local;
 
@@ -39,4 +40,16 @@ public interface IntegrityProtectedAuditorSessionLocal extends Auditable {
 	 * @throws AuthorizationDeniedException unless token has StandardRules.AUDITLOGEXPORT rights
 	 */
 	int deleteRows(AuthenticationToken token, Date timestamp, Properties properties) throws AuthorizationDeniedException;
+
+	/**
+	 * Internal method, do not use. Verifies the log entries of a range of sequence numbers of one node. Runs asynchronously, so that
+	 * ranges can be verified in parallel.
+	 *
+	 * @param range the node and sequence numbers to verify
+	 * @param timestamp only entries up until this time are verified (should be epoch GMT)
+	 * @param fetchSize number of entries to read from the database at a time
+	 * @param includeRecords true if the verified entries should be returned for export
+	 * @return a future with the outcome of the verification
+	 */
+	Future<AuditLogVerificationRangeResult> verifyLogsIntegrityRangeAsync(AuditLogVerificationRange range, Date timestamp, int fetchSize, boolean includeRecords);
 }
@@ -214,5 +214,4 @@ public interface CertificateCreateSessionLocal extends CertificateCreateSession
      * @throws CertificateCreateException
      */
     void assertSubjectKeyIdRenewalEnforcement(CAInfo caInfo, EndEntityInformation endEntityInformation, PublicKey publicKey) throws CertificateCreateException;
-
 }
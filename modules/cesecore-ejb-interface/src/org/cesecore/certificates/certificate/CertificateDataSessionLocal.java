@@ -92,7 +92,10 @@ public interface CertificateDataSessionLocal extends CertificateDataSession {
      * @param limit maximum number of results
      * @param offset starting offset. E.g. if previous 'limit' was 100. Next results will be available at 'offset' 100
      * @return the query results as a List<String>
+     * @deprecated The time to read a page grows with the offset. Use
+     *     {@link #findCertificateInfosByExpireDate(Collection, long, long, Collection, CertificateExpirationCursor, int)} instead.
      */
+    @Deprecated
     List<String> findSerialNrByIssuerAndExpireDateWithLimitAndOffset(String issuerDN, 
                                                         long expireDate, int limit, int offset);
 
@@ -129,6 +132,29 @@ public interface CertificateDataSessionLocal extends CertificateDataSession {
     /** @return the CertificateInfo representation (all fields except the actual cert) or null if no such fingerprint exists. */
     CertificateInfo getCertificateInfo(String fingerprint);
     
+    /**
+     * @param issuerDN the DN of the issuer
+     * @return meta data (without the certificates) of all certificates of the issuer that are revoked, including archived certificates that
+     *         were revoked before they expired.
+     */
+    List<CertificateInfo> findRevokedCertificateInfosByIssuerDN(String issuerDN);
+
+    /**
+     * Needs the index certificatedata_idx22 on (issuerDN, updateTime) to avoid reading all certificates of the issuer.
+     *
+     * @param issuerDN the DN of the issuer
+     * @param updateTime epoch millis
+     * @return meta data (without the certificates) of all certificates of the issuer that were updated after the given time, ordered by update time.
+     */
+    List<CertificateInfo> findCertificateInfosByIssuerDNUpdatedAfter(String issuerDN, long updateTime);
+
+    /**
+     * @param issuerDN the DN of the issuer
+     * @param serialNumbers serial numbers of the certificates, at most a few hundred since they are all put in a single IN clause
+     * @return meta data (without the certificates) of the certificates of the issuer that have one of the given serial numbers.
+     */
+    List<CertificateInfo> findCertificateInfosByIssuerDnAndSerialNumbers(String issuerDN, Collection<BigInteger> serialNumbers);
+
     /** @return a List<Certificate> of SecConst.CERT_ACTIVE and CERT_NOTIFIEDABOUTEXPIRATION certs that have one of the specified types. */
     List<Certificate> findActiveCertificatesByType(Collection<Integer> certificateTypes);
     
@@ -172,6 +198,35 @@ public interface CertificateDataSessionLocal extends CertificateDataSession {
     List<Object[]> findExpirationInfo(Collection<String> cas, Collection<Integer> certificateProfiles,
             long activeNotifiedExpireDateMin, long activeNotifiedExpireDateMax, long activeExpireDateMin);
 
+    /**
+     * Reads one page of the certificates that {@link #findExpirationInfo(Collection, Collection, long, long, long)} finds, ordered by
+     * expiration date and fingerprint. Pages are read with a seek on the last certificate of the previous page, so the time to read
+     * a page does not grow with the number of certificates that have been read before it.
+     *
+     * @param after position of the last certificate of the previous page, or {@link CertificateExpirationCursor#FIRST}
+     * @param maxNumberOfResults size of the page
+     * @return certificate metadata, without the certificates themselves. An empty list when there are no more certificates.
+     * @see #findExpirationInfo(Collection, Collection, long, long, long)
+     */
+    List<CertificateInfo> findExpirationInfo(Collection<String> cas, Collection<Integer> certificateProfiles, long activeNotifiedExpireDateMin,
+            long activeNotifiedExpireDateMax, long activeExpireDateMin, CertificateExpirationCursor after, int maxNumberOfResults);
+
+    /**
+     * Reads one page of the certificates that expire within a time window, ordered by expiration date and fingerprint. Pages are read with
+     * a seek on the last certificate of the previous page, so the time to read a page does not grow with the number of certificates that
+     * have been read before it.
+     *
+     * @param issuerDns the issuer DNs, or null for all
+     * @param expireDateMin the certificates expire at or after this time
+     * @param expireDateMax the certificates expire before this time
+     * @param statuses the statuses of the certificates, or null for all
+     * @param after position of the last certificate of the previous page, or {@link CertificateExpirationCursor#FIRST}
+     * @param maxNumberOfResults size of the page
+     * @return certificate metadata, without the certificates themselves. An empty list when there are no more certificates.
+     */
+    List<CertificateInfo> findCertificateInfosByExpireDate(Collection<String> issuerDns, long expireDateMin, long expireDateMax,
+            Collection<Integer> statuses, CertificateExpirationCursor after, int maxNumberOfResults);
+
     /**
      * Finds certificates expiring after the given date.
      *
@@ -140,13 +140,28 @@ public interface CertificateStoreSession {
     /**
      * Finds certificates expiring within a specified time, but that have expireTime>=now, and that have
      * status "active" or "notifiedaboutexpiration".
+     * The time to read a page grows with the offset, so use {@link #findExpiringCertificateInfos(Date, CertificateExpirationCursor, int)}
+     * to read through many certificates.
      * @param expirationDate The time by which the certificates will be expired
      * @param maxNumberOfResults The maximum number of certificates to be returned
      * @param offset return results starting from offset
-     * @return List of certificates (java.security.cert.Certificate), never null
+     * @return List of certificates (java.security.cert.Certificate) ordered by expiration date and fingerprint, never null
      */
     List<Certificate> findExpiringCertificates(Date expirationDate, int maxNumberOfResults, int offset);
 
+    /**
+     * Reads one page of the certificates expiring within a specified time, but that have expireTime>=now, and that have
+     * status "active" or "notifiedaboutexpiration", ordered by expiration date and fingerprint. Only the certificate metadata is read.
+     * <p>
+     * Pass {@link CertificateExpirationCursor#FIRST} for the first page, and {@link CertificateExpirationCursor#after(CertificateInfo)} of the
+     * last certificate of a page for the next one. Every page is read equally fast, so a scan through all certificates takes linear time.
+     * @param expirationDate The time by which the certificates will be expired
+     * @param after position of the last certificate of the previous page
+     * @param maxNumberOfResults The maximum number of certificates to be returned
+     * @return List of certificate metadata, never null. An empty list when there are no more certificates.
+     */
+    List<CertificateInfo> findExpiringCertificateInfos(Date expirationDate, CertificateExpirationCursor after, int maxNumberOfResults);
+
     /**
      * Finds certificates expiring within a specified time, but that have expireTime>=now, issued by a specified issuer and have
      * status "active" or "notifiedaboutexpiration".
@@ -23,6 +23,7 @@ import java.security.cert.Certificate;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -41,6 +42,42 @@ public interface CertificateStoreSessionLocal extends CertificateStoreSession {
      */
     CertificateInfo findFirstCertificateInfo(String issuerDN, BigInteger serno);
 
+    /**
+     * Reads many certificates at once, for example the certificates of a page of certificate metadata, without a query for each certificate.
+     *
+     * @param fingerprints fingerprints of the certificates
+     * @return the certificates that were found, in the order of their fingerprints. Certificates without stored certificate data are left out.
+     */
+    List<Certificate> findCertificatesByFingerprints(List<String> fingerprints);
+
+    /**
+     * Lists meta data of all revoked certificates of an issuer. Used to load the OCSP responder's in-memory revocation status index.
+     * 
+     * @param issuerDN issuer DN of the certificates
+     * @return CertificateInfo of all revoked certificates, including archived certificates that were revoked before they expired
+     */
+    List<CertificateInfo> findRevokedCertificateInfos(String issuerDN);
+
+    /**
+     * Lists meta data of the certificates of an issuer that have been changed since the given time, for example issued or revoked.
+     * 
+     * @param issuerDN issuer DN of the certificates
+     * @param updateTime epoch millis, only certificates with a later update time are returned
+     * @return CertificateInfo of the changed certificates, ordered by update time
+     */
+    List<CertificateInfo> findCertificateInfosUpdatedAfter(String issuerDN, long updateTime);
+
+    /**
+     * Same as {@link CertificateStoreSession#getStatus(String, BigInteger)}, but for many certificates of the same issuer using as few
+     * database queries as possible. Used by the OCSP responder when a request contains several certificate IDs.
+     * 
+     * @param issuerDN the DN of the issuer
+     * @param serialNumbers serial numbers of the certificates
+     * @return map from each of the given serial numbers to the status of the certificate, never null. Certificates that are not found have
+     *         status CertificateStatus.NOT_AVAILABLE.
+     */
+    Map<BigInteger, CertificateStatus> getStatuses(String issuerDN, Collection<BigInteger> serialNumbers);
+
     /**
      * Stores a certificate.
      * 
@@ -152,6 +189,18 @@ public interface CertificateStoreSessionLocal extends CertificateStoreSession {
      * @return [0] = (String) fingerprint, [1] = (String) username
      */
     List<Object[]> findExpirationInfo(Collection<String> cas, Collection<Integer> certificateProfiles, long activeNotifiedExpireDateMin, long activeNotifiedExpireDateMax, long activeExpireDateMin);
+
+    /**
+     * Fetch one page of the certificates that {@link #findExpirationInfo(Collection, Collection, long, long, long)} finds, ordered by
+     * expiration date and fingerprint. Read the next page after {@link CertificateExpirationCursor#after(CertificateInfo)} of the last
+     * certificate, until an empty page is returned.
+     *
+     * @param after position of the last certificate of the previous page, or {@link CertificateExpirationCursor#FIRST}
+     * @param maxNumberOfResults size of the page
+     * @return certificate metadata, without the certificates themselves
+     */
+    List<CertificateInfo> findExpirationInfo(Collection<String> cas, Collection<Integer> certificateProfiles, long activeNotifiedExpireDateMin,
+            long activeNotifiedExpireDateMax, long activeExpireDateMin, CertificateExpirationCursor after, int maxNumberOfResults);
     
     /**
      * Query if we have a clear cut case where no username or the provided username is the only user of the subjectDN and subjectKeyId.
@@ -335,9 +384,24 @@ public interface CertificateStoreSessionLocal extends CertificateStoreSession {
      * @param limit Maximum number of results
      * @param offset Index of first result
      * @return List of all found entries.
+     * @deprecated The time to read a page grows with the offset. Use
+     *     {@link #findCertificateInfosByIssuerAndExpireDate(String, long, CertificateExpirationCursor, int)} instead.
      */
+    @Deprecated
     List<String> findSerialNrByIssuerAndExpireDateWithLimitAndOffset(String issuerDN, long expireDate, int limit, int offset);
 
+    /**
+     * Lists certificates issued by the given issuer that expire after the given time, regardless of status, one page at a time ordered by
+     * expiration date and fingerprint. The expireTime can be in future or past.
+     *
+     * @param issuerDN of the issuing CA.
+     * @param expireDate the certificates expire after this time (in UTC milliseconds).
+     * @param after position of the last certificate of the previous page, or {@link CertificateExpirationCursor#FIRST}
+     * @param limit Maximum number of results
+     * @return certificate metadata, without the certificates themselves
+     */
+    List<CertificateInfo> findCertificateInfosByIssuerAndExpireDate(String issuerDN, long expireDate, CertificateExpirationCursor after, int limit);
+
     /**
      * Finds certificates expiring before the given date.
      *
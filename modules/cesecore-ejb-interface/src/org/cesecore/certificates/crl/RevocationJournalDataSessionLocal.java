@@ -0,0 +1,57 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.crl;
+
+import java.util.Collection;
+
+import javax.ejb.Local;
+
+import org.cesecore.certificates.certificate.BaseCertificateData;
+
+/**
+ * Data session for RevocationJournalData, the journal of changes to the revocation status of certificates that delta CRLs are created from.
+ *
+ * @see org.cesecore.config.CesecoreConfiguration#isCrlRevocationJournalEnabled()
+ */
+@Local
+public interface RevocationJournalDataSessionLocal {
+
+    /**
+     * Adds the current revocation status of a certificate to the journal, in the transaction of the caller.
+     *
+     * @param certificateData the certificate, after the revocation status has been changed
+     * @param changeTime time of the change
+     */
+    void addToJournal(BaseCertificateData certificateData, long changeTime);
+
+    /**
+     * Lists the revocation status of the certificates that have changed after the given time, with the latest change of each certificate.
+     *
+     * @param issuerDN normalized issuer DN
+     * @param crlPartitionIndex CRL partition index, or {@link org.cesecore.certificates.certificate.CertificateConstants#NO_CRL_PARTITION}
+     * @param lastBaseCrlDate only changes made after this time are listed
+     * @param allowInvalidityDate true if invalidity dates should be included
+     * @return Collection of RevokedCertInfo, in the same form as {@link org.cesecore.certificates.certificate.CertificateDataSessionLocal#getRevokedCertInfos}
+     */
+    Collection<RevokedCertInfo> getRevokedCertInfos(String issuerDN, int crlPartitionIndex, long lastBaseCrlDate, boolean allowInvalidityDate);
+
+    /**
+     * Removes the journal entries of a CRL that were made before the given time, in a new transaction.
+     *
+     * @param issuerDN normalized issuer DN
+     * @param crlPartitionIndex CRL partition index, or {@link org.cesecore.certificates.certificate.CertificateConstants#NO_CRL_PARTITION}
+     * @param changeTime entries made before this time are removed
+     * @return the number of removed entries
+     */
+    int removeFromJournal(String issuerDN, int crlPartitionIndex, long changeTime);
+}
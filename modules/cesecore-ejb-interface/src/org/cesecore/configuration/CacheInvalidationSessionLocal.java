@@ -0,0 +1,48 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.configuration;
+
+import javax.ejb.Local;
+
+import org.cesecore.internal.CacheInvalidationEvent;
+import org.cesecore.internal.CacheInvalidationTransport;
+
+/**
+ * Transport of the {@link org.cesecore.internal.CacheInvalidationBus} that sends events to the other nodes of a cluster through the
+ * CacheInvalidationData table, which every node reads at a short interval.
+ *
+ * @see org.cesecore.config.CesecoreConfiguration#isCacheInvalidationEnabled()
+ */
+@Local
+public interface CacheInvalidationSessionLocal extends CacheInvalidationTransport {
+
+    /** Writes the event to the database in the transaction of the caller, so the other nodes only see it if the change is committed. */
+    @Override
+    void send(CacheInvalidationEvent event);
+
+    /**
+     * Makes this the transport of the cache invalidation bus of this node and starts reading the events of the other nodes, if cluster
+     * wide cache invalidation is enabled. Called at startup.
+     */
+    void start();
+
+    /** Stops reading events and sending them to the other nodes. */
+    void stop();
+
+    /**
+     * Removes events written before the given time, in a new transaction.
+     *
+     * @return the number of removed events
+     */
+    int removeEventsBefore(long changeTime);
+}
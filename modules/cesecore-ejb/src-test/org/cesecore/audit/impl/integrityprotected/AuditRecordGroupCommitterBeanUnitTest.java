@@ -0,0 +1,173 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.audit.impl.integrityprotected;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.cesecore.audit.enums.EventStatus;
+import org.cesecore.audit.enums.EventTypes;
+import org.cesecore.audit.enums.ModuleTypes;
+import org.cesecore.audit.enums.ServiceTypes;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests of writing audit records in batches.
+ */
+public class AuditRecordGroupCommitterBeanUnitTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    private final AuditRecordGroupCommitterBean groupCommitter = new AuditRecordGroupCommitterBean();
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> writtenSequenceNumbers = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void after() {
+        groupCommitter.stop(10000);
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testRecordsAreWrittenInBatches() throws Exception {
+        groupCommitter.start(this::write, executorService, 1000, BATCH_SIZE, 50);
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            futures.add(groupCommitter.submit(createAuditRecord(i)));
+        }
+        for (final Future<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(100, writtenSequenceNumbers.size());
+        for (long i = 0; i < 100; i++) {
+            assertEquals("Records should be written in the order they were submitted.", Long.valueOf(i), writtenSequenceNumbers.get((int) i));
+        }
+        for (final int batchSize : batchSizes) {
+            assertTrue("Batch of " + batchSize + " records is larger than the batch size.", batchSize <= BATCH_SIZE);
+        }
+        assertTrue("Records should have been written in fewer transactions than records.", batchSizes.size() < 100);
+    }
+
+    @Test
+    public void testFailingRecordDoesNotFailBatch() throws Exception {
+        groupCommitter.start(auditRecords -> {
+            for (final AuditRecordData auditRecordData : auditRecords) {
+                if (auditRecordData.getSequenceNumber() == 5L) {
+                    throw new IllegalStateException("Unable to write record 5");
+                }
+            }
+            write(auditRecords);
+        }, executorService, 1000, BATCH_SIZE, 50);
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (long i = 0; i < BATCH_SIZE; i++) {
+            futures.add(groupCommitter.submit(createAuditRecord(i)));
+        }
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            try {
+                futures.get(i).get(30, TimeUnit.SECONDS);
+                assertTrue("Only record 5 should fail.", i != 5);
+            } catch (ExecutionException e) {
+                assertEquals("Only record 5 should fail.", 5, i);
+            }
+        }
+        assertEquals(BATCH_SIZE - 1, writtenSequenceNumbers.size());
+        assertFalse(writtenSequenceNumbers.contains(5L));
+    }
+
+    @Test
+    public void testShutdownWritesQueuedRecords() throws Exception {
+        groupCommitter.start(this::write, executorService, 1000, BATCH_SIZE, 1000);
+        for (long i = 0; i < 25; i++) {
+            groupCommitter.submit(createAuditRecord(i));
+        }
+        groupCommitter.stop(30000);
+        assertEquals("All queued records should be written at shutdown.", 25, writtenSequenceNumbers.size());
+        assertFalse(groupCommitter.isStarted());
+        assertNull("Records logged after shutdown should be written by the caller.", groupCommitter.submit(createAuditRecord(25)));
+    }
+
+    @Test
+    public void testFlushWaitsForWriter() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        groupCommitter.start(auditRecords -> {
+            writing.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            write(auditRecords);
+        }, executorService, 1000, BATCH_SIZE, 1);
+        groupCommitter.submit(createAuditRecord(0));
+        assertTrue(writing.await(30, TimeUnit.SECONDS));
+        assertFalse("Flush should time out while the record is being written.", groupCommitter.flush(50));
+        proceed.countDown();
+        assertTrue(groupCommitter.flush(30000));
+        assertEquals(1, writtenSequenceNumbers.size());
+    }
+
+    @Test
+    public void testQueuedRecordsFailWhenStopTimesOut() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        groupCommitter.start(auditRecords -> {
+            writing.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            write(auditRecords);
+        }, executorService, 1000, 1, 1);
+        groupCommitter.submit(createAuditRecord(0));
+        assertTrue(writing.await(30, TimeUnit.SECONDS));
+        final Future<Void> queued = groupCommitter.submit(createAuditRecord(1));
+        groupCommitter.stop(50);
+        try {
+            queued.get(30, TimeUnit.SECONDS);
+            fail("A record that was still queued when the writer was stopped should fail.");
+        } catch (ExecutionException e) {
+            // Expected
+        }
+        proceed.countDown();
+    }
+
+    private void write(final List<AuditRecordData> auditRecords) {
+        batchSizes.add(auditRecords.size());
+        for (final AuditRecordData auditRecordData : auditRecords) {
+            writtenSequenceNumbers.add(auditRecordData.getSequenceNumber());
+        }
+    }
+
+    private static AuditRecordData createAuditRecord(final long sequenceNumber) {
+        return new AuditRecordData("node", sequenceNumber, System.currentTimeMillis(), EventTypes.CERT_REVOKED, EventStatus.SUCCESS, "admin",
+                ServiceTypes.CORE, ModuleTypes.CERTIFICATE, null, null, null, new HashMap<>());
+    }
+}
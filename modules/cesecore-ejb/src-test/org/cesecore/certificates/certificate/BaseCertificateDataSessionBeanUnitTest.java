@@ -0,0 +1,101 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.cesecore.certificates.crl.RevokedCertInfo;
+import org.cesecore.config.ConfigurationHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of reading revoked certificates in batches, in {@link BaseCertificateDataSessionBean}.
+ */
+public class BaseCertificateDataSessionBeanUnitTest {
+
+    private static final String FETCH_SIZE = "database.crlgenfetchsize";
+
+    private final BaseCertificateDataSessionBean sessionBean = new BaseCertificateDataSessionBean() {
+        @Override
+        protected EntityManager getEntityManager() {
+            return null;
+        }
+    };
+
+    private String defaultFetchSize;
+
+    @Before
+    public void before() {
+        defaultFetchSize = ConfigurationHolder.getString(FETCH_SIZE);
+        ConfigurationHolder.updateConfiguration(FETCH_SIZE, "2");
+    }
+
+    @After
+    public void after() {
+        ConfigurationHolder.updateConfiguration(FETCH_SIZE, defaultFetchSize);
+    }
+
+    @Test
+    public void batchesStartAfterTheLastFingerprint() {
+        final Query query = createMock(Query.class);
+        expect(query.setMaxResults(2)).andReturn(query);
+        expect(query.setParameter("lastFingerprint", "")).andReturn(query);
+        expect(query.getResultList()).andReturn(Arrays.asList(row("a1", 1), row("b2", 2)));
+        expect(query.setParameter("lastFingerprint", "b2")).andReturn(query);
+        expect(query.getResultList()).andReturn(Arrays.asList(row("c3", 3), row("d4", 4)));
+        expect(query.setParameter("lastFingerprint", "d4")).andReturn(query);
+        expect(query.getResultList()).andReturn(Collections.singletonList(row("e5", 5)));
+        replay(query);
+        final Collection<RevokedCertInfo> revokedCertInfos = sessionBean.getRevokedCertInfosByFingerprintInternal(query, false);
+        verify(query);
+        final List<String> fingerprints = new ArrayList<>();
+        for (final RevokedCertInfo revokedCertInfo : revokedCertInfos) {
+            fingerprints.add(revokedCertInfo.getCertificateFingerprint());
+        }
+        assertEquals("Each row should be read once, without reading past a batch that was not full.", Arrays.asList("a1", "b2", "c3", "d4", "e5"),
+                fingerprints);
+    }
+
+    @Test
+    public void fullLastBatchEndsWithEmptyBatch() {
+        final Query query = createMock(Query.class);
+        expect(query.setMaxResults(2)).andReturn(query);
+        expect(query.setParameter("lastFingerprint", "")).andReturn(query);
+        expect(query.getResultList()).andReturn(Arrays.asList(row("a1", 1), row("b2", 2)));
+        expect(query.setParameter("lastFingerprint", "b2")).andReturn(query);
+        expect(query.getResultList()).andReturn(Collections.emptyList());
+        replay(query);
+        assertEquals(2, sessionBean.getRevokedCertInfosByFingerprintInternal(query, false).size());
+        verify(query);
+    }
+
+    /** @return a row as returned by the result set mapping RevokedCertInfoSubset */
+    private static Object[] row(final String fingerprint, final long serialNumber) {
+        return new Object[] { fingerprint, String.valueOf(serialNumber), 0L, 1000L, RevokedCertInfo.REVOCATION_REASON_KEYCOMPROMISE, null };
+    }
+}
@@ -0,0 +1,214 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.keyfactor.ErrorCode;
+
+/**
+ * Tests that {@link PreIssuanceChecks} gives the same outcome whether the checks run one after another or concurrently, and that the time of
+ * the checks is recorded in {@link IssuanceStatistics}.
+ */
+public class PreIssuanceChecksUnitTest {
+
+    private static final Logger log = Logger.getLogger(PreIssuanceChecksUnitTest.class);
+
+    @Test
+    public void sequentialChecksRunWhenAwaited() throws Exception {
+        log.trace(">sequentialChecksRunWhenAwaited");
+        final List<IssuanceStage> ran = Collections.synchronizedList(new ArrayList<>());
+        final PreIssuanceChecks checks = new PreIssuanceChecks(null);
+        checks.add(IssuanceStage.KEY_VALIDATION, () -> ran.add(IssuanceStage.KEY_VALIDATION));
+        checks.add(IssuanceStage.DNS_VALIDATION, () -> ran.add(IssuanceStage.DNS_VALIDATION));
+        checks.add(IssuanceStage.SUBJECT_DN_ENFORCEMENT, () -> ran.add(IssuanceStage.SUBJECT_DN_ENFORCEMENT));
+        assertTrue("Checks should not run before they are awaited.", ran.isEmpty());
+        final long keyValidations = IssuanceStatistics.INSTANCE.getStage(IssuanceStage.KEY_VALIDATION).getCount();
+        checks.await(IssuanceStage.KEY_VALIDATION, IssuanceStage.DNS_VALIDATION);
+        assertEquals(2, ran.size());
+        assertEquals("Time of the check should be recorded.", keyValidations + 1,
+                IssuanceStatistics.INSTANCE.getStage(IssuanceStage.KEY_VALIDATION).getCount());
+        checks.cancelRemaining();
+        checks.await(IssuanceStage.SUBJECT_DN_ENFORCEMENT);
+        assertEquals("Cancelled check should not run.", 2, ran.size());
+        log.trace("<sequentialChecksRunWhenAwaited");
+    }
+
+    @Test
+    public void sequentialFailureSkipsRemainingChecks() throws Exception {
+        log.trace(">sequentialFailureSkipsRemainingChecks");
+        final List<IssuanceStage> ran = Collections.synchronizedList(new ArrayList<>());
+        final PreIssuanceChecks checks = new PreIssuanceChecks(null);
+        final CertificateCreateException failure = new CertificateCreateException(ErrorCode.ILLEGAL_KEY, "Key is too short.");
+        checks.add(IssuanceStage.KEY_VALIDATION, () -> {
+            throw failure;
+        });
+        checks.add(IssuanceStage.DNS_VALIDATION, () -> ran.add(IssuanceStage.DNS_VALIDATION));
+        try {
+            checks.await(IssuanceStage.KEY_VALIDATION, IssuanceStage.DNS_VALIDATION);
+            fail("Failing check should have thrown.");
+        } catch (CertificateCreateException e) {
+            assertSame(failure, e);
+        }
+        assertTrue("Checks after the failing check should not run.", ran.isEmpty());
+        log.trace("<sequentialFailureSkipsRemainingChecks");
+    }
+
+    @Test
+    public void parallelChecksRunConcurrently() throws Exception {
+        log.trace(">parallelChecksRunConcurrently");
+        final ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            // Each check waits for all of them to have started, which only passes if they run at the same time
+            final CountDownLatch started = new CountDownLatch(3);
+            final PreIssuanceCheck check = () -> {
+                started.countDown();
+                try {
+                    if (!started.await(10, TimeUnit.SECONDS)) {
+                        throw new CertificateCreateException(ErrorCode.INTERNAL_ERROR, "Checks did not run concurrently.");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            final PreIssuanceChecks checks = new PreIssuanceChecks(submitter(executorService));
+            checks.add(IssuanceStage.KEY_VALIDATION, check);
+            checks.add(IssuanceStage.DNS_VALIDATION, check);
+            checks.add(IssuanceStage.SUBJECT_DN_ENFORCEMENT, check);
+            checks.await(IssuanceStage.KEY_VALIDATION, IssuanceStage.DNS_VALIDATION, IssuanceStage.SUBJECT_DN_ENFORCEMENT);
+            checks.cancelRemaining();
+        } finally {
+            executorService.shutdownNow();
+        }
+        log.trace("<parallelChecksRunConcurrently");
+    }
+
+    @Test
+    public void parallelFailureIsThrownInAwaitOrder() throws Exception {
+        log.trace(">parallelFailureIsThrownInAwaitOrder");
+        final ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            final CertificateCreateException first = new CertificateCreateException(ErrorCode.ILLEGAL_KEY, "First failure.");
+            final CertificateCreateException second = new CertificateCreateException(ErrorCode.INVALID_CERTIFICATE, "Second failure.");
+            final PreIssuanceChecks checks = new PreIssuanceChecks(submitter(executorService));
+            // The first check fails later than the second, but is awaited first, so its exception is the one thrown
+            checks.add(IssuanceStage.KEY_VALIDATION, () -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw first;
+            });
+            checks.add(IssuanceStage.DNS_VALIDATION, () -> {
+                release.countDown();
+                throw second;
+            });
+            try {
+                checks.await(IssuanceStage.KEY_VALIDATION, IssuanceStage.DNS_VALIDATION);
+                fail("Failing check should have thrown.");
+            } catch (CertificateCreateException e) {
+                assertSame("Exception of the first check in await order should be thrown.", first, e);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        log.trace("<parallelFailureIsThrownInAwaitOrder");
+    }
+
+    @Test
+    public void parallelRuntimeExceptionIsUnwrapped() throws Exception {
+        log.trace(">parallelRuntimeExceptionIsUnwrapped");
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final IllegalStateException failure = new IllegalStateException("Unexpected failure.");
+            final PreIssuanceChecks checks = new PreIssuanceChecks(submitter(executorService));
+            checks.add(IssuanceStage.SUBJECT_KEY_ID_ENFORCEMENT, () -> {
+                throw failure;
+            });
+            try {
+                checks.await(IssuanceStage.SUBJECT_KEY_ID_ENFORCEMENT);
+                fail("Failing check should have thrown.");
+            } catch (IllegalStateException e) {
+                assertSame(failure, e);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        log.trace("<parallelRuntimeExceptionIsUnwrapped");
+    }
+
+    @Test
+    public void callerThreadChecksRunInAwaitingThread() throws Exception {
+        log.trace(">callerThreadChecksRunInAwaitingThread");
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+            final PreIssuanceChecks checks = new PreIssuanceChecks(submitter(executorService));
+            checks.add(IssuanceStage.KEY_VALIDATION, () -> threads.add(Thread.currentThread()));
+            checks.addInCallerThread(IssuanceStage.SUBJECT_DN_ENFORCEMENT, () -> threads.add(Thread.currentThread()));
+            checks.await(IssuanceStage.KEY_VALIDATION);
+            assertEquals("Check in the caller thread should not run before it is awaited.", 1, threads.size());
+            assertFalse("Check that can run in another thread should be submitted.", threads.contains(Thread.currentThread()));
+            checks.await(IssuanceStage.SUBJECT_DN_ENFORCEMENT);
+            assertSame("Check that uses the database should run in the transaction of the awaiting thread.", Thread.currentThread(),
+                    threads.get(1));
+            checks.cancelRemaining();
+        } finally {
+            executorService.shutdownNow();
+        }
+        log.trace("<callerThreadChecksRunInAwaitingThread");
+    }
+
+    @Test
+    public void waitingTimeIsRecorded() throws Exception {
+        log.trace(">waitingTimeIsRecorded");
+        final IssuanceStatistics.Stage stage = IssuanceStatistics.INSTANCE.getStage(IssuanceStage.PRE_ISSUANCE_CHECKS);
+        final long count = stage.getCount();
+        final PreIssuanceChecks checks = new PreIssuanceChecks(null);
+        checks.add(IssuanceStage.KEY_VALIDATION, () -> {});
+        checks.add(IssuanceStage.DNS_VALIDATION, () -> {});
+        checks.await(IssuanceStage.KEY_VALIDATION);
+        checks.await(IssuanceStage.DNS_VALIDATION);
+        checks.cancelRemaining();
+        assertEquals("All waiting of one issuance should be recorded once.", count + 1, stage.getCount());
+        checks.cancelRemaining();
+        assertEquals(count + 1, stage.getCount());
+        assertFalse(stage.getMaxTimeMillis() < 0);
+        log.trace("<waitingTimeIsRecorded");
+    }
+
+    /** Submits the checks to an executor, like CertificateCreateSessionBean does with the managed executor of the container */
+    private static PreIssuanceChecks.Submitter submitter(final ExecutorService executorService) {
+        return (stage, check) -> executorService.submit(() -> {
+            PreIssuanceChecks.runAndRecord(stage, check);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,341 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.audit.impl.integrityprotected;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.apache.log4j.Logger;
+import org.cesecore.config.CesecoreConfiguration;
+
+/**
+ * Writes audit records in batches, so many log events share one database transaction instead of each committing its own.
+ * <p>
+ * Records get their sequence number and are completed by the logging thread, and are then queued in a bounded queue. A single writer,
+ * running in the managed executor of the container, takes up to a batch size of records from the queue, waiting at most the flush
+ * interval for a batch to fill up, and writes them in one transaction. When the queue is full, logging threads wait for room, so a slow
+ * database slows down logging instead of using up the heap. If a batch can not be written, each of its records is written on its own,
+ * so one bad record does not fail the others.
+ * <p>
+ * The writer is only started when group commit is enabled, and is stopped when the application is undeployed, after the queued records
+ * have been written. Records that are logged when the writer is not running are written by the logging thread, as without group commit.
+ * Records that are still queued when the JVM stops abruptly are lost. Their sequence numbers are then missing from the audit log, which
+ * verification of the log reports as errors, so strict mode should be used where that can not be accepted.
+ *
+ * @see org.cesecore.config.CesecoreConfiguration#isAuditGroupCommitEnabled()
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class AuditRecordGroupCommitterBean {
+
+    private static final Logger log = Logger.getLogger(AuditRecordGroupCommitterBean.class);
+
+    /** Maximum time to wait for queued audit records to be written when the application is undeployed */
+    private static final long SHUTDOWN_TIMEOUT_MS = 30000L;
+
+    private static final class PendingRecord {
+        private final AuditRecordData auditRecordData;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private PendingRecord(final AuditRecordData auditRecordData) {
+            this.auditRecordData = auditRecordData;
+        }
+    }
+
+    @PersistenceContext(unitName = CesecoreConfiguration.PERSISTENCE_UNIT)
+    private EntityManager entityManager;
+    @Resource
+    private SessionContext sessionContext;
+    @Resource
+    private ManagedExecutorService executorService;
+
+    /** Guards pendingCount, and is signalled when all submitted records have been written or have failed */
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final Condition allWritten = pendingLock.newCondition();
+    /** Number of records that have been submitted, but not written or failed yet */
+    private long pendingCount = 0;
+    /** Everything below is only changed while holding the lock of this object */
+    private volatile BlockingQueue<PendingRecord> queue;
+    private volatile boolean stopped;
+    private Consumer<List<AuditRecordData>> batchWriter;
+    private Future<?> writer;
+    private int batchSize;
+    private long flushIntervalMs;
+
+    @PostConstruct
+    public void initialize() {
+        if (CesecoreConfiguration.isAuditGroupCommitEnabled()) {
+            // Resolved here, since the writer calls it from a thread of the executor, outside any invocation of this bean
+            final AuditRecordGroupCommitterBean groupCommitter = sessionContext.getBusinessObject(AuditRecordGroupCommitterBean.class);
+            start(groupCommitter::persistAuditRecords, executorService, CesecoreConfiguration.getAuditGroupCommitQueueSize(), CesecoreConfiguration.getAuditGroupCommitBatchSize(),
+                    CesecoreConfiguration.getAuditGroupCommitFlushInterval());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stop(SHUTDOWN_TIMEOUT_MS);
+    }
+
+    /**
+     * Queues a record to be written, waiting for room in the queue if it is full.
+     *
+     * @param auditRecordData a complete record, with sequence number, that is not modified after this call
+     * @return a future that completes when the record has been committed to the database, or fails if it could not be written, or null if
+     *         the writer is not running, and the caller should write the record itself
+     * @throws InterruptedException if interrupted while waiting for room in the queue
+     */
+    public Future<Void> submit(final AuditRecordData auditRecordData) throws InterruptedException {
+        final BlockingQueue<PendingRecord> currentQueue = queue;
+        if (currentQueue == null || stopped) {
+            return null;
+        }
+        final PendingRecord pendingRecord = new PendingRecord(auditRecordData);
+        addPending(1);
+        try {
+            currentQueue.put(pendingRecord);
+        } catch (InterruptedException e) {
+            addPending(-1);
+            throw e;
+        }
+        if (queue != currentQueue && currentQueue.remove(pendingRecord)) {
+            // Queued after the writer was stopped and its queue was emptied
+            complete(pendingRecord, new IllegalStateException("Group commit of audit records was stopped before the record was written."));
+        }
+        return pendingRecord.written;
+    }
+
+    /**
+     * Persists complete audit records in a new transaction. Used by the writer to write a batch of records.
+     *
+     * @param auditRecords records with sequence numbers assigned
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void persistAuditRecords(final List<AuditRecordData> auditRecords) {
+        for (final AuditRecordData auditRecordData : auditRecords) {
+            entityManager.persist(auditRecordData);
+        }
+    }
+
+    /**
+     * Starts the writer, unless it is already running.
+     *
+     * @param batchWriter writes a list of records in one transaction, and throws a RuntimeException if they could not be written
+     * @param writerExecutor executor to run the writer in
+     * @param queueSize maximum number of records waiting to be written
+     * @param batchSize maximum number of records written in one transaction
+     * @param flushIntervalMs maximum time a record waits for its batch to fill up, in milliseconds
+     */
+    synchronized void start(final Consumer<List<AuditRecordData>> batchWriter, final ExecutorService writerExecutor, final int queueSize,
+            final int batchSize, final long flushIntervalMs) {
+        if (writer != null) {
+            return;
+        }
+        this.batchWriter = batchWriter;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        final BlockingQueue<PendingRecord> newQueue = new ArrayBlockingQueue<>(queueSize);
+        this.stopped = false;
+        writer = writerExecutor.submit(() -> writeBatches(newQueue));
+        this.queue = newQueue;
+        log.info("Started group commit of audit records with batch size " + batchSize + ", flush interval " + flushIntervalMs + " ms and queue size "
+                + queueSize + ".");
+    }
+
+    /** @return true if the writer is running */
+    boolean isStarted() {
+        return queue != null && !stopped;
+    }
+
+    /**
+     * Waits until all submitted records have been written or have failed.
+     *
+     * @param timeoutMs maximum time to wait, in milliseconds
+     * @return true if there are no records left to write
+     */
+    boolean flush(final long timeoutMs) {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        pendingLock.lock();
+        try {
+            while (pendingCount > 0) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = allWritten.awaitNanos(remainingNanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return pendingCount == 0;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the queued records and stops the writer. Records submitted after this call are written by the caller, until the writer is
+     * started again.
+     *
+     * @param timeoutMs maximum time to wait for queued records to be written, in milliseconds
+     */
+    synchronized void stop(final long timeoutMs) {
+        if (writer == null) {
+            return;
+        }
+        stopped = true;
+        final BlockingQueue<PendingRecord> currentQueue = queue;
+        final boolean written = flush(timeoutMs);
+        if (!written) {
+            log.error(getPendingCount() + " audit records could not be written before shutdown.");
+        }
+        writer.cancel(true);
+        writer = null;
+        queue = null;
+        if (!written) {
+            // Fail the records that are still queued, so that callers waiting for them in strict mode do not wait forever
+            final List<PendingRecord> unwritten = new ArrayList<>();
+            currentQueue.drainTo(unwritten);
+            for (final PendingRecord pendingRecord : unwritten) {
+                complete(pendingRecord, new IllegalStateException("Group commit of audit records was stopped before the record was written."));
+            }
+        }
+        log.info("Stopped group commit of audit records.");
+    }
+
+    private void writeBatches(final BlockingQueue<PendingRecord> currentQueue) {
+        final List<PendingRecord> batch = new ArrayList<>(batchSize);
+        boolean cancelled = false;
+        // Records that are being queued when the writer is stopped are counted as pending, and are written before the writer ends
+        while (!cancelled && (!stopped || getPendingCount() > 0)) {
+            try {
+                final PendingRecord first = currentQueue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    if (currentQueue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    final long remainingNanos = deadline - System.nanoTime();
+                    final PendingRecord next = remainingNanos > 0 ? currentQueue.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (stopped) {
+                    // Cancelled after the records could not be written in time when stopping
+                    cancelled = true;
+                } else {
+                    log.warn("Audit record writer was interrupted.");
+                }
+                // Write what has been collected
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(final List<PendingRecord> batch) {
+        final List<AuditRecordData> auditRecords = new ArrayList<>(batch.size());
+        for (final PendingRecord pendingRecord : batch) {
+            auditRecords.add(pendingRecord.auditRecordData);
+        }
+        try {
+            batchWriter.accept(auditRecords);
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote batch of " + batch.size() + " audit records.");
+            }
+            for (final PendingRecord pendingRecord : batch) {
+                complete(pendingRecord, null);
+            }
+        } catch (RuntimeException | Error batchException) {
+            if (batch.size() == 1) {
+                complete(batch.get(0), batchException);
+                return;
+            }
+            log.warn("Unable to write batch of " + batch.size() + " audit records, writing them one by one: " + batchException.getMessage());
+            for (final PendingRecord pendingRecord : batch) {
+                try {
+                    batchWriter.accept(Collections.singletonList(pendingRecord.auditRecordData));
+                    complete(pendingRecord, null);
+                } catch (RuntimeException | Error e) {
+                    complete(pendingRecord, e);
+                }
+            }
+        }
+    }
+
+    private void complete(final PendingRecord pendingRecord, final Throwable failure) {
+        if (failure == null) {
+            pendingRecord.written.complete(null);
+        } else {
+            log.error("Unable to write audit record with node id " + pendingRecord.auditRecordData.getNodeId() + " and sequence number "
+                    + pendingRecord.auditRecordData.getSequenceNumber() + ": " + failure.getMessage(), failure);
+            pendingRecord.written.completeExceptionally(failure);
+        }
+        addPending(-1);
+    }
+
+    private void addPending(final int delta) {
+        pendingLock.lock();
+        try {
+            pendingCount += delta;
+            if (pendingCount == 0) {
+                allWritten.signalAll();
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private long getPendingCount() {
+        pendingLock.lock();
+        try {
+            return pendingCount;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+}
@@ -14,15 +14,24 @@ package org.cesecore.audit.impl.integrityprotected;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.EJB;
 import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
@@ -75,6 +84,8 @@ import com.keyfactor.util.keys.token.CryptoToken;
 public class IntegrityProtectedAuditorSessionBean implements IntegrityProtectedAuditorSessionLocal {
 
 	private static final Logger log = Logger.getLogger(IntegrityProtectedAuditorSessionBean.class);
+	/** Minimum time between progress messages of a long running verification */
+	private static final long PROGRESS_LOG_INTERVAL_MS = 30000L;
 	
     @PersistenceContext(unitName = CesecoreConfiguration.PERSISTENCE_UNIT)
     private EntityManager entityManager;
@@ -100,7 +111,10 @@ public class IntegrityProtectedAuditorSessionBean implements IntegrityProtectedA
             try (final SigningFileOutputStream signingFileOutputStream = new SigningFileOutputStream(exportFile, cryptoToken, signatureDetails)) {
                 final AuditExporter auditExporter = c.getDeclaredConstructor().newInstance();
                 auditExporter.setOutputStream(signingFileOutputStream);
-                verifyAndOptionalExport(auditExporter, report, timestamp, AuditDevicesConfig.getAuditLogExportFetchSize(properties));
+                final int fetchSize = AuditDevicesConfig.getAuditLogExportFetchSize(properties);
+                // Each range is kept in memory until it has been exported, so only fetch size entries are read per range
+                verifyAndOptionalExport(auditExporter, report, timestamp, fetchSize, fetchSize, AuditDevicesConfig.getAuditLogValidationThreads(properties), null,
+                        false, 0L);
                 report.setExportedFile(exportFile.getCanonicalPath());
                 if (log.isDebugEnabled()) {
                     log.debug("Exported " + report.getExportCount() + " rows.");
@@ -155,7 +169,10 @@ public class IntegrityProtectedAuditorSessionBean implements IntegrityProtectedA
 	public AuditLogValidationReport verifyLogsIntegrity(final AuthenticationToken token, final Date timestamp, final Properties properties) throws AuditLogValidatorException {
         final AuditLogValidationReport report = new AuditLogValidationReport();
         try {
-            verifyAndOptionalExport(null, report, timestamp, AuditDevicesConfig.getAuditLogExportFetchSize(properties));
+            verifyAndOptionalExport(null, report, timestamp, AuditDevicesConfig.getAuditLogValidationFetchSize(properties),
+                    AuditDevicesConfig.getAuditLogValidationRangeSize(properties), AuditDevicesConfig.getAuditLogValidationThreads(properties),
+                    AuditDevicesConfig.getAuditLogValidationCheckpointFile(properties), AuditDevicesConfig.isAuditLogValidationResumeEnabled(properties),
+                    AuditDevicesConfig.getAuditLogValidationCheckpointMaxAge(properties));
         	// Log the success or failure depending on if verification returns error or not
         	logVerificationResult(report.errors().size(), timestamp, token);
         } catch (final Exception e) {
@@ -165,66 +182,128 @@ public class IntegrityProtectedAuditorSessionBean implements IntegrityProtectedA
 	}
 
 	/**
-	 * Read batches of logs from the database. If the database integrity check fails, the batch will be processed row by row.
-	 * Results are added to the report.
+	 * Verifies the log of all nodes, by splitting it into ranges of sequence numbers that are verified in parallel. The results of the
+	 * ranges are processed in order, so that missing entries between ranges are found and entries are exported in sequence number order,
+	 * and at most one range per thread is verified ahead of the range being processed. Results are added to the report.
 	 * @param auditExporter can be null if no export should take place
 	 * @param report is a AuditLogValidationReport or AuditLogExportReport
 	 * @param timestamp process all entries up until this time (should be epoch GMT)
+	 * @param fetchSize number of entries to read from the database at a time
+	 * @param rangeSize number of sequence numbers verified as one unit of work
+	 * @param threads number of ranges verified in parallel
+	 * @param checkpointFile file where progress is saved, so that an interrupted verification can be resumed, or null to not save progress
+	 * @param resume true to continue from the checkpoint file, if it was saved by this node for the same log
+	 * @param checkpointMaxAgeMs maximum age of a checkpoint to continue from
 	 */
-	private void verifyAndOptionalExport(AuditExporter auditExporter, AuditLogValidationReport report, Date timestamp, final int fetchSize) throws IOException {
-    	// Get a list of the nodes that have data in the database
-    	for (final String nodeId : getNodeIds()) {
-    		if (log.isDebugEnabled()) {
-    			log.debug("exportAuditLogs for nodeId " + nodeId);
-    		}
-    		// Assuming timeStamp is in UTC
-    		final QueryCriteria queryCriteria = QueryCriteria.create().add((Criteria.and(Criteria.eq(AuditLogEntry.FIELD_NODEID, nodeId), Criteria.leq(AuditLogEntry.FIELD_TIMESTAMP, timestamp.getTime())))).add(Criteria.orderAsc(AuditLogEntry.FIELD_SEQUENCENUMBER));
-    		int startIndex = 1;
-    		final Holder<Long> lastSeqNumber = new Holder<Long>(Long.valueOf(-1L));
-    		while (true) {
-    			try {
-        			final List<AuditRecordData> queryResult = verifyLogsIntegritySubset(startIndex, fetchSize, queryCriteria, report, lastSeqNumber, nodeId);
-    				final int results = queryResult.size();
-    				if (results == 0) {
-    					break;	// No more data for this node
-    				}
-    				startIndex += results;
-					if (auditExporter!=null) {
-						for (final AuditRecordData auditRecordData : queryResult) {
-							writeToExport(auditExporter, auditRecordData);
-        					((AuditLogExportReport) report).incExportCount();
-						}
-					}
-    			} catch (DatabaseProtectionException e) {
-    				// One of the FETCH_SIZE entries failed.. we have to go through line by line to find out witch one..
-    				for (int i=0; i<fetchSize; i++) {
-        				try {
-                			final List<AuditRecordData> queryResult = verifyLogsIntegritySubset(startIndex, 1, queryCriteria, report, lastSeqNumber, nodeId);
-            				final int results = queryResult.size();
-            				if (results != 1) {
-            					break;	// No more data for this node
-            				}
-        					if (auditExporter!=null) {
-        						writeToExport(auditExporter, queryResult.get(0));
-            					((AuditLogExportReport) report).incExportCount();
-        					}
-        				} catch (DatabaseProtectionException e2) {
-        					final AuditRecordData auditRecordData = (AuditRecordData) e2.getEntity();
-        					// Add to report
-        					report.warn(new AuditLogReportElem(lastSeqNumber.get().longValue(), auditRecordData.getSequenceNumber(), "log with sequence number after " + lastSeqNumber + " on nodeId " + nodeId + " could not be verified"));
-        					lastSeqNumber.set(auditRecordData.getSequenceNumber());
-        					// We still export it
-        					// TODO: It might make sense to make it configurable to export when verification fails..
-        					if (auditExporter!=null) {
-            					writeToExport(auditExporter, auditRecordData);
-            					((AuditLogExportReport) report).incExportCount();
-        					}
-        				}
-        				startIndex += 1;
-    				}
-    			}
-    		}
-    	}
+	private void verifyAndOptionalExport(final AuditExporter auditExporter, final AuditLogValidationReport report, final Date timestamp, final int fetchSize,
+	        final int rangeSize, final int threads, final File checkpointFile, final boolean resume, final long checkpointMaxAgeMs)
+	        throws IOException, InterruptedException, ExecutionException, DatabaseProtectionException {
+	    final List<AuditLogVerificationRange> nodeRanges = getNodeRanges(timestamp);
+	    final String verifyingNodeId = CesecoreConfiguration.getNodeIdentifier();
+	    AuditLogVerificationProgress progress = checkpointFile == null || !resume ? null
+	            : AuditLogVerificationProgress.load(checkpointFile, verifyingNodeId, checkpointMaxAgeMs);
+	    if (progress != null && isResumable(progress, nodeRanges, timestamp)) {
+	        log.info("Resuming audit log verification from checkpoint " + checkpointFile.getPath() + ", " + progress.getCount() + " entries already verified.");
+	        progress.setTimestamp(timestamp);
+	        progress.addWarningsTo(report);
+	    } else {
+	        progress = new AuditLogVerificationProgress(timestamp);
+	    }
+	    for (final AuditLogVerificationRange nodeRange : nodeRanges) {
+	        if (progress.getFirstSequenceNumber(nodeRange.getNodeId()) == -1L) {
+	            progress.setFirstSequenceNumber(nodeRange.getNodeId(), nodeRange.getFirstSequenceNumber());
+	        }
+	    }
+	    boolean saveCheckpoints = checkpointFile != null;
+	    final RangeIterator ranges = new RangeIterator(nodeRanges, progress, rangeSize);
+	    final Deque<Future<AuditLogVerificationRangeResult>> pendingRanges = new ArrayDeque<>();
+	    long nextProgressLog = System.currentTimeMillis() + PROGRESS_LOG_INTERVAL_MS;
+	    while (ranges.hasNext() || !pendingRanges.isEmpty()) {
+	        while (pendingRanges.size() < threads && ranges.hasNext()) {
+	            pendingRanges.add(integrityProtectedAuditorSession.verifyLogsIntegrityRangeAsync(ranges.next(), timestamp, fetchSize, auditExporter != null));
+	        }
+	        final AuditLogVerificationRangeResult result;
+	        try {
+	            result = pendingRanges.poll().get();
+	        } catch (ExecutionException e) {
+	            if (e.getCause() instanceof RuntimeException) {
+	                throw (RuntimeException) e.getCause();
+	            }
+	            throw e;
+	        }
+	        progress.add(result, report);
+	        if (auditExporter != null) {
+	            for (final AuditRecordData auditRecordData : result.getAuditRecords()) {
+	                writeToExport(auditExporter, auditRecordData);
+	                ((AuditLogExportReport) report).incExportCount();
+	            }
+	        }
+	        if (saveCheckpoints && !progress.save(checkpointFile, verifyingNodeId)) {
+	            log.info("The audit log is not integrity protected, so the progress of the audit log verification can not be protected and is not saved.");
+	            saveCheckpoints = false;
+	        }
+	        if (System.currentTimeMillis() >= nextProgressLog) {
+	            log.info("Audit log verification has verified " + progress.getCount() + " entries in " + ranges.getCompletedCount(pendingRanges.size())
+	                    + " of " + ranges.getTotalCount() + " ranges.");
+	            nextProgressLog = System.currentTimeMillis() + PROGRESS_LOG_INTERVAL_MS;
+	        }
+	    }
+	    if (log.isDebugEnabled()) {
+	        log.debug("Verified " + progress.getCount() + " audit log entries in " + ranges.getTotalCount() + " ranges.");
+	    }
+	    if (checkpointFile != null && checkpointFile.exists() && !checkpointFile.delete()) {
+	        log.warn("Unable to remove audit log verification checkpoint " + checkpointFile.getPath());
+	    }
+	}
+
+	/**
+	 * A saved verification can only be continued if it verified up until an earlier time, and the log of each node still starts where it
+	 * started when the verification began, so no log has been deleted since, for example by an export. Otherwise the entries following the
+	 * saved position could not be trusted to follow the verified ones.
+	 */
+	private boolean isResumable(final AuditLogVerificationProgress progress, final List<AuditLogVerificationRange> nodeRanges, final Date timestamp) {
+	    if (progress.getTimestamp().after(timestamp)) {
+	        return false;
+	    }
+	    for (final String nodeId : progress.getNodeIds()) {
+	        if (findNodeRange(nodeRanges, nodeId) == null) {
+	            log.info("The audit log of node " + nodeId + " has changed since the verification checkpoint was saved, verifying from the beginning.");
+	            return false;
+	        }
+	    }
+	    for (final AuditLogVerificationRange nodeRange : nodeRanges) {
+	        final String nodeId = nodeRange.getNodeId();
+	        final long firstSequenceNumber = progress.getFirstSequenceNumber(nodeId);
+	        if (firstSequenceNumber != -1L && firstSequenceNumber != nodeRange.getFirstSequenceNumber()) {
+	            log.info("The audit log of node " + nodeId + " has changed since the verification checkpoint was saved, verifying from the beginning.");
+	            return false;
+	        }
+	    }
+	    return true;
+	}
+
+	private AuditLogVerificationRange findNodeRange(final List<AuditLogVerificationRange> nodeRanges, final String nodeId) {
+	    for (final AuditLogVerificationRange nodeRange : nodeRanges) {
+	        if (nodeRange.getNodeId().equals(nodeId)) {
+	            return nodeRange;
+	        }
+	    }
+	    return null;
+	}
+
+	/** @return the first and last sequence number of the log of each node, up until the given time */
+	private List<AuditLogVerificationRange> getNodeRanges(final Date timestamp) {
+	    final List<AuditLogVerificationRange> nodeRanges = new ArrayList<>();
+	    for (final String nodeId : getNodeIds()) {
+	        final Query query = entityManager.createQuery("SELECT MIN(a.sequenceNumber), MAX(a.sequenceNumber) FROM AuditRecordData a WHERE a.nodeId=:nodeId AND a.timeStamp<=:timeStamp");
+	        query.setParameter("nodeId", nodeId);
+	        query.setParameter("timeStamp", timestamp.getTime());
+	        final Object[] bounds = (Object[]) query.getSingleResult();
+	        if (bounds[0] != null) {
+	            nodeRanges.add(new AuditLogVerificationRange(nodeId, ((Number) bounds[0]).longValue(), ((Number) bounds[1]).longValue()));
+	        }
+	    }
+	    return nodeRanges;
 	}
 
 	/** We want to export exactly like it was stored in the database, to comply with requirements on logging systems where no altering of the original log data is allowed. */
@@ -247,35 +326,99 @@ public class IntegrityProtectedAuditorSessionBean implements IntegrityProtectedA
         auditExporter.writeEndObject();
     }
     
-    /**
-     * Fetch a batch of log rows from the database (implying database integrity check) and verifies
-     * that all sequence numbers are present.
-     * @param startIndex start batch from this position 
-     * @param max entries per batch
-     * @param queryCriteria where clause
-     * @param report will be updated when a problem is found
-     * @param lastSeqNumber will be updated to the last sequence number processed in this subset
-     * @param nodeId identifier of which node that claims to have written this data
-     * @return the log entries we fetched from the database so the caller may export these
-     * @throws DatabaseProtectionException if the intregrity verification fails for one of the entries in the batch during fetch
-     */
-	private List<AuditRecordData> verifyLogsIntegritySubset(final int startIndex, final int max, final QueryCriteria queryCriteria, final AuditLogValidationReport report, final Holder<Long> lastSeqNumber, final String nodeId) throws DatabaseProtectionException {
-		final List<AuditRecordData> queryResult = internalSelectAuditLogs(startIndex, max, queryCriteria);	// Might throw DatabaseProtectionException
-		// Loop through results and verify that the sequence order is correct
-		for (int i=0; i<queryResult.size(); i++) {
-			final long currentSeqNumber = queryResult.get(i).getSequenceNumber().longValue();
-			if (currentSeqNumber != lastSeqNumber.get().longValue() + 1) {
-				if (log.isDebugEnabled()) {
-					log.debug("Log verification failure for log on node " + nodeId + ". Missing entry. Last sequenceNumber was " + lastSeqNumber + " and current is " + currentSeqNumber);
-				}
-				// Add to report
-				report.warn(new AuditLogReportElem(lastSeqNumber.get(), Long.valueOf(currentSeqNumber), "missing log with sequence number " + (lastSeqNumber.get().longValue() + 1) + " on nodeId " + nodeId));
-			}
-			lastSeqNumber.set(Long.valueOf(currentSeqNumber));
-		}
-		return queryResult;
+	@Asynchronous
+	@Override
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+	public Future<AuditLogVerificationRangeResult> verifyLogsIntegrityRangeAsync(final AuditLogVerificationRange range, final Date timestamp,
+	        final int fetchSize, final boolean includeRecords) {
+	    return new AsyncResult<>(verifyLogsIntegrityRange(range, timestamp, fetchSize, includeRecords));
 	}
-	
+
+	/**
+	 * Reads the log entries of a range in batches (implying database integrity check), and verifies that all sequence numbers are present.
+	 * Batches are read from the last sequence number read, so each batch is an index range scan no matter how far into the log it is.
+	 * If the database integrity check fails, the batch is processed row by row.
+	 */
+	private AuditLogVerificationRangeResult verifyLogsIntegrityRange(final AuditLogVerificationRange range, final Date timestamp, final int fetchSize,
+	        final boolean includeRecords) {
+	    final AuditLogVerificationRangeResult result = new AuditLogVerificationRangeResult(range);
+	    long lastSeqNumber = range.getFirstSequenceNumber() - 1;
+	    while (lastSeqNumber < range.getLastSequenceNumber()) {
+	        try {
+	            final List<AuditRecordData> queryResult = selectAuditLogRange(range, timestamp, lastSeqNumber, fetchSize); // Might throw DatabaseProtectionException
+	            if (queryResult.isEmpty()) {
+	                break; // No more data in this range
+	            }
+	            for (final AuditRecordData auditRecordData : queryResult) {
+	                lastSeqNumber = addToRangeResult(result, auditRecordData, true, includeRecords);
+	            }
+	        } catch (DatabaseProtectionException e) {
+	            // One of the fetched entries failed.. we have to go through line by line to find out witch one..
+	            boolean moreData = true;
+	            for (int i = 0; i < fetchSize && moreData; i++) {
+	                try {
+	                    final List<AuditRecordData> queryResult = selectAuditLogRange(range, timestamp, lastSeqNumber, 1);
+	                    moreData = !queryResult.isEmpty();
+	                    if (moreData) {
+	                        lastSeqNumber = addToRangeResult(result, queryResult.get(0), true, includeRecords);
+	                    }
+	                } catch (DatabaseProtectionException e2) {
+	                    lastSeqNumber = addToRangeResult(result, (AuditRecordData) e2.getEntity(), false, includeRecords);
+	                }
+	            }
+	            if (!moreData) {
+	                break;
+	            }
+	        }
+	    }
+	    return result;
+	}
+
+	/**
+	 * Adds a log entry to the result of its range, and reports it if it could not be verified or if it does not follow the previous entry of the range.
+	 * @return the sequence number of the entry
+	 */
+	private long addToRangeResult(final AuditLogVerificationRangeResult result, final AuditRecordData auditRecordData, final boolean verified,
+	        final boolean includeRecords) {
+	    final String nodeId = result.getRange().getNodeId();
+	    final long currentSeqNumber = auditRecordData.getSequenceNumber().longValue();
+	    final Long lastSeqNumber = result.getLastSequenceNumber();
+	    if (!verified) {
+	        final long previousSeqNumber = lastSeqNumber == null ? result.getRange().getFirstSequenceNumber() - 1 : lastSeqNumber.longValue();
+	        result.warn(new AuditLogReportElem(previousSeqNumber, currentSeqNumber, "log with sequence number after " + previousSeqNumber + " on nodeId " + nodeId + " could not be verified"));
+	    } else if (lastSeqNumber != null && currentSeqNumber != lastSeqNumber.longValue() + 1) {
+	        // Whether the first entry follows the previous range is checked when the ranges are put together
+	        if (log.isDebugEnabled()) {
+	            log.debug("Log verification failure for log on node " + nodeId + ". Missing entry. Last sequenceNumber was " + lastSeqNumber + " and current is " + currentSeqNumber);
+	        }
+	        result.warn(new AuditLogReportElem(lastSeqNumber, currentSeqNumber, "missing log with sequence number " + (lastSeqNumber.longValue() + 1) + " on nodeId " + nodeId));
+	    }
+	    result.addSequenceNumber(currentSeqNumber);
+	    // We still export entries that could not be verified
+	    // TODO: It might make sense to make it configurable to export when verification fails..
+	    if (includeRecords) {
+	        result.getAuditRecords().add(auditRecordData);
+	    }
+	    return currentSeqNumber;
+	}
+
+	/**
+	 * @return at most max log entries of the range, following the given sequence number, in sequence number order
+	 * @throws DatabaseProtectionException if the integrity verification fails for one of the entries during fetch
+	 */
+	@SuppressWarnings("unchecked")
+	private List<AuditRecordData> selectAuditLogRange(final AuditLogVerificationRange range, final Date timestamp, final long afterSeqNumber, final int max)
+	        throws DatabaseProtectionException {
+	    final Query query = entityManager.createQuery("SELECT a FROM AuditRecordData a WHERE a.nodeId=:nodeId AND a.timeStamp<=:timeStamp"
+	            + " AND a.sequenceNumber>:afterSeqNumber AND a.sequenceNumber<=:lastSeqNumber ORDER BY a.sequenceNumber ASC");
+	    query.setParameter("nodeId", range.getNodeId());
+	    query.setParameter("timeStamp", timestamp.getTime());
+	    query.setParameter("afterSeqNumber", afterSeqNumber);
+	    query.setParameter("lastSeqNumber", range.getLastSequenceNumber());
+	    query.setMaxResults(max);
+	    return query.getResultList();
+	}
+
 	/** Log the outcome of the verification to the secure audit log based on the supplied number of errors. */
 	private void logVerificationResult(final int errors, final Date timestamp, final AuthenticationToken token) {
     	final Map<String, Object> details = new LinkedHashMap<String, Object>();
@@ -328,12 +471,59 @@ public class IntegrityProtectedAuditorSessionBean implements IntegrityProtectedA
         }
         return query;
     }
-    
-    /** Class used internally for holding an object that can updated by a method. */
-    private class Holder<T> {
-    	private T object;
-    	Holder(final T object) { set(object); }
-		public void set(final T object) { this.object = object; }
-		public T get() { return object; }
+
+    /** Splits the log of each node into ranges of sequence numbers, starting after what has already been verified. */
+    private static class RangeIterator implements Iterator<AuditLogVerificationRange> {
+        private final Iterator<AuditLogVerificationRange> nodeRanges;
+        private final long rangeSize;
+        private final long totalCount;
+        private long nextCount = 0;
+        private AuditLogVerificationRange nodeRange = null;
+        private long nextSeqNumber;
+
+        RangeIterator(final List<AuditLogVerificationRange> nodeRanges, final AuditLogVerificationProgress progress, final long rangeSize) {
+            final List<AuditLogVerificationRange> remainingNodeRanges = new ArrayList<>();
+            long count = 0;
+            for (final AuditLogVerificationRange nodeRange : nodeRanges) {
+                final long first = progress.containsNode(nodeRange.getNodeId()) ? progress.getLastSequenceNumber(nodeRange.getNodeId()) + 1 : nodeRange.getFirstSequenceNumber();
+                if (first <= nodeRange.getLastSequenceNumber()) {
+                    remainingNodeRanges.add(new AuditLogVerificationRange(nodeRange.getNodeId(), first, nodeRange.getLastSequenceNumber()));
+                    count += (nodeRange.getLastSequenceNumber() - first) / rangeSize + 1;
+                }
+            }
+            this.nodeRanges = remainingNodeRanges.iterator();
+            this.rangeSize = rangeSize;
+            this.totalCount = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (nodeRange != null && nextSeqNumber <= nodeRange.getLastSequenceNumber()) || nodeRanges.hasNext();
+        }
+
+        @Override
+        public AuditLogVerificationRange next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nodeRange == null || nextSeqNumber > nodeRange.getLastSequenceNumber()) {
+                nodeRange = nodeRanges.next();
+                nextSeqNumber = nodeRange.getFirstSequenceNumber();
+            }
+            final long last = Math.min(nodeRange.getLastSequenceNumber(), nextSeqNumber + rangeSize - 1);
+            final AuditLogVerificationRange range = new AuditLogVerificationRange(nodeRange.getNodeId(), nextSeqNumber, last);
+            nextSeqNumber = last + 1;
+            nextCount++;
+            return range;
+        }
+
+        long getTotalCount() {
+            return totalCount;
+        }
+
+        /** @return the number of ranges that have been processed, given the number still being verified */
+        long getCompletedCount(final int pendingCount) {
+            return nextCount - pendingCount;
+        }
     }
 }
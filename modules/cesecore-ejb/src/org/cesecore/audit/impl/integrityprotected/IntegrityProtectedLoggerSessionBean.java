@@ -14,8 +14,11 @@ package org.cesecore.audit.impl.integrityprotected;
 
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
@@ -51,6 +54,8 @@ public class IntegrityProtectedLoggerSessionBean implements IntegrityProtectedLo
 
     @PersistenceContext(unitName = CesecoreConfiguration.PERSISTENCE_UNIT)
     private EntityManager entityManager;
+    @EJB
+    private AuditRecordGroupCommitterBean groupCommitter;
 
     @PostConstruct
     public void postConstruct() {
@@ -100,7 +105,11 @@ public class IntegrityProtectedLoggerSessionBean implements IntegrityProtectedLo
             }
             final AuditRecordData auditRecordData = new AuditRecordData(nodeId, sequenceNumber, timeStamp, eventType, eventStatus, authToken,
                     service, module, customId, searchDetail1, searchDetail2, additionalDetails);
-            entityManager.persist(auditRecordData);
+            if (!CesecoreConfiguration.isAuditGroupCommitEnabled() || !submitToGroupCommit(auditRecordData)) {
+                entityManager.persist(auditRecordData);
+            }
+        } catch (AuditRecordStorageException e) {
+            throw e;
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw new AuditRecordStorageException(e.getMessage(), e);
@@ -110,4 +119,29 @@ public class IntegrityProtectedLoggerSessionBean implements IntegrityProtectedLo
             }
         }
     }
+
+    /**
+     * Protects the record in this thread and queues it for the writer, waiting for it to be committed in strict mode.
+     *
+     * @return false if the writer is not running, for example during undeployment, and the record should be persisted in this transaction
+     */
+    private boolean submitToGroupCommit(final AuditRecordData auditRecordData) throws Exception {
+        auditRecordData.protectInAdvance();
+        try {
+            final Future<Void> written = groupCommitter.submit(auditRecordData);
+            if (written == null) {
+                return false;
+            }
+            if (CesecoreConfiguration.isAuditGroupCommitStrict()) {
+                written.get();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuditRecordStorageException("Interrupted while writing audit record.", e);
+        } catch (ExecutionException e) {
+            // The failure has already been logged by the writer
+            throw new AuditRecordStorageException(e.getCause().getMessage(), e.getCause());
+        }
+    }
 }
@@ -36,6 +36,7 @@ import org.cesecore.config.CesecoreConfiguration;
 import org.cesecore.internal.InternalResources;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.roles.AccessRulesHelper;
+import org.cesecore.roles.AccessRulesTrie;
 import org.cesecore.roles.management.RoleDataSessionLocal;
 import org.cesecore.roles.member.RoleMemberDataSessionLocal;
 import org.cesecore.time.TrustedTime;
@@ -136,11 +137,11 @@ public class AuthorizationSessionBean implements AuthorizationSessionLocal, Auth
 
     private boolean isAuthorized(final AuthenticationToken authenticationToken, final boolean doLogging, final String... resources) {
         try {
-            final HashMap<String, Boolean> accessRules = getAccessAvailableToAuthenticationToken(authenticationToken);
+            final AccessRulesTrie accessRules = AuthorizationCache.INSTANCE.getAuthorizationResult(authenticationToken, authorizationCacheCallback).getAccessRulesTrie();
             final Map<String, Object> details = doLogging ? new LinkedHashMap<>() : null;
             for (int i=0; i<resources.length; i++) {
                 final String resource = resources[i];
-                final boolean authorizedToResource = AccessRulesHelper.hasAccessToResource(accessRules, resource);
+                final boolean authorizedToResource = accessRules.hasAccessToResource(resource);
                 if (authorizedToResource) {
                     if (doLogging) {
                         details.put("resource"+i, resource);
@@ -37,6 +37,7 @@ import org.cesecore.certificates.certificate.CertificateStoreSessionLocal;
 import org.cesecore.certificates.certificate.certextensions.AvailableCustomCertificateExtensionsConfiguration;
 import org.cesecore.config.CesecoreConfiguration;
 import org.cesecore.configuration.GlobalConfigurationSessionLocal;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.internal.InternalResources;
 import org.cesecore.internal.UpgradeableDataHashMap;
 import org.cesecore.jndi.JndiConstants;
@@ -229,6 +230,7 @@ public class CaSessionBean implements CaSessionLocal, CaSessionRemote {
             final CAData caData = new CAData(cainfo.getSubjectDN(), cainfo.getName(), cainfo.getStatus(), ca);
             entityManager.persist(caData);
             caIDCache.forceCacheExpiration(); // Clear ID cache so this one will be reloaded as well.
+            CacheInvalidationBus.getInstance().publish(CaCache.NAME, ca.getCAId());
             String msg = intres.getLocalizedMessage("caadmin.addedca", ca.getCAId(), cainfo.getName(), cainfo.getStatus());
             final Map<String, Object> details = new LinkedHashMap<>();
             details.put("msg", msg);
@@ -581,6 +583,7 @@ public class CaSessionBean implements CaSessionLocal, CaSessionRemote {
             // Invalidate CA cache to refresh information
             CaCache.INSTANCE.removeEntry(caid);
             caIDCache.forceCacheExpiration(); // Clear ID cache so this one will be reloaded as well.
+            CacheInvalidationBus.getInstance().publish(CaCache.NAME, caid);
             final String detailsMsg = intres.getLocalizedMessage("caadmin.removedca", caid, cadata.getName());
             logSession.log(EventTypes.CA_DELETION, EventStatus.SUCCESS, ModuleTypes.CA, ServiceTypes.CORE,admin.toString(), String.valueOf(caid), null, null, detailsMsg);
         }
@@ -603,6 +606,7 @@ public class CaSessionBean implements CaSessionLocal, CaSessionRemote {
             int caid = cadata.getCaId();
             CaCache.INSTANCE.removeEntry(caid);
             caIDCache.forceCacheExpiration(); // Clear ID cache so this one will be reloaded as well.
+            CacheInvalidationBus.getInstance().publish(CaCache.NAME, caid);
             final String detailsMsg = intres.getLocalizedMessage("caadmin.renamedca", oldname, cadata.getCaId(), newname);
             logSession.log(EventTypes.CA_RENAMING, EventStatus.SUCCESS, ModuleTypes.CA, ServiceTypes.CORE,admin.toString(), String.valueOf(caid), null, null, detailsMsg);
         } else {
@@ -1043,6 +1047,7 @@ public class CaSessionBean implements CaSessionLocal, CaSessionRemote {
         // Since loading a CA is quite complex (populating CAInfo etc), we simple purge the cache here
         CaCache.INSTANCE.removeEntry(caId);
         caIDCache.forceCacheExpiration();
+        CacheInvalidationBus.getInstance().publish(CaCache.NAME, caId);
         return caId;
     }
 
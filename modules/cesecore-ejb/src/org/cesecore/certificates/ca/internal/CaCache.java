@@ -28,9 +28,12 @@ import org.cesecore.internal.CommonCacheBase;
 public enum CaCache implements CommonCache<CACommon> {
     INSTANCE;
 
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "CaCache";
+
     private static final org.apache.log4j.Logger log = Logger.getLogger(CaCache.class);
 
-    private final CommonCache<CACommon> caCache = new CommonCacheBase<CACommon>() {
+    private final CommonCache<CACommon> caCache = new CommonCacheBase<CACommon>(NAME) {
         @Override
         protected long getCacheTime() {
             return CesecoreConfiguration.getCacheCaTimeInCaSession();
@@ -17,8 +17,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.ejb.ConcurrencyManagement;
 import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
@@ -31,6 +33,8 @@ import javax.persistence.Query;
 
 import org.apache.log4j.Logger;
 import org.cesecore.config.CesecoreConfiguration;
+import org.cesecore.internal.CacheInvalidationBus;
+import org.cesecore.internal.CacheInvalidationEvent;
 
 /**
  * Class Holding cache variable.
@@ -68,11 +72,15 @@ public class CaIDCacheBean {
     private volatile long lastUpdate = 0;
 
     private ReentrantLock lock;
+
+    /** Reloads the cache when a CA is added, renamed or removed on another node */
+    private final Consumer<CacheInvalidationEvent> caChangeListener = event -> forceCacheExpiration();
     
     @PostConstruct
     public void initialize() {
         idNameCache = new HashMap<>();
         lock = new ReentrantLock(false);
+        CacheInvalidationBus.getInstance().addListener(CaCache.NAME, caChangeListener);
 
         try {
             updateCache(true);
@@ -83,6 +91,11 @@ public class CaIDCacheBean {
         }
     }
 
+    @PreDestroy
+    public void destroy() {
+        CacheInvalidationBus.getInstance().removeListener(CaCache.NAME, caChangeListener);
+    }
+
     /**
      * This method sets the update time back down to zero, effectively forcing the cache to be reloaded on next read. Required due to the fact that 
      * the cache can't reload until whatever transaction performing CRUD ops finishes.
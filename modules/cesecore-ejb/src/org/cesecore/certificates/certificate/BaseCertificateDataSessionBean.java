@@ -51,29 +51,66 @@ public abstract class BaseCertificateDataSessionBean {
                 log.debug("Read batch of " + incompleteCertificateDatas.size() + " RevokedCertInfo.");
             }
             for (final Object[] current : incompleteCertificateDatas) {
-                // The order of the results are defined by the SqlResultSetMapping annotation
-                final byte[] fingerprint = ((String)current[0]).getBytes();
-                final byte[] serialNumber = new BigInteger((String)current[1]).toByteArray();
-                final long expireDate = ValueExtractor.extractLongValue(current[2]);
-                final long revocationDate = ValueExtractor.extractLongValue(current[3]);
-                int revocationReason = ValueExtractor.extractIntValue(current[4]);
-                if (revocationReason == -1) {
-                    revocationReason = RevokedCertInfo.REVOCATION_REASON_REMOVEFROMCRL;
-                }
-                if (allowInvalidityDate) {
-                    Long invalidityDate = null;
-                    if (current[5] != null && ValueExtractor.extractLongValue(current[5]) != -1L){
-                        invalidityDate = ValueExtractor.extractLongValue(current[5]);
-                    }
-                    revokedCertInfos.add(new RevokedCertInfo(fingerprint, serialNumber, revocationDate, revocationReason, expireDate, invalidityDate));
-                } else {
-                    revokedCertInfos.add(new RevokedCertInfo(fingerprint, serialNumber, revocationDate, revocationReason, expireDate));
-                }
+                revokedCertInfos.add(toRevokedCertInfo(current, allowInvalidityDate));
             }
             firstResult += maxResults;
         }
         revokedCertInfos.closeForWrite();
         return revokedCertInfos;
     }
-    
+
+    /**
+     * Reads revoked certificates in batches ordered by fingerprint, where each batch starts after the last fingerprint of the previous one.
+     * Unlike batches read by offset, the database does not have to skip all earlier rows for each batch, and rows can not be skipped or
+     * read twice when the order of rows with the same sort key is not stable.
+     *
+     * @param query query using the result set mapping RevokedCertInfoSubset, with the condition <code>a.fingerprint&gt;:lastFingerprint</code>
+     *            and ordered by fingerprint
+     * @param allowInvalidityDate true if the invalidity date should be read
+     * @return the revoked certificates
+     */
+    protected Collection<RevokedCertInfo> getRevokedCertInfosByFingerprintInternal(final Query query, final boolean allowInvalidityDate) {
+        final int maxResults = CesecoreConfiguration.getDatabaseRevokedCertInfoFetchSize();
+        query.setMaxResults(maxResults);
+        String lastFingerprint = "";
+        final CompressedCollection<RevokedCertInfo> revokedCertInfos = new CompressedCollection<>(RevokedCertInfo.class);
+        while (true) {
+            query.setParameter("lastFingerprint", lastFingerprint);
+            @SuppressWarnings("unchecked")
+            final List<Object[]> incompleteCertificateDatas = query.getResultList();
+            if (log.isDebugEnabled()) {
+                log.debug("Read batch of " + incompleteCertificateDatas.size() + " RevokedCertInfo after fingerprint '" + lastFingerprint + "'.");
+            }
+            for (final Object[] current : incompleteCertificateDatas) {
+                revokedCertInfos.add(toRevokedCertInfo(current, allowInvalidityDate));
+            }
+            if (incompleteCertificateDatas.size() < maxResults) {
+                break;
+            }
+            lastFingerprint = (String) incompleteCertificateDatas.get(incompleteCertificateDatas.size() - 1)[0];
+        }
+        revokedCertInfos.closeForWrite();
+        return revokedCertInfos;
+    }
+
+    private static RevokedCertInfo toRevokedCertInfo(final Object[] current, final boolean allowInvalidityDate) {
+        // The order of the results are defined by the SqlResultSetMapping annotation
+        final byte[] fingerprint = ((String)current[0]).getBytes();
+        final byte[] serialNumber = new BigInteger((String)current[1]).toByteArray();
+        final long expireDate = ValueExtractor.extractLongValue(current[2]);
+        final long revocationDate = ValueExtractor.extractLongValue(current[3]);
+        int revocationReason = ValueExtractor.extractIntValue(current[4]);
+        if (revocationReason == -1) {
+            revocationReason = RevokedCertInfo.REVOCATION_REASON_REMOVEFROMCRL;
+        }
+        if (allowInvalidityDate) {
+            Long invalidityDate = null;
+            if (current[5] != null && ValueExtractor.extractLongValue(current[5]) != -1L){
+                invalidityDate = ValueExtractor.extractLongValue(current[5]);
+            }
+            return new RevokedCertInfo(fingerprint, serialNumber, revocationDate, revocationReason, expireDate, invalidityDate);
+        }
+        return new RevokedCertInfo(fingerprint, serialNumber, revocationDate, revocationReason, expireDate);
+    }
+
 }
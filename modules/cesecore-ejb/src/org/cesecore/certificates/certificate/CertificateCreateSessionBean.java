@@ -33,14 +33,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 
+import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.bouncycastle.asn1.DERBitString;
@@ -65,6 +69,7 @@ import org.cesecore.authorization.control.StandardRules;
 import org.cesecore.certificate.ca.its.ECA;
 import org.cesecore.certificates.ca.CA;
 import org.cesecore.certificates.ca.CAConstants;
+import org.cesecore.certificates.ca.CAFactory;
 import org.cesecore.certificates.ca.CADoesntExistsException;
 import org.cesecore.certificates.ca.CAInfo;
 import org.cesecore.certificates.ca.CAOfflineException;
@@ -100,6 +105,7 @@ import org.cesecore.certificates.crl.RevokedCertInfo;
 import org.cesecore.certificates.endentity.EndEntityInformation;
 import org.cesecore.certificates.endentity.EndEntityTypes;
 import org.cesecore.certificates.endentity.ExtendedInformation;
+import org.cesecore.config.CesecoreConfiguration;
 import org.cesecore.configuration.LogRedactionConfigurationCache;
 import org.cesecore.configuration.GlobalConfigurationSessionLocal;
 import org.cesecore.internal.InternalResources;
@@ -152,6 +158,13 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
     @EJB
     private IncompleteIssuanceJournalDataSessionLocal incompleteIssuanceJournalDataSession;
 
+    /**
+     * Runs pre-issuance checks concurrently. This is not the pool of asynchronous EJB calls, since issuance itself can run in that pool, for
+     * example in chunks of a batch, and waiting for checks queued behind the waiting chunks would never end.
+     */
+    @Resource
+    private ManagedExecutorService preIssuanceCheckExecutor;
+
     /** Default create for SessionBean without any creation Arguments. */
     @PostConstruct
     public void postConstruct() {
@@ -402,6 +415,7 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
         if (log.isTraceEnabled()) {
             log.trace(">createCertificate(EndEntityInformation, CA, X500Name, pk, ku, notBefore, notAfter, extesions, sequence)");
         }
+        final long issuanceStart = System.nanoTime();
         
         // Even though CA is passed as an argument to this method, we do check authorization on that.
         // To make sure we properly log authorization checks needed to issue a cert.
@@ -435,20 +449,39 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
         
         final ExtendedInformation ei = endEntityInformation.getExtendedInformation();
         
+        // Start the checks that do not depend on each other. The validations can run in other threads, so they only use the validator
+        // session and their own instance of the CA. The enforcements read certificates from the database, which in other threads would
+        // not include what the transaction of the issuance has written, so they run in this thread when they are awaited.
+        final CAInfo caInfo = ca.getCAInfo();
+        // Without validators the validations return at once, so they are not worth the copies of the CA and the hops to other threads
+        final boolean parallelChecks = CesecoreConfiguration.isParallelPreIssuanceChecks() && !CollectionUtils.isEmpty(caInfo.getValidators());
+        final PreIssuanceChecks preIssuanceChecks = new PreIssuanceChecks(parallelChecks ? this::submitPreIssuanceCheck : null);
+        final KeyValidatorSessionLocal validatorSession = keyValidatorSession;
+        // Which public key to validate follows the criteria established in RequestAndPublicKeySelector, which is the same as used in the CA.
+        final PublicKey selectedPublicKey = new RequestAndPublicKeySelector(request, pk, ei).getPublicKey();
+        final CA keyValidationCa = parallelChecks ? (CA) CAFactory.INSTANCE.getCopy(ca) : ca;
+        preIssuanceChecks.add(IssuanceStage.KEY_VALIDATION, () -> {
+            try {
+                validatorSession.validatePublicKey(admin, keyValidationCa, endEntityInformation, certProfile, notBefore, notAfter, selectedPublicKey);
+            } catch (ValidationException e) {
+                throw new CertificateCreateException(ErrorCode.ILLEGAL_KEY, e);
+            }
+        });
+        final CA dnsValidationCa = parallelChecks ? (CA) CAFactory.INSTANCE.getCopy(ca) : ca;
+        preIssuanceChecks.add(IssuanceStage.DNS_VALIDATION, () -> {
+            try {
+                validatorSession.validateDnsNames(admin, IssuancePhase.DATA_VALIDATION, dnsValidationCa, endEntityInformation, request);
+            } catch (ValidationException e) {
+                throw new CertificateCreateException(e.getErrorCode(), e.getLocalizedMessage());
+            }
+        });
+        preIssuanceChecks.addInCallerThread(IssuanceStage.SUBJECT_DN_ENFORCEMENT, () -> assertSubjectEnforcements(caInfo, endEntityInformation));
+        preIssuanceChecks.addInCallerThread(IssuanceStage.SUBJECT_KEY_ID_ENFORCEMENT, () -> assertSubjectKeyIdEnforcements(caInfo, endEntityInformation, pk));
+        preIssuanceChecks.addInCallerThread(IssuanceStage.KEY_RENEWAL_ENFORCEMENT,
+                () -> assertSubjectKeyIdRenewalEnforcement(caInfo, endEntityInformation, pk));
+
         // Validate ValidatorPhase.DATA_VALIDATION
-        try {
-            // Which public key to validate follows the criteria established in RequestAndPublicKeySelector, which is the same as used in the CA.
-            final RequestAndPublicKeySelector pkSelector = new RequestAndPublicKeySelector(request, pk, ei);
-            keyValidatorSession.validatePublicKey(admin, ca, endEntityInformation, certProfile, notBefore, notAfter,
-                    pkSelector.getPublicKey());
-        } catch(ValidationException e) {
-            throw new CertificateCreateException(ErrorCode.ILLEGAL_KEY, e);
-        }
-        try {
-            keyValidatorSession.validateDnsNames(admin, IssuancePhase.DATA_VALIDATION, ca, endEntityInformation, request);
-        } catch (ValidationException e) {
-            throw new CertificateCreateException(e.getErrorCode(), e.getLocalizedMessage());
-        }
+        preIssuanceChecks.await(IssuanceStage.KEY_VALIDATION, IssuanceStage.DNS_VALIDATION);
         
         // Set up audit logging of CT pre-certificate
         addCTLoggingCallback(certGenParams, admin.toString());
@@ -484,9 +517,8 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
                 throw new CertificateCreateException(ErrorCode.INTERNAL_ERROR, msg);
             }
             
-            assertSubjectEnforcements(ca.getCAInfo(), endEntityInformation);
-            assertSubjectKeyIdEnforcements(ca.getCAInfo(), endEntityInformation, pk);
-            assertSubjectKeyIdRenewalEnforcement(ca.getCAInfo(), endEntityInformation, pk);
+            preIssuanceChecks.await(IssuanceStage.SUBJECT_DN_ENFORCEMENT, IssuanceStage.SUBJECT_KEY_ID_ENFORCEMENT,
+                    IssuanceStage.KEY_RENEWAL_ENFORCEMENT);
 
             //certProfile.verifyKey(pk); Verifying the public key against certificate profile is going to be executed in *CA.generateCertificate
 
@@ -498,9 +530,11 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
             {
                 useCustomSN = ei != null && ei.certificateSerialNumber() != null;
             }
+            // Known since startup, so read it once instead of for each try
+            final boolean uniqueSernoIndex = isUniqueCertificateSerialNumberIndex();
             final int maxRetrys;
             if (useCustomSN) {
-                if (ca.isUseCertificateStorage() && !isUniqueCertificateSerialNumberIndex()) {
+                if (ca.isUseCertificateStorage() && !uniqueSernoIndex) {
                     final String msg = intres.getLocalizedMessage("createcert.not_unique_certserialnumberindex");
                     log.error(msg);
                     throw new CustomCertificateSerialNumberException(msg);
@@ -565,6 +599,7 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
                 certGenParams.setCertificateValidationDomainService(keyValidatorSession);
                 
                 // Validate ValidatorPhase.PRE_CERTIFICATE_VALIDATION (X.509 CA only)
+                final long generationStart = System.nanoTime();
                 try {
                     cert = ca.generateCertificate(cryptoToken, endEntityInformation, request, pk, keyusage, notBefore, notAfter, certProfile, extensions, sequence, certGenParams, cceConfig);
                 } catch (CertificateCreateException e) {
@@ -582,16 +617,21 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
                         // If not CTLogException --> business as usual.
                         throw e;
                     }
+                } finally {
+                    IssuanceStatistics.INSTANCE.record(IssuanceStage.CERTIFICATE_GENERATION, System.nanoTime() - generationStart);
                 }
                 // Set null required here?
                 certGenParams.setCertificateValidationDomainService(null);
                 
                 // Validate ValidatorPhase.CERTIFICATE_VALIDATION (X.509 CA only)
                 if (CAInfo.CATYPE_X509 == ca.getCAType()) {
+                    final long validationStart = System.nanoTime();
                     try {
                         keyValidatorSession.validateCertificate(admin, IssuancePhase.CERTIFICATE_VALIDATION, ca, endEntityInformation, (X509Certificate) cert);
                     } catch (ValidationException e) {
                         throw new CertificateCreateException(ErrorCode.INVALID_CERTIFICATE, e);
+                    } finally {
+                        IssuanceStatistics.INSTANCE.record(IssuanceStage.CERTIFICATE_VALIDATION, System.nanoTime() - validationStart);
                     }
                 }
                 
@@ -628,12 +668,13 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
                 }
                 try {
                     // Remember for CVC serialNo can be alphanumeric, so we can't just try to decode that using normal Java means (BigInteger.valueOf)...
-                    assertSerialNumberForIssuerOk(ca, CertTools.getSerialNumber(cert));
+                    assertSerialNumberForIssuerOk(ca, CertTools.getSerialNumber(cert), uniqueSernoIndex);
                     // Tag is reserved for future use, currently only null
                     String tag = null;
                     
                     // Authorization was already checked by since this is a private method, the CA parameter should
                     // not be possible to get without authorization
+                    final long storageStart = System.nanoTime();
                     if (ctLogException == null) {
                         result = certificateStoreSession.storeCertificateNoAuth(admin, cert, endEntityInformation.getUsername(), cafingerprint, certificateRequest, 
                                 CertificateConstants.CERT_ACTIVE, certProfile.getType(), certProfileId, endEntityInformation.getEndEntityProfileId(),
@@ -645,6 +686,7 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
                                 CertificateConstants.CERT_ACTIVE, certProfile.getType(), certProfileId, endEntityInformation.getEndEntityProfileId(),
                                 crlPartitionIndex, tag, updateTime, accountBindingId);
                     }
+                    IssuanceStatistics.INSTANCE.record(IssuanceStage.CERTIFICATE_STORAGE, System.nanoTime() - storageStart);
                     storeEx = null;
                     break;
                 } catch (CertificateSerialNumberException e) {
@@ -725,6 +767,7 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
             logSession.log(EventTypes.CERT_CREATION, EventStatus.SUCCESS, ModuleTypes.CERTIFICATE, ServiceTypes.CORE, admin.toString(), String.valueOf(ca.getCAId()), serialNo, endEntityInformation.getUsername(),
             		issuedetails);
 
+            IssuanceStatistics.INSTANCE.record(IssuanceStage.TOTAL, System.nanoTime() - issuanceStart);
             if (log.isTraceEnabled()) {
                 log.trace("<createCertificate(EndEntityInformation, CA, X500Name, pk, ku, notBefore, notAfter, extesions, sequence)");
             }
@@ -754,9 +797,19 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
             auditFailure(admin, LogRedactionUtils.getRedactedException(e, endEntityInformation.getEndEntityProfileId()), null, "<createCertificate(EndEntityInformation, CA, X500Name, pk, ku, notBefore, notAfter, extesions, sequence)", ca.getCAId(), endEntityInformation.getUsername());
             // Rollback
             throw new CertificateCreateException(LogRedactionUtils.getRedactedException(e, endEntityInformation.getEndEntityProfileId()));
+        } finally {
+            preIssuanceChecks.cancelRemaining();
         }
     }
 
+    /** Starts a pre-issuance check in a thread of the container. An exception thrown by the check is delivered by Future.get(). */
+    private Future<Void> submitPreIssuanceCheck(final IssuanceStage stage, final PreIssuanceCheck check) {
+        return preIssuanceCheckExecutor.submit(() -> {
+            PreIssuanceChecks.runAndRecord(stage, check);
+            return null;
+        });
+    }
+
     private String getCsrFromExtendedInformation(final ExtendedInformation ei) {
         return (ei != null && ei.getCertificateRequest() != null) ? new String(Base64.encode(ei.getCertificateRequest()), StandardCharsets.UTF_8) : "";
     }
@@ -890,10 +943,12 @@ public class CertificateCreateSessionBean implements CertificateCreateSessionLoc
     }
 
     /** When no unique index is present in the database, we still try to enforce X.509 serial number per CA uniqueness.
+     * When there is a unique index, the certificate is stored without looking for the serial number first, and the database rejects a duplicate.
+     * @param uniqueSernoIndex true if there is a unique index on issuer and serial number in the database
      * @throws CertificateSerialNumberException if serial number already exists in database
      */
-    private void assertSerialNumberForIssuerOk(final CA ca, final BigInteger serialNumber) throws CertificateSerialNumberException {
-        if (ca.getCAType()==CAInfo.CATYPE_X509 && !isUniqueCertificateSerialNumberIndex()) {
+    private void assertSerialNumberForIssuerOk(final CA ca, final BigInteger serialNumber, final boolean uniqueSernoIndex) throws CertificateSerialNumberException {
+        if (ca.getCAType()==CAInfo.CATYPE_X509 && !uniqueSernoIndex) {
             final String caSubjectDN = CertTools.getSubjectDN(ca.getCACertificate());       
             if (certificateStoreSession.existsByIssuerAndSerno(caSubjectDN, serialNumber)) {
                 final String msg = intres.getLocalizedMessage("createcert.cert_serial_number_already_in_database", serialNumber.toString());
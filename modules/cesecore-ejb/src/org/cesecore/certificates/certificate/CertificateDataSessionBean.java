@@ -32,6 +32,7 @@ import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import java.math.BigInteger;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
@@ -56,6 +57,13 @@ public class CertificateDataSessionBean extends BaseCertificateDataSessionBean i
             + "a.username as username, a.tag as tag, a.certificateProfileId as certificateProfileId, a.endEntityProfileId as endEntityProfileId, a.updateTime as updateTime, "
             + "a.subjectKeyId as subjectKeyId, a.subjectAltName as subjectAltName, a.accountBindingId as accountBindingId FROM CertificateData a ";
 
+    /**
+     * Seeks past the position of a {@link CertificateExpirationCursor}, and orders the rows so the last row of a page is the position of the
+     * next one. The redundant range on expireDate lets the database use an index on (expireDate, fingerprint) as a range scan.
+     */
+    private static final String EXPIRATION_CURSOR_CONDITION = "a.expireDate>=:afterExpireDate"
+            + " AND (a.expireDate>:afterExpireDate OR a.fingerprint>:afterFingerprint) ORDER BY a.expireDate ASC, a.fingerprint ASC";
+
     @PersistenceContext(unitName = CesecoreConfiguration.PERSISTENCE_UNIT)
     private EntityManager entityManager;
 
@@ -262,18 +270,14 @@ public class CertificateDataSessionBean extends BaseCertificateDataSessionBean i
                     ", Allow Invalidity Date: " + allowInvalidityDate);
         }
         final String crlPartitionExpression;
-        final String ordering;
+        // Batches are read in fingerprint order, each starting after the last fingerprint of the previous batch
+        final String ordering = " AND a.fingerprint>:lastFingerprint ORDER BY a.fingerprint ASC";
         final Query query;
         if (crlPartitionIndex != 0) {
             crlPartitionExpression = " AND crlPartitionIndex = :crlPartitionIndex";
         } else {
             crlPartitionExpression = " AND (crlPartitionIndex = :crlPartitionIndex OR crlPartitionIndex IS NULL)";
         }
-        if (CesecoreConfiguration.getDatabaseRevokedCertInfoFetchOrdered()) {
-            ordering = " ORDER BY revocationDate, fingerprint ASC";
-        } else {
-            ordering = "";
-        }
         if (allowInvalidityDate && deltaCrl) {
             // For delta CRL generation with invalidityDate. Results will be filtered later. This is needed since we will need to compare the results with the revoked cert entries
             // in the last base CRL in order to figure out which certificates had their invalidity date changed since the last base CRL. We can't determine that in the query here.
@@ -310,7 +314,7 @@ public class CertificateDataSessionBean extends BaseCertificateDataSessionBean i
         }
         query.setParameter("issuerDN", issuerDN);
         query.setParameter("crlPartitionIndex", crlPartitionIndex);
-        return getRevokedCertInfosInternal(query, allowInvalidityDate);
+        return getRevokedCertInfosByFingerprintInternal(query, allowInvalidityDate);
     }
 
     @Override
@@ -337,6 +341,7 @@ public class CertificateDataSessionBean extends BaseCertificateDataSessionBean i
     }
     
     @Override
+    @Deprecated
     public List<String> findSerialNrByIssuerAndExpireDateWithLimitAndOffset(String issuerDN, long expireDate, int limit, int offset) {
         // we ignore the certificate status
         final TypedQuery<String> query = entityManager
@@ -352,7 +357,7 @@ public class CertificateDataSessionBean extends BaseCertificateDataSessionBean i
     public List<CertificateData> findByExpireDateWithLimitAndOffset(long expireDate, int maxNumberOfResults, int offset) {
         final long now = System.currentTimeMillis();
         final TypedQuery<CertificateData> query = entityManager
-                .createQuery("SELECT a FROM CertificateData a WHERE a.expireDate<:expireDate AND a.expireDate>=:now AND (a.status=:status1 OR a.status=:status2) order by a.expireDate asc", CertificateData.class);
+                .createQuery("SELECT a FROM CertificateData a WHERE a.expireDate<:expireDate AND a.expireDate>=:now AND (a.status=:status1 OR a.status=:status2) order by a.expireDate asc, a.fingerprint asc", CertificateData.class);
         query.setParameter("expireDate", expireDate);
         query.setParameter("now", now);
         query.setParameter("status1", CertificateConstants.CERT_ACTIVE);
@@ -465,6 +470,54 @@ public class CertificateDataSessionBean extends BaseCertificateDataSessionBean i
         return ret;
     }
 
+    @Override
+    public List<CertificateInfo> findRevokedCertificateInfosByIssuerDN(final String issuerDN) {
+        final Query query = entityManager.createNativeQuery(SELECT_QUERY_FOR_CERTIFICATEINFO_SUBSET + "WHERE a.issuerDN=:issuerDN AND (a.status=:revoked "
+                + "OR (a.status=:archived AND a.revocationReason<>:notRevoked AND a.revocationReason<>:removeFromCrl))", "CertificateInfoSubset");
+        query.setParameter("issuerDN", issuerDN);
+        query.setParameter("revoked", CertificateConstants.CERT_REVOKED);
+        query.setParameter("archived", CertificateConstants.CERT_ARCHIVED);
+        query.setParameter("notRevoked", RevokedCertInfo.NOT_REVOKED);
+        query.setParameter("removeFromCrl", RevokedCertInfo.REVOCATION_REASON_REMOVEFROMCRL);
+        return resultsToCertificateInfos(query);
+    }
+
+    @Override
+    public List<CertificateInfo> findCertificateInfosByIssuerDNUpdatedAfter(final String issuerDN, final long updateTime) {
+        final Query query = entityManager.createNativeQuery(SELECT_QUERY_FOR_CERTIFICATEINFO_SUBSET
+                + "WHERE a.issuerDN=:issuerDN AND a.updateTime>:updateTime ORDER BY a.updateTime ASC", "CertificateInfoSubset");
+        query.setParameter("issuerDN", issuerDN);
+        query.setParameter("updateTime", updateTime);
+        return resultsToCertificateInfos(query);
+    }
+
+    @Override
+    public List<CertificateInfo> findCertificateInfosByIssuerDnAndSerialNumbers(final String issuerDN, final Collection<BigInteger> serialNumbers) {
+        if (serialNumbers.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final BigInteger serno : serialNumbers) {
+            sb.append(sb.length() == 0 ? "'" : ", '");
+            sb.append(serno.toString());
+            sb.append("'");
+        }
+        final Query query = entityManager.createNativeQuery(SELECT_QUERY_FOR_CERTIFICATEINFO_SUBSET
+                + "WHERE a.issuerDN=:issuerDN AND a.serialNumber IN (" + sb.toString() + ")", "CertificateInfoSubset");
+        query.setParameter("issuerDN", issuerDN);
+        return resultsToCertificateInfos(query);
+    }
+
+    private List<CertificateInfo> resultsToCertificateInfos(final Query query) {
+        @SuppressWarnings("unchecked")
+        final List<Object[]> resultList = query.getResultList();
+        final List<CertificateInfo> ret = new ArrayList<>(resultList.size());
+        for (final Object[] fields : resultList) {
+            ret.add(resultToCertificateData(fields));
+        }
+        return ret;
+    }
+
     /**
      * Converts a result to a CertificateData. The fields must be ordered exactly as in CertificateInfoSubset
      */
@@ -574,6 +627,56 @@ public class CertificateDataSessionBean extends BaseCertificateDataSessionBean i
         return query.getResultList();
     }
 
+    @Override
+    public List<CertificateInfo> findExpirationInfo(final Collection<String> cas, final Collection<Integer> certificateProfiles,
+            final long activeNotifiedExpireDateMin, final long activeNotifiedExpireDateMax, final long activeExpireDateMin,
+            final CertificateExpirationCursor after, final int maxNumberOfResults) {
+        // Same conditions as above, but the fingerprint is unique so DISTINCT is not needed
+        final Query query = entityManager.createNativeQuery(SELECT_QUERY_FOR_CERTIFICATEINFO_SUBSET + "WHERE a.issuerDN IN (:cas) AND "
+                + (!certificateProfiles.isEmpty() ? "a.certificateProfileId IN (:certificateProfiles) AND " : "")
+                + "a.expireDate>:activeNotifiedExpireDateMin AND a.expireDate<:activeNotifiedExpireDateMax AND (a.status=:status1"
+                + " OR a.status=:status2) AND (a.expireDate>=:activeExpireDateMin OR a.status=:status3) AND " + EXPIRATION_CURSOR_CONDITION,
+                "CertificateInfoSubset");
+        query.setParameter("cas", cas);
+        if (!certificateProfiles.isEmpty()) {
+            query.setParameter("certificateProfiles", certificateProfiles);
+        }
+        query.setParameter("activeNotifiedExpireDateMin", activeNotifiedExpireDateMin);
+        query.setParameter("activeNotifiedExpireDateMax", activeNotifiedExpireDateMax);
+        query.setParameter("status1", CertificateConstants.CERT_ACTIVE);
+        query.setParameter("status2", CertificateConstants.CERT_NOTIFIEDABOUTEXPIRATION);
+        query.setParameter("activeExpireDateMin", activeExpireDateMin);
+        query.setParameter("status3", CertificateConstants.CERT_ACTIVE);
+        setExpirationCursorParameters(query, after);
+        query.setMaxResults(maxNumberOfResults);
+        return resultsToCertificateInfos(query);
+    }
+
+    @Override
+    public List<CertificateInfo> findCertificateInfosByExpireDate(final Collection<String> issuerDns, final long expireDateMin,
+            final long expireDateMax, final Collection<Integer> statuses, final CertificateExpirationCursor after, final int maxNumberOfResults) {
+        final Query query = entityManager.createNativeQuery(SELECT_QUERY_FOR_CERTIFICATEINFO_SUBSET + "WHERE "
+                + (issuerDns != null ? "a.issuerDN IN (:issuerDns) AND " : "")
+                + (statuses != null ? "a.status IN (:statuses) AND " : "")
+                + "a.expireDate>=:expireDateMin AND a.expireDate<:expireDateMax AND " + EXPIRATION_CURSOR_CONDITION, "CertificateInfoSubset");
+        if (issuerDns != null) {
+            query.setParameter("issuerDns", issuerDns);
+        }
+        if (statuses != null) {
+            query.setParameter("statuses", statuses);
+        }
+        query.setParameter("expireDateMin", expireDateMin);
+        query.setParameter("expireDateMax", expireDateMax);
+        setExpirationCursorParameters(query, after);
+        query.setMaxResults(maxNumberOfResults);
+        return resultsToCertificateInfos(query);
+    }
+
+    private void setExpirationCursorParameters(final Query query, final CertificateExpirationCursor after) {
+        query.setParameter("afterExpireDate", after.getExpireDate());
+        query.setParameter("afterFingerprint", after.getFingerprint());
+    }
+
     @Override
     public List<CertificateInfo> findOldCertificates(final Collection<String> issuerDns, final Date expiredBefore, final int maxNumberOfResults) {
         final StringBuilder sb = new StringBuilder(SELECT_QUERY_FOR_CERTIFICATEINFO_SUBSET);
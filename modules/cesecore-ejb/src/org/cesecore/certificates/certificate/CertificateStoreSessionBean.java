@@ -41,6 +41,7 @@ import org.cesecore.certificates.certificate.request.RequestMessage;
 import org.cesecore.certificates.certificateprofile.CertificateProfile;
 import org.cesecore.certificates.certificateprofile.CertificateProfileConstants;
 import org.cesecore.certificates.certificateprofile.CertificateProfileSessionLocal;
+import org.cesecore.certificates.crl.RevocationJournalDataSessionLocal;
 import org.cesecore.certificates.crl.RevocationReasons;
 import org.cesecore.certificates.crl.RevokedCertInfo;
 import org.cesecore.certificates.endentity.EndEntityConstants;
@@ -48,6 +49,7 @@ import org.cesecore.config.CesecoreConfiguration;
 import org.cesecore.config.GlobalCesecoreConfiguration;
 import org.cesecore.config.OcspConfiguration;
 import org.cesecore.configuration.GlobalConfigurationSessionLocal;
+import org.cesecore.dbprotection.ProtectedData;
 import org.cesecore.internal.InternalResources;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.keys.util.CvcKeyTools;
@@ -67,9 +69,11 @@ import javax.ejb.TimerConfig;
 import javax.ejb.TimerService;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 import java.math.BigInteger;
 import java.security.PublicKey;
 import java.security.cert.CertPathValidatorException;
@@ -83,9 +87,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -99,6 +105,8 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
     /** Internal localization of logs and errors */
     private static final InternalResources INTRES = InternalResources.getInstance();
     private static final int TIMERID_CACERTIFICATECACHE = 1;
+    /** Limits the size of the IN clause when looking up the statuses of many certificates */
+    private static final int MAX_SERIAL_NUMBERS_PER_STATUS_QUERY = 500;
 
     @PersistenceContext(unitName = CesecoreConfiguration.PERSISTENCE_UNIT)
     private EntityManager entityManager;
@@ -115,9 +123,14 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
     private GlobalConfigurationSessionLocal globalConfigurationSession;
     @EJB
     private SecurityEventsLoggerSessionLocal logSession;
+    @EJB
+    private RevocationJournalDataSessionLocal revocationJournalDataSession;
     // Myself needs to be looked up in postConstruct
     @Resource
     private SessionContext sessionContext;
+    /** Calculates the database protection of bulk updates in parallel */
+    @Resource
+    private ManagedExecutorService rowProtectionExecutor;
     private CertificateStoreSessionLocal certificateStoreSession;
     /* When the sessionContext is injected, the timerService should be looked up.
      * This is due to the Glassfish EJB verifier complaining.
@@ -265,6 +278,9 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
             certificateData.setRevocationReason(revocationReason.getDatabaseValue());
         }
         entityManager.persist(certificateData);
+        if (revocationReason != RevocationReasons.NOT_REVOKED) {
+            addToRevocationJournal(certificateData, System.currentTimeMillis());
+        }
         if (doAuditLog) {
             final String serialNo = CertTools.getSerialNumberAsString(incert);
             final String msg = INTRES.getLocalizedMessage("store.storecertwithaccountbindingid", username, certificateData.getFingerprint(), 
@@ -411,7 +427,11 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
         if (log.isTraceEnabled()) {
             log.trace(">listRevokedCertInfo()");
         }
-        return certificateDataSession.getRevokedCertInfos(CertTools.stringToBCDNString(StringTools.strip(issuerDN)), deltaCrl, crlPartitionIndex, lastBaseCrlDate, allowInvalidityDate);
+        final String bcdn = CertTools.stringToBCDNString(StringTools.strip(issuerDN));
+        if (deltaCrl && CesecoreConfiguration.isCrlRevocationJournalEnabled()) {
+            return revocationJournalDataSession.getRevokedCertInfos(bcdn, crlPartitionIndex, lastBaseCrlDate, allowInvalidityDate);
+        }
+        return certificateDataSession.getRevokedCertInfos(bcdn, deltaCrl, crlPartitionIndex, lastBaseCrlDate, allowInvalidityDate);
     }
 
     @Override
@@ -735,6 +755,21 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
         return ret;
     }
 
+    @Override
+    public List<CertificateInfo> findExpiringCertificateInfos(final Date expirationDate, final CertificateExpirationCursor after,
+            final int maxNumberOfResults) {
+        if (log.isTraceEnabled()) {
+            log.trace(">findExpiringCertificateInfos(), time=" + expirationDate + " - after=" + after + " - maxNumberOfResults=" + maxNumberOfResults);
+        }
+        final List<CertificateInfo> ret = certificateDataSession.findCertificateInfosByExpireDate(null, System.currentTimeMillis(),
+                expirationDate.getTime(), Arrays.asList(CertificateConstants.CERT_ACTIVE, CertificateConstants.CERT_NOTIFIEDABOUTEXPIRATION), after,
+                maxNumberOfResults);
+        if (log.isTraceEnabled()) {
+            log.trace("<findExpiringCertificateInfos(), found " + ret.size() + " certificates");
+        }
+        return ret;
+    }
+
     @Override
     public List<Certificate> findCertificatesByExpireTimeAndIssuerWithLimit(Date expireTime, String issuerDN, int maxNumberOfResults) {
         if (log.isTraceEnabled()) {
@@ -924,6 +959,16 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
         return certificateDataSession.findFirstCertificateInfo(CertTools.stringToBCDNString(issuerDN), serno.toString());
     }
 
+    @Override
+    public List<CertificateInfo> findRevokedCertificateInfos(final String issuerDN) {
+        return certificateDataSession.findRevokedCertificateInfosByIssuerDN(CertTools.stringToBCDNString(issuerDN));
+    }
+
+    @Override
+    public List<CertificateInfo> findCertificateInfosUpdatedAfter(final String issuerDN, final long updateTime) {
+        return certificateDataSession.findCertificateInfosByIssuerDNUpdatedAfter(CertTools.stringToBCDNString(issuerDN), updateTime);
+    }
+
     @Override
     public int getFirstStatusByIssuerAndSerno(final String issuerDN, final BigInteger serno) {
         final Query query = entityManager.createQuery("SELECT a.status FROM CertificateData a WHERE a.issuerDN=:issuerDN AND a.serialNumber=:serialNumber");
@@ -953,6 +998,7 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
     }
     
     @Override
+    @Deprecated
     public List<String> findSerialNrByIssuerAndExpireDateWithLimitAndOffset(String issuerDN, long expireDate, int limit, int offset) {
         if (log.isTraceEnabled()) {
             log.trace(">findSerialNrByIssuerAndExpireDateWithLimitAndOffset()");
@@ -963,6 +1009,21 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
         }
         return ret;
     }
+
+    @Override
+    public List<CertificateInfo> findCertificateInfosByIssuerAndExpireDate(final String issuerDN, final long expireDate,
+            final CertificateExpirationCursor after, final int limit) {
+        if (log.isTraceEnabled()) {
+            log.trace(">findCertificateInfosByIssuerAndExpireDate()");
+        }
+        // we ignore the certificate status
+        final List<CertificateInfo> ret = certificateDataSession.findCertificateInfosByExpireDate(Collections.singletonList(issuerDN), expireDate + 1,
+                Long.MAX_VALUE, null, after, limit);
+        if (log.isTraceEnabled()) {
+            log.trace("<findCertificateInfosByIssuerAndExpireDate()");
+        }
+        return ret;
+    }
     
     @Override
     public Collection<Certificate> findCertificatesByIssuerAndSernos(String issuerDN, Collection<BigInteger> sernos) {
@@ -1140,6 +1201,42 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
         return ret;
     }
 
+    @Override
+    public List<Certificate> findCertificatesByFingerprints(final List<String> fingerprints) {
+        if (fingerprints.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final TypedQuery<CertificateData> query = entityManager.createQuery("SELECT a FROM CertificateData a WHERE a.fingerprint IN (:fingerprints)",
+                CertificateData.class);
+        query.setParameter("fingerprints", fingerprints);
+        final Map<String, CertificateData> certificateDatas = new HashMap<>();
+        final List<String> separatelyStored = new ArrayList<>();
+        for (final CertificateData certificateData : query.getResultList()) {
+            certificateDatas.put(certificateData.getFingerprint(), certificateData);
+            if (StringUtils.isEmpty(certificateData.getBase64Cert())) {
+                separatelyStored.add(certificateData.getFingerprint());
+            }
+        }
+        // Certificates stored in the Base64CertData table are read with one more query
+        final Map<String, Base64CertData> base64CertDatas = new HashMap<>();
+        if (!separatelyStored.isEmpty()) {
+            for (final Base64CertData base64CertData : Base64CertData.findByFingerprints(entityManager, separatelyStored)) {
+                base64CertDatas.put(base64CertData.getFingerprint(), base64CertData);
+            }
+        }
+        final List<Certificate> ret = new ArrayList<>(fingerprints.size());
+        for (final String fingerprint : fingerprints) {
+            final CertificateData certificateData = certificateDatas.get(fingerprint);
+            final Certificate certificate = certificateData == null ? null : certificateData.getCertificate(base64CertDatas.get(fingerprint));
+            if (certificate == null) {
+                log.debug("Skipping CertificateData with fingerprint '" + fingerprint + "' since it has no stored certificate.");
+            } else {
+                ret.add(certificate);
+            }
+        }
+        return ret;
+    }
+
     @Override
     public CertificateWrapper findCertificateByFingerprintRemote(String fingerprint) {
         if (log.isTraceEnabled()) {
@@ -1326,6 +1423,7 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
             } else {
                 entityManager.merge(certificateData);
             }
+            addToRevocationJournal(certificateData, now.getTime());
         }
         if (log.isTraceEnabled()) {
             log.trace("<private setRevokeStatusNoAuth(), issuerdn=" + issuerDn + ", serno=" + serialNumber);
@@ -1333,6 +1431,14 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
         return returnVal;
     }
 
+    /** Journals the revocation status of a certificate after a change, if delta CRLs are created from the revocation journal */
+    private void addToRevocationJournal(final BaseCertificateData certificateData, final long changeTime) {
+        // NoConflictCertificateData is append-only, and is read from its own table when creating CRLs
+        if (CesecoreConfiguration.isCrlRevocationJournalEnabled() && !(certificateData instanceof NoConflictCertificateData)) {
+            revocationJournalDataSession.addToJournal(certificateData, changeTime);
+        }
+    }
+
     @Override
     @TransactionAttribute(TransactionAttributeType.REQUIRED)
     public void revokeAllCertByCA(AuthenticationToken admin, String issuerdn, int reason) throws AuthorizationDeniedException {
@@ -1354,8 +1460,11 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
                 	d.setStatus(CertificateConstants.CERT_REVOKED);
                 	d.setRevocationDate(System.currentTimeMillis());
                 	d.setRevocationReason(reason);
+                	addToRevocationJournal(d, d.getRevocationDate());
                 	revoked++;
             	}
+            	// Protect the whole page in parallel, instead of one row at a time when the changes are flushed
+            	ProtectedData.protectAllInAdvance(list, rowProtectionExecutor);
             	firstResult += maxRows;
             	list = findAllNonRevokedCertificates(bcdn, firstResult, maxRows);
             }
@@ -1463,6 +1572,39 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
         return CertificateStatus.NOT_AVAILABLE;
     }
 
+    @Override
+    public Map<BigInteger, CertificateStatus> getStatuses(final String issuerDN, final Collection<BigInteger> serialNumbers) {
+        if (log.isTraceEnabled()) {
+            log.trace(">getStatuses(), dn:" + issuerDN + ", " + serialNumbers.size() + " serial numbers");
+        }
+        final Map<BigInteger, CertificateStatus> ret = new HashMap<>();
+        // First make a DN in our well-known format
+        final String dn = CertTools.stringToBCDNString(issuerDN);
+        final List<BigInteger> remaining = new ArrayList<>(new LinkedHashSet<>(serialNumbers));
+        try {
+            for (int i = 0; i < remaining.size(); i += MAX_SERIAL_NUMBERS_PER_STATUS_QUERY) {
+                final List<BigInteger> chunk = remaining.subList(i, Math.min(i + MAX_SERIAL_NUMBERS_PER_STATUS_QUERY, remaining.size()));
+                for (final CertificateInfo certificateInfo : certificateDataSession.findCertificateInfosByIssuerDnAndSerialNumbers(dn, chunk)) {
+                    final BigInteger serno = certificateInfo.getSerialNumber();
+                    if (ret.containsKey(serno)) {
+                        log.error(INTRES.getLocalizedMessage("store.errorseveralissuerserno", issuerDN, serno.toString(16)));
+                        continue;
+                    }
+                    ret.put(serno, CertificateStatusHelper.getCertificateStatus(certificateInfo));
+                }
+            }
+        } catch (Exception e) {
+            throw new EJBException(e);
+        }
+        for (final BigInteger serno : remaining) {
+            ret.putIfAbsent(serno, CertificateStatus.NOT_AVAILABLE);
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("<getStatuses() returned " + ret.size() + " statuses");
+        }
+        return ret;
+    }
+
     @Override
     public CertificateStatusHolder getCertificateAndStatus(String issuerDN, BigInteger serno) {
         if (log.isTraceEnabled()) {
@@ -1496,6 +1638,14 @@ public class CertificateStoreSessionBean implements CertificateStoreSessionRemot
                 activeExpireDateMin);
     }
 
+    @Override
+    public List<CertificateInfo> findExpirationInfo(final Collection<String> cas, final Collection<Integer> certificateProfiles,
+            final long activeNotifiedExpireDateMin, final long activeNotifiedExpireDateMax, final long activeExpireDateMin,
+            final CertificateExpirationCursor after, final int maxNumberOfResults) {
+        return certificateDataSession.findExpirationInfo(cas, certificateProfiles, activeNotifiedExpireDateMin, activeNotifiedExpireDateMax,
+                activeExpireDateMin, after, maxNumberOfResults);
+    }
+
     private void changeStatus(AuthenticationToken admin, CertificateData certificateData, int status) throws AuthorizationDeniedException {
         if (log.isDebugEnabled()) {
             log.debug("Set status " + status + " for certificate with fp: " + certificateData.getFingerprint());
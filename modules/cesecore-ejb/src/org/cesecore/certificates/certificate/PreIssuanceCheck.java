@@ -0,0 +1,28 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+import org.cesecore.certificates.ca.IllegalValidityException;
+
+/**
+ * A check of a certificate request that is done before the certificate is created, and that does not depend on the other checks.
+ */
+@FunctionalInterface
+interface PreIssuanceCheck {
+
+    /**
+     * @throws CertificateCreateException if the certificate must not be issued
+     * @throws IllegalValidityException if the requested validity is not valid for the CA or certificate profile
+     */
+    void check() throws CertificateCreateException, IllegalValidityException;
+}
@@ -0,0 +1,148 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.certificate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.ejb.EJBException;
+
+import org.cesecore.certificates.ca.IllegalValidityException;
+
+import com.keyfactor.ErrorCode;
+
+/**
+ * The independent checks of a certificate request that are done before the certificate is created.
+ * <p>
+ * Checks are added when all their input is known, and are awaited where their result is needed. When a submitter is given, the checks
+ * added with {@link #add} start running concurrently when they are added. Otherwise, and for checks added with {@link #addInCallerThread},
+ * each check runs when it is awaited, the same way as if it was called directly. Either way, the outcome is the same as if the checks ran
+ * one by one in the order they are awaited: the first check that fails in that order has its exception thrown, and the checks that have not
+ * been awaited yet are cancelled.
+ * <p>
+ * Checks that run concurrently run outside of the transaction of the issuance, so checks that read the database, and would not see what the
+ * transaction has written but not committed, must be added with {@link #addInCallerThread}.
+ */
+final class PreIssuanceChecks {
+
+    /** Starts a check in another thread. The check records its own time. */
+    @FunctionalInterface
+    interface Submitter {
+        Future<Void> submit(IssuanceStage stage, PreIssuanceCheck check) throws CertificateCreateException, IllegalValidityException;
+    }
+
+    private final Submitter submitter;
+    private final Map<IssuanceStage, PreIssuanceCheck> pending = new EnumMap<>(IssuanceStage.class);
+    private final Map<IssuanceStage, Future<Void>> running = new EnumMap<>(IssuanceStage.class);
+    private long nanos = 0;
+
+    /**
+     * @param submitter starts a check in another thread and records its time, or null to run the checks in the awaiting thread
+     */
+    PreIssuanceChecks(final Submitter submitter) {
+        this.submitter = submitter;
+    }
+
+    /** Adds a check that can run in another thread. It must not use the database or objects that the issuing thread uses. */
+    void add(final IssuanceStage stage, final PreIssuanceCheck check) throws CertificateCreateException, IllegalValidityException {
+        if (submitter == null) {
+            pending.put(stage, check);
+        } else {
+            running.put(stage, submitter.submit(stage, check));
+        }
+    }
+
+    /** Adds a check that runs in the awaiting thread, within its transaction. */
+    void addInCallerThread(final IssuanceStage stage, final PreIssuanceCheck check) {
+        pending.put(stage, check);
+    }
+
+    /**
+     * Waits for the checks of the given stages in order, or runs them if they are not running already.
+     *
+     * @throws CertificateCreateException the exception of the first check that failed, after the remaining checks have been cancelled
+     */
+    void await(final IssuanceStage... stages) throws CertificateCreateException, IllegalValidityException {
+        final long start = System.nanoTime();
+        try {
+            for (final IssuanceStage stage : stages) {
+                final PreIssuanceCheck check = pending.remove(stage);
+                if (check != null) {
+                    runAndRecord(stage, check);
+                }
+                final Future<Void> future = running.remove(stage);
+                if (future != null) {
+                    getResult(future);
+                }
+            }
+        } catch (CertificateCreateException | IllegalValidityException | RuntimeException e) {
+            cancelRemaining();
+            throw e;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /** Cancels the checks that have not been awaited, and records the time spent waiting for checks. Called when issuance is done. */
+    void cancelRemaining() {
+        pending.clear();
+        for (final Future<Void> future : running.values()) {
+            future.cancel(false);
+        }
+        running.clear();
+        if (nanos > 0) {
+            IssuanceStatistics.INSTANCE.record(IssuanceStage.PRE_ISSUANCE_CHECKS, nanos);
+            nanos = 0;
+        }
+    }
+
+    /** Runs a check and records its time, also if it fails. */
+    static void runAndRecord(final IssuanceStage stage, final PreIssuanceCheck check) throws CertificateCreateException, IllegalValidityException {
+        final long start = System.nanoTime();
+        try {
+            check.check();
+        } finally {
+            IssuanceStatistics.INSTANCE.record(stage, System.nanoTime() - start);
+        }
+    }
+
+    private static void getResult(final Future<Void> future) throws CertificateCreateException, IllegalValidityException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CertificateCreateException(ErrorCode.INTERNAL_ERROR, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // System exceptions from the EJB calls of a check are wrapped
+            if (cause instanceof EJBException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof CertificateCreateException) {
+                throw (CertificateCreateException) cause;
+            }
+            if (cause instanceof IllegalValidityException) {
+                throw (IllegalValidityException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CertificateCreateException(ErrorCode.INTERNAL_ERROR, (Exception) cause);
+        }
+    }
+}
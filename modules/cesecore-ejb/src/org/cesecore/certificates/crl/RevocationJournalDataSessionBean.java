@@ -0,0 +1,110 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.crl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.apache.log4j.Logger;
+import org.cesecore.certificates.certificate.BaseCertificateData;
+import org.cesecore.certificates.certificate.CertificateConstants;
+import org.cesecore.config.CesecoreConfiguration;
+import org.cesecore.util.CompressedCollection;
+
+/**
+ * Data session bean for RevocationJournalData
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class RevocationJournalDataSessionBean implements RevocationJournalDataSessionLocal {
+
+    private static final Logger log = Logger.getLogger(RevocationJournalDataSessionBean.class);
+
+    @PersistenceContext(unitName = CesecoreConfiguration.PERSISTENCE_UNIT)
+    private EntityManager entityManager;
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    @Override
+    public void addToJournal(final BaseCertificateData certificateData, final long changeTime) {
+        final Integer crlPartitionIndex = certificateData.getCrlPartitionIndex();
+        if (log.isDebugEnabled()) {
+            log.debug("Adding certificate with fingerprint " + certificateData.getFingerprint() + " and revocation reason "
+                    + certificateData.getRevocationReason() + " to RevocationJournalData");
+        }
+        entityManager.persist(new RevocationJournalData(certificateData.getIssuerDN(),
+                crlPartitionIndex == null ? CertificateConstants.NO_CRL_PARTITION : crlPartitionIndex, certificateData.getFingerprint(),
+                certificateData.getSerialNumber(), changeTime, certificateData.getExpireDate(), certificateData.getRevocationDate(),
+                certificateData.getRevocationReason(), certificateData.getInvalidityDate()));
+    }
+
+    @Override
+    public Collection<RevokedCertInfo> getRevokedCertInfos(final String issuerDN, final int crlPartitionIndex, final long lastBaseCrlDate,
+            final boolean allowInvalidityDate) {
+        final TypedQuery<RevocationJournalData> query = entityManager.createQuery("SELECT a FROM RevocationJournalData a WHERE a.issuerDN=:issuerDN"
+                + " AND a.crlPartitionIndex=:crlPartitionIndex AND a.changeTime>:lastBaseCrlDate ORDER BY a.changeTime, a.id", RevocationJournalData.class);
+        query.setParameter("issuerDN", issuerDN);
+        query.setParameter("crlPartitionIndex", crlPartitionIndex);
+        query.setParameter("lastBaseCrlDate", lastBaseCrlDate);
+        final int maxResults = CesecoreConfiguration.getDatabaseRevokedCertInfoFetchSize();
+        query.setMaxResults(maxResults);
+        // Entries are read in the order they were made, so the latest change of each certificate wins
+        final Map<String, RevokedCertInfo> latestByFingerprint = new HashMap<>();
+        int firstResult = 0;
+        int entries = 0;
+        while (true) {
+            query.setFirstResult(firstResult);
+            final List<RevocationJournalData> batch = query.getResultList();
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (final RevocationJournalData journalData : batch) {
+                latestByFingerprint.put(journalData.getFingerprint(), journalData.toRevokedCertInfo(allowInvalidityDate));
+            }
+            entries += batch.size();
+            firstResult += maxResults;
+        }
+        final CompressedCollection<RevokedCertInfo> revokedCertInfos = new CompressedCollection<>(RevokedCertInfo.class);
+        revokedCertInfos.addAll(latestByFingerprint.values());
+        revokedCertInfos.closeForWrite();
+        if (log.isDebugEnabled()) {
+            log.debug("Read " + entries + " revocation journal entries for " + revokedCertInfos.size() + " certificates of '" + issuerDN
+                    + "', partition " + crlPartitionIndex + ".");
+        }
+        return revokedCertInfos;
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    public int removeFromJournal(final String issuerDN, final int crlPartitionIndex, final long changeTime) {
+        final Query query = entityManager.createQuery("DELETE FROM RevocationJournalData a WHERE a.issuerDN=:issuerDN"
+                + " AND a.crlPartitionIndex=:crlPartitionIndex AND a.changeTime<:changeTime");
+        query.setParameter("issuerDN", issuerDN);
+        query.setParameter("crlPartitionIndex", crlPartitionIndex);
+        query.setParameter("changeTime", changeTime);
+        final int removed = query.executeUpdate();
+        if (log.isDebugEnabled()) {
+            log.debug("Removed " + removed + " revocation journal entries of '" + issuerDN + "', partition " + crlPartitionIndex + ".");
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,160 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.apache.log4j.Logger;
+import org.cesecore.config.CesecoreConfiguration;
+import org.cesecore.internal.CacheInvalidationBus;
+import org.cesecore.internal.CacheInvalidationEvent;
+
+/**
+ * Sends cache invalidation events to the other nodes of a cluster through the CacheInvalidationData table.
+ * <p>
+ * Each node reads the table with a non-persistent interval timer. Since events become visible when the transaction that wrote them is
+ * committed, and not in the order of their change time, each read goes back by the configured overlap, and events that have already
+ * been delivered are skipped.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class CacheInvalidationSessionBean implements CacheInvalidationSessionLocal {
+
+    private static final Logger log = Logger.getLogger(CacheInvalidationSessionBean.class);
+
+    private static final String TIMER_INFO = "CacheInvalidationPoll";
+
+    /** Read position of this node, shared by the bean instances that the timer may be delivered to. */
+    private static final class PollState {
+        private static long lastPollTime;
+        private static long lastRemoveTime;
+        /** Ids of the events that have been delivered and are still within the overlap, with their change time */
+        private static final Map<String, Long> deliveredEvents = new HashMap<>();
+    }
+
+    @PersistenceContext(unitName = CesecoreConfiguration.PERSISTENCE_UNIT)
+    private EntityManager entityManager;
+
+    @Resource
+    private SessionContext sessionContext;
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    @Override
+    public void send(final CacheInvalidationEvent event) {
+        entityManager.persist(new CacheInvalidationData(event));
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    @Override
+    public void start() {
+        stop();
+        if (!CesecoreConfiguration.isCacheInvalidationEnabled()) {
+            log.info("Cluster wide cache invalidation is disabled.");
+            return;
+        }
+        synchronized (PollState.class) {
+            // Objects changed before this node started have not been cached yet
+            final long now = System.currentTimeMillis();
+            PollState.lastPollTime = now;
+            PollState.lastRemoveTime = now;
+            PollState.deliveredEvents.clear();
+        }
+        final long pollInterval = Math.max(CesecoreConfiguration.getCacheInvalidationPollInterval(), 100L);
+        sessionContext.getTimerService().createIntervalTimer(pollInterval, pollInterval, new TimerConfig(TIMER_INFO, false));
+        CacheInvalidationBus.getInstance().setTransport(sessionContext.getBusinessObject(CacheInvalidationSessionLocal.class));
+        log.info("Cluster wide cache invalidation started for node '" + CacheInvalidationBus.getInstance().getNodeId() + "', reading events every "
+                + pollInterval + " ms.");
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    @Override
+    public void stop() {
+        CacheInvalidationBus.getInstance().setTransport(null);
+        for (final Timer timer : sessionContext.getTimerService().getTimers()) {
+            try {
+                timer.cancel();
+            } catch (Exception e) {
+                log.info("Exception occured canceling timer: " + e.getMessage());
+            }
+        }
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void timeoutHandler(final Timer timer) {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            // Keep the timer, the events are read again by the next poll
+            log.warn("Failed to read cache invalidation events: " + e.getMessage());
+            if (log.isDebugEnabled()) {
+                log.debug("Failed to read cache invalidation events.", e);
+            }
+        }
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    public int removeEventsBefore(final long changeTime) {
+        final Query query = entityManager.createQuery("DELETE FROM CacheInvalidationData a WHERE a.changeTime<:changeTime");
+        query.setParameter("changeTime", changeTime);
+        final int removed = query.executeUpdate();
+        if (log.isDebugEnabled()) {
+            log.debug("Removed " + removed + " cache invalidation events.");
+        }
+        return removed;
+    }
+
+    private void poll() {
+        final CacheInvalidationBus bus = CacheInvalidationBus.getInstance();
+        final long overlap = CesecoreConfiguration.getCacheInvalidationOverlap();
+        final long retention = CesecoreConfiguration.getCacheInvalidationRetention();
+        final long now = System.currentTimeMillis();
+        synchronized (PollState.class) {
+            final long from = PollState.lastPollTime - overlap;
+            final TypedQuery<CacheInvalidationData> query = entityManager.createQuery(
+                    "SELECT a FROM CacheInvalidationData a WHERE a.changeTime>=:changeTime AND a.nodeId<>:nodeId ORDER BY a.changeTime",
+                    CacheInvalidationData.class);
+            query.setParameter("changeTime", from);
+            query.setParameter("nodeId", bus.getNodeId());
+            final List<CacheInvalidationData> rows = query.getResultList();
+            PollState.lastPollTime = now;
+            // Only forget events that are older than everything this query could have read, so none of them is delivered twice
+            PollState.deliveredEvents.values().removeIf(changeTime -> changeTime < from);
+            for (final CacheInvalidationData row : rows) {
+                if (PollState.deliveredEvents.put(row.getId(), row.getChangeTime()) == null) {
+                    bus.receive(row.toEvent());
+                }
+            }
+            if (now - PollState.lastRemoveTime > retention / 2) {
+                PollState.lastRemoveTime = now;
+                sessionContext.getBusinessObject(CacheInvalidationSessionLocal.class).removeEventsBefore(now - retention);
+            }
+        }
+    }
+}
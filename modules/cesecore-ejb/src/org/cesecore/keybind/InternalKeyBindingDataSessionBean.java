@@ -31,6 +31,7 @@ import javax.persistence.Query;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.cesecore.config.CesecoreConfiguration;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.internal.InternalResources;
 import org.cesecore.util.QueryResultWrapper;
 
@@ -193,6 +194,7 @@ public class InternalKeyBindingDataSessionBean implements InternalKeyBindingData
         internalKeyBindingData = createOrUpdateData(internalKeyBindingData);
         // Update cache with provided token (it might be active and we like keeping things active)
         InternalKeyBindingCache.INSTANCE.updateWith(internalKeyBindingId, internalKeyBindingData.getProtectString(0).hashCode(), name, internalKeyBinding);
+        CacheInvalidationBus.getInstance().publish(InternalKeyBindingCache.NAME, internalKeyBindingId);
         if (log.isDebugEnabled()) {
             log.debug("<mergeInternalKeyBinding " + internalKeyBinding.getName());
         }
@@ -203,6 +205,7 @@ public class InternalKeyBindingDataSessionBean implements InternalKeyBindingData
     public boolean removeInternalKeyBinding(final int id) {
         final boolean ret = deleteData(id);
         InternalKeyBindingCache.INSTANCE.updateWith(id, 0, null, null);
+        CacheInvalidationBus.getInstance().publish(InternalKeyBindingCache.NAME, id);
         return ret;
     }
     
@@ -29,7 +29,10 @@ import com.keyfactor.util.keys.token.CryptoToken;
 public enum CryptoTokenCache implements CommonCache<CryptoToken> {
     INSTANCE;
 
-    final private CommonCache<CryptoToken> cryptoTokenCache = new CommonCacheBase<CryptoToken>() {
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "CryptoTokenCache";
+
+    final private CommonCache<CryptoToken> cryptoTokenCache = new CommonCacheBase<CryptoToken>(NAME) {
         @Override
         protected long getCacheTime() {
             // We should never disable storage of CryptoTokens in the cache completely, since we want to keep any activation
@@ -31,6 +31,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.cesecore.certificates.certificate.CertificateStoreSessionLocal;
 import org.cesecore.config.CesecoreConfiguration;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.internal.InternalResources;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.keybind.InternalKeyBindingMgmtSessionLocal;
@@ -203,6 +204,7 @@ public class CryptoTokenSessionBean implements CryptoTokenSessionLocal, CryptoTo
             cryptoTokenData = createOrUpdateCryptoTokenData(cryptoTokenData);
             // Update cache with provided token (it might be active and we like keeping things active)
             CryptoTokenCache.INSTANCE.updateWith(cryptoTokenId, cryptoTokenData.getProtectString(0).hashCode(), tokenName, cryptoToken);
+            CacheInvalidationBus.getInstance().publish(CryptoTokenCache.NAME, cryptoTokenId);
         } else {
             if (log.isDebugEnabled()) {
                 log.debug("Not merging crypto token to database, as there are no changes to existing data: " + tokenName);
@@ -218,6 +220,7 @@ public class CryptoTokenSessionBean implements CryptoTokenSessionLocal, CryptoTo
     public boolean removeCryptoToken(final int cryptoTokenId) {
         final boolean ret = deleteCryptoTokenData(cryptoTokenId);
         CryptoTokenCache.INSTANCE.updateWith(cryptoTokenId, 0, null, null);
+        CacheInvalidationBus.getInstance().publish(CryptoTokenCache.NAME, cryptoTokenId);
         return ret;
     }
     
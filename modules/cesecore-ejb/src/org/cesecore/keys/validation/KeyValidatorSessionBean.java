@@ -59,6 +59,7 @@ import org.cesecore.certificates.certificateprofile.CertificateProfileSessionLoc
 import org.cesecore.certificates.endentity.EndEntityInformation;
 import org.cesecore.config.ExternalScriptsConfiguration;
 import org.cesecore.configuration.GlobalConfigurationSessionLocal;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.internal.InternalResources;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.profiles.ProfileData;
@@ -147,6 +148,7 @@ public class KeyValidatorSessionBean implements KeyValidatorSessionLocal, KeyVal
             profileSession.changeProfile(validator);
             // Since loading a KeyValidator is quite complex, we simple purge the cache here.
             ValidatorCache.INSTANCE.removeEntry(data.getId());
+            CacheInvalidationBus.getInstance().publish(ValidatorCache.NAME, data.getId());
             message = intres.getLocalizedMessage("validator.changed_validator", name);
             final Map<String, Object> details = new LinkedHashMap<String, Object>();
             details.put("msg", message);
@@ -185,6 +187,7 @@ public class KeyValidatorSessionBean implements KeyValidatorSessionLocal, KeyVal
         profileSession.removeProfile(data);
         // Purge the cache here.
         ValidatorCache.INSTANCE.removeEntry(data.getId());
+        CacheInvalidationBus.getInstance().publish(ValidatorCache.NAME, data.getId());
         message = intres.getLocalizedMessage("validator.removed_validator", data.getProfileName());
         final Map<String, Object> details = new LinkedHashMap<String, Object>();
         details.put("msg", message);
@@ -218,6 +221,7 @@ public class KeyValidatorSessionBean implements KeyValidatorSessionLocal, KeyVal
                 profileSession.removeProfile(data);
                 // Purge the cache here.
                 ValidatorCache.INSTANCE.removeEntry(data.getId());
+                CacheInvalidationBus.getInstance().publish(ValidatorCache.NAME, data.getId());
                 message = intres.getLocalizedMessage("validator.removed_validator", data.getProfileName());
                 final Map<String, Object> details = new LinkedHashMap<String, Object>();
                 details.put("msg", message);
@@ -301,6 +305,7 @@ public class KeyValidatorSessionBean implements KeyValidatorSessionLocal, KeyVal
                 success = true;
                 // Since loading a key validator is quite complex, we simple purge the cache here.
                 ValidatorCache.INSTANCE.removeEntry(data.getId());
+                CacheInvalidationBus.getInstance().publish(ValidatorCache.NAME, data.getId());
             }
         }
         if (success) {
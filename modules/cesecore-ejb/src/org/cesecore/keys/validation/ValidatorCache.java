@@ -27,7 +27,10 @@ import org.cesecore.internal.CommonCacheBase;
 public enum ValidatorCache implements CommonCache<Validator> {
     INSTANCE;
 
-    private final CommonCache<Validator> cache = new CommonCacheBase<Validator>() {
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "ValidatorCache";
+
+    private final CommonCache<Validator> cache = new CommonCacheBase<Validator>(NAME) {
         @Override
         protected long getCacheTime() {
             return Math.max( CesecoreConfiguration.getCacheKeyValidatorTime(), -1);
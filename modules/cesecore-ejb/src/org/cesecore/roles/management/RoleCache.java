@@ -30,7 +30,10 @@ import org.cesecore.roles.Role;
 public enum RoleCache implements CommonCache<Role> {
     INSTANCE;
 
-    private final CommonCacheBase<Role> cache = new CommonCacheBase<Role>() {
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "RoleCache";
+
+    private final CommonCacheBase<Role> cache = new CommonCacheBase<Role>(NAME) {
         @Override
         protected long getCacheTime() {
             return CesecoreConfiguration.getCacheAuthorizationTime();
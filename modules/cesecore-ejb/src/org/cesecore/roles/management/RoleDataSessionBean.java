@@ -28,6 +28,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.cesecore.authorization.cache.AccessTreeUpdateSessionLocal;
 import org.cesecore.config.CesecoreConfiguration;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.roles.Role;
 import org.cesecore.roles.RoleData;
@@ -159,6 +160,7 @@ public class RoleDataSessionBean implements RoleDataSessionLocal, RoleDataSessio
             }
         }
         RoleCache.INSTANCE.updateWith(role.getRoleId(), role.hashCode(), Role.getRoleNameFullAsCacheName(role.getNameSpace(), role.getRoleName()), role);
+        CacheInvalidationBus.getInstance().publish(RoleCache.NAME, role.getRoleId());
         // If we only created a new Role that has no members yet or the access rules did no change, the authorization would not have changed
         authorizationMightHaveChanged &= isRoleMembersPresent(role.getRoleId());
         if (authorizationMightHaveChanged) {
@@ -184,6 +186,9 @@ public class RoleDataSessionBean implements RoleDataSessionLocal, RoleDataSessio
         final Query query = entityManager.createQuery("DELETE FROM RoleData a WHERE a.id=:id");
         query.setParameter("id", roleId);
         final boolean ret = query.executeUpdate()==1;
+        if (ret) {
+            CacheInvalidationBus.getInstance().publish(RoleCache.NAME, roleId);
+        }
         if (ret && isRoleMembersPresent(roleId)) {
             accessTreeUpdateSession.signalForAccessTreeUpdate();
         }
@@ -13,15 +13,16 @@
 package org.cesecore.roles.member;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.cesecore.authentication.tokens.AuthenticationToken;
 import org.cesecore.config.CesecoreConfiguration;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.internal.CommonCache;
 import org.cesecore.internal.CommonCacheBase;
+import org.cesecore.internal.ManagedCache;
 
 /**
  * This cache saves authentication token checks. 
@@ -31,7 +32,10 @@ import org.cesecore.internal.CommonCacheBase;
 public enum AuthenticationTokenCache implements CommonCache<AuthenticationTokenCacheKey> {
     INSTANCE;
 
-    private final CommonCacheBase<AuthenticationTokenCacheKey> cache = new CommonCacheBase<AuthenticationTokenCacheKey>() {
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "AuthenticationTokenCache";
+
+    private final CommonCacheBase<AuthenticationTokenCacheKey> cache = new CommonCacheBase<AuthenticationTokenCacheKey>(NAME) {
         @Override
         protected long getCacheTime() {
             return CesecoreConfiguration.getCacheAuthorizationTime();
@@ -41,13 +45,27 @@ public enum AuthenticationTokenCache implements CommonCache<AuthenticationTokenC
             // We never purge Role unless a database select discovers a missing object.
             return 0;
         };
+        @Override
+        protected long getMaxCacheSize() {
+            // There is one entry per client, so limit the number of them. An evicted entry is just looked up again.
+            return CesecoreConfiguration.getCacheAuthenticationTokenSize();
+        }
     };
     
     /**
      * This map contains a list of RoleMember ids matched to the authentication token they match against. The rationale behind saving just the IDs 
      * is because the list might grow rather large. Any new role members created, edited or removed will invalidate its contents. 
      */
-    private final Map<AuthenticationTokenCacheKey, List<Integer>> authenticationTokenToKeyMap = new HashMap<>();
+    private final ManagedCache<AuthenticationTokenCacheKey, List<Integer>> authenticationTokenToKeyMap = ManagedCache
+            .<AuthenticationTokenCacheKey, List<Integer>>newBuilder()
+            .name("AuthenticationTokenRoleMembers")
+            .maximumSize(CesecoreConfiguration.getCacheAuthenticationTokenSize())
+            .build();
+
+    private AuthenticationTokenCache() {
+        // The role members matching a token are not known here, so any change of a role member on another node flushes the cache
+        CacheInvalidationBus.getInstance().addListener(RoleMemberCache.NAME, event -> flush());
+    }
 
     @Override
     public AuthenticationTokenCacheKey getEntry(final Integer id) {
@@ -71,7 +89,7 @@ public enum AuthenticationTokenCache implements CommonCache<AuthenticationTokenC
     public void updateWith(final int id, final int digest, final String name, final AuthenticationTokenCacheKey authenticationTokenCacheKey) {
         //Insert a cloned instance into the cache 
         cache.updateWith(id, digest, String.valueOf(digest), new AuthenticationTokenCacheKey(authenticationTokenCacheKey));
-        authenticationTokenToKeyMap.clear();
+        authenticationTokenToKeyMap.invalidateAll();
     }
 
     @Override
@@ -92,7 +110,7 @@ public enum AuthenticationTokenCache implements CommonCache<AuthenticationTokenC
     @Override
     public void flush() {
         cache.flush();
-        authenticationTokenToKeyMap.clear();
+        authenticationTokenToKeyMap.invalidateAll();
     }
     
 
@@ -116,13 +134,14 @@ public enum AuthenticationTokenCache implements CommonCache<AuthenticationTokenC
     public List<Integer> getCachedRoleMembersForAuthenticationToken(final AuthenticationToken authenticationToken) {
         AuthenticationTokenCacheKey key = new AuthenticationTokenCacheKey(authenticationToken);
         //If there exists an entry
-        if (authenticationTokenToKeyMap.containsKey(key)) {
+        final List<Integer> roleMemberIds = authenticationTokenToKeyMap.getIfPresent(key);
+        if (roleMemberIds != null) {
             //And that entry is still valid
             if (!shouldCheckForUpdates(key.hashCode())) {
-                return authenticationTokenToKeyMap.get(key);
+                return roleMemberIds;
             } else {
                 removeEntry(key.hashCode());
-                authenticationTokenToKeyMap.remove(key);
+                authenticationTokenToKeyMap.invalidate(key);
                 return null;
             }
         } else {
@@ -30,7 +30,10 @@ import org.cesecore.internal.CommonCacheBase;
 public enum RoleMemberCache implements CommonCache<RoleMember> {
     INSTANCE;
 
-    private final CommonCacheBase<RoleMember> cache = new CommonCacheBase<RoleMember>() {
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "RoleMemberCache";
+
+    private final CommonCacheBase<RoleMember> cache = new CommonCacheBase<RoleMember>(NAME) {
         @Override
         protected long getCacheTime() {
             return CesecoreConfiguration.getCacheAuthorizationTime();
@@ -34,6 +34,7 @@ import org.cesecore.authorization.cache.AccessTreeUpdateSessionLocal;
 import org.cesecore.authorization.user.AccessMatchType;
 import org.cesecore.authorization.user.AccessUserAspect;
 import org.cesecore.config.CesecoreConfiguration;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.util.ProfileID;
 
@@ -74,6 +75,7 @@ public class RoleMemberDataSessionBean implements RoleMemberDataSessionLocal, Ro
         }
         accessTreeUpdateSession.signalForAccessTreeUpdate();
         RoleMemberCache.INSTANCE.updateWith(roleMember.getId(), roleMember.hashCode(), null, roleMember);
+        CacheInvalidationBus.getInstance().publish(RoleMemberCache.NAME, roleMember.getId());
         AuthenticationTokenCache.INSTANCE.flush();
         return roleMember;
     }
@@ -147,6 +149,7 @@ public class RoleMemberDataSessionBean implements RoleMemberDataSessionLocal, Ro
             accessTreeUpdateSession.signalForAccessTreeUpdate();
             AuthenticationTokenCache.INSTANCE.flush();
             RoleMemberCache.INSTANCE.removeEntry(primaryKey);
+            CacheInvalidationBus.getInstance().publish(RoleMemberCache.NAME, primaryKey);
             return true;
         } else {
             return false;
@@ -0,0 +1,52 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.crl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of the conversion of revocation journal entries to the RevokedCertInfo objects that CRLs are created from.
+ */
+public class RevocationJournalDataUnitTest {
+
+    private static final String ISSUER_DN = "CN=RevocationJournalDataUnitTest";
+    private static final String FINGERPRINT = "0123456789abcdef0123456789abcdef01234567";
+
+    @Test
+    public void testRevokedCertificate() {
+        final RevocationJournalData journalData = new RevocationJournalData(ISSUER_DN, 0, FINGERPRINT, "1234567890", 3000L, 9000L, 2000L,
+                RevokedCertInfo.REVOCATION_REASON_KEYCOMPROMISE, 1000L);
+        final RevokedCertInfo revokedCertInfo = journalData.toRevokedCertInfo(true);
+        assertEquals(FINGERPRINT, revokedCertInfo.getCertificateFingerprint());
+        assertEquals(new BigInteger("1234567890"), revokedCertInfo.getUserCertificate());
+        assertEquals(2000L, revokedCertInfo.getRevocationDate().getTime());
+        assertEquals(9000L, revokedCertInfo.getExpireDate().getTime());
+        assertEquals(RevokedCertInfo.REVOCATION_REASON_KEYCOMPROMISE, revokedCertInfo.getReason());
+        assertEquals(1000L, revokedCertInfo.getInvalidityDate().getTime());
+        assertNull("Invalidity date should only be included when allowed.", journalData.toRevokedCertInfo(false).getInvalidityDate());
+    }
+
+    @Test
+    public void testUnrevokedCertificateIsRemovedFromCrl() {
+        final RevocationJournalData journalData = new RevocationJournalData(ISSUER_DN, 0, FINGERPRINT, "1", 3000L, 9000L, 3000L,
+                RevokedCertInfo.NOT_REVOKED, -1L);
+        final RevokedCertInfo revokedCertInfo = journalData.toRevokedCertInfo(true);
+        assertEquals(RevokedCertInfo.REVOCATION_REASON_REMOVEFROMCRL, revokedCertInfo.getReason());
+        assertNull("An unset invalidity date should not be included.", revokedCertInfo.getInvalidityDate());
+    }
+}
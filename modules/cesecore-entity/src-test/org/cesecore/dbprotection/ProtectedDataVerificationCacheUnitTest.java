@@ -0,0 +1,273 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.dbprotection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.log4j.Logger;
+import org.cesecore.config.ConfigurationHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of remembering verified rows and protecting rows in advance, using an HMAC protection implementation.
+ */
+public class ProtectedDataVerificationCacheUnitTest {
+
+    private static final Logger log = Logger.getLogger(ProtectedDataVerificationCacheUnitTest.class);
+
+    private static final String VERIFY_CACHE_SIZE = "databaseprotection.verifycache.size";
+    private static final String ENABLE_VERIFY = "databaseprotection.enableverify";
+
+    @Before
+    public void before() {
+        ConfigurationHolder.updateConfiguration(VERIFY_CACHE_SIZE, "1000");
+        ConfigurationHolder.updateConfiguration(ENABLE_VERIFY, "true");
+        ProtectedDataVerificationCache.INSTANCE.clear();
+    }
+
+    @After
+    public void after() {
+        ConfigurationHolder.updateConfiguration(VERIFY_CACHE_SIZE, "0");
+        ConfigurationHolder.updateConfiguration(ENABLE_VERIFY, "false");
+        ProtectedDataVerificationCache.INSTANCE.clear();
+    }
+
+    @Test
+    public void testUnchangedRowIsVerifiedOnce() throws DatabaseProtectionException {
+        final HmacProtection protection = new HmacProtection();
+        final TestData stored = storeRow(protection, "row1", "data");
+        final TestData read1 = readRow(protection, stored);
+        final TestData read2 = readRow(protection, stored);
+        read1.verifyData();
+        read2.verifyData();
+        assertEquals("The row should only have been verified when it was read the first time.", 0, protection.verifications.get());
+    }
+
+    @Test
+    public void testChangedRowIsVerifiedAgain() throws DatabaseProtectionException {
+        final HmacProtection protection = new HmacProtection();
+        final TestData stored = storeRow(protection, "row1", "data");
+        ProtectedDataVerificationCache.INSTANCE.clear();
+        readRow(protection, stored).verifyData();
+        assertEquals(1, protection.verifications.get());
+        stored.data = "changed";
+        stored.protectData();
+        readRow(protection, stored).verifyData();
+        assertEquals("A row protected by this node should not have to be verified again.", 1, protection.verifications.get());
+        ProtectedDataVerificationCache.INSTANCE.clear();
+        readRow(protection, stored).verifyData();
+        assertEquals(2, protection.verifications.get());
+    }
+
+    @Test
+    public void testTamperedRowIsNotAccepted() throws DatabaseProtectionException {
+        final HmacProtection protection = new HmacProtection();
+        final TestData stored = storeRow(protection, "row1", "data");
+        readRow(protection, stored).verifyData();
+        final TestData tampered = readRow(protection, stored);
+        tampered.data = "tampered";
+        for (int i = 0; i < 2; i++) {
+            try {
+                tampered.verifyData();
+                fail("A tampered row should never pass verification.");
+            } catch (DatabaseProtectionException e) {
+                assertNotNull(e.getEntity());
+            }
+        }
+        assertEquals("A failed verification should not be remembered.", 2, protection.verifications.get());
+    }
+
+    @Test
+    public void testProtectAllInAdvance() throws DatabaseProtectionException {
+        final HmacProtection protection = new HmacProtection();
+        final List<TestData> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new TestData(protection, "row" + i, "data" + i));
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            ProtectedData.protectAllInAdvance(rows, executorService);
+        } finally {
+            executorService.shutdownNow();
+        }
+        for (final TestData row : rows) {
+            assertNotNull("All rows should have been protected.", row.getRowProtection());
+            assertEquals("Entities should only be used by the thread that owns them.", Collections.singleton(Thread.currentThread()), row.threads);
+        }
+        // Persisting the rows should not protect them again, unless they were changed
+        rows.get(0).data = "changed";
+        for (final TestData row : rows) {
+            row.protectData();
+        }
+        assertEquals(1, protection.protections.get());
+        ProtectedDataVerificationCache.INSTANCE.clear();
+        for (final TestData row : rows) {
+            readRow(protection, row).verifyData();
+        }
+        assertEquals("All rows should have valid protection.", 100, protection.verifications.get());
+    }
+
+    /** Prints the number of rows per second that are read with database protection off, on, and on with verified rows remembered. */
+    @Test
+    public void testVerificationThroughput() throws DatabaseProtectionException {
+        final int rowCount = 20000;
+        final HmacProtection protection = new HmacProtection();
+        final List<TestData> rows = new ArrayList<>();
+        final List<TestData> unprotectedRows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(storeRow(protection, "row" + i, "certificate data of row " + i));
+            unprotectedRows.add(new TestData(new ProtectedDataNoopImpl(), "row" + i, "certificate data of row " + i));
+        }
+        final long unprotectedRate = readAll(unprotectedRows, 3);
+        ConfigurationHolder.updateConfiguration(VERIFY_CACHE_SIZE, "0");
+        ProtectedDataVerificationCache.INSTANCE.clear();
+        final long protectedRate = readAll(rows, 3);
+        ConfigurationHolder.updateConfiguration(VERIFY_CACHE_SIZE, String.valueOf(rowCount));
+        ProtectedDataVerificationCache.INSTANCE.clear();
+        final long cachedRate = readAll(rows, 3);
+        log.info("Rows read per second with database protection off: " + unprotectedRate + ", on: " + protectedRate + ", on with verified rows remembered: "
+                + cachedRate);
+        assertEquals("Every row should only have been verified once per read when not remembered.", 3 * rowCount + rowCount,
+                protection.verifications.get());
+    }
+
+    /** @return rows per second */
+    private static long readAll(final List<TestData> rows, final int rounds) throws DatabaseProtectionException {
+        final long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (final TestData row : rows) {
+                row.verifyData();
+            }
+        }
+        final long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        return (long) rows.size() * rounds * 1000000000L / elapsedNanos;
+    }
+
+    private static TestData storeRow(final ProtectedDataImpl protection, final String id, final String data) throws DatabaseProtectionException {
+        final TestData row = new TestData(protection, id, data);
+        row.protectData();
+        return row;
+    }
+
+    /** @return a new entity with the contents of the stored row, as if read from the database */
+    private static TestData readRow(final ProtectedDataImpl protection, final TestData stored) {
+        final TestData row = new TestData(protection, stored.id, stored.data);
+        row.setRowProtection(stored.getRowProtection());
+        return row;
+    }
+
+    private static class TestData extends ProtectedData {
+        private final String id;
+        private String data;
+        private String rowProtection;
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        TestData(final ProtectedDataImpl protection, final String id, final String data) {
+            this.impl = protection;
+            this.id = id;
+            this.data = data;
+        }
+
+        @Override
+        protected String getProtectString(final int rowversion) {
+            threads.add(Thread.currentThread());
+            return new ProtectionStringBuilder().append(id).append(data).toString();
+        }
+
+        @Override
+        protected int getProtectVersion() {
+            return 1;
+        }
+
+        @Override
+        public void setRowProtection(final String rowProtection) {
+            threads.add(Thread.currentThread());
+            this.rowProtection = rowProtection;
+        }
+
+        @Override
+        public String getRowProtection() {
+            return rowProtection;
+        }
+
+        @Override
+        protected String getRowId() {
+            return id;
+        }
+
+        @Override
+        protected String getTableName() {
+            return "TestData";
+        }
+    }
+
+    /** Protects rows with HMAC-SHA256, and counts the calculations */
+    private static class HmacProtection implements ProtectedDataImpl {
+        private final AtomicInteger protections = new AtomicInteger();
+        private final AtomicInteger verifications = new AtomicInteger();
+        private final SecretKeySpec key = new SecretKeySpec("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+
+        @Override
+        public void setTableName(final String table) {
+        }
+
+        @Override
+        public void protectData(final ProtectedData obj) throws DatabaseProtectionException {
+            protections.incrementAndGet();
+            obj.setRowProtection(calculateProtection(obj));
+        }
+
+        @Override
+        public void verifyData(final ProtectedData obj) throws DatabaseProtectionException {
+            verifications.incrementAndGet();
+            if (!calculateProtection(obj).equals(obj.getRowProtection())) {
+                throw new DatabaseProtectionException("Row protection failed for " + obj.getRowId(), obj);
+            }
+        }
+
+        @Override
+        public String calculateProtection(final ProtectedData obj) throws DatabaseProtectionException {
+            try {
+                final Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return Base64.getEncoder().encodeToString(mac.doFinal(obj.getProtectString(1).getBytes(StandardCharsets.UTF_8)));
+            } catch (GeneralSecurityException e) {
+                throw new DatabaseProtectionException(e);
+            }
+        }
+
+        @Override
+        public void onDataVerificationError(final DatabaseProtectionException e) throws DatabaseProtectionException {
+            throw e;
+        }
+    }
+}
@@ -68,6 +68,8 @@ public class AuditRecordData extends ProtectedData implements Serializable, Audi
     private String additionalDetails;
     private int rowVersion = 0;
     private String rowProtection;
+    /** True when the integrity protection was calculated before the record was handed over to be persisted */
+    private transient boolean protectedInAdvance = false;
 
     public AuditRecordData() {}
     
@@ -327,7 +329,19 @@ public class AuditRecordData extends ProtectedData implements Serializable, Audi
 	@PreUpdate
 	@Override
 	protected void protectData() throws DatabaseProtectionException {
+		if (!protectedInAdvance) {
+			super.protectData();
+		}
+	}
+
+	/**
+	 * Calculates the integrity protection now, instead of when the record is persisted, which may be done later by another thread.
+	 * The record must not be changed after this call.
+	 */
+	@Override
+	public void protectInAdvance() throws DatabaseProtectionException {
 		super.protectData();
+		protectedInAdvance = true;
 	}
 	
 	@PostLoad
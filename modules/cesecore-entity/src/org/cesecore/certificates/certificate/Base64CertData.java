@@ -15,6 +15,8 @@ package org.cesecore.certificates.certificate;
 import java.io.Serializable;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
+import java.util.Collection;
+import java.util.List;
 
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
@@ -209,6 +211,14 @@ public class Base64CertData extends ProtectedData implements Serializable {
         return entityManager.find(Base64CertData.class, fingerprint);
     }
 
+    /** @return the found entity instances, in no particular order */
+    @SuppressWarnings("unchecked")
+    public static List<Base64CertData> findByFingerprints(EntityManager entityManager, Collection<String> fingerprints) {
+        final Query query = entityManager.createQuery("SELECT a FROM Base64CertData a WHERE a.fingerprint IN (:fingerprints)");
+        query.setParameter("fingerprints", fingerprints);
+        return query.getResultList();
+    }
+
     /** @return the number of entries with the given parameter */
     public static long getCount(EntityManager entityManager) {
         final Query countQuery = entityManager.createQuery("SELECT COUNT(a) FROM Base64CertData a");
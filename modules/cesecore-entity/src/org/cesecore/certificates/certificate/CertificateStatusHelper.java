@@ -40,9 +40,26 @@ public abstract class CertificateStatusHelper {
             final Integer tmp = certificateData.getCertificateProfileId();
             certProfileId = tmp != null ? tmp.intValue() : CertificateProfileConstants.CERTPROFILE_NO_PROFILE;
         }
-        final int status = certificateData.getStatus();
-        final int revReason = certificateData.getRevocationReason();
-        final long revDate = certificateData.getRevocationDate();
+        return getCertificateStatus(certificateData.getStatus(), certificateData.getRevocationReason(), certificateData.getRevocationDate(), certProfileId);
+    }
+
+    /**
+     * Same as {@link #getCertificateStatus(BaseCertificateData)}, but for certificate meta data that has been read without the certificate.
+     * The expiration date of the certificate is also set in the returned status.
+     * 
+     * @return CertificateStatus, can be compared (==) with CertificateStatus.OK, CertificateStatus.REVOKED and CertificateStatus.NOT_AVAILABLE
+     */
+    public static CertificateStatus getCertificateStatus(final CertificateInfo certificateInfo) {
+        if (certificateInfo == null) {
+            return CertificateStatus.NOT_AVAILABLE;
+        }
+        final CertificateStatus ret = getCertificateStatus(certificateInfo.getStatus(), certificateInfo.getRevocationReason(),
+                certificateInfo.getRevocationDate().getTime(), certificateInfo.getCertificateProfileId());
+        ret.setExpirationDate(certificateInfo.getExpireDate().getTime());
+        return ret;
+    }
+
+    private static CertificateStatus getCertificateStatus(final int status, final int revReason, final long revDate, final int certProfileId) {
         if (status == CertificateConstants.CERT_REVOKED) {
             return new CertificateStatus(CertificateStatus.REVOKED.toString(), revDate, revReason, certProfileId);
         }
@@ -0,0 +1,237 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.certificates.crl;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.UUID;
+
+import javax.persistence.Entity;
+import javax.persistence.PostLoad;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import org.cesecore.dbprotection.DatabaseProtectionException;
+import org.cesecore.dbprotection.ProtectedData;
+import org.cesecore.dbprotection.ProtectionStringBuilder;
+
+/**
+ * Journal of changes to the revocation status of certificates. Each row holds the revocation status of a certificate after a change,
+ * so a delta CRL can be created from the rows written since the last base CRL, instead of from a scan of CertificateData.
+ * Rows older than the previous base CRL are deleted when a new base CRL has been created.
+ */
+@Entity
+@Table(name = "RevocationJournalData")
+public class RevocationJournalData extends ProtectedData implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int LATEST_PROTECT_VERSON = 1;
+
+    private String id;
+    private String issuerDN;
+    private int crlPartitionIndex;
+    private String fingerprint;
+    private String serialNumber;
+    private long changeTime;
+    private long expireDate;
+    private long revocationDate;
+    private int revocationReason;
+    private Long invalidityDate;
+    private int rowVersion;
+    private String rowProtection;
+
+    public RevocationJournalData() { }
+
+    /**
+     * @param issuerDN normalized issuer DN of the certificate
+     * @param crlPartitionIndex CRL partition index, 0 if CRL partitioning is not used
+     * @param fingerprint fingerprint of the certificate
+     * @param serialNumber serial number of the certificate, as a decimal string
+     * @param changeTime time of the change of revocation status
+     * @param expireDate expire date of the certificate
+     * @param revocationDate revocation date of the certificate after the change
+     * @param revocationReason revocation reason after the change, {@link RevokedCertInfo#NOT_REVOKED} if the certificate was unrevoked
+     * @param invalidityDate invalidity date after the change, or null
+     */
+    public RevocationJournalData(final String issuerDN, final int crlPartitionIndex, final String fingerprint, final String serialNumber,
+            final long changeTime, final long expireDate, final long revocationDate, final int revocationReason, final Long invalidityDate) {
+        this.id = UUID.randomUUID().toString();
+        this.issuerDN = issuerDN;
+        this.crlPartitionIndex = crlPartitionIndex;
+        this.fingerprint = fingerprint;
+        this.serialNumber = serialNumber;
+        this.changeTime = changeTime;
+        this.expireDate = expireDate;
+        this.revocationDate = revocationDate;
+        this.revocationReason = revocationReason;
+        this.invalidityDate = invalidityDate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public String getIssuerDN() {
+        return issuerDN;
+    }
+
+    public void setIssuerDN(final String issuerDN) {
+        this.issuerDN = issuerDN;
+    }
+
+    public int getCrlPartitionIndex() {
+        return crlPartitionIndex;
+    }
+
+    public void setCrlPartitionIndex(final int crlPartitionIndex) {
+        this.crlPartitionIndex = crlPartitionIndex;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(final String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public void setSerialNumber(final String serialNumber) {
+        this.serialNumber = serialNumber;
+    }
+
+    public long getChangeTime() {
+        return changeTime;
+    }
+
+    public void setChangeTime(final long changeTime) {
+        this.changeTime = changeTime;
+    }
+
+    public long getExpireDate() {
+        return expireDate;
+    }
+
+    public void setExpireDate(final long expireDate) {
+        this.expireDate = expireDate;
+    }
+
+    public long getRevocationDate() {
+        return revocationDate;
+    }
+
+    public void setRevocationDate(final long revocationDate) {
+        this.revocationDate = revocationDate;
+    }
+
+    public int getRevocationReason() {
+        return revocationReason;
+    }
+
+    public void setRevocationReason(final int revocationReason) {
+        this.revocationReason = revocationReason;
+    }
+
+    public Long getInvalidityDate() {
+        return invalidityDate;
+    }
+
+    public void setInvalidityDate(final Long invalidityDate) {
+        this.invalidityDate = invalidityDate;
+    }
+
+    public int getRowVersion() {
+        return rowVersion;
+    }
+
+    public void setRowVersion(final int rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
+    @Override
+    public String getRowProtection() {
+        return rowProtection;
+    }
+
+    @Override
+    public void setRowProtection(final String rowProtection) {
+        this.rowProtection = rowProtection;
+    }
+
+    //
+    // Start Database integrity protection methods
+    //
+
+    @Transient
+    @Override
+    protected String getProtectString(final int version) {
+        // rowVersion is automatically updated by JPA, so it's not important, it is only used for optimistic locking so we will not include that in the database protection
+        return new ProtectionStringBuilder().append(getId()).append(getIssuerDN()).append(getCrlPartitionIndex()).append(getFingerprint())
+                .append(getSerialNumber()).append(getChangeTime()).append(getExpireDate()).append(getRevocationDate())
+                .append(getRevocationReason()).append(getInvalidityDate()).toString();
+    }
+
+    @Transient
+    @Override
+    protected int getProtectVersion() {
+        return LATEST_PROTECT_VERSON;
+    }
+
+    @PrePersist
+    @PreUpdate
+    @Override
+    protected void protectData() throws DatabaseProtectionException {
+        super.protectData();
+    }
+
+    @PostLoad
+    @Override
+    protected void verifyData() throws DatabaseProtectionException {
+        super.verifyData();
+    }
+
+    @Override
+    @Transient
+    protected String getRowId() {
+        return new ProtectionStringBuilder().append(getId()).toString();
+    }
+
+    //
+    // End Database integrity protection methods
+    //
+
+    /**
+     * @param allowInvalidityDate true if the invalidity date should be included
+     * @return the revocation status of this row, with an unrevoked certificate mapped to {@link RevokedCertInfo#REVOCATION_REASON_REMOVEFROMCRL}
+     *         the same way as when reading CertificateData
+     */
+    @Transient
+    public RevokedCertInfo toRevokedCertInfo(final boolean allowInvalidityDate) {
+        final int reason = revocationReason == RevokedCertInfo.NOT_REVOKED ? RevokedCertInfo.REVOCATION_REASON_REMOVEFROMCRL : revocationReason;
+        final byte[] serialNumberBytes = new BigInteger(serialNumber).toByteArray();
+        if (allowInvalidityDate) {
+            final Long invalidity = invalidityDate == null || invalidityDate == -1L ? null : invalidityDate;
+            return new RevokedCertInfo(fingerprint.getBytes(), serialNumberBytes, revocationDate, reason, expireDate, invalidity);
+        }
+        return new RevokedCertInfo(fingerprint.getBytes(), serialNumberBytes, revocationDate, reason, expireDate);
+    }
+}
@@ -0,0 +1,163 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.configuration;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import javax.persistence.Entity;
+import javax.persistence.PostLoad;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import org.cesecore.dbprotection.DatabaseProtectionException;
+import org.cesecore.dbprotection.ProtectedData;
+import org.cesecore.dbprotection.ProtectionStringBuilder;
+import org.cesecore.internal.CacheInvalidationEvent;
+
+/**
+ * Change log of cached objects, read by all nodes of a cluster to invalidate their cached copies of objects changed on other nodes.
+ * Each row is written in the same transaction as the change of the object, and rows are deleted when all nodes have had time to read them.
+ */
+@Entity
+@Table(name = "CacheInvalidationData")
+public class CacheInvalidationData extends ProtectedData implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int LATEST_PROTECT_VERSON = 1;
+
+    private String id;
+    private String cacheName;
+    private int entityId;
+    private String nodeId;
+    private long changeTime;
+    private int rowVersion;
+    private String rowProtection;
+
+    public CacheInvalidationData() { }
+
+    public CacheInvalidationData(final CacheInvalidationEvent event) {
+        this.id = UUID.randomUUID().toString();
+        this.cacheName = event.getCacheName();
+        this.entityId = event.getId();
+        this.nodeId = event.getNodeId();
+        this.changeTime = event.getTime();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public void setCacheName(final String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(final int entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(final String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public long getChangeTime() {
+        return changeTime;
+    }
+
+    public void setChangeTime(final long changeTime) {
+        this.changeTime = changeTime;
+    }
+
+    public int getRowVersion() {
+        return rowVersion;
+    }
+
+    public void setRowVersion(final int rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
+    @Override
+    public String getRowProtection() {
+        return rowProtection;
+    }
+
+    @Override
+    public void setRowProtection(final String rowProtection) {
+        this.rowProtection = rowProtection;
+    }
+
+    //
+    // Start Database integrity protection methods
+    //
+
+    @Transient
+    @Override
+    protected String getProtectString(final int version) {
+        // rowVersion is automatically updated by JPA, so it's not important, it is only used for optimistic locking so we will not include that in the database protection
+        return new ProtectionStringBuilder().append(getId()).append(getCacheName()).append(getEntityId()).append(getNodeId())
+                .append(getChangeTime()).toString();
+    }
+
+    @Transient
+    @Override
+    protected int getProtectVersion() {
+        return LATEST_PROTECT_VERSON;
+    }
+
+    @PrePersist
+    @PreUpdate
+    @Override
+    protected void protectData() throws DatabaseProtectionException {
+        super.protectData();
+    }
+
+    @PostLoad
+    @Override
+    protected void verifyData() throws DatabaseProtectionException {
+        super.verifyData();
+    }
+
+    @Override
+    @Transient
+    protected String getRowId() {
+        return new ProtectionStringBuilder().append(getId()).toString();
+    }
+
+    //
+    // End Database integrity protection methods
+    //
+
+    /** @return the event of this row */
+    @Transient
+    public CacheInvalidationEvent toEvent() {
+        return new CacheInvalidationEvent(cacheName, entityId, nodeId, changeTime);
+    }
+}
@@ -13,8 +13,16 @@
 package org.cesecore.dbprotection;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
+import org.cesecore.config.CesecoreConfiguration;
 
 
 /**
@@ -78,6 +86,12 @@ public abstract class ProtectedData {
     /** Optimization variable so we don't have to check for existence of implClass for every construction of an entity object */
     private static volatile boolean integrityExists = true;
 
+    /** Number of chunks that {@link #protectAllInAdvance(Collection, ExecutorService)} splits the entities into */
+    private static final int BATCH_PROTECTION_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** The protect string that the row protection was calculated for by {@link #protectInAdvance()}, or null */
+    private transient String protectStringProtectedInAdvance = null;
+
     /** A default constructor is needed by JPA.
      * This constructor initializes the available database integrity protection module, if any is available
      */
@@ -153,7 +167,147 @@ public abstract class ProtectedData {
      */
     protected void protectData() throws DatabaseProtectionException {
         if (impl != null) {
+            if (protectStringProtectedInAdvance != null) {
+                final boolean unchanged = protectStringProtectedInAdvance.equals(getProtectString(getProtectVersion()));
+                protectStringProtectedInAdvance = null;
+                if (unchanged) {
+                    // Protected by protectInAdvance, and not changed since
+                    return;
+                }
+            }
+            impl.protectData(this);
+            rememberAsVerified();
+        }
+    }
+
+    /**
+     * Calculates the integrity protection now, instead of when the entity is persisted or updated, which may be done later, by another thread
+     * or when many changes are flushed at once. If the entity is changed after this call, it is protected again when it is stored.
+     *
+     * @throws DatabaseProtectionException if database protection is enabled, and the audit log does not function
+     */
+    public void protectInAdvance() throws DatabaseProtectionException {
+        if (impl != null && !(impl instanceof ProtectedDataNoopImpl)) {
             impl.protectData(this);
+            protectStringProtectedInAdvance = getProtectString(getProtectVersion());
+            rememberAsVerified();
+        }
+    }
+
+    /**
+     * Calculates the integrity protection of many entities in parallel, before they are stored. Used by bulk operations, so that the
+     * protection is not calculated one row at a time when the changes are flushed to the database.
+     * <p>
+     * The entities belong to the persistence context of the calling thread, so they are only read and changed by the calling thread. The
+     * protect strings are read first, the protection of copies of them is calculated by the executor, and the results are set on the
+     * entities when all are done.
+     *
+     * @param entities entities that are about to be persisted or updated
+     * @param executorService executor to calculate the protection with, normally the managed executor of the container
+     * @throws DatabaseProtectionException if database protection is enabled, and the audit log does not function
+     */
+    public static void protectAllInAdvance(final Collection<? extends ProtectedData> entities, final ExecutorService executorService)
+            throws DatabaseProtectionException {
+        final List<ProtectedData> list = new ArrayList<>();
+        final List<ProtectStringCopy> copies = new ArrayList<>();
+        for (final ProtectedData entity : entities) {
+            if (entity.impl != null && !(entity.impl instanceof ProtectedDataNoopImpl)) {
+                list.add(entity);
+                copies.add(new ProtectStringCopy(entity));
+            }
+        }
+        if (list.isEmpty()) {
+            // Nothing to calculate without a database protection implementation
+            return;
+        }
+        final int threads = Math.min(BATCH_PROTECTION_THREADS, copies.size());
+        final int chunkSize = (copies.size() + threads - 1) / threads;
+        final List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (int i = 0; i < copies.size(); i += chunkSize) {
+            final List<ProtectStringCopy> chunk = copies.subList(i, Math.min(copies.size(), i + chunkSize));
+            tasks.add(() -> {
+                for (final ProtectStringCopy copy : chunk) {
+                    copy.calculate();
+                }
+                return null;
+            });
+        }
+        try {
+            for (final Future<Void> future : executorService.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseProtectionException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DatabaseProtectionException) {
+                throw (DatabaseProtectionException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DatabaseProtectionException(e);
+        }
+        for (int i = 0; i < list.size(); i++) {
+            final ProtectedData entity = list.get(i);
+            entity.setRowProtection(copies.get(i).rowProtection);
+            entity.protectStringProtectedInAdvance = copies.get(i).protectString;
+            entity.rememberAsVerified();
+        }
+    }
+
+    /**
+     * The protect string and identity of an entity, read by the thread that owns the entity, so that the protection can be calculated by
+     * another thread without touching the entity.
+     */
+    private static final class ProtectStringCopy extends ProtectedData {
+        private final ProtectedDataImpl protectionImpl;
+        private final String tableName;
+        private final String rowId;
+        private final int protectVersion;
+        private final String protectString;
+        private String rowProtection;
+
+        private ProtectStringCopy(final ProtectedData entity) {
+            this.protectionImpl = entity.impl;
+            this.tableName = entity.getTableName();
+            this.rowId = entity.getRowId();
+            this.protectVersion = entity.getProtectVersion();
+            this.protectString = entity.getProtectString(protectVersion);
+        }
+
+        private void calculate() throws DatabaseProtectionException {
+            rowProtection = protectionImpl.calculateProtection(this);
+        }
+
+        @Override
+        protected String getProtectString(final int rowversion) {
+            return protectString;
+        }
+
+        @Override
+        protected int getProtectVersion() {
+            return protectVersion;
+        }
+
+        @Override
+        public void setRowProtection(final String rowProtection) {
+            this.rowProtection = rowProtection;
+        }
+
+        @Override
+        public String getRowProtection() {
+            return rowProtection;
+        }
+
+        @Override
+        protected String getRowId() {
+            return rowId;
+        }
+
+        @Override
+        protected String getTableName() {
+            // Called by the constructor of the super class, before the fields are set
+            return tableName == null ? super.getTableName() : tableName;
         }
     }
 
@@ -165,12 +319,40 @@ public abstract class ProtectedData {
      */
     protected void verifyData() throws DatabaseProtectionException {
         try {
-            impl.verifyData(this);
+            if (isVerificationCached()) {
+                final byte[] contentHash = ProtectedDataVerificationCache.getContentHash(getProtectString(getProtectVersion()), getRowProtection());
+                if (ProtectedDataVerificationCache.INSTANCE.isVerified(getTableName(), getRowId(), contentHash)) {
+                    return;
+                }
+                impl.verifyData(this);
+                ProtectedDataVerificationCache.INSTANCE.setVerified(getTableName(), getRowId(), contentHash);
+            } else {
+                impl.verifyData(this);
+            }
         } catch (final DatabaseProtectionException e) {
             onDataVerificationError(e);
         }
     }
 
+    /**
+     * A row is identified in the verification cache by the contents of its latest protect string. Protect strings of new versions
+     * include the data of earlier versions, so any change to the protected data of a row gives a different content hash.
+     *
+     * @return true if verification results of this entity should be remembered by {@link ProtectedDataVerificationCache}
+     */
+    private boolean isVerificationCached() {
+        return impl != null && !(impl instanceof ProtectedDataNoopImpl) && ProtectedDataVerificationCache.INSTANCE.isEnabled() && getRowId() != null
+                && CesecoreConfiguration.useDatabaseIntegrityVerification(getTableName());
+    }
+
+    /** A row that was just protected by this node does not have to be verified when it is read again. */
+    private void rememberAsVerified() {
+        if (getRowProtection() != null && isVerificationCached()) {
+            ProtectedDataVerificationCache.INSTANCE.setVerified(getTableName(), getRowId(),
+                    ProtectedDataVerificationCache.getContentHash(getProtectString(getProtectVersion()), getRowProtection()));
+        }
+    }
+
     /** Method that calculates integrity protection of an entity, but does not store it anywhere. Used primarily to make test protection
      * in order to exercise the CryptoToken.
      * @return the calculated protection string
@@ -0,0 +1,139 @@
+/*************************************************************************
+ *                                                                       *
+ *  CESeCore: CE Security Core                                           *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.cesecore.dbprotection;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.cesecore.config.CesecoreConfiguration;
+
+/**
+ * Remembers which rows have passed database integrity verification, so that rows that are read again, and have not changed,
+ * do not have to be verified again. Verification uses an HMAC or signature, often with a key in an HSM, while checking a row
+ * here only takes a hash of its contents.
+ * <p>
+ * A row is identified by its table and row id, and remembered with a hash of its protect string and row protection. A row that
+ * is read with any other contents, including an older version of itself, does not match and is verified as usual. Only rows that
+ * passed verification, or were protected by this node, are remembered.
+ *
+ * @see CesecoreConfiguration#getDatabaseIntegrityVerificationCacheSize()
+ */
+public enum ProtectedDataVerificationCache {
+    INSTANCE;
+
+    private static final Logger log = Logger.getLogger(ProtectedDataVerificationCache.class);
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    });
+
+    private final Map<String, byte[]> verifiedRows = new ConcurrentHashMap<>();
+    /** Maximum number of remembered rows, or -1 if not read from configuration yet */
+    private volatile int maxSize = -1;
+
+    /** @return true if verified rows should be remembered */
+    public boolean isEnabled() {
+        int currentMaxSize = maxSize;
+        if (currentMaxSize < 0) {
+            currentMaxSize = Math.max(0, CesecoreConfiguration.getDatabaseIntegrityVerificationCacheSize());
+            maxSize = currentMaxSize;
+        }
+        return currentMaxSize > 0;
+    }
+
+    /**
+     * @param tableName the table of the row
+     * @param rowId the row id of the row
+     * @param contentHash the hash of the contents of the row, as returned by {@link #getContentHash(String, String)}
+     * @return true if the row has been verified with exactly these contents
+     */
+    public boolean isVerified(final String tableName, final String rowId, final byte[] contentHash) {
+        final byte[] verifiedHash = verifiedRows.get(getKey(tableName, rowId));
+        return verifiedHash != null && MessageDigest.isEqual(verifiedHash, contentHash);
+    }
+
+    /**
+     * Remembers that the row has passed verification, or has just been protected, with the given contents.
+     *
+     * @param tableName the table of the row
+     * @param rowId the row id of the row
+     * @param contentHash the hash of the contents of the row, as returned by {@link #getContentHash(String, String)}
+     */
+    public void setVerified(final String tableName, final String rowId, final byte[] contentHash) {
+        if (verifiedRows.size() >= maxSize) {
+            evict();
+        }
+        verifiedRows.put(getKey(tableName, rowId), contentHash);
+    }
+
+    /** Forgets all rows, and reads the configured size again. */
+    public void clear() {
+        verifiedRows.clear();
+        maxSize = -1;
+    }
+
+    /** @return the number of remembered rows */
+    public int size() {
+        return verifiedRows.size();
+    }
+
+    /**
+     * @param protectString the protect string of the row
+     * @param rowProtection the row protection of the row
+     * @return a SHA-256 hash of the contents of the row that are covered by the integrity protection
+     */
+    public static byte[] getContentHash(final String protectString, final String rowProtection) {
+        final MessageDigest messageDigest = DIGEST.get();
+        messageDigest.reset();
+        update(messageDigest, rowProtection);
+        update(messageDigest, protectString);
+        return messageDigest.digest();
+    }
+
+    private static void update(final MessageDigest messageDigest, final String value) {
+        if (value == null) {
+            messageDigest.update((byte) 0);
+        } else {
+            // Prefix with the length, so that the boundary between the values can not be moved
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            messageDigest.update(ByteBuffer.allocate(5).put((byte) 1).putInt(bytes.length).array());
+            messageDigest.update(bytes);
+        }
+    }
+
+    /** Removes about a tenth of the remembered rows, to make room for new ones without keeping track of access order. */
+    private void evict() {
+        final int toRemove = Math.max(1, maxSize / 10);
+        final Iterator<String> iterator = verifiedRows.keySet().iterator();
+        for (int i = 0; i < toRemove && iterator.hasNext(); i++) {
+            iterator.next();
+            iterator.remove();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Database integrity verification cache is full, removed " + toRemove + " rows.");
+        }
+    }
+
+    private static String getKey(final String tableName, final String rowId) {
+        return tableName + ";" + rowId;
+    }
+}
@@ -49,6 +49,7 @@ import org.cesecore.dbprotection.ProtectionStringBuilder;
         @NamedQuery(name = "findOcspDataById", query = "SELECT a FROM OcspResponseData a WHERE a.id = :id"),
         @NamedQuery(name = "findOcspDataBySerialNumber", query = "SELECT a FROM OcspResponseData a WHERE a.serialNumber = :serialNumber"),
         @NamedQuery(name = "findOcspDataByCaIdSerialNumber", query = "SELECT a FROM OcspResponseData a WHERE a.caId = :caId AND a.serialNumber = :serialNumber ORDER BY a.producedAt DESC"),
+        @NamedQuery(name = "findOcspDataProducedAfter", query = "SELECT a FROM OcspResponseData a WHERE a.producedAt > :producedAt OR (a.producedAt = :producedAt AND a.id > :id) ORDER BY a.producedAt ASC, a.id ASC"),
         @NamedQuery(name = "deleteOcspDataByCaId", query = "DELETE FROM OcspResponseData a WHERE a.caId = :caId"),
         @NamedQuery(name = "deleteOcspDataBySerialNumber", query = "DELETE FROM OcspResponseData a WHERE a.serialNumber = :serialNumber"),
         @NamedQuery(name = "deleteOcspDataByCaIdSerialNumber", query = "DELETE FROM OcspResponseData a WHERE a.caId = :caId AND a.serialNumber = :serialNumber"), })
@@ -85,10 +85,8 @@ import org.bouncycastle.asn1.x509.IssuingDistributionPoint;
 import org.bouncycastle.asn1.x509.KeyUsage;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
-import org.bouncycastle.cert.CertException;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.bouncycastle.cert.X509CertificateHolder;
-import org.bouncycastle.cert.X509v2CRLBuilder;
 import org.bouncycastle.cert.X509v3CertificateBuilder;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
@@ -116,8 +114,7 @@ import org.cesecore.certificates.ca.extendedservices.ExtendedCAServiceInfo;
 import org.cesecore.certificates.ca.extendedservices.ExtendedCAServiceTypes;
 import org.cesecore.certificates.ca.internal.CertificateValidity;
 import org.cesecore.certificates.ca.internal.RequestAndPublicKeySelector;
-import org.cesecore.certificates.ca.internal.SernoGenerator;
-import org.cesecore.certificates.ca.internal.SernoGeneratorRandom;
+import org.cesecore.certificates.ca.internal.SernoPool;
 import org.cesecore.certificates.certificate.CertificateConstants;
 import org.cesecore.certificates.certificate.CertificateCreateException;
 import org.cesecore.certificates.certificate.IllegalKeyException;
@@ -135,6 +132,7 @@ import org.cesecore.certificates.certificatetransparency.CTLogInfo;
 import org.cesecore.certificates.certificatetransparency.CertificateTransparency;
 import org.cesecore.certificates.certificatetransparency.CertificateTransparencyFactory;
 import org.cesecore.certificates.crl.RevokedCertInfo;
+import org.cesecore.certificates.crl.StreamingCrlBuilder;
 import org.cesecore.certificates.endentity.EndEntityInformation;
 import org.cesecore.certificates.endentity.EndEntityType;
 import org.cesecore.certificates.endentity.EndEntityTypes;
@@ -1231,7 +1229,7 @@ public class X509CAImpl extends CABase implements Serializable, X509CA {
         // Get certificate validity time notBefore and notAfter
         final CertificateValidity val = new CertificateValidity(subject, getCAInfo(), certProfile, notBefore, notAfter, cacert, isRootCA, linkCertificate);
 
-        // Serialnumber is either random bits, where random generator is initialized by the serno generator.
+        // Serialnumber is either random bits, taken from the serial number pool of the CA or generated by the serno generator.
         // Or a custom serial number defined in the end entity object
         final BigInteger serno;
         {
@@ -1240,12 +1238,10 @@ public class X509CAImpl extends CABase implements Serializable, X509CA {
                 if (ei != null && ei.certificateSerialNumber()!=null) {
                     serno = ei.certificateSerialNumber();
                 } else {
-                    SernoGenerator instance = SernoGeneratorRandom.instance(getSerialNumberOctetSize());
-                    serno = instance.getSerno();
+                    serno = SernoPool.INSTANCE.getSerno(getCAId(), getSerialNumberOctetSize());
                 }
             } else {
-                SernoGenerator instance = SernoGeneratorRandom.instance(getSerialNumberOctetSize());
-                serno = instance.getSerno();
+                serno = SernoPool.INSTANCE.getSerno(getCAId(), getSerialNumberOctetSize());
                 if ((ei != null) && (ei.certificateSerialNumber() != null)) {
                     final String msg = intres.getLocalizedMessage("createcert.certprof_not_allowing_cert_sn_override_using_normal", ei.certificateSerialNumber().toString(16));
                     log.info(msg);
@@ -2096,18 +2092,20 @@ public class X509CAImpl extends CABase implements Serializable, X509CA {
             }
         }
 
-        final X509v2CRLBuilder crlgen = new X509v2CRLBuilder(issuer, thisUpdate);
+        // Entries are encoded as they are added and streamed through the signer, so large CRLs don't need a large heap
+        final StreamingCrlBuilder crlgen = new StreamingCrlBuilder(issuer, thisUpdate);
         crlgen.setNextUpdate(nextUpdate);
         if (certs != null) {
             if (log.isDebugEnabled()) {
                 log.debug("Adding "+certs.size()+" revoked certificates to CRL. Free memory="+Runtime.getRuntime().freeMemory());
             }
-            for (final RevokedCertInfo certinfo : certs) {
-                if (certinfo.getInvalidityDate() != null) {
+            try {
+                for (final RevokedCertInfo certinfo : certs) {
                     crlgen.addCRLEntry(certinfo.getUserCertificate(), certinfo.getRevocationDate(), certinfo.getReason(), certinfo.getInvalidityDate());
-                } else {
-                    crlgen.addCRLEntry(certinfo.getUserCertificate(), certinfo.getRevocationDate(), certinfo.getReason());
                 }
+            } catch (IOException e) {
+                crlgen.close();
+                throw e;
             }
             if (log.isDebugEnabled()) {
                 log.debug("Finished adding "+certs.size()+" revoked certificates to CRL. Free memory="+Runtime.getRuntime().freeMemory());
@@ -2240,8 +2238,12 @@ public class X509CAImpl extends CABase implements Serializable, X509CA {
             final ContentSigner signer = new BufferingContentSigner(new JcaContentSignerBuilder(sigAlg).setProvider(prov).build(cryptoToken.getPrivateKey(alias)), X509CAImpl.SIGN_BUFFER_SIZE);
             crl = crlgen.build(signer);
         } catch (OperatorCreationException e) {
+            crlgen.close();
             // Very fatal error
             throw new RuntimeException("Can not create Jca content signer: ", e);
+        } catch (IOException | RuntimeException e) {
+            crlgen.close();
+            throw e;
         }
         if (log.isDebugEnabled()) {
             log.debug("Finished signing CRL. Free memory="+Runtime.getRuntime().freeMemory());
@@ -2250,21 +2252,22 @@ public class X509CAImpl extends CABase implements Serializable, X509CA {
         // Verify using the CA certificate before returning
         // If we can not verify the issued CRL using the CA certificate we don't want to issue this CRL
         // because something is wrong...
-        final PublicKey verifyKey;
-        if (cacert != null) {
-            verifyKey = cacert.getPublicKey();
-            if (log.isTraceEnabled()) {
-                log.trace("Got the verify key from the CA certificate.");
-            }
-        } else {
-            verifyKey = cryptoToken.getPublicKey(alias);
-            if (log.isTraceEnabled()) {
-                log.trace("Got the verify key from the CA token.");
-            }
-        }
         try {
+            final PublicKey verifyKey;
+            if (cacert != null) {
+                verifyKey = cacert.getPublicKey();
+                if (log.isTraceEnabled()) {
+                    log.trace("Got the verify key from the CA certificate.");
+                }
+            } else {
+                verifyKey = cryptoToken.getPublicKey(alias);
+                if (log.isTraceEnabled()) {
+                    log.trace("Got the verify key from the CA token.");
+                }
+            }
             final ContentVerifierProvider verifier = CertTools.genContentVerifierProvider(verifyKey);
-            if (!crl.isSignatureValid(verifier)) {
+            // Verify the TBSCertList as it was signed, instead of encoding the whole CRL again
+            if (!crlgen.isSignatureValid(verifier)) {
                 if (log.isTraceEnabled()) {
                     log.trace("The public key used to verify the CRL:" + System.lineSeparator() + KeyTools.getAsPem(verifyKey));
                     log.trace("The CRL whose signature could not be verified:" + System.lineSeparator() + KeyTools.getAsPem(crl));
@@ -2277,8 +2280,9 @@ public class X509CAImpl extends CABase implements Serializable, X509CA {
         } catch (OperatorCreationException e) {
             // Very fatal error
             throw new RuntimeException("Can not create Jca content signer: ", e);
-        } catch (CertException e) {
-            throw new SignatureException(e.getMessage(), e);
+        } finally {
+            // The entries are kept in the temporary file until the signature has been verified
+            crlgen.close();
         }
         if (log.isDebugEnabled()) {
             log.debug("Returning CRL. Free memory="+Runtime.getRuntime().freeMemory());
@@ -0,0 +1,148 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.protocol.crlstore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.security.KeyPair;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+
+import org.apache.log4j.Logger;
+import org.cesecore.certificates.ca.internal.CaCertificateCache;
+import org.cesecore.certificates.certificate.CertificateConstants;
+import org.cesecore.certificates.certificate.HashID;
+import org.cesecore.certificates.crl.CRLInfo;
+import org.cesecore.certificates.crl.CrlStoreSessionLocal;
+import org.easymock.EasyMock;
+import org.ejbca.core.protocol.crlstore.CRLCache.CachedCrl;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.keyfactor.util.CertTools;
+import com.keyfactor.util.CryptoProviderTools;
+import com.keyfactor.util.crypto.algorithm.AlgorithmConstants;
+import com.keyfactor.util.keys.KeyTools;
+
+/**
+ * Tests that {@link CRLCache} keeps the entity tag together with the CRL, so the fingerprint of a CRL is not computed for every request.
+ */
+public class CRLCacheUnitTest {
+
+    private static final Logger log = Logger.getLogger(CRLCacheUnitTest.class);
+
+    private static final String CA_DN = "CN=CRLCacheUnitTest";
+    private static final int PARTITION = CertificateConstants.NO_CRL_PARTITION;
+    private static final byte[] CRL_1 = { 0x30, 0x03, 0x02, 0x01, 0x01 };
+    private static final byte[] CRL_2 = { 0x30, 0x03, 0x02, 0x01, 0x02 };
+
+    private static HashID caId;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        CryptoProviderTools.installBCProviderIfNotAvailable();
+        final KeyPair keyPair = KeyTools.genKeys(AlgorithmConstants.SIGALG_ED25519, AlgorithmConstants.KEYALGORITHM_ED25519);
+        final X509Certificate caCert = CertTools.genSelfCert(CA_DN, 7, null, keyPair.getPrivate(), keyPair.getPublic(),
+                AlgorithmConstants.SIGALG_ED25519, true);
+        CaCertificateCache.INSTANCE.loadCertificates(Collections.<Certificate>singletonList(caCert));
+        caId = HashID.getFromSubjectDN(caCert);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        CaCertificateCache.INSTANCE.loadCertificates(null);
+    }
+
+    @Test
+    public void latestCrlIsReadAndHashedOnce() {
+        log.trace(">latestCrlIsReadAndHashedOnce");
+        final CrlStoreSessionLocal crlStoreSession = EasyMock.createStrictMock(CrlStoreSessionLocal.class);
+        EasyMock.expect(crlStoreSession.getLastCRLInfoLightWeight(CA_DN, PARTITION, false)).andReturn(crlInfo(1));
+        EasyMock.expect(crlStoreSession.getCRL(CA_DN, PARTITION, 1)).andReturn(CRL_1);
+        // Only the number of the latest CRL is read the second time
+        EasyMock.expect(crlStoreSession.getLastCRLInfoLightWeight(CA_DN, PARTITION, false)).andReturn(crlInfo(1));
+        EasyMock.replay(crlStoreSession);
+        final CRLCache crlCache = new CRLCache(crlStoreSession, CaCertificateCache.INSTANCE);
+        final CachedCrl first = crlCache.findByIssuerDN(caId, PARTITION, false, -1);
+        assertArrayEquals(CRL_1, first.getEncoded());
+        assertEquals("\"" + CertTools.getFingerprintAsString(CRL_1) + "\"", first.getETag());
+        assertEquals(1000L, first.getLastModified());
+        assertSame("The latest CRL should be returned from the cache, with the entity tag computed when it was read.", first,
+                crlCache.findByIssuerDN(caId, PARTITION, false, -1));
+        EasyMock.verify(crlStoreSession);
+        log.trace("<latestCrlIsReadAndHashedOnce");
+    }
+
+    @Test
+    public void newCrlReplacesCachedCrl() {
+        log.trace(">newCrlReplacesCachedCrl");
+        final CrlStoreSessionLocal crlStoreSession = EasyMock.createStrictMock(CrlStoreSessionLocal.class);
+        EasyMock.expect(crlStoreSession.getLastCRLInfoLightWeight(CA_DN, PARTITION, false)).andReturn(crlInfo(1));
+        EasyMock.expect(crlStoreSession.getCRL(CA_DN, PARTITION, 1)).andReturn(CRL_1);
+        EasyMock.expect(crlStoreSession.getLastCRLInfoLightWeight(CA_DN, PARTITION, false)).andReturn(crlInfo(2));
+        EasyMock.expect(crlStoreSession.getCRL(CA_DN, PARTITION, 2)).andReturn(CRL_2);
+        EasyMock.replay(crlStoreSession);
+        final CRLCache crlCache = new CRLCache(crlStoreSession, CaCertificateCache.INSTANCE);
+        final CachedCrl first = crlCache.findByIssuerDN(caId, PARTITION, false, -1);
+        final CachedCrl second = crlCache.findByIssuerDN(caId, PARTITION, false, -1);
+        assertEquals(2, second.getCrlNumber());
+        assertArrayEquals(CRL_2, second.getEncoded());
+        assertNotEquals("A new CRL should get a new entity tag.", first.getETag(), second.getETag());
+        EasyMock.verify(crlStoreSession);
+        log.trace("<newCrlReplacesCachedCrl");
+    }
+
+    @Test
+    public void latestCrlRequestedByNumberIsCached() {
+        log.trace(">latestCrlRequestedByNumberIsCached");
+        final CrlStoreSessionLocal crlStoreSession = EasyMock.createStrictMock(CrlStoreSessionLocal.class);
+        EasyMock.expect(crlStoreSession.getLastCRLInfoLightWeight(CA_DN, PARTITION, false)).andReturn(crlInfo(2));
+        EasyMock.expect(crlStoreSession.getCRL(CA_DN, PARTITION, 2)).andReturn(CRL_2);
+        // Only the number of the latest CRL is read the second time
+        EasyMock.expect(crlStoreSession.getLastCRLInfoLightWeight(CA_DN, PARTITION, false)).andReturn(crlInfo(2));
+        EasyMock.replay(crlStoreSession);
+        final CRLCache crlCache = new CRLCache(crlStoreSession, CaCertificateCache.INSTANCE);
+        final CachedCrl latest = crlCache.findByIssuerDN(caId, PARTITION, false, -1);
+        assertSame(latest, crlCache.findByIssuerDN(caId, PARTITION, false, 2));
+        EasyMock.verify(crlStoreSession);
+        log.trace("<latestCrlRequestedByNumberIsCached");
+    }
+
+    @Test
+    public void entityTagOfOlderCrlIsRemembered() {
+        log.trace(">entityTagOfOlderCrlIsRemembered");
+        final CrlStoreSessionLocal crlStoreSession = EasyMock.createStrictMock(CrlStoreSessionLocal.class);
+        EasyMock.expect(crlStoreSession.getLastCRLInfoLightWeight(CA_DN, PARTITION, false)).andReturn(crlInfo(2));
+        EasyMock.expect(crlStoreSession.getCRL(CA_DN, PARTITION, 1)).andReturn(CRL_1);
+        EasyMock.expect(crlStoreSession.getLastCRLInfoLightWeight(CA_DN, PARTITION, false)).andReturn(crlInfo(2));
+        EasyMock.expect(crlStoreSession.getCRL(CA_DN, PARTITION, 1)).andReturn(CRL_1);
+        EasyMock.replay(crlStoreSession);
+        final CRLCache crlCache = new CRLCache(crlStoreSession, CaCertificateCache.INSTANCE);
+        final CachedCrl first = crlCache.findByIssuerDN(caId, PARTITION, false, 1);
+        final CachedCrl second = crlCache.findByIssuerDN(caId, PARTITION, false, 1);
+        assertArrayEquals(CRL_1, second.getEncoded());
+        assertEquals(0L, second.getLastModified());
+        assertSame("The entity tag of an older CRL should be computed once.", first.getETag(), second.getETag());
+        EasyMock.verify(crlStoreSession);
+        log.trace("<entityTagOfOlderCrlIsRemembered");
+    }
+
+    private static CRLInfo crlInfo(final int crlNumber) {
+        return new CRLInfo(CA_DN, PARTITION, crlNumber, crlNumber * 1000L, crlNumber * 1000L + 3600000L);
+    }
+}
@@ -0,0 +1,107 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.web.protocol;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+import org.cesecore.certificates.certificate.CertificateConstants;
+import org.easymock.EasyMock;
+import org.ejbca.core.protocol.crlstore.CRLCache.CachedCrl;
+import org.junit.Test;
+
+/**
+ * Tests the entity tag and the answers to conditional requests of {@link CRLStoreServlet}.
+ */
+public class CRLStoreServletUnitTest {
+
+    private static final Logger log = Logger.getLogger(CRLStoreServletUnitTest.class);
+
+    private static final byte[] ENCODED = { 0x30, 0x03, 0x02, 0x01, 0x01 };
+    private static final long THIS_UPDATE = 1700000000000L;
+    private static final CachedCrl CRL = new CachedCrl(1, ENCODED, CachedCrl.eTagOf(ENCODED), THIS_UPDATE);
+
+    @Test
+    public void matchingEntityTagIsNotModified() {
+        log.trace(">matchingEntityTagIsNotModified");
+        assertTrue(CRLStoreServlet.isNotModified(CRL, request(CRL.getETag(), -1)));
+        assertTrue("Weak comparison should be used.", CRLStoreServlet.isNotModified(CRL, request("W/" + CRL.getETag(), -1)));
+        assertTrue("Any of the listed entity tags may match.", CRLStoreServlet.isNotModified(CRL, request("\"other\", " + CRL.getETag(), -1)));
+        assertTrue(CRLStoreServlet.isNotModified(CRL, request("*", -1)));
+        log.trace("<matchingEntityTagIsNotModified");
+    }
+
+    @Test
+    public void otherEntityTagIsModified() {
+        log.trace(">otherEntityTagIsModified");
+        assertFalse(CRLStoreServlet.isNotModified(CRL, request("\"other\"", -1)));
+        assertFalse("If-Modified-Since should be ignored when there is an If-None-Match header.",
+                CRLStoreServlet.isNotModified(CRL, request("\"other\"", THIS_UPDATE)));
+        log.trace("<otherEntityTagIsModified");
+    }
+
+    @Test
+    public void ifModifiedSinceIsUsedWithoutEntityTag() {
+        log.trace(">ifModifiedSinceIsUsedWithoutEntityTag");
+        assertTrue(CRLStoreServlet.isNotModified(CRL, request(null, THIS_UPDATE + 999)));
+        assertFalse(CRLStoreServlet.isNotModified(CRL, request(null, THIS_UPDATE - 1000)));
+        assertFalse(CRLStoreServlet.isNotModified(CRL, request(null, -1)));
+        final CachedCrl olderCrl = new CachedCrl(1, ENCODED, CRL.getETag(), 0L);
+        assertFalse("A CRL without a known issue date is always modified.", CRLStoreServlet.isNotModified(olderCrl, request(null, THIS_UPDATE)));
+        log.trace("<ifModifiedSinceIsUsedWithoutEntityTag");
+    }
+
+    @Test
+    public void notModifiedCrlIsNotSent() throws Exception {
+        log.trace(">notModifiedCrlIsNotSent");
+        final HttpServletResponse response = EasyMock.createStrictMock(HttpServletResponse.class);
+        response.setHeader("ETag", CRL.getETag());
+        response.setDateHeader("Last-Modified", THIS_UPDATE);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        EasyMock.replay(response);
+        CRLStoreServlet.returnCrl(CRL, request(CRL.getETag(), -1), response, "hash", CertificateConstants.NO_CRL_PARTITION, false);
+        EasyMock.verify(response);
+        log.trace("<notModifiedCrlIsNotSent");
+    }
+
+    @Test
+    public void modifiedCrlIsSentWithEntityTag() throws Exception {
+        log.trace(">modifiedCrlIsSentWithEntityTag");
+        final ServletOutputStream out = EasyMock.createStrictMock(ServletOutputStream.class);
+        out.write(ENCODED);
+        final HttpServletResponse response = EasyMock.createStrictMock(HttpServletResponse.class);
+        response.setHeader("ETag", CRL.getETag());
+        response.setDateHeader("Last-Modified", THIS_UPDATE);
+        response.setContentType("application/pkix-crl");
+        response.setHeader("Content-disposition", "attachment; filename=\"hash.crl\"");
+        response.setContentLength(ENCODED.length);
+        EasyMock.expect(response.getOutputStream()).andReturn(out);
+        EasyMock.replay(response, out);
+        CRLStoreServlet.returnCrl(CRL, request("\"other\"", -1), response, "hash", CertificateConstants.NO_CRL_PARTITION, false);
+        EasyMock.verify(response, out);
+        log.trace("<modifiedCrlIsSentWithEntityTag");
+    }
+
+    private static HttpServletRequest request(final String ifNoneMatch, final long ifModifiedSince) {
+        final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getHeader("If-None-Match")).andReturn(ifNoneMatch).anyTimes();
+        EasyMock.expect(request.getDateHeader("If-Modified-Since")).andReturn(ifModifiedSince).anyTimes();
+        EasyMock.replay(request);
+        return request;
+    }
+}
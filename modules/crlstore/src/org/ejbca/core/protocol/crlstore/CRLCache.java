@@ -14,71 +14,142 @@
 package org.ejbca.core.protocol.crlstore;
 
 import java.security.cert.X509Certificate;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.cesecore.certificates.ca.internal.CaCertificateCache;
 import org.cesecore.certificates.certificate.HashID;
 import org.cesecore.certificates.crl.CRLInfo;
 import org.cesecore.certificates.crl.CrlStoreSessionLocal;
+import org.cesecore.internal.ManagedCache;
 
 import com.keyfactor.util.CertTools;
 
 /**
- * An implementation of this is managing a cache of CRLs. The implementation should be optimized for quick lookups of CRLs that the 
+ * An implementation of this is managing a cache of CRLs. The implementation should be optimized for quick lookups of CRLs that the
  * VA responder needs to fetch.
- *
+ * <p>
+ * The latest CRL of each CA, partition and CRL type is kept as an immutable {@link CachedCrl}, which is replaced as a whole when a newer
+ * CRL has been created. Lookups do not lock, and only read the number of the latest CRL from the database to see if the cached CRL is
+ * still the latest one.
+ * <p>
+ * Older CRLs, requested by CRL number, are not kept in the cache. Only their entity tags are, so the fingerprint of an older CRL is computed
+ * once and not for every request.
  */
 public class CRLCache {
 	private static final Logger log = Logger.getLogger(CRLCache.class);
-	
-    private static CRLCache instance = null;
-    private static final Lock lock = new ReentrantLock();
-	
+
+    private static volatile CRLCache instance = null;
+
+	/** Number of entity tags of older CRLs to keep. An entity tag is a short string, so this is far less than the size of the CRLs. */
+	private static final long MAX_OLDER_CRL_ETAGS = 1000;
+
 	private final CrlStoreSessionLocal crlStoreSession;
 	private final CaCertificateCache certCache;
-	private final Map<Integer, CRLEntity> crls = new HashMap<>();
-	private final Map<Integer, CRLEntity> deltaCrls = new HashMap<>();
-	private class CRLEntity {
-		final CRLInfo crlInfo;
-		final byte[] encoded;
-		/**
-		 * @param crlInfo
-		 * @param encoded
-		 */
-		CRLEntity(CRLInfo crlInfo, byte[] encoded) {
-			super();
-			this.crlInfo = crlInfo;
+	private final ManagedCache<CacheKey, CachedCrl> crls = ManagedCache.<CacheKey, CachedCrl>newBuilder().name("CRLCache").build();
+	private final ManagedCache<CrlNumberKey, String> olderCrlETags = ManagedCache.<CrlNumberKey, String>newBuilder().name("CRLCache.olderCrlETags")
+	        .maximumSize(MAX_OLDER_CRL_ETAGS).build();
+
+	/** A CRL with the values needed to answer conditional HTTP requests for it */
+	public static final class CachedCrl {
+		private final int crlNumber;
+		private final byte[] encoded;
+		private final String eTag;
+		private final long lastModified;
+
+		public CachedCrl(final int crlNumber, final byte[] encoded, final String eTag, final long lastModified) {
+			this.crlNumber = crlNumber;
 			this.encoded = encoded;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+		}
+
+		/** @return the strong entity tag of a DER encoded CRL. The fingerprint identifies the exact bytes of the CRL. */
+		public static String eTagOf(final byte[] encoded) {
+			return "\"" + CertTools.getFingerprintAsString(encoded) + "\"";
+		}
+
+		public int getCrlNumber() {
+			return crlNumber;
+		}
+
+		/** @return the DER encoded CRL. The array is shared, and must not be modified. */
+		public byte[] getEncoded() {
+			return encoded;
+		}
+
+		/** @return the strong entity tag of the CRL, including the quotes */
+		public String getETag() {
+			return eTag;
+		}
+
+		/** @return the time the CRL was issued (thisUpdate) in milliseconds, or 0 if not known */
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+
+	private static final class CacheKey {
+		private final String issuerDN;
+		private final int crlPartitionIndex;
+		private final boolean isDelta;
+
+		private CacheKey(final String issuerDN, final int crlPartitionIndex, final boolean isDelta) {
+			this.issuerDN = issuerDN;
+			this.crlPartitionIndex = crlPartitionIndex;
+			this.isDelta = isDelta;
 		}
 
 		@Override
 		public boolean equals(Object o) {
-			if (o == this)
+			if (o == this) {
 				return true;
-			if (!(o instanceof CRLEntity)) {
+			}
+			if (!(o instanceof CacheKey)) {
 				return false;
 			}
-			CRLEntity crlEntity = (CRLEntity) o;
-			return Objects.equals(crlInfo.getSubjectDN(), crlEntity.crlInfo.getSubjectDN()) && crlInfo.getCrlPartitionIndex() == crlEntity.crlInfo.getCrlPartitionIndex();
+			final CacheKey cacheKey = (CacheKey) o;
+			return Objects.equals(issuerDN, cacheKey.issuerDN) && crlPartitionIndex == cacheKey.crlPartitionIndex && isDelta == cacheKey.isDelta;
 		}
 
 		@Override
 		public int hashCode() {
 			// Ignore CRL number. Always overwrite cache with latest CRL for the partition.
-			return Objects.hash(crlInfo.getSubjectDN(), crlInfo.getCrlPartitionIndex());
+			return Objects.hash(issuerDN, crlPartitionIndex, isDelta);
+		}
+	}
+
+	/** Key of an older CRL. The CRL number is unique for the partition, whether the CRL is a delta CRL or not. */
+	private static final class CrlNumberKey {
+		private final String issuerDN;
+		private final int crlPartitionIndex;
+		private final int crlNumber;
+
+		private CrlNumberKey(final String issuerDN, final int crlPartitionIndex, final int crlNumber) {
+			this.issuerDN = issuerDN;
+			this.crlPartitionIndex = crlPartitionIndex;
+			this.crlNumber = crlNumber;
 		}
 
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof CrlNumberKey)) {
+				return false;
+			}
+			final CrlNumberKey crlNumberKey = (CrlNumberKey) o;
+			return Objects.equals(issuerDN, crlNumberKey.issuerDN) && crlPartitionIndex == crlNumberKey.crlPartitionIndex
+			        && crlNumber == crlNumberKey.crlNumber;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(issuerDN, crlPartitionIndex, crlNumber);
+		}
 	}
-	/** We need an object to synchronize around when rebuilding and reading the cache. When rebuilding the cache no thread
-	 * can be allowed to read the cache, since the cache will be in an inconsistent state. In the normal case we want to use
-	 * as fast objects as possible (HashMap) for reading fast.
-	 */
-	private final Lock rebuildlock = new ReentrantLock();
 
 	 /**
      * @return  {@link CRLCache} for the CA.
@@ -87,22 +158,21 @@ public class CRLCache {
          if (instance != null) {
              return instance;
          }
-         lock.lock();
-         try {
+         synchronized (CRLCache.class) {
              if (instance == null) {
                  instance = new CRLCache(crlDataSession, certCache);
              }
              return instance;
-         } finally {
-             lock.unlock();
          }
      }
-	
+
 	/**
+	 * Package private so tests can create their own cache.
+	 *
 	 * @param crlSession reference to CRLStoreSession
 	 * @param certStore references to needed CA certificates.
 	 */
-	private CRLCache(CrlStoreSessionLocal crlStoreSession, CaCertificateCache certCache) {
+	CRLCache(CrlStoreSessionLocal crlStoreSession, CaCertificateCache certCache) {
 		super();
 		this.crlStoreSession = crlStoreSession;
 		this.certCache = certCache;
@@ -112,9 +182,9 @@ public class CRLCache {
      * @param id The ID of the subject key identifier.
      * @param isDelta true if delta CRL
      * @param crlNumber specific crlNumber of the CRL to be retrieved, when not the latest, or -1 for the latest
-     * @return CRL or null if the CRL does not exist in the cache.
+     * @return CRL or null if the CRL does not exist.
      */
-	public byte[] findBySubjectKeyIdentifier(HashID id, int crlPartitionIndex, boolean isDelta, int crlNumber) {
+	public CachedCrl findBySubjectKeyIdentifier(HashID id, int crlPartitionIndex, boolean isDelta, int crlNumber) {
 		return findCRL(certCache.findBySubjectKeyIdentifier(id), crlPartitionIndex, isDelta, crlNumber);
 	}
 
@@ -122,58 +192,61 @@ public class CRLCache {
      * @param id The ID of the issuer DN.
      * @param isDelta true if delta CRL
      * @param crlNumber specific crlNumber of the CRL to be retrieved, when not the latest, or -1 for the latest
-     * @return CRL or null if the CRL does not exist in the cache.
+     * @return CRL or null if the CRL does not exist.
      */
-	public byte[] findByIssuerDN(HashID id, int crlPartitionIndex, boolean isDelta, int crlNumber) {
+	public CachedCrl findByIssuerDN(HashID id, int crlPartitionIndex, boolean isDelta, int crlNumber) {
 		return findCRL(certCache.findLatestBySubjectDN(id), crlPartitionIndex, isDelta, crlNumber);
 	}
 
-	private byte[] findCRL(final X509Certificate caCert, final int crlPartitionIndex, final boolean isDelta, final int crlNumber) {
+	private CachedCrl findCRL(final X509Certificate caCert, final int crlPartitionIndex, final boolean isDelta, final int crlNumber) {
 		if ( caCert==null ) {
 			if (log.isDebugEnabled()) {
 				log.debug("No CA certificate, returning null.");
 			}
-			return new byte[0];
+			return null;
 		}
 		final String issuerDN = CertTools.getSubjectDN(caCert);
-		this.rebuildlock.lock();
-		try {
-			final CRLInfo crlInfo = this.crlStoreSession.getLastCRLInfo(issuerDN, crlPartitionIndex, isDelta);
-			if ( crlInfo==null ) {
-				if (log.isDebugEnabled()) {
-					log.debug("No CRL found with issuerDN '"+issuerDN+"', returning null.");
-				}
-				return new byte[0];
-			}
-			final Integer cacheId = new CRLEntity(crlInfo, null).hashCode();
-            final Map<Integer, CRLEntity> usedCrls = isDelta ? this.deltaCrls : this.crls;
-			// If we have not specified a crlNumber we can try to find the latest CRL in the cache
-			if (crlNumber == -1) {
-			    final CRLEntity cachedCRL = usedCrls.get(cacheId);
-			    if ( cachedCRL!=null && !crlInfo.getCreateDate().after(cachedCRL.crlInfo.getCreateDate()) ) {
-			        if (log.isDebugEnabled()) {
-			            log.debug("Retrieved CRL (from cache) with issuerDN '"+issuerDN+"', with CRL number "+crlInfo.getLastCRLNumber() + " and partition " + crlInfo.getCrlPartitionIndex());
-			        }
-			        return cachedCRL.encoded;
-			    }
-			}
-			final CRLEntity entry;
-			if (crlNumber > -1) {
-			    if (log.isDebugEnabled()) {
-			        log.debug("Getting CRL with CRL number "+crlNumber);
-			    }
-			    entry = new CRLEntity( crlInfo, this.crlStoreSession.getCRL(issuerDN, crlPartitionIndex, crlNumber) );
-			} else {
-			    entry = new CRLEntity( crlInfo, this.crlStoreSession.getLastCRL(issuerDN, crlPartitionIndex, isDelta) );
-			    // Only cache latest CRLs, these should be the ones accessed regularly, and we don't want to fill the cache with old CRLs
-	            usedCrls.put(cacheId, entry);
-			}
+		// Only the number and dates of the latest CRL are read here, not the CRL itself
+		final CRLInfo crlInfo = this.crlStoreSession.getLastCRLInfoLightWeight(issuerDN, crlPartitionIndex, isDelta);
+		if ( crlInfo==null ) {
 			if (log.isDebugEnabled()) {
-				log.debug("Retrieved CRL (not from cache) with issuerDN '"+issuerDN+"', with CRL number "+crlInfo.getLastCRLNumber() + " and partition " + crlInfo.getCrlPartitionIndex());
+				log.debug("No CRL found with issuerDN '"+issuerDN+"', returning null.");
 			}
-			return entry.encoded;
-		} finally {
-			this.rebuildlock.unlock();
+			return null;
+		}
+		if (crlNumber > -1 && crlNumber != crlInfo.getLastCRLNumber()) {
+		    if (log.isDebugEnabled()) {
+		        log.debug("Getting CRL with CRL number "+crlNumber);
+		    }
+		    // Only cache latest CRLs, these should be the ones accessed regularly, and we don't want to fill the cache with old CRLs
+		    final byte[] encoded = this.crlStoreSession.getCRL(issuerDN, crlPartitionIndex, crlNumber);
+		    if (ArrayUtils.isEmpty(encoded)) {
+		        return null;
+		    }
+		    // A CRL is never changed once it has been issued, so the entity tag of a CRL number stays the same
+		    final String eTag = olderCrlETags.get(new CrlNumberKey(issuerDN, crlPartitionIndex, crlNumber), key -> CachedCrl.eTagOf(encoded));
+		    // The issue date of an older CRL is not known without parsing it, so only the entity tag is available for those
+		    return new CachedCrl(crlNumber, encoded, eTag, 0L);
+		}
+		final CacheKey cacheKey = new CacheKey(issuerDN, crlPartitionIndex, isDelta);
+		final CachedCrl cachedCrl = crls.getIfPresent(cacheKey);
+		if (cachedCrl != null && cachedCrl.crlNumber >= crlInfo.getLastCRLNumber()) {
+		    if (log.isDebugEnabled()) {
+		        log.debug("Retrieved CRL (from cache) with issuerDN '"+issuerDN+"', with CRL number "+cachedCrl.crlNumber + " and partition " + crlPartitionIndex);
+		    }
+		    return cachedCrl;
+		}
+		// Read the CRL by the number we just got, so the cached CRL matches the number even if a new CRL is created meanwhile
+		final byte[] encoded = this.crlStoreSession.getCRL(issuerDN, crlPartitionIndex, crlInfo.getLastCRLNumber());
+		if (ArrayUtils.isEmpty(encoded)) {
+		    return null;
+		}
+		final CachedCrl loadedCrl = new CachedCrl(crlInfo.getLastCRLNumber(), encoded, CachedCrl.eTagOf(encoded), crlInfo.getCreateDate().getTime());
+		// Threads that read a new CRL at the same time may finish in any order, so never replace a newer CRL with an older one
+		final CachedCrl latestCrl = crls.asMap().merge(cacheKey, loadedCrl, (oldCrl, newCrl) -> newCrl.crlNumber > oldCrl.crlNumber ? newCrl : oldCrl);
+		if (log.isDebugEnabled()) {
+			log.debug("Retrieved CRL (not from cache) with issuerDN '"+issuerDN+"', with CRL number "+latestCrl.crlNumber + " and partition " + crlPartitionIndex);
 		}
+		return latestCrl;
 	}
 }
@@ -30,6 +30,7 @@ import org.cesecore.certificates.certificate.CertificateConstants;
 import org.cesecore.certificates.certificate.HashID;
 import org.cesecore.certificates.crl.CrlStoreSessionLocal;
 import org.ejbca.core.protocol.crlstore.CRLCache;
+import org.ejbca.core.protocol.crlstore.CRLCache.CachedCrl;
 import org.ejbca.util.HTMLTools;
 
 import com.keyfactor.util.StringTools;
@@ -52,6 +53,10 @@ public class CRLStoreServlet extends StoreServletBase {
 	private static final String PARAM_DELTACRL = "delta";
 	private static final String PARAM_CRLNUMBER = "crlnumber";
 	private static final String PARAM_PARTITION = "partition";
+	private static final String HEADER_ETAG = "ETag";
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+	private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+	private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
 
 	@EJB
 	private CrlStoreSessionLocal crlStoreSession;
@@ -72,8 +77,8 @@ public class CRLStoreServlet extends StoreServletBase {
 	@Override
 	public void iHash(String iHash, HttpServletResponse resp, HttpServletRequest req) throws IOException, ServletException {
 	    final int crlPartitionIndex = getCrlPartitionIndex(req);
-	    final byte[] crlBytes = crlCache.findByIssuerDN(HashID.getFromB64(iHash), crlPartitionIndex, isDelta(req), getCrlNumber(req));
-		returnCrl(crlBytes, resp, iHash, crlPartitionIndex, isDelta(req));
+	    final CachedCrl crl = crlCache.findByIssuerDN(HashID.getFromB64(iHash), crlPartitionIndex, isDelta(req), getCrlNumber(req));
+		returnCrl(crl, req, resp, iHash, crlPartitionIndex, isDelta(req));
 	}
 
 	@Override
@@ -84,8 +89,8 @@ public class CRLStoreServlet extends StoreServletBase {
 	@Override
 	public void sKIDHash(String sKIDHash, HttpServletResponse resp, HttpServletRequest req, String name) throws IOException, ServletException {
 	    final int crlPartitionIndex = getCrlPartitionIndex(req);
-	    final byte[] crlBytes = crlCache.findBySubjectKeyIdentifier(HashID.getFromB64(sKIDHash), crlPartitionIndex, isDelta(req), getCrlNumber(req));
-		returnCrl(crlBytes, resp, name, crlPartitionIndex, isDelta(req));
+	    final CachedCrl crl = crlCache.findBySubjectKeyIdentifier(HashID.getFromB64(sKIDHash), crlPartitionIndex, isDelta(req), getCrlNumber(req));
+		returnCrl(crl, req, resp, name, crlPartitionIndex, isDelta(req));
 	}
 
 	@Override
@@ -123,21 +128,62 @@ public class CRLStoreServlet extends StoreServletBase {
         return CertificateConstants.NO_CRL_PARTITION;
     }
 
-	private void returnCrl(final byte[] crl, HttpServletResponse resp, String name, final int crlPartitionIndex, boolean isDelta) throws IOException {
-		if (ArrayUtils.isEmpty(crl)) {
+	/**
+	 * @return true if the client already has this CRL, according to the If-None-Match or If-Modified-Since header of the request.
+	 * If-Modified-Since is only used when there is no If-None-Match header, see RFC 7232 section 6.
+	 */
+	static boolean isNotModified(final CachedCrl crl, final HttpServletRequest req) {
+	    final String ifNoneMatch = req.getHeader(HEADER_IF_NONE_MATCH);
+	    if (ifNoneMatch != null) {
+	        for (final String eTag : ifNoneMatch.split(",")) {
+	            final String trimmed = StringUtils.removeStart(eTag.trim(), "W/");
+	            if ("*".equals(trimmed) || crl.getETag().equals(trimmed)) {
+	                return true;
+	            }
+	        }
+	        return false;
+	    }
+	    if (crl.getLastModified() <= 0) {
+	        return false;
+	    }
+	    final long ifModifiedSince;
+	    try {
+	        ifModifiedSince = req.getDateHeader(HEADER_IF_MODIFIED_SINCE);
+	    } catch (IllegalArgumentException e) {
+	        // Invalid dates are ignored
+	        return false;
+	    }
+	    // HTTP dates have a resolution of seconds
+	    return ifModifiedSince != -1 && crl.getLastModified() / 1000 <= ifModifiedSince / 1000;
+	}
+
+	static void returnCrl(final CachedCrl crl, final HttpServletRequest req, HttpServletResponse resp, String name, final int crlPartitionIndex, boolean isDelta) throws IOException {
+		if (crl == null || ArrayUtils.isEmpty(crl.getEncoded())) {
 		    if (log.isDebugEnabled()) {
 		        log.debug("CRL was not found. Hash=" + name + ", DeltaCRL=" + isDelta + ", Partition=" + crlPartitionIndex);
 		    }
 			resp.sendError(HttpServletResponse.SC_NO_CONTENT, "No CRL with hash: "+HTMLTools.htmlescape(name));
 			return;
 		}
+		resp.setHeader(HEADER_ETAG, crl.getETag());
+		if (crl.getLastModified() > 0) {
+		    resp.setDateHeader(HEADER_LAST_MODIFIED, crl.getLastModified());
+		}
+		if (isNotModified(crl, req)) {
+		    if (log.isDebugEnabled()) {
+		        log.debug("CRL was not modified. Hash=" + name + ", DeltaCRL=" + isDelta + ", Partition=" + crlPartitionIndex + ", CRL number=" + crl.getCrlNumber());
+		    }
+		    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		    return;
+		}
+		final byte[] encoded = crl.getEncoded();
 		resp.setContentType("application/pkix-crl");
 		resp.setHeader("Content-disposition", "attachment; filename=\"" + 
 		        (isDelta?"delta":"") +
 		        StringTools.stripFilename(name) +
 		        (crlPartitionIndex != CertificateConstants.NO_CRL_PARTITION ? "_partition" + crlPartitionIndex : "") +
 		        ".crl\"");
-		resp.setContentLength(crl.length);
-		resp.getOutputStream().write(crl);
+		resp.setContentLength(encoded.length);
+		resp.getOutputStream().write(encoded);
 	}
 }
@@ -50,6 +50,9 @@ public abstract class BaseWorker implements IWorker {
     private IInterval interval = null;
     
     protected AuthenticationToken admin = null;
+    /** The shard this worker works on, for shardable workers */
+    private int shard = 0;
+    private int shards = 1;
 
     // Cached data
 	private transient Collection<Integer> cAIdsToCheck = null;
@@ -110,6 +113,30 @@ public abstract class BaseWorker implements IWorker {
 		return interval.getTimeToExecution();
 	}
 	
+	@Override
+	public void setShard(final int shard, final int shards) {
+	    this.shard = shard;
+	    this.shards = shards;
+	}
+
+	@Override
+	public int getShard() {
+	    return shard;
+	}
+
+	@Override
+	public int getShards() {
+	    return shards;
+	}
+
+	/**
+	 * @param id id of an item the worker processes, like a CA or publisher id
+	 * @return true if the item belongs to the shard of this worker, always true if the work is not sharded
+	 */
+	protected boolean isInShard(final int id) {
+	    return ServiceSharding.isInShard(id, shard, shards);
+	}
+
 	protected IAction getAction(){
 		if(action == null){
 			String msg = intres.getLocalizedMessage(ERROR_ACTION_CLASSPATH_MISCONFIG, serviceName);
@@ -52,6 +52,12 @@ public class CRLUpdateWorker extends BaseWorker {
      */
     private static Set<Integer> lockedCas = ConcurrentHashMap.newKeySet();
 
+    /** The CAs are divided between the shards by CA id */
+    @Override
+    public boolean isShardable() {
+        return true;
+    }
+
     /**
      * <p>Check if the {@link CRLUpdateWorker} can run on this node.
      *
@@ -105,6 +111,7 @@ public class CRLUpdateWorker extends BaseWorker {
         Set<Integer> updatedCas = new HashSet<>();
         Set<Integer> updatedCasDelta = new HashSet<>();
         Set<Integer> caids = new HashSet<>(getAllCAIdsToCheck(caSession, true));
+        caids.removeIf(caid -> !isInShard(caid));
         if (lock(caids)) {
             try {
                 long polltime = getNextInterval();
@@ -136,7 +143,7 @@ public class CRLUpdateWorker extends BaseWorker {
                     }
                     stringBuilder.append(" The following CA generated new delta CRLs: " + constructNameList(deltaCaNames) + ".");
                 }
-                return new ServiceExecutionResult(Result.SUCCESS, stringBuilder.toString());
+                return new ServiceExecutionResult(Result.SUCCESS, stringBuilder.toString(), updatedCas.size() + updatedCasDelta.size());
 
             }
         }else {
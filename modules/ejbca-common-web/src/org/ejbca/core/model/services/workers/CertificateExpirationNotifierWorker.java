@@ -18,12 +18,15 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.cesecore.authorization.AuthorizationDeniedException;
 import org.cesecore.certificates.ca.CAInfo;
 import org.cesecore.certificates.ca.CaSessionLocal;
 import org.cesecore.certificates.certificate.CertificateConstants;
+import org.cesecore.certificates.certificate.CertificateExpirationCursor;
+import org.cesecore.certificates.certificate.CertificateInfo;
 import org.cesecore.certificates.certificate.CertificateStoreSessionLocal;
 import org.cesecore.certificates.endentity.EndEntityInformation;
 import org.ejbca.core.ejb.ra.EndEntityAccessSessionLocal;
@@ -45,6 +48,9 @@ public class CertificateExpirationNotifierWorker extends EmailSendingWorker {
 
     private static final Logger log = Logger.getLogger(CertificateExpirationNotifierWorker.class);
 
+    /** Number of certificates that are read, and notified about, at a time */
+    private static final int PAGE_SIZE = 500;
+
     private CertificateStoreSessionLocal certificateStoreSession;
     private transient List<Integer> certificateProfileIds;
 
@@ -53,6 +59,12 @@ public class CertificateExpirationNotifierWorker extends EmailSendingWorker {
     public void canWorkerRun(Map<Class<?>, Object> ejbs) throws ServiceExecutionFailedException {
         //This service worker has no other error states than misconfiguration, so can technically always run.     
     }
+
+    /** The CAs are divided between the shards by CA id */
+    @Override
+    public boolean isShardable() {
+        return true;
+    }
     
     /**
      * Worker that makes a query to the Certificate Store about expiring certificates.
@@ -66,18 +78,19 @@ public class CertificateExpirationNotifierWorker extends EmailSendingWorker {
         certificateStoreSession = ((CertificateStoreSessionLocal) ejbs.get(CertificateStoreSessionLocal.class));
         final EndEntityAccessSessionLocal endEntityAccessSession = ((EndEntityAccessSessionLocal) ejbs.get(EndEntityAccessSessionLocal.class));
 
-        List<EmailCertData> userEmailQueue = new ArrayList<>();
-        List<EmailCertData> adminEmailQueue = new ArrayList<>();
-
         // Build Query
         Collection<String> cas = new ArrayList<>();
         Collection<Integer> caIds = getCAIdsToCheck(false);
         Collection<Integer> certificateProfileIds = getCertificateProfileIdsToCheck();
+        //if caIds contains SecConst.ALLCAS, reassign caIds to contain just that.
+        if(caIds.contains(SecConst.ALLCAS)) {
+            caIds = caSession.getAllCaIds();
+        }
+        caIds = caIds.stream().filter(this::isInShard).collect(Collectors.toList());
+        int count = 0;
+        int userEmailCount = 0;
+        int adminEmailCount = 0;
         if (!caIds.isEmpty()) {
-            //if caIds contains SecConst.ALLCAS, reassign caIds to contain just that.
-            if(caIds.contains(SecConst.ALLCAS)) {
-                caIds = caSession.getAllCaIds();
-            }
             for(Integer caid : caIds) {
                 CAInfo caInfo;  
                 try {
@@ -141,66 +154,85 @@ public class CertificateExpirationNotifierWorker extends EmailSendingWorker {
                             ". activeNotifiedExpireDateMin: "+now+", activeNotifiedExpireDateMax: "+(nextRunTimeStamp + thresHold)+", activeExpireDateMin: "+(runTimeStamp + thresHold));
                 }
                 try {
-                    List<Object[]> fingerprintUsernameList = certificateStoreSession.findExpirationInfo(cas, certificateProfileIds, now, (nextRunTimeStamp + thresHold),
-                            (runTimeStamp + thresHold));
-                    int count = 0;
-                    for (Object[] next : fingerprintUsernameList) {
-                        count++;
-                        // For each certificate update status.
-                        String fingerprint = (String) next[0];
-                        String username = (String) next[1];
-                        // Get the certificate through a session bean
-                        if(log.isDebugEnabled()) {
-                            log.debug("Found a certificate we should notify. Username=" + username + ", fp=" + fingerprint);
-                        }
-                        Certificate cert = certificateStoreSession.findCertificateByFingerprint(fingerprint);
-                        EndEntityInformation userData = endEntityAccessSession.findUser(getAdmin(), username);
-                        if (userData != null) {
-                            if (isSendToEndUsers()) {
-                                if (userData.getEmail() == null || userData.getEmail().trim().equals("")) {
-                                    log.info(InternalEjbcaResources.getInstance().getLocalizedMessage("services.errorworker.errornoemail", username));
-                                } else {
-                                    // Populate end user message
-                                    if(log.isDebugEnabled()) {
-                                        log.debug("Adding to email queue for user: " + userData.getEmail());
+                    // Read the certificates one page at a time, seeking past the last certificate of the previous page. Certificates that
+                    // drop out of the result when they are flagged as notified don't make the following pages skip any certificates, as an
+                    // offset would, and every page is read equally fast.
+                    CertificateExpirationCursor after = CertificateExpirationCursor.FIRST;
+                    List<CertificateInfo> page;
+                    do {
+                        page = certificateStoreSession.findExpirationInfo(cas, certificateProfileIds, now, (nextRunTimeStamp + thresHold),
+                                (runTimeStamp + thresHold), after, PAGE_SIZE);
+                        final List<EmailCertData> userEmailQueue = new ArrayList<>();
+                        final List<EmailCertData> adminEmailQueue = new ArrayList<>();
+                        for (final CertificateInfo next : page) {
+                            count++;
+                            // For each certificate update status.
+                            String fingerprint = next.getFingerprint();
+                            String username = next.getUsername();
+                            // Get the certificate through a session bean
+                            if(log.isDebugEnabled()) {
+                                log.debug("Found a certificate we should notify. Username=" + username + ", fp=" + fingerprint);
+                            }
+                            Certificate cert = isSendToEndUsers() || isSendToAdmins() ? certificateStoreSession.findCertificateByFingerprint(fingerprint) : null;
+                            EndEntityInformation userData = endEntityAccessSession.findUser(getAdmin(), username);
+                            if (userData != null) {
+                                if (isSendToEndUsers()) {
+                                    if (userData.getEmail() == null || userData.getEmail().trim().equals("")) {
+                                        log.info(InternalEjbcaResources.getInstance().getLocalizedMessage("services.errorworker.errornoemail", username));
+                                    } else {
+                                        // Populate end user message
+                                        if(log.isDebugEnabled()) {
+                                            log.debug("Adding to email queue for user: " + userData.getEmail());
+                                        }
+                                        final UserNotificationParamGen userNotificationParamGen = new UserNotificationParamGen(userData, cert);
+                                        final String message = userNotificationParamGen.interpolate(getEndUserMessage());
+                                        final String subject = userNotificationParamGen.interpolate(getEndUserSubject());
+                                        final MailActionInfo mailActionInfo = new MailActionInfo(userData.getEmail(), subject, message);
+                                        userEmailQueue.add(new EmailCertData(fingerprint, mailActionInfo));
                                     }
-                                    final UserNotificationParamGen userNotificationParamGen = new UserNotificationParamGen(userData, cert);
-                                    final String message = userNotificationParamGen.interpolate(getEndUserMessage());
-                                    final String subject = userNotificationParamGen.interpolate(getEndUserSubject());
-                                    final MailActionInfo mailActionInfo = new MailActionInfo(userData.getEmail(), subject, message);
-                                    userEmailQueue.add(new EmailCertData(fingerprint, mailActionInfo));
+                                }
+                            } else {
+                                if(log.isDebugEnabled()) {
+                                    log.debug("Trying to send notification to user, but no UserData can be found for user '" + username
+                                        + "', will only send to admin if admin notifications are defined.");
                                 }
                             }
-                        } else {
-                            if(log.isDebugEnabled()) {
-                                log.debug("Trying to send notification to user, but no UserData can be found for user '" + username
-                                    + "', will only send to admin if admin notifications are defined.");
+                            if (isSendToAdmins()) {
+                                // If we did not have any user for this, we will simply use empty values for substitution
+                                if (userData == null) {
+                                    userData = new EndEntityInformation();
+                                    userData.setUsername(username);
+                                }
+                                // Populate admin message
+                                if(log.isDebugEnabled()) {
+                                    log.debug("Adding to email queue for admin");
+                                }
+                                final UserNotificationParamGen userNotificationParamGen = new UserNotificationParamGen(userData, cert);
+                                final String message = userNotificationParamGen.interpolate(getAdminMessage());
+                                final String subject = userNotificationParamGen.interpolate(getAdminSubject());
+                                final MailActionInfo mailActionInfo = new MailActionInfo(null, subject, message);
+                                adminEmailQueue.add(new EmailCertData(fingerprint, mailActionInfo));
+                            }
+                            if (!isSendToEndUsers() && !isSendToAdmins()) {
+                                // a little bit of a kludge to make JUnit testing feasible...
+                                if(log.isDebugEnabled()) {
+                                    log.debug("nobody to notify for cert with fp:" + fingerprint);
+                                }
+                                updateStatus(fingerprint, CertificateConstants.CERT_NOTIFIEDABOUTEXPIRATION);
                             }
                         }
+                        if (isSendToEndUsers()) {
+                            sendEmails(userEmailQueue, ejbs);
+                        }
                         if (isSendToAdmins()) {
-                            // If we did not have any user for this, we will simply use empty values for substitution
-                            if (userData == null) {
-                                userData = new EndEntityInformation();
-                                userData.setUsername(username);
-                            }
-                            // Populate admin message
-                            if(log.isDebugEnabled()) {
-                                log.debug("Adding to email queue for admin");
-                            }
-                            final UserNotificationParamGen userNotificationParamGen = new UserNotificationParamGen(userData, cert);
-                            final String message = userNotificationParamGen.interpolate(getAdminMessage());
-                            final String subject = userNotificationParamGen.interpolate(getAdminSubject());
-                            final MailActionInfo mailActionInfo = new MailActionInfo(null, subject, message);
-                            adminEmailQueue.add(new EmailCertData(fingerprint, mailActionInfo));
+                            sendEmails(adminEmailQueue, ejbs);
                         }
-                        if (!isSendToEndUsers() && !isSendToAdmins()) {
-                            // a little bit of a kludge to make JUnit testing feasible...
-                            if(log.isDebugEnabled()) {
-                                log.debug("nobody to notify for cert with fp:" + fingerprint);
-                            }
-                            updateStatus(fingerprint, CertificateConstants.CERT_NOTIFIEDABOUTEXPIRATION);
+                        userEmailCount += userEmailQueue.size();
+                        adminEmailCount += adminEmailQueue.size();
+                        if (!page.isEmpty()) {
+                            after = CertificateExpirationCursor.after(page.get(page.size() - 1));
                         }
-                    }
+                    } while (page.size() == PAGE_SIZE);
                     if (count == 0) {
                         if(log.isDebugEnabled()) {
                             log.debug("No certificates found for notification.");
@@ -211,12 +243,6 @@ public class CertificateExpirationNotifierWorker extends EmailSendingWorker {
                     log.error("Error running service work: ", fe);
                     throw new IllegalStateException("Internal admin was denied access.", fe);
                 }
-                if (isSendToEndUsers()) {
-                    sendEmails(userEmailQueue, ejbs);
-                }
-                if (isSendToAdmins()) {
-                    sendEmails(adminEmailQueue, ejbs);
-                }
             } else {
                 log.info("CAs select collection is empty, there were ids but no names?");
             }
@@ -225,12 +251,12 @@ public class CertificateExpirationNotifierWorker extends EmailSendingWorker {
             
         }
         log.trace("<CertificateExpirationNotifierWorker.work ended");
-        if (userEmailQueue.isEmpty() && adminEmailQueue.isEmpty()) {
-            return new ServiceExecutionResult(Result.NO_ACTION, "Certificate Expiration Worker ran, but no notifications were needed to be sent out.");
+        if (userEmailCount == 0 && adminEmailCount == 0) {
+            return new ServiceExecutionResult(Result.NO_ACTION, "Certificate Expiration Worker ran, but no notifications were needed to be sent out.", count);
         } else {
             return new ServiceExecutionResult(Result.SUCCESS, "Notifications were sent out to "
-                    + (userEmailQueue.isEmpty() ? "" : userEmailQueue.size() + " users")
-                    + (userEmailQueue.isEmpty() ? "" : " and" + (adminEmailQueue.isEmpty() ? "" : adminEmailQueue.size() + " administators") + "."));
+                    + (userEmailCount == 0 ? "" : userEmailCount + " users")
+                    + (userEmailCount == 0 ? "" : " and" + (adminEmailCount == 0 ? "" : adminEmailCount + " administators") + "."), count);
         }
     }
 
@@ -31,7 +31,9 @@ import java.util.Map;
 
 /**
  * Class processing the publisher queue. Can only run on instance in one VM on
- * one node. See method docs below for information about algorithms used.
+ * one node, unless the service is sharded, in which case each node processes
+ * the queues of the publishers in its shard. See method docs below for
+ * information about algorithms used.
  * 
  */
 public class PublishQueueProcessWorker extends EmailSendingWorker {
@@ -50,6 +52,11 @@ public class PublishQueueProcessWorker extends EmailSendingWorker {
      */
     private static final KeyedLock<String> lock = new KeyedLock<>();
 
+    /** The publishers are divided between the shards by publisher id */
+    @Override
+    public boolean isShardable() {
+        return true;
+    }
 
     @Override
     public void canWorkerRun(Map<Class<?>, Object> ejbs) throws ServiceExecutionFailedException {
@@ -105,6 +112,9 @@ public class PublishQueueProcessWorker extends EmailSendingWorker {
                     }
                     for (int i = 0; i < ids.length; i++) {
                         int publisherId = Integer.valueOf(ids[i]);
+                        if (!isInShard(publisherId)) {
+                            continue;
+                        }
                         // Get everything from the queue for this publisher id
                         BasePublisher publisher = publisherSession.getPublisher(publisherId);
                         publishingResult.append(publisherQueueSession.plainFifoTryAlwaysLimit100EntriesOrderByTimeCreated(getAdmin(), publisher, maxNumberOfEntriesToCheck));
@@ -115,6 +125,7 @@ public class PublishQueueProcessWorker extends EmailSendingWorker {
             } finally {
                 lock.release(serviceName);
             }
+            final long itemCount = publishingResult.getSuccesses() + publishingResult.getFailures();
             if (publishingResult.getSuccesses() == 0 && publishingResult.getFailures() == 0) {
                 ret = new ServiceExecutionResult(Result.NO_ACTION,
                         "Publishing Queue Service " + serviceName + " ran, but the publishing queue was either empty or the publisher(s) could not connect.");
@@ -123,10 +134,10 @@ public class PublishQueueProcessWorker extends EmailSendingWorker {
                     ret = new ServiceExecutionResult(Result.FAILURE,
                             "Publishing Queue Service " + serviceName + " ran with " + publishingResult.getFailures() + " failed publishing operations"
                                     + (publishingResult.getSuccesses() == 0 ? "."
-                                            : " and " + publishingResult.getSuccesses() + " successful publishing operations."));
+                                            : " and " + publishingResult.getSuccesses() + " successful publishing operations."), itemCount);
                 } else {
                     ret = new ServiceExecutionResult(Result.SUCCESS, "Publishing Queue Service " + serviceName + " ran with "
-                            + publishingResult.getSuccesses() + " successful publishing operations.");
+                            + publishingResult.getSuccesses() + " successful publishing operations.", itemCount);
                 }
             }
         } else {
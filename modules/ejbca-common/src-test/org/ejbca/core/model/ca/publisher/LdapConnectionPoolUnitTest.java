@@ -0,0 +1,76 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.ca.publisher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.novell.ldap.LDAPConnection;
+
+/**
+ * Tests the pool of idle LDAP publisher connections, without connecting to an LDAP server.
+ */
+public class LdapConnectionPoolUnitTest {
+
+    private static final String KEY = "4711;ldap.example.com";
+    private static final String SETTINGS = "389;STARTTLS;5000;cn=admin;foo123";
+
+    @After
+    public void after() {
+        LdapConnectionPool.INSTANCE.closeAll();
+    }
+
+    @Test
+    public void mostRecentlyUsedConnectionIsReusedFirst() {
+        final LDAPConnection first = new LDAPConnection();
+        final LDAPConnection second = new LDAPConnection();
+        assertNull("There should be no idle connections yet.", LdapConnectionPool.INSTANCE.take(KEY, SETTINGS, 60000L));
+        LdapConnectionPool.INSTANCE.offer(KEY, SETTINGS, first, 4);
+        LdapConnectionPool.INSTANCE.offer(KEY, SETTINGS, second, 4);
+        assertEquals(2, LdapConnectionPool.INSTANCE.getIdleCount());
+        assertSame(second, LdapConnectionPool.INSTANCE.take(KEY, SETTINGS, 60000L).getConnection());
+        assertSame(first, LdapConnectionPool.INSTANCE.take(KEY, SETTINGS, 60000L).getConnection());
+        assertNull(LdapConnectionPool.INSTANCE.take(KEY, SETTINGS, 60000L));
+        assertNull("Connections of other servers should not be used.", LdapConnectionPool.INSTANCE.take("4711;ldap2.example.com", SETTINGS, 60000L));
+    }
+
+    @Test
+    public void poolDoesNotGrowBeyondMaxSize() {
+        for (int i = 0; i < 10; i++) {
+            LdapConnectionPool.INSTANCE.offer(KEY, SETTINGS, new LDAPConnection(), 3);
+        }
+        assertEquals(3, LdapConnectionPool.INSTANCE.getIdleCount());
+    }
+
+    @Test
+    public void connectionsWithOldSettingsAreClosed() {
+        LdapConnectionPool.INSTANCE.offer(KEY, SETTINGS, new LDAPConnection(), 4);
+        assertNull("Connections bound with other settings should not be used.", LdapConnectionPool.INSTANCE.take(KEY, "389;STARTTLS;5000;cn=admin;bar", 60000L));
+        assertEquals(0, LdapConnectionPool.INSTANCE.getIdleCount());
+        // Connections made with the old settings are not pooled any more
+        LdapConnectionPool.INSTANCE.offer(KEY, SETTINGS, new LDAPConnection(), 4);
+        assertEquals(0, LdapConnectionPool.INSTANCE.getIdleCount());
+    }
+
+    @Test
+    public void connectionsIdleTooLongAreClosed() throws InterruptedException {
+        LdapConnectionPool.INSTANCE.offer(KEY, SETTINGS, new LDAPConnection(), 4);
+        Thread.sleep(50);
+        assertNull(LdapConnectionPool.INSTANCE.take(KEY, SETTINGS, 10L));
+        assertEquals(0, LdapConnectionPool.INSTANCE.getIdleCount());
+    }
+}
@@ -0,0 +1,49 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.ca.publisher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Tests the throughput statistics of the publisher queues.
+ */
+public class PublisherQueueStatisticsUnitTest {
+
+    private static final int PUBLISHER_ID = 123456789;
+
+    @Test
+    public void recordedBatchesAreSummedAndPublishedThroughJmx() throws Exception {
+        assertNull(PublisherQueueStatistics.INSTANCE.getPublisher(PUBLISHER_ID));
+        PublisherQueueStatistics.INSTANCE.record(PUBLISHER_ID, 100, 2, 500_000_000L);
+        PublisherQueueStatistics.INSTANCE.record(PUBLISHER_ID, 50, 1, 250_000_000L);
+        final PublisherQueueStatistics.Publisher statistics = PublisherQueueStatistics.INSTANCE.getPublisher(PUBLISHER_ID);
+        assertEquals(150, statistics.getPublishedCount());
+        assertEquals(3, statistics.getFailedCount());
+        assertEquals(2, statistics.getBatchCount());
+        assertEquals(750.0, statistics.getTotalTimeMillis(), 0.001);
+        assertEquals(200.0, statistics.getPublishedPerSecond(), 0.001);
+        final ObjectName objectName = new ObjectName("org.ejbca:type=PublisherQueue,id=" + PUBLISHER_ID);
+        assertEquals("Statistics should be available through JMX.", 150L,
+                ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "PublishedCount"));
+        PublisherQueueStatistics.INSTANCE.reset();
+        assertEquals(0, statistics.getPublishedCount());
+        assertEquals(0.0, statistics.getPublishedPerSecond(), 0.001);
+    }
+}
@@ -0,0 +1,82 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Tests how the work of sharded services is divided between nodes, and the statistics of service runs.
+ */
+public class ServiceShardingUnitTest {
+
+    @Test
+    public void shardsAreDividedBetweenAllNodes() {
+        final List<String> nodes = Arrays.asList("node3", "node1", "node2");
+        assertEquals(Arrays.asList(0, 3, 6), ServiceSharding.getShardsOfNode(nodes, "node1", 8));
+        assertEquals(Arrays.asList(1, 4, 7), ServiceSharding.getShardsOfNode(nodes, "node2", 8));
+        assertEquals(Arrays.asList(2, 5), ServiceSharding.getShardsOfNode(nodes, "node3", 8));
+        assertEquals("A node without a lease should not run any shards.", Collections.emptyList(),
+                ServiceSharding.getShardsOfNode(nodes, "node4", 8));
+        assertEquals("Nodes beyond the number of shards should not run any shards.", Collections.emptyList(),
+                ServiceSharding.getShardsOfNode(nodes, "node3", 2));
+        assertEquals(Arrays.asList(0, 1), ServiceSharding.getShardsOfNode(Collections.singletonList("node1"), "node1", 2));
+    }
+
+    @Test
+    public void eachIdIsInExactlyOneShard() {
+        final Set<Integer> ids = new HashSet<>(Arrays.asList(-1011816484, -1, 0, 1, 17, 1652389506));
+        for (final int id : ids) {
+            int count = 0;
+            for (int shard = 0; shard < 4; shard++) {
+                if (ServiceSharding.isInShard(id, shard, 4)) {
+                    count++;
+                }
+            }
+            assertEquals("Id " + id + " should be in one shard.", 1, count);
+            assertTrue("All ids should be in the only shard when the work is not sharded.", ServiceSharding.isInShard(id, 0, 1));
+        }
+        assertFalse(ServiceSharding.isInShard(5, 0, 4));
+    }
+
+    @Test
+    public void runsAreRecordedAndPublishedThroughJmx() throws Exception {
+        final String serviceName = "ServiceShardingUnitTest, service";
+        ServiceRunStatistics.INSTANCE.record(serviceName, 1, 4, 10, 200_000_000L, false);
+        ServiceRunStatistics.INSTANCE.record(serviceName, 1, 4, 5, 100_000_000L, true);
+        final ServiceRunStatistics.Shard statistics = ServiceRunStatistics.INSTANCE.getShard(serviceName, 1);
+        assertEquals(4, statistics.getShards());
+        assertEquals(2, statistics.getRunCount());
+        assertEquals(1, statistics.getFailedCount());
+        assertEquals(15, statistics.getItemCount());
+        assertEquals(5, statistics.getLastItemCount());
+        assertEquals(100.0, statistics.getLastTimeMillis(), 0.001);
+        assertEquals(300.0, statistics.getTotalTimeMillis(), 0.001);
+        final ObjectName objectName = new ObjectName("org.ejbca:type=Service,name=" + ObjectName.quote(serviceName) + ",shard=1");
+        assertEquals("Statistics should be available through JMX.", 15L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "ItemCount"));
+        ServiceRunStatistics.INSTANCE.reset();
+        assertEquals(0, statistics.getRunCount());
+    }
+}
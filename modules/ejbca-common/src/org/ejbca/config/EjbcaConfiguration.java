@@ -354,6 +354,56 @@ public final class EjbcaConfiguration {
         return getLongProperty("peerconnector.cachetime", 60000L);
     }
 
+    /** @return the number of certificates of a batch that are issued in one transaction. */
+    public static int getBatchIssuanceChunkSize() {
+        return getIntProperty("batchissuance.chunksize", 100);
+    }
+
+    /** @return the maximum number of certificate requests in one batch. */
+    public static int getBatchIssuanceMaxRequests() {
+        return getIntProperty("batchissuance.maxrequests", 1000);
+    }
+
+    /** @return the maximum number of chunks of one batch that are issued at the same time. */
+    public static int getBatchIssuanceParallelism() {
+        return getIntProperty("batchissuance.parallelism", 4);
+    }
+
+    /** @return the number of workers that publish the queue of one publisher at the same time. */
+    public static int getPublisherQueueParallelism() {
+        return getIntProperty("publisher.queue.parallelism", 1);
+    }
+
+    /** @return true if workers should claim publisher queue entries with SELECT ... FOR UPDATE SKIP LOCKED, where the database supports it. */
+    public static boolean isPublisherQueueSkipLocked() {
+        return getBooleanProperty("publisher.queue.skiplocked", false);
+    }
+
+    /** @return the maximum number of idle connections an LDAP publisher keeps to each LDAP server, 0 to disconnect after each operation. */
+    public static int getLdapPublisherConnectionPoolSize() {
+        return getIntProperty("publisher.ldap.connectionpool.size", 4);
+    }
+
+    /** @return how long an idle LDAP publisher connection is kept before it is closed, in milliseconds. */
+    public static long getLdapPublisherConnectionPoolMaxIdleTime() {
+        return getLongProperty("publisher.ldap.connectionpool.maxidletime", 60000L);
+    }
+
+    /** @return how many more times a failed Safe Direct Publishing attempt is retried before the entry is left to the publisher queue. */
+    public static int getSafeDirectPublishingRetries() {
+        return getIntProperty("publisher.safedirect.retries", 3);
+    }
+
+    /** @return how long to wait before the first retry of a failed Safe Direct Publishing attempt, in milliseconds. Doubled for each retry. */
+    public static long getSafeDirectPublishingRetryBackoff() {
+        return getLongProperty("publisher.safedirect.retrybackoff", 5000L);
+    }
+
+    /** @return the number of shards the work of shardable services is split into, 1 or less to run each service on one node at a time. */
+    public static int getServiceShards() {
+        return getIntProperty("service.shards", 1);
+    }
+
     /** @return the value as a boolean or the default otherwise. */
     private static boolean getBooleanProperty(final String key, final boolean defaultValue) {
         final String value = EjbcaConfigurationHolder.getString(key);
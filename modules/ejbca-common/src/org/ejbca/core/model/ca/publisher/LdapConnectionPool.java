@@ -0,0 +1,165 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.ca.publisher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+import com.novell.ldap.LDAPConnection;
+import com.novell.ldap.LDAPException;
+
+/**
+ * Idle, bound LDAP connections of the LDAP publishers, so a publisher does not have to connect, negotiate TLS and bind for every
+ * certificate and CRL it publishes.
+ * <p>
+ * There is one pool for each publisher and LDAP server, so failing over to the next server of a publisher works as before. The most
+ * recently used connection is handed out first, and connections that have been idle for longer than the maximum idle time are closed.
+ * When the connection settings of a publisher change, the idle connections made with the old settings are closed.
+ *
+ * @see LdapPublisher
+ */
+public enum LdapConnectionPool {
+    INSTANCE;
+
+    // Logger is not static since static initializers run after the constructor for enums.
+    private final Logger log = Logger.getLogger(LdapConnectionPool.class);
+
+    /** A connection that is, or was, idle in a pool */
+    static final class IdleConnection {
+        private final LDAPConnection connection;
+        private final long idleSince;
+
+        private IdleConnection(final LDAPConnection connection, final long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+
+        LDAPConnection getConnection() {
+            return connection;
+        }
+
+        /** @return how long the connection was idle, in milliseconds */
+        long getIdleMillis() {
+            return System.currentTimeMillis() - idleSince;
+        }
+    }
+
+    /** Idle connections to one server. Only used while holding the lock of this object. */
+    private static final class ServerPool {
+        private final Deque<IdleConnection> idle = new ArrayDeque<>();
+        private String settings;
+    }
+
+    private final ConcurrentMap<String, ServerPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Takes an idle connection from a pool.
+     *
+     * @param key identifies the publisher and server
+     * @param settings the connection settings of the publisher, like the bind DN and password
+     * @param maxIdleMillis connections that have been idle longer than this are closed instead of returned
+     * @return the idle connection, or null if there is none, and the caller should connect
+     */
+    IdleConnection take(final String key, final String settings, final long maxIdleMillis) {
+        final ServerPool pool = pools.get(key);
+        if (pool == null) {
+            return null;
+        }
+        final List<LDAPConnection> expired = new ArrayList<>();
+        final IdleConnection ret;
+        final long now = System.currentTimeMillis();
+        synchronized (pool) {
+            if (!settings.equals(pool.settings)) {
+                // The settings of the publisher have changed, so the connections were bound with the old settings
+                while (!pool.idle.isEmpty()) {
+                    expired.add(pool.idle.poll().connection);
+                }
+                pool.settings = settings;
+            }
+            // The oldest connections are at the end of the deque
+            while (!pool.idle.isEmpty() && now - pool.idle.peekLast().idleSince > maxIdleMillis) {
+                expired.add(pool.idle.pollLast().connection);
+            }
+            ret = pool.idle.pollFirst();
+        }
+        for (final LDAPConnection connection : expired) {
+            close(connection);
+        }
+        return ret;
+    }
+
+    /**
+     * Gives a bound connection back to a pool, or closes it if the pool is full.
+     *
+     * @param key identifies the publisher and server
+     * @param settings the connection settings of the publisher that the connection was bound with
+     * @param connection the connection
+     * @param maxSize maximum number of idle connections for the publisher and server
+     */
+    void offer(final String key, final String settings, final LDAPConnection connection, final int maxSize) {
+        final ServerPool pool = pools.computeIfAbsent(key, k -> new ServerPool());
+        synchronized (pool) {
+            if (pool.settings == null) {
+                pool.settings = settings;
+            }
+            if (settings.equals(pool.settings) && pool.idle.size() < maxSize) {
+                pool.idle.offerFirst(new IdleConnection(connection, System.currentTimeMillis()));
+                return;
+            }
+        }
+        close(connection);
+    }
+
+    /** @return the number of idle connections in all pools */
+    public int getIdleCount() {
+        int ret = 0;
+        for (final ServerPool pool : pools.values()) {
+            synchronized (pool) {
+                ret += pool.idle.size();
+            }
+        }
+        return ret;
+    }
+
+    /** Closes all idle connections, for example when the application is shut down. */
+    public void closeAll() {
+        for (final ServerPool pool : pools.values()) {
+            final List<LDAPConnection> connections = new ArrayList<>();
+            synchronized (pool) {
+                while (!pool.idle.isEmpty()) {
+                    connections.add(pool.idle.poll().connection);
+                }
+            }
+            for (final LDAPConnection connection : connections) {
+                close(connection);
+            }
+        }
+        pools.clear();
+    }
+
+    void close(final LDAPConnection connection) {
+        try {
+            connection.disconnect();
+        } catch (LDAPException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Failed to close idle LDAP connection to " + connection.getHost() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -40,6 +40,7 @@ import org.cesecore.certificates.util.DNFieldExtractor;
 import org.cesecore.oscp.OcspResponseData;
 import org.cesecore.util.ExternalScriptsAllowlist;
 import org.cesecore.util.LogRedactionUtils;
+import org.ejbca.config.EjbcaConfiguration;
 import org.ejbca.core.model.InternalEjbcaResources;
 import org.ejbca.util.LdapNameStyle;
 import org.ejbca.util.LdapTools;
@@ -108,6 +109,9 @@ public class LdapPublisher extends BasePublisher {
 	public static final String DEFAULT_READTIMEOUT         = "30000"; // 30 seconds
 	public static final String DEFAULT_STORETIMEOUT        = "60000"; // 1 minute
 
+	/** Idle connections that have not been used for this long are checked before they are reused, in milliseconds */
+	private static final long CONNECTION_VALIDATION_IDLE_TIME = 5000L;
+
 
 	// Default Values
 
@@ -196,7 +200,6 @@ public class LdapPublisher extends BasePublisher {
         } else if (status == CertificateConstants.CERT_ACTIVE) {
             // Don't publish non-active certificates
     		int ldapVersion = LDAPConnection.LDAP_V3;
-    		LDAPConnection lc = createLdapConnection();
 
     		final String dn;
     		final String certdn;
@@ -223,7 +226,7 @@ public class LdapPublisher extends BasePublisher {
     		// To work well with the LdapSearchPublisher we need to pass the full certificate DN to the 
     		// search function, and not only the LDAP DN. The regular publisher should only use the LDAP DN though, 
     		// but the searchOldEntity function will take care of that.
-    		LDAPEntry oldEntry = searchOldEntity(username, ldapVersion, lc, certdn, userDN, email);
+    		LDAPEntry oldEntry = searchOldEntity(username, ldapVersion, certdn, userDN, email);
 
     		// PART 2: Create LDAP entry
     		LDAPEntry newEntry = null;
@@ -316,18 +319,10 @@ public class LdapPublisher extends BasePublisher {
     		do {
     			connectionFailed = false;
     			String currentServer = servers.next();
+    			LDAPConnection lc = null;
+    			LDAPException ldapException = null;
     			try {
-    				TCPTool.probeConnectionLDAP(currentServer, Integer.parseInt(getPort()), getConnectionTimeOut());	// Avoid waiting for halfdead-servers
-    				lc.connect(currentServer, Integer.parseInt(getPort()));
-    				// Execute a STARTTLS handshake if it was requested.
-    				if (getConnectionSecurity() == ConnectionSecurity.STARTTLS) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("STARTTLS to LDAP server "+currentServer);
-                        }
-    				    lc.startTLS();
-    				}
-    				// authenticate to the server
-    				lc.bind(ldapVersion, getLoginDN(), getLoginPassword().getBytes("UTF8"), ldapBindConstraints);            
+    				lc = getConnection(currentServer, ldapVersion);
     				// Add or modify the entry
     				if (oldEntry != null && getModifyExistingUsers()) {
     					LDAPModification[] mods = new LDAPModification[modSet.size()]; 
@@ -367,6 +362,7 @@ public class LdapPublisher extends BasePublisher {
     					}  
     				}
     			} catch (LDAPException e) {
+    				ldapException = e;
     				connectionFailed = true;
     				// If multiple certificates are allowed per entity, and the certificate is already published, 
     				// an exception will be thrown. Catch this type of exception and just log an informational message.
@@ -387,13 +383,7 @@ public class LdapPublisher extends BasePublisher {
     				log.error(msg, e);
     				throw new PublisherException(msg);            
     			} finally {
-    				// disconnect with the server
-    				try {
-    					lc.disconnect(ldapDisconnectConstraints);
-    				} catch (LDAPException e) {
-    					String msg = intres.getLocalizedMessage("publisher.errordisconnect", getLoginPassword());
-    					log.error(msg, e);
-    				}
+    				releaseConnection(currentServer, lc, ldapException);
     			}
     		} while (connectionFailed && servers.hasNext()) ;
         } else {
@@ -498,10 +488,8 @@ public class LdapPublisher extends BasePublisher {
 			throw new PublisherException(msg);            
 		}
 
-		LDAPConnection lc = createLdapConnection();
-
 		// Check if the entry is already present, we will update it with the new CRL.
-		LDAPEntry oldEntry = searchOldEntity(null, ldapVersion, lc, crldn, userDN, null);
+		LDAPEntry oldEntry = searchOldEntity(null, ldapVersion, crldn, userDN, null);
 
 		LDAPEntry newEntry = null;
 		ArrayList<LDAPModification> modSet = new ArrayList<LDAPModification>();
@@ -542,19 +530,10 @@ public class LdapPublisher extends BasePublisher {
 		do {
 			connectionFailed = false;
 			String currentServer = servers.next();
+			LDAPConnection lc = null;
+			LDAPException ldapException = null;
 			try {
-				TCPTool.probeConnectionLDAP(currentServer, Integer.parseInt(getPort()), getConnectionTimeOut());	// Avoid waiting for halfdead-servers
-				// connect to the server
-				lc.connect(currentServer, Integer.parseInt(getPort()));
-				// Execute a STARTTLS handshake if it was requested.
-				if (getConnectionSecurity() == ConnectionSecurity.STARTTLS) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("STARTTLS to LDAP server "+currentServer);
-                    }
-					lc.startTLS();
-				}
-				// authenticate to the server
-				lc.bind(ldapVersion, getLoginDN(), getLoginPassword().getBytes("UTF8"), ldapBindConstraints);
+				lc = getConnection(currentServer, ldapVersion);
 				// Add or modify the entry
 				if (oldEntry != null) {
 					LDAPModification[] mods = new LDAPModification[modSet.size()]; 
@@ -568,6 +547,7 @@ public class LdapPublisher extends BasePublisher {
 					log.info(msg);
 				}
 			} catch (LDAPException e) {
+				ldapException = e;
 				connectionFailed = true;
 				if (servers.hasNext()) {
 					log.warn("Failed to publish to " + currentServer + ". Trying next in list.");
@@ -583,13 +563,7 @@ public class LdapPublisher extends BasePublisher {
 				log.error(msg, e);
 				throw new PublisherException(msg);            
 			} finally {
-				// disconnect with the server
-				try {
-					lc.disconnect(ldapDisconnectConstraints);
-				} catch (LDAPException e) {
-					String msg = intres.getLocalizedMessage("publisher.errordisconnect");
-					log.error(msg, e);
-				}
+				releaseConnection(currentServer, lc, ldapException);
 			}
 		} while (connectionFailed && servers.hasNext()) ;
 		if (log.isTraceEnabled()) {
@@ -631,7 +605,6 @@ public class LdapPublisher extends BasePublisher {
 		}
 
 		int ldapVersion = LDAPConnection.LDAP_V3;
-		LDAPConnection lc = createLdapConnection();
 
 		final String dn;
 		final String certdn;
@@ -654,7 +627,7 @@ public class LdapPublisher extends BasePublisher {
 		ArrayList<LDAPModification> modSet = null;
 
 		if (!CertTools.isCA(cert)) {
-			oldEntry = searchOldEntity(username, ldapVersion, lc, certdn, userDN, email);
+			oldEntry = searchOldEntity(username, ldapVersion, certdn, userDN, email);
 			if (log.isDebugEnabled()) {
 				log.debug("Removing end user certificate from first available server of " + getHostnames());
 			}
@@ -695,18 +668,10 @@ public class LdapPublisher extends BasePublisher {
 			if (log.isDebugEnabled()) {
 				log.debug("currentServer: "+currentServer);
 			}
+			LDAPConnection lc = null;
+			LDAPException ldapException = null;
 			try {
-				TCPTool.probeConnectionLDAP(currentServer, Integer.parseInt(getPort()), getConnectionTimeOut());	// Avoid waiting for halfdead-servers
-				lc.connect(currentServer, Integer.parseInt(getPort()));
-				// Execute a STARTTLS handshake if it was requested.
-				if (getConnectionSecurity() == ConnectionSecurity.STARTTLS) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("STARTTLS to LDAP server "+currentServer);
-                    }
-					lc.startTLS();
-				}
-				// authenticate to the server
-				lc.bind(ldapVersion, getLoginDN(), getLoginPassword().getBytes("UTF8"), ldapBindConstraints);            
+				lc = getConnection(currentServer, ldapVersion);
 				// Add or modify the entry
 				if (modSet != null && getModifyExistingUsers()) {
 					if (removecert) {
@@ -730,6 +695,7 @@ public class LdapPublisher extends BasePublisher {
 					}
 				}
 			} catch (LDAPException e) {
+				ldapException = e;
 				isConnectionNotDone = true;
 				if (servers.hasNext()) {
 					log.warn("Failed to publish to " + currentServer + ". Trying next in list.");
@@ -743,13 +709,7 @@ public class LdapPublisher extends BasePublisher {
 				log.error(msg, e);
 				throw new PublisherException(msg);            
 			} finally {
-				// disconnect with the server
-				try {
-					lc.disconnect(ldapDisconnectConstraints);
-				} catch (LDAPException e) {
-					String msg = intres.getLocalizedMessage("publisher.errordisconnect");
-					log.error(msg, e);
-				}
+				releaseConnection(currentServer, lc, ldapException);
 			}
 		}
 		if (log.isTraceEnabled()) {
@@ -762,7 +722,7 @@ public class LdapPublisher extends BasePublisher {
 	 *  
 	 *  @param dn the DN from the certificate, can be used to extract search information or a LDAP DN
 	 */
-	protected LDAPEntry searchOldEntity(String username, int ldapVersion, LDAPConnection lc, String certDN, String userDN, String email) throws PublisherException {
+	protected LDAPEntry searchOldEntity(String username, int ldapVersion, String certDN, String userDN, String email) throws PublisherException {
 		LDAPEntry oldEntry = null; // return value
 		// Try all the listed servers
 		final Iterator<String> servers = getHostnameList().iterator();
@@ -774,19 +734,10 @@ public class LdapPublisher extends BasePublisher {
 				log.debug("Current server is: "+currentServer);
 			}
 			final String ldapdn = constructLDAPDN(certDN, userDN);
+			LDAPConnection lc = null;
+			LDAPException ldapException = null;
 			try {
-				TCPTool.probeConnectionLDAP(currentServer, Integer.parseInt(getPort()), getConnectionTimeOut());	// Avoid waiting for halfdead-servers
-				// connect to the server
-				lc.connect(currentServer, Integer.parseInt(getPort()));
-				// Execute a STARTTLS handshake if it was requested.
-				if (getConnectionSecurity() == ConnectionSecurity.STARTTLS) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("STARTTLS to LDAP server "+currentServer);
-                    }
-					lc.startTLS();
-				}
-				// authenticate to the server
-				lc.bind(ldapVersion, getLoginDN(), getLoginPassword().getBytes("UTF8"), ldapBindConstraints);
+				lc = getConnection(currentServer, ldapVersion);
 				// try to read the old object
 				if (log.isDebugEnabled()) {
 					log.debug("Searching for old entry with DN '" + LogRedactionUtils.getSubjectDnLogSafe(ldapdn) +"'");
@@ -800,6 +751,7 @@ public class LdapPublisher extends BasePublisher {
 					}					
 				}
 			} catch (LDAPException e) {
+				ldapException = e;
 				if (e.getResultCode() == LDAPException.NO_SUCH_OBJECT) {
 					if (log.isDebugEnabled()) {
 						log.debug("No old entry exist for '" + LogRedactionUtils.getSubjectDnLogSafe(ldapdn) + "'.");
@@ -818,13 +770,7 @@ public class LdapPublisher extends BasePublisher {
 				String msg = intres.getLocalizedMessage("publisher.errorpassword", getLoginPassword());
 				throw new PublisherException(msg);            
 			} finally {
-				// disconnect with the server
-				try {
-					lc.disconnect(ldapDisconnectConstraints);
-				} catch (LDAPException e) {
-					String msg = intres.getLocalizedMessage("publisher.errordisconnect");
-					log.error(msg, e);
-				}
+				releaseConnection(currentServer, lc, ldapException);
 			}
 		} while (connectionFailed && servers.hasNext()) ;
 		return oldEntry;
@@ -894,8 +840,141 @@ public class LdapPublisher extends BasePublisher {
 		} while (connectionFailed && servers.hasNext()) ;
 	} 
 
-	protected LDAPConnection createLdapConnection() {
-		// Set timeouts
+	/**
+	 * Returns a bound connection to an LDAP server. An idle connection to the server from an earlier operation of this publisher is
+	 * reused if there is one that still works, otherwise a new connection is made. The connection must be given back with
+	 * {@link #releaseConnection(String, LDAPConnection, LDAPException)} when the operation is done.
+	 * 
+	 * @param server the LDAP server to connect to
+	 * @param ldapVersion the LDAP protocol version to bind with
+	 * @return a bound connection
+	 * @throws LDAPException if the connection or bind fails
+	 * @throws UnsupportedEncodingException if the login password can not be encoded
+	 */
+	protected LDAPConnection getConnection(final String server, final int ldapVersion) throws LDAPException, UnsupportedEncodingException {
+		// Idle connections are validated with the read time limit, so a connection that has been dropped silently can not block
+		setTimeLimits();
+		if (EjbcaConfiguration.getLdapPublisherConnectionPoolSize() > 0) {
+			final String poolKey = getConnectionPoolKey(server);
+			final String settings = getConnectionPoolSettings();
+			LdapConnectionPool.IdleConnection idleConnection;
+			while ((idleConnection = LdapConnectionPool.INSTANCE.take(poolKey, settings,
+					EjbcaConfiguration.getLdapPublisherConnectionPoolMaxIdleTime())) != null) {
+				final LDAPConnection lc = idleConnection.getConnection();
+				if (isConnectionUsable(lc, idleConnection.getIdleMillis())) {
+					if (log.isDebugEnabled()) {
+						log.debug("Reusing connection to LDAP server " + server);
+					}
+					return lc;
+				}
+				LdapConnectionPool.INSTANCE.close(lc);
+			}
+		}
+		final LDAPConnection lc = createLdapConnection();
+		try {
+			TCPTool.probeConnectionLDAP(server, Integer.parseInt(getPort()), getConnectionTimeOut());	// Avoid waiting for halfdead-servers
+			// connect to the server
+			lc.connect(server, Integer.parseInt(getPort()));
+			// Execute a STARTTLS handshake if it was requested.
+			if (getConnectionSecurity() == ConnectionSecurity.STARTTLS) {
+				if (log.isDebugEnabled()) {
+					log.debug("STARTTLS to LDAP server "+server);
+				}
+				lc.startTLS();
+			}
+			// authenticate to the server
+			lc.bind(ldapVersion, getLoginDN(), getLoginPassword().getBytes("UTF8"), ldapBindConstraints);
+		} catch (LDAPException | UnsupportedEncodingException e) {
+			poolOrDisconnect(server, lc, false);
+			throw e;
+		}
+		return lc;
+	}
+
+	/**
+	 * Gives a connection from {@link #getConnection(String, int)} back to the pool of idle connections, or disconnects it if it can not
+	 * be reused.
+	 * 
+	 * @param server the LDAP server that the connection is to
+	 * @param lc the connection, or null if no connection was made
+	 * @param ldapException the exception that the last operation on the connection failed with, or null if it succeeded
+	 */
+	protected void releaseConnection(final String server, final LDAPConnection lc, final LDAPException ldapException) {
+		poolOrDisconnect(server, lc, ldapException == null || isEntryResult(ldapException.getResultCode()));
+	}
+
+	private void poolOrDisconnect(final String server, final LDAPConnection lc, final boolean reusable) {
+		if (lc == null) {
+			return;
+		}
+		final int poolSize = EjbcaConfiguration.getLdapPublisherConnectionPoolSize();
+		if (reusable && poolSize > 0 && lc.isBound()) {
+			LdapConnectionPool.INSTANCE.offer(getConnectionPoolKey(server), getConnectionPoolSettings(), lc, poolSize);
+			return;
+		}
+		// disconnect with the server
+		try {
+			lc.disconnect(ldapDisconnectConstraints);
+		} catch (LDAPException e) {
+			String msg = intres.getLocalizedMessage("publisher.errordisconnect");
+			log.error(msg, e);
+		}
+	}
+
+	/** @return true if an idle connection is still connected, and answers if it has been idle for a while */
+	private boolean isConnectionUsable(final LDAPConnection lc, final long idleMillis) {
+		if (!lc.isConnectionAlive()) {
+			return false;
+		}
+		if (idleMillis > CONNECTION_VALIDATION_IDLE_TIME) {
+			// The server or a firewall may have dropped the connection without closing it, so read the root DSE
+			try {
+				lc.read("", new String[] { LDAPConnection.NO_ATTRS }, ldapSearchConstraints);
+			} catch (LDAPException e) {
+				if (log.isDebugEnabled()) {
+					log.debug("Idle connection to LDAP server " + lc.getHost() + " did not answer: " + e.getMessage());
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the result code is about the entry that was read or written, so the operation failed but the connection
+	 * can still be used.
+	 */
+	private static boolean isEntryResult(final int resultCode) {
+		switch (resultCode) {
+		case LDAPException.NO_SUCH_ATTRIBUTE:
+		case LDAPException.UNDEFINED_ATTRIBUTE_TYPE:
+		case LDAPException.CONSTRAINT_VIOLATION:
+		case LDAPException.ATTRIBUTE_OR_VALUE_EXISTS:
+		case LDAPException.INVALID_ATTRIBUTE_SYNTAX:
+		case LDAPException.NO_SUCH_OBJECT:
+		case LDAPException.INVALID_DN_SYNTAX:
+		case LDAPException.NAMING_VIOLATION:
+		case LDAPException.OBJECT_CLASS_VIOLATION:
+		case LDAPException.NOT_ALLOWED_ON_NONLEAF:
+		case LDAPException.ENTRY_ALREADY_EXISTS:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/** @return the key of the pool of idle connections of this publisher to a server */
+	private String getConnectionPoolKey(final String server) {
+		return getPublisherId() + ";" + server;
+	}
+
+	/** @return the settings that idle connections must have been made with to be reused */
+	private String getConnectionPoolSettings() {
+		return getPort() + ";" + getConnectionSecurity() + ";" + getConnectionTimeOut() + ";" + getLoginDN() + ";" + getLoginPassword();
+	}
+
+	/** Sets the time limits of the operations, from the configuration of this publisher */
+	private void setTimeLimits() {
 		int connectiontimeout = getConnectionTimeOut();
 		ldapBindConstraints.setTimeLimit(connectiontimeout); 
 		ldapDisconnectConstraints.setTimeLimit(connectiontimeout);
@@ -910,6 +989,10 @@ public class LdapPublisher extends BasePublisher {
 			log.debug("storetimeout: "+ldapStoreConstraints.getTimeLimit());
             log.debug("connectionsecurity: "+getConnectionSecurity());
 		}
+	}
+
+	protected LDAPConnection createLdapConnection() {
+		setTimeLimits();
 		LDAPConnection lc;
 
 		switch (getConnectionSecurity()) {
@@ -21,7 +21,6 @@ import java.util.regex.Pattern;
 import org.apache.log4j.Logger;
 import org.cesecore.util.LogRedactionUtils;
 import org.ejbca.core.model.InternalEjbcaResources;
-import org.ejbca.util.TCPTool;
 
 import com.keyfactor.util.CertTools;
 import com.novell.ldap.LDAPConnection;
@@ -68,7 +67,7 @@ public class LdapSearchPublisher extends LdapPublisher {
      *  @param certDN the DN from the certificate, can be used to extract search information or a LDAP DN
      *  @return an existing LDAPEntry, or null if not found
      */
-    protected LDAPEntry searchOldEntity(final String username, final int ldapVersion, final LDAPConnection lc, final String certDN, final String userDN, final String email) throws PublisherException {
+    protected LDAPEntry searchOldEntity(final String username, final int ldapVersion, final String certDN, final String userDN, final String email) throws PublisherException {
         LDAPEntry oldEntry = null; // return value
 
 		// Try all the listed servers
@@ -80,22 +79,10 @@ public class LdapSearchPublisher extends LdapPublisher {
 	        // PARTE 1: Search for an existing entry in the LDAP directory
 			//  If it exists, this will be returned to be populated
 			//  if not exist, nothing will be returned and a new LDAP entry created
+			LDAPConnection lc = null;
+			LDAPException ldapException = null;
 			try {
-				TCPTool.probeConnectionLDAP(currentServer, Integer.parseInt(getPort()), getConnectionTimeOut());	// Avoid waiting for halfdead-servers
-				// connect to the server
-				log.debug("Connecting to " + currentServer);
-				lc.connect(currentServer, Integer.parseInt(getPort()));
-				// Execute a STARTTLS handshake if it was requested.
-				if (getConnectionSecurity() == ConnectionSecurity.STARTTLS) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("STARTTLS to LDAP server "+currentServer);
-                    }
-					lc.startTLS();
-				}
-
-				// authenticate to the server
-				log.debug("Logging in with BIND DN " + getLoginDN());
-				lc.bind(ldapVersion, getLoginDN(), getLoginPassword().getBytes("UTF8"), ldapBindConstraints);
+				lc = getConnection(currentServer, ldapVersion);
 				//searchFilter = "(&(objectclass=person)(uid=" + username + "))";
 				String searchFilter = getSearchFilter();
 				if (log.isDebugEnabled()) {
@@ -152,6 +139,8 @@ public class LdapSearchPublisher extends LdapPublisher {
 					if (searchResults.hasMore()) {
 						log.debug("Found more than one matches with filter '" + searchFilter +
 								"'. Using the first match with LDAP entry with DN: " + LogRedactionUtils.getSubjectDnLogSafe(oldEntry.getDN()));
+						// Stop the search, since the connection may be reused
+						lc.abandon(searchResults);
 					} else {
 						log.debug("Found one match with filter: '"+searchFilter+"', match with DN: " + LogRedactionUtils.getSubjectDnLogSafe(oldEntry.getDN()));
 					}
@@ -172,6 +161,7 @@ public class LdapSearchPublisher extends LdapPublisher {
 					}
 				}
 			} catch (LDAPException e) {
+				ldapException = e;
 				if (e.getResultCode() == LDAPException.NO_SUCH_OBJECT) {
 					String msg = intres.getLocalizedMessage("publisher.noentry", certDN +", " + LogRedactionUtils.getSubjectDnLogSafe(userDN));
 					log.info(msg);
@@ -189,13 +179,7 @@ public class LdapSearchPublisher extends LdapPublisher {
 				String msg = intres.getLocalizedMessage("publisher.errorpassword", getLoginPassword());
 	            throw new PublisherException(msg);            
 			} finally {
-				// disconnect with the server
-				try {
-					lc.disconnect(ldapDisconnectConstraints);
-				} catch (LDAPException e) {
-					String msg = intres.getLocalizedMessage("publisher.errordisconnect");
-					log.error(msg, e);
-				}
+				releaseConnection(currentServer, lc, ldapException);
 			}
 		} while (connectionFailed && servers.hasNext()) ;
         return oldEntry;
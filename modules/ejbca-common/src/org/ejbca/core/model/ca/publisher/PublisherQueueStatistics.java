@@ -0,0 +1,128 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.ca.publisher;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.cesecore.internal.JmxRegistry;
+
+/**
+ * Throughput of the publisher queue of each publisher on this node, to see how fast a backlog is published. The values are published
+ * through JMX as <code>org.ejbca:type=PublisherQueue,id=&lt;publisher id&gt;</code>, and can be read from the health check.
+ * Recording does not lock, so it can be done by all workers.
+ */
+public enum PublisherQueueStatistics {
+    INSTANCE;
+
+    /** Throughput of the queue of one publisher */
+    public static final class Publisher implements PublisherQueueStatisticsMXBean {
+        private final int publisherId;
+        private final LongAdder publishedCount = new LongAdder();
+        private final LongAdder failedCount = new LongAdder();
+        private final LongAdder batchCount = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Publisher(final int publisherId) {
+            this.publisherId = publisherId;
+        }
+
+        private void record(final int published, final int failed, final long nanos) {
+            publishedCount.add(published);
+            failedCount.add(failed);
+            batchCount.increment();
+            totalNanos.add(nanos);
+        }
+
+        @Override
+        public int getPublisherId() {
+            return publisherId;
+        }
+
+        @Override
+        public long getPublishedCount() {
+            return publishedCount.sum();
+        }
+
+        @Override
+        public long getFailedCount() {
+            return failedCount.sum();
+        }
+
+        @Override
+        public long getBatchCount() {
+            return batchCount.sum();
+        }
+
+        @Override
+        public double getTotalTimeMillis() {
+            return totalNanos.sum() / 1000000.0;
+        }
+
+        @Override
+        public double getPublishedPerSecond() {
+            final long currentNanos = totalNanos.sum();
+            return currentNanos == 0 ? 0.0 : publishedCount.sum() * 1000000000.0 / currentNanos;
+        }
+
+        @Override
+        public void reset() {
+            publishedCount.reset();
+            failedCount.reset();
+            batchCount.reset();
+            totalNanos.reset();
+        }
+    }
+
+    private final ConcurrentMap<Integer, Publisher> publishers = new ConcurrentHashMap<>();
+
+    /**
+     * Records that a batch of queue entries was processed.
+     *
+     * @param publisherId id of the publisher
+     * @param published number of entries that were published
+     * @param failed number of entries that could not be published
+     * @param nanos time spent processing the batch
+     */
+    public void record(final int publisherId, final int published, final int failed, final long nanos) {
+        publishers.computeIfAbsent(publisherId, this::register).record(published, failed, nanos);
+    }
+
+    /** @return the throughput of the queue of one publisher, or null if nothing has been recorded for it */
+    public Publisher getPublisher(final int publisherId) {
+        return publishers.get(publisherId);
+    }
+
+    /** @return the throughput of the queues of all publishers that something has been recorded for, sorted by publisher id */
+    public List<Publisher> getPublishers() {
+        final List<Publisher> ret = new ArrayList<>(publishers.values());
+        ret.sort(Comparator.comparingInt(Publisher::getPublisherId));
+        return ret;
+    }
+
+    public void reset() {
+        for (final Publisher publisher : publishers.values()) {
+            publisher.reset();
+        }
+    }
+
+    private Publisher register(final int publisherId) {
+        final Publisher publisher = new Publisher(publisherId);
+        JmxRegistry.INSTANCE.register(publisher, "org.ejbca:type=PublisherQueue,id=" + publisherId);
+        return publisher;
+    }
+}
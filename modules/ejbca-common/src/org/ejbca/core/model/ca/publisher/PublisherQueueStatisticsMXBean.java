@@ -0,0 +1,39 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.ca.publisher;
+
+/**
+ * JMX view of how fast the queue of one publisher is published, registered as <code>org.ejbca:type=PublisherQueue,id=&lt;publisher id&gt;</code>.
+ */
+public interface PublisherQueueStatisticsMXBean {
+
+    int getPublisherId();
+
+    /** @return the number of queue entries that were published */
+    long getPublishedCount();
+
+    /** @return the number of attempts to publish a queue entry that failed */
+    long getFailedCount();
+
+    /** @return the number of batches of queue entries that were processed */
+    long getBatchCount();
+
+    /** @return the time spent processing batches, summed over all workers */
+    double getTotalTimeMillis();
+
+    /** @return the number of queue entries published per second of processing, summed over all workers */
+    double getPublishedPerSecond();
+
+    /** Sets all values to 0 */
+    void reset();
+}
@@ -79,4 +79,31 @@ public interface IWorker {
 	 * @throws ServiceExecutionFailedException if the worker cannot run
 	 */
 	void canWorkerRun(Map<Class<?>, Object> ejbs) throws ServiceExecutionFailedException;
+
+	/**
+	 * @return true if the work of this worker can be split into shards, which are run by different nodes of a cluster at the same time.
+	 * @see ServiceSharding
+	 */
+	default boolean isShardable() {
+	    return false;
+	}
+
+	/**
+	 * Restricts the work of a shardable worker to one shard.
+	 * 
+	 * @param shard the shard to work on, from 0
+	 * @param shards the number of shards
+	 */
+	default void setShard(int shard, int shards) {
+	}
+
+	/** @return the shard this worker works on, from 0 */
+	default int getShard() {
+	    return 0;
+	}
+
+	/** @return the number of shards the work is split into, 1 if it is not split */
+	default int getShards() {
+	    return 1;
+	}
 }
@@ -35,13 +35,22 @@ public class ServiceExecutionResult {
 
     private final Result result;
     private final String msg;
+    private final long itemCount;
 
     /**
      * 
      */
     public ServiceExecutionResult(final Result result, final String msg) {
+        this(result, msg, 0);
+    }
+
+    /**
+     * @param itemCount number of items the worker processed, like certificates or publisher queue entries
+     */
+    public ServiceExecutionResult(final Result result, final String msg, final long itemCount) {
         this.result = result;
         this.msg = msg;
+        this.itemCount = itemCount;
     }
 
     public Result getResult() {
@@ -52,4 +61,9 @@ public class ServiceExecutionResult {
         return msg;
     }
 
+    /** @return number of items the worker processed, or 0 if the worker does not count them */
+    public long getItemCount() {
+        return itemCount;
+    }
+
 }
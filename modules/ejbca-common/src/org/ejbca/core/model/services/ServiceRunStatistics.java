@@ -0,0 +1,166 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.cesecore.internal.JmxRegistry;
+
+/**
+ * Duration and number of processed items of the service runs on this node, for each service and shard, to see how the work of sharded
+ * services is spread over the nodes. The values are published through JMX as
+ * <code>org.ejbca:type=Service,name=&lt;service name&gt;,shard=&lt;shard&gt;</code>.
+ */
+public enum ServiceRunStatistics {
+    INSTANCE;
+
+    /** Runs of one shard of a service */
+    public static final class Shard implements ServiceRunStatisticsMXBean {
+        private final String serviceName;
+        private final int shard;
+        private volatile int shards = 1;
+        private final LongAdder runCount = new LongAdder();
+        private final LongAdder failedCount = new LongAdder();
+        private final LongAdder itemCount = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private volatile long lastItemCount;
+        private volatile long lastNanos;
+        private volatile long lastRunTime;
+
+        private Shard(final String serviceName, final int shard) {
+            this.serviceName = serviceName;
+            this.shard = shard;
+        }
+
+        private void record(final int shards, final long items, final long nanos, final boolean failed) {
+            this.shards = shards;
+            runCount.increment();
+            if (failed) {
+                failedCount.increment();
+            }
+            itemCount.add(items);
+            totalNanos.add(nanos);
+            lastItemCount = items;
+            lastNanos = nanos;
+            lastRunTime = System.currentTimeMillis();
+        }
+
+        @Override
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        @Override
+        public int getShard() {
+            return shard;
+        }
+
+        @Override
+        public int getShards() {
+            return shards;
+        }
+
+        @Override
+        public long getRunCount() {
+            return runCount.sum();
+        }
+
+        @Override
+        public long getFailedCount() {
+            return failedCount.sum();
+        }
+
+        @Override
+        public long getItemCount() {
+            return itemCount.sum();
+        }
+
+        @Override
+        public long getLastItemCount() {
+            return lastItemCount;
+        }
+
+        @Override
+        public double getLastTimeMillis() {
+            return lastNanos / 1000000.0;
+        }
+
+        @Override
+        public double getTotalTimeMillis() {
+            return totalNanos.sum() / 1000000.0;
+        }
+
+        @Override
+        public long getLastRunTime() {
+            return lastRunTime;
+        }
+
+        @Override
+        public void reset() {
+            runCount.reset();
+            failedCount.reset();
+            itemCount.reset();
+            totalNanos.reset();
+            lastItemCount = 0;
+            lastNanos = 0;
+            lastRunTime = 0;
+        }
+    }
+
+    private final ConcurrentMap<String, Shard> shards = new ConcurrentHashMap<>();
+
+    /**
+     * Records a run of a service.
+     *
+     * @param serviceName name of the service
+     * @param shard the shard that was run, 0 if the service is not sharded
+     * @param shardCount the number of shards of the service, 1 if it is not sharded
+     * @param items number of items the worker processed
+     * @param nanos duration of the run
+     * @param failed true if the worker failed
+     */
+    public void record(final String serviceName, final int shard, final int shardCount, final long items, final long nanos, final boolean failed) {
+        shards.computeIfAbsent(serviceName + ";" + shard, key -> register(serviceName, shard)).record(shardCount, items, nanos, failed);
+    }
+
+    /** @return the runs of one shard of a service, or null if nothing has been recorded for it */
+    public Shard getShard(final String serviceName, final int shard) {
+        return shards.get(serviceName + ";" + shard);
+    }
+
+    /** @return the runs of all services and shards that something has been recorded for, sorted by service name and shard */
+    public List<Shard> getShards() {
+        final List<Shard> ret = new ArrayList<>(shards.values());
+        ret.sort(Comparator.comparing(Shard::getServiceName).thenComparingInt(Shard::getShard));
+        return ret;
+    }
+
+    public void reset() {
+        for (final Shard shard : shards.values()) {
+            shard.reset();
+        }
+    }
+
+    private Shard register(final String serviceName, final int shard) {
+        final Shard ret = new Shard(serviceName, shard);
+        JmxRegistry.INSTANCE.register(ret, "org.ejbca:type=Service,name=" + ObjectName.quote(serviceName) + ",shard=" + shard);
+        return ret;
+    }
+}
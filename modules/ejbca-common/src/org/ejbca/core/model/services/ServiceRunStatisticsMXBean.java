@@ -0,0 +1,52 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.services;
+
+/**
+ * JMX view of the runs of one shard of a service on this node, registered as
+ * <code>org.ejbca:type=Service,name=&lt;service name&gt;,shard=&lt;shard&gt;</code>.
+ */
+public interface ServiceRunStatisticsMXBean {
+
+    String getServiceName();
+
+    /** @return the shard, from 0. Always 0 for services that are not sharded. */
+    int getShard();
+
+    /** @return the number of shards of the service at the last run */
+    int getShards();
+
+    /** @return the number of runs */
+    long getRunCount();
+
+    /** @return the number of runs where the worker failed */
+    long getFailedCount();
+
+    /** @return the number of items processed in all runs, for workers that count them */
+    long getItemCount();
+
+    /** @return the number of items processed in the last run */
+    long getLastItemCount();
+
+    /** @return the duration of the last run */
+    double getLastTimeMillis();
+
+    /** @return the duration of all runs */
+    double getTotalTimeMillis();
+
+    /** @return the time the last run ended, in milliseconds since epoch, or 0 */
+    long getLastRunTime();
+
+    /** Sets all values to 0 */
+    void reset();
+}
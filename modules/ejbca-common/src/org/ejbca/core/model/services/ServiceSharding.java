@@ -0,0 +1,62 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.model.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Splitting of the work of a service into shards, that are run by the nodes of a cluster at the same time.
+ * <p>
+ * A shardable worker works on the items, like CAs or publishers, whose id falls into its shard. The shards are divided between the nodes
+ * that hold a lease on the service, where shard <i>s</i> is run by the node at position <i>s</i> modulo the number of nodes, in the
+ * sorted list of node names. All nodes come to the same result from the same leases, and when a node joins or leaves, the shards are
+ * divided again at the next run.
+ *
+ * @see IWorker#isShardable()
+ */
+public final class ServiceSharding {
+
+    private ServiceSharding() { }
+
+    /**
+     * @param nodes names of the nodes that hold a lease on the service
+     * @param node name of this node
+     * @param shards number of shards
+     * @return the shards this node should run, or an empty list if this node is not one of the nodes
+     */
+    public static List<Integer> getShardsOfNode(final Collection<String> nodes, final String node, final int shards) {
+        final List<String> sortedNodes = new ArrayList<>(new TreeSet<>(nodes));
+        final int index = sortedNodes.indexOf(node);
+        final List<Integer> ret = new ArrayList<>();
+        if (index == -1) {
+            return ret;
+        }
+        for (int shard = index; shard < shards; shard += sortedNodes.size()) {
+            ret.add(shard);
+        }
+        return ret;
+    }
+
+    /**
+     * @param id id of an item, like a CA or publisher id, which may be negative
+     * @param shard a shard, from 0
+     * @param shards number of shards
+     * @return true if the item belongs to the shard
+     */
+    public static boolean isInShard(final int id, final int shard, final int shards) {
+        return shards <= 1 || Math.floorMod(id, shards) == shard;
+    }
+}
@@ -30,7 +30,10 @@ public enum PublicKeyBlacklistEntryCache implements CommonCache<PublicKeyBlackli
 
     INSTANCE;
 
-    private final CommonCache<PublicKeyBlacklistEntry> cache = new CommonCacheBase<PublicKeyBlacklistEntry>() {
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "PublicKeyBlacklistEntryCache";
+
+    private final CommonCache<PublicKeyBlacklistEntry> cache = new CommonCacheBase<PublicKeyBlacklistEntry>(NAME) {
         @Override
         protected long getCacheTime() {
             return Math.max(CesecoreConfiguration.getCachePublicKeyBlacklistTime(), 0);
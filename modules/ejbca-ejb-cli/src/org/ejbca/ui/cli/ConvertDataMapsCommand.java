@@ -0,0 +1,59 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.cli;
+
+import org.apache.log4j.Logger;
+import org.cesecore.util.EjbRemoteHelper;
+import org.ejbca.core.ejb.upgrade.UpgradeSessionRemote;
+import org.ejbca.ui.cli.infrastructure.command.CommandResult;
+import org.ejbca.ui.cli.infrastructure.command.EjbcaCommandBase;
+import org.ejbca.ui.cli.infrastructure.parameter.ParameterContainer;
+
+/**
+ * Stores the data of all CAs and profiles again, in the format selected by database.binarydatamaps in conf/cesecore.properties.
+ */
+public class ConvertDataMapsCommand extends EjbcaCommandBase {
+
+    private static final Logger log = Logger.getLogger(ConvertDataMapsCommand.class);
+
+    @Override
+    public String getMainCommand() {
+        return "convertdatamaps";
+    }
+
+    @Override
+    public String getCommandDescription() {
+        return "Converts the stored data of CAs and profiles to the format selected in conf/cesecore.properties.";
+    }
+
+    @Override
+    public String getFullHelpText() {
+        return getCommandDescription() + " With database.binarydatamaps=true the data is converted from XML to a compact binary format, "
+                + "which is faster to read, and with database.binarydatamaps=false it is converted back to XML. "
+                + "Both formats are always read, so this command is optional. Data that can not be stored in the binary format stays XML. "
+                + "Only convert to the binary format when all nodes using the database run a version that can read it.";
+    }
+
+    @Override
+    public CommandResult execute(ParameterContainer parameters) {
+        final UpgradeSessionRemote upgradeSession = EjbRemoteHelper.INSTANCE.getRemoteSession(UpgradeSessionRemote.class);
+        final int converted = upgradeSession.convertDataMaps();
+        log.info("Converted the data of " + converted + " CAs and profiles.");
+        return CommandResult.SUCCESS;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+}
@@ -13,15 +13,14 @@
 
 package org.ejbca.ui.cli.ca;
 
-import java.security.cert.Certificate;
-import java.security.cert.X509Certificate;
-import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.log4j.Logger;
+import org.cesecore.certificates.certificate.CertificateExpirationCursor;
+import org.cesecore.certificates.certificate.CertificateInfo;
 import org.cesecore.certificates.certificate.CertificateStoreSessionRemote;
 import org.cesecore.util.EjbRemoteHelper;
-import org.ejbca.cvc.CardVerifiableCertificate;
 import org.ejbca.ui.cli.infrastructure.command.CommandResult;
 import org.ejbca.ui.cli.infrastructure.command.EjbcaCommandBase;
 import org.ejbca.ui.cli.infrastructure.parameter.Parameter;
@@ -30,9 +29,7 @@ import org.ejbca.ui.cli.infrastructure.parameter.enums.MandatoryMode;
 import org.ejbca.ui.cli.infrastructure.parameter.enums.ParameterMode;
 import org.ejbca.ui.cli.infrastructure.parameter.enums.StandaloneMode;
 
-import com.keyfactor.util.CertTools;
 import com.keyfactor.util.CryptoProviderTools;
-import com.keyfactor.util.EJBTools;
 
 /**
  * List certificates that will expire, but is not yet expired, within the given number of days.
@@ -44,6 +41,7 @@ public class CaListExpiredCommand extends EjbcaCommandBase {
     private static final Logger log = Logger.getLogger(CaListExpiredCommand.class);
 
     private static final String DAYS_KEY = "-d";
+    private static final int PAGE_SIZE = 500;
 
     {
         registerParameter(new Parameter(DAYS_KEY, "Days", MandatoryMode.MANDATORY, StandaloneMode.ALLOW, ParameterMode.ARGUMENT,
@@ -75,38 +73,23 @@ public class CaListExpiredCommand extends EjbcaCommandBase {
         findDate.setTime(findDate.getTime() + millis);
         getLogger().info("Looking for certificates that expire before '" + findDate + "', but that are not expired now ("+new Date()+").");
 
-        for (Certificate cert : getExpiredCerts(findDate)) {
-            Date retDate;
-            if (cert instanceof CardVerifiableCertificate) {
-                try {
-                    retDate = ((CardVerifiableCertificate) cert).getCVCertificate().getCertificateBody().getValidTo();
-                } catch (NoSuchFieldException e) {
-                    throw new IllegalStateException("Dependent library failure.", e);
-                }
-            } else {
-                retDate = ((X509Certificate) cert).getNotAfter();
+        final CertificateStoreSessionRemote certificateStoreSession = EjbRemoteHelper.INSTANCE.getRemoteSession(CertificateStoreSessionRemote.class);
+        // Read the certificates a page at a time, so any number of certificates can be listed
+        CertificateExpirationCursor after = CertificateExpirationCursor.FIRST;
+        List<CertificateInfo> certificateInfos;
+        do {
+            getLogger().debug("Looking for certs with expireDate=" + findDate + " after " + after);
+            certificateInfos = certificateStoreSession.findExpiringCertificateInfos(findDate, after, PAGE_SIZE);
+            for (final CertificateInfo certificateInfo : certificateInfos) {
+                getLogger().info("Certificate with subjectDN '" + certificateInfo.getSubjectDN() + "' and serialNumber '"
+                        + certificateInfo.getSerialNumberHex() + "' expires at " + certificateInfo.getExpireDate() + ".");
+                after = CertificateExpirationCursor.after(certificateInfo);
             }
-            String subjectDN = CertTools.getSubjectDN(cert);
-            String serNo = CertTools.getSerialNumberAsString(cert);
-            getLogger().info("Certificate with subjectDN '" + subjectDN + "' and serialNumber '" + serNo + "' expires at " + retDate + ".");
-        }
+        } while (certificateInfos.size() == PAGE_SIZE);
         return CommandResult.SUCCESS;
 
     }
 
-    private Collection<Certificate> getExpiredCerts(Date findDate) {
-        try {
-            getLogger().debug("Looking for cert with expireDate=" + findDate);
-            Collection<Certificate> certs = EJBTools.unwrapCertCollection(EjbRemoteHelper.INSTANCE.getRemoteSession(CertificateStoreSessionRemote.class)
-                    .findCertificatesByExpireTimeWithLimit(findDate));
-            getLogger().debug("Found " + certs.size() + " certs.");
-            return certs;
-        } catch (Exception e) {
-            getLogger().error("Error getting list of certificates", e);
-        }
-        return null;
-    }
-
     @Override
     public String getCommandDescription() {
         return "List certificates that will expire within the given number of days, excluding certificates that are already expired.";
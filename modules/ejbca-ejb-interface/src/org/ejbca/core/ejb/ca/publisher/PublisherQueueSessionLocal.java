@@ -14,6 +14,7 @@ package org.ejbca.core.ejb.ca.publisher;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.ejb.CreateException;
 import javax.ejb.Local;
@@ -105,6 +106,13 @@ public interface PublisherQueueSessionLocal {
      */
     Collection<PublisherQueueData> getEntriesByFingerprint(String fingerprint);
 
+    /**
+     * Finds a queue entry by its primary key.
+     * 
+     * @return the entry, or null if it does not exist, for example because it has already been published and removed
+     */
+    PublisherQueueData getEntry(String pk);
+
     /**
      * Updates a record with new status
      * 
@@ -123,6 +131,7 @@ public interface PublisherQueueSessionLocal {
      * Repeat this process as long as we actually manage to publish something this is because when publishing starts to work we want to publish everything in one go, if possible.
      * However we don't want to publish more than 20000 certificates each time, because we want to commit to the database some time as well.
      * Now, the OCSP publisher uses a non-transactional data source so it commits every time so...
+     * When publisher.queue.parallelism is above 1, the queue is published by that many workers at the same time, each in its own transactions.
      * 
      * @param admin the administrator that must be authorized for publishing
      * @param publisher the publisher to publish to
@@ -178,5 +187,28 @@ public interface PublisherQueueSessionLocal {
      */
     PublishingResult doChunk(AuthenticationToken admin, BasePublisher publisher);
 
+    /** Publishers digest queues in transaction-based "chunks", taking entries from one partition of the queue.
+     * @param admin the administrator that must be authorized for publishing
+     * @param publisher the publisher to publish to
+     * @param partition the partition of the queue to publish, from 0 to partitions-1
+     * @param partitions the number of partitions the queue is divided into, one for each worker
+     * @return how many publishing operations that succeeded and failed 
+     */
+    PublishingResult doChunk(AuthenticationToken admin, BasePublisher publisher, int partition, int partitions);
+
+    /**
+     * Publishes one partition of the queue of a publisher in transaction-based "chunks", in a thread of the asynchronous invocation pool
+     * of the container. Only for use by {@link #plainFifoTryAlwaysLimit100EntriesOrderByTimeCreated(AuthenticationToken, BasePublisher, long)}.
+     *
+     * @param admin the administrator that must be authorized for publishing
+     * @param publisher the publisher to publish to
+     * @param partition the partition of the queue to publish, from 0 to partitions-1
+     * @param partitions the number of partitions the queue is divided into, one for each worker
+     * @param maxNumberOfJobs how many jobs to do as max in this partition
+     * @return how many publishing operations that succeeded and failed
+     */
+    Future<PublishingResult> publishQueuePartitionAsync(AuthenticationToken admin, BasePublisher publisher, int partition, int partitions,
+            long maxNumberOfJobs);
+
     PublishingResult doPublish(AuthenticationToken admin, BasePublisher publisher, PublisherQueueData publisherQueueData);
 }
@@ -217,7 +217,8 @@ public interface PublisherSession {
     boolean storeOcspResponses(final AuthenticationToken admin, final Collection<Integer> publisherids, final OcspResponseData ocspResponseData) throws AuthorizationDeniedException, PublisherException;
 
     /**
-     * Asynchronously publish a single queued entry
+     * Asynchronously publish a single queued entry. If publishing fails, it is retried with increasing delays, as configured by
+     * publisher.safedirect.retries and publisher.safedirect.retrybackoff, and then left in the queue.
      * @param admin authentication token used to perform the operations
      * @param publisherId Id of the Publisher associated with the queued entry.
      * @param entity Queued entry to Publish.
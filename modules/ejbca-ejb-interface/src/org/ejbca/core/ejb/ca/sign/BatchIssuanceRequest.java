@@ -0,0 +1,80 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ca.sign;
+
+import java.io.Serializable;
+
+import org.cesecore.certificates.certificate.request.RequestMessage;
+import org.cesecore.certificates.endentity.EndEntityInformation;
+
+/**
+ * One certificate request of a batch issued with {@link SignSessionLocal#createCertificates}.
+ * <p>
+ * When end entity information is given, the end entity is added or changed before the certificate is issued, like in
+ * CertificateRequestSession.processCertReq. Otherwise the end entity must already exist, and is authenticated with the username and
+ * password of the request message.
+ */
+public final class BatchIssuanceRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final EndEntityInformation endEntity;
+    private final RequestMessage requestMessage;
+    private final String encodedRequest;
+    private final int requestType;
+
+    /**
+     * @param endEntity the end entity to add or change before issuing, or null to issue to an existing end entity
+     * @param requestMessage the parsed certificate request
+     */
+    public BatchIssuanceRequest(final EndEntityInformation endEntity, final RequestMessage requestMessage) {
+        this.endEntity = endEntity;
+        this.requestMessage = requestMessage;
+        this.encodedRequest = null;
+        this.requestType = 0;
+    }
+
+    /**
+     * @param endEntity the end entity to add or change before issuing
+     * @param encodedRequest the certificate request, for example a PEM or Base64 encoded PKCS#10 request
+     * @param requestType one of the CertificateConstants.CERT_REQ_TYPE_ constants
+     */
+    public BatchIssuanceRequest(final EndEntityInformation endEntity, final String encodedRequest, final int requestType) {
+        if (endEntity == null) {
+            throw new IllegalArgumentException("End entity information is required for encoded certificate requests.");
+        }
+        this.endEntity = endEntity;
+        this.requestMessage = null;
+        this.encodedRequest = encodedRequest;
+        this.requestType = requestType;
+    }
+
+    /** @return the end entity to add or change before issuing, or null */
+    public EndEntityInformation getEndEntity() {
+        return endEntity;
+    }
+
+    /** @return the parsed certificate request, or null if the request is encoded */
+    public RequestMessage getRequestMessage() {
+        return requestMessage;
+    }
+
+    /** @return the encoded certificate request, or null if the request is parsed */
+    public String getEncodedRequest() {
+        return encodedRequest;
+    }
+
+    public int getRequestType() {
+        return requestType;
+    }
+}
@@ -0,0 +1,90 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ca.sign;
+
+import java.io.Serializable;
+
+import org.cesecore.certificates.certificate.request.ResponseMessage;
+
+import com.keyfactor.ErrorCode;
+
+/**
+ * The outcome of one {@link BatchIssuanceRequest}: either the issued certificate, or why it could not be issued.
+ */
+public final class BatchIssuanceResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+    private final byte[] certificate;
+    /** Only available on the node that issued the certificate, since it may refer to database entities */
+    private final transient ResponseMessage responseMessage;
+    private final ErrorCode errorCode;
+    private final String errorMessage;
+
+    private BatchIssuanceResult(final int index, final byte[] certificate, final ResponseMessage responseMessage, final ErrorCode errorCode,
+            final String errorMessage) {
+        this.index = index;
+        this.certificate = certificate;
+        this.responseMessage = responseMessage;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * @param index position of the request in the batch
+     * @param certificate the encoded certificate
+     * @param responseMessage the response message, or null if the request was encoded
+     */
+    public static BatchIssuanceResult success(final int index, final byte[] certificate, final ResponseMessage responseMessage) {
+        return new BatchIssuanceResult(index, certificate, responseMessage, null, null);
+    }
+
+    /**
+     * @param index position of the request in the batch
+     * @param errorCode error code of the failure, or null if there is none
+     * @param errorMessage description of the failure
+     */
+    public static BatchIssuanceResult failure(final int index, final ErrorCode errorCode, final String errorMessage) {
+        return new BatchIssuanceResult(index, null, null, errorCode, errorMessage);
+    }
+
+    /** @return the position of the request in the batch */
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isSuccess() {
+        return certificate != null;
+    }
+
+    /** @return the encoded certificate, or null if it was not issued */
+    public byte[] getCertificate() {
+        return certificate;
+    }
+
+    /** @return the response message of a parsed request that was issued, or null */
+    public ResponseMessage getResponseMessage() {
+        return responseMessage;
+    }
+
+    /** @return the error code of the failure, or null */
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /** @return the description of the failure, or null if the certificate was issued */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
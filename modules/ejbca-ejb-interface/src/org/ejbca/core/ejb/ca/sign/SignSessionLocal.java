@@ -15,6 +15,8 @@ package org.ejbca.core.ejb.ca.sign;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.ejb.Local;
 
@@ -274,4 +276,32 @@ public interface SignSessionLocal extends SignSession {
 
     byte[] signItsPayload(ETSISignedDataBuilder signedDataBuilder, ECA eca) 
             throws CryptoTokenOfflineException, SignRequestSignatureException;
+
+    /**
+     * Issues certificates for a batch of requests. The requests are split into chunks that are issued in parallel, each chunk in one
+     * transaction, so the certificates, audit records and publisher queue entries of a chunk are written to the database together.
+     * If a request of a chunk fails in a way that rolls back the transaction, the requests of that chunk are issued again one by one.
+     * Each request is handled like a single call to CertificateRequestSession.processCertReq, or to
+     * {@link #createCertificate(AuthenticationToken, RequestMessage, Class, EndEntityInformation)} if the request has no end entity.
+     *
+     * @param admin Information about the administrator or admin performing the event.
+     * @param requests the certificate requests
+     * @param responseClass the implementation class of the response message of parsed requests
+     * @return one result for each request, in the same order as the requests
+     */
+    List<BatchIssuanceResult> createCertificates(AuthenticationToken admin, List<BatchIssuanceRequest> requests,
+            Class<? extends CertificateResponseMessage> responseClass);
+
+    /**
+     * Issues certificates for one chunk of a batch in a new transaction, in a thread of the asynchronous invocation pool of the container.
+     * Only for use by {@link #createCertificates(AuthenticationToken, List, Class)}.
+     *
+     * @param admin Information about the administrator or admin performing the event.
+     * @param requests the requests of the chunk
+     * @param firstIndex the position of the first request of the chunk in the batch
+     * @param responseClass the implementation class of the response message of parsed requests
+     * @return one result for each request, or null if the transaction was rolled back and the requests must be issued one by one
+     */
+    Future<List<BatchIssuanceResult>> createCertificateChunkAsync(AuthenticationToken admin, List<BatchIssuanceRequest> requests, int firstIndex,
+            Class<? extends CertificateResponseMessage> responseClass);
 }
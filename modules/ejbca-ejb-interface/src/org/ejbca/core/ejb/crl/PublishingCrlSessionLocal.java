@@ -12,9 +12,11 @@
  *************************************************************************/
 package org.ejbca.core.ejb.crl;
 
+import java.security.cert.Certificate;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import javax.ejb.Local;
 
@@ -83,6 +85,15 @@ public interface PublishingCrlSessionLocal extends PublishingCrlSession {
     boolean createDeltaCrlConditioned(AuthenticationToken admin, int caid, long crloverlaptime)
             throws CryptoTokenOfflineException, CAOfflineException, CADoesntExistsException, AuthorizationDeniedException;
 
+    /**
+     * Internal method, do not use. Creates the CRL, or delta CRL, of a CRL partition if it is time to do so. Runs asynchronously, so that
+     * the partitions of a CA can be created in parallel.
+     *
+     * @return a future that tells if a CRL was created
+     */
+    Future<Boolean> internalCreatePartitionCrlAsync(AuthenticationToken admin, CA ca, Certificate cacert, int crlPartitionIndex, Date now,
+            long addToCrlOverlapTime, boolean delta) throws CryptoTokenOfflineException, CAOfflineException, AuthorizationDeniedException;
+
     /** Internal method, do not use. Needs to be here for transaction management. */
     String internalCreateCRL(AuthenticationToken admin, CA ca, int crlPartitionIndex, CRLInfo lastBaseCrlInfo, final Date validFrom)
             throws CAOfflineException, CryptoTokenOfflineException, AuthorizationDeniedException;
@@ -12,6 +12,8 @@
  *************************************************************************/
 package org.ejbca.core.ejb.ocsp;
 
+import java.util.List;
+
 import javax.ejb.Local;
 
 import org.cesecore.oscp.OcspResponseData;
@@ -63,4 +65,14 @@ public interface OcspDataSessionLocal extends OcspDataSession {
      * for each serial number.
      */
     int deleteOldOcspData();
+
+    /**
+     * Returns OCSP data ordered by producedAt and id, starting after the given position. Used to page through the table without an offset.
+     *
+     * @param producedAt producedAt of the last row of the previous page, or 0 to start from the beginning
+     * @param id id of the last row of the previous page, or an empty string to start from the beginning
+     * @param maxNumberOfResults maximum number of rows to return
+     * @return OCSP data produced after the given position
+     */
+    List<OcspResponseData> findOcspDataProducedAfter(long producedAt, String id, int maxNumberOfResults);
 }
@@ -58,4 +58,34 @@ public interface ServiceDataSessionLocal extends ServiceDataSession {
      * @return true if 1 row was updated
      */
      boolean updateTimestamps(Integer serviceId, long oldRunTimeStamp, long oldNextRunTimeStamp, long newRunTimeStamp, long newNextRunTimeStamp);
+
+    /**
+     * Renews, or creates, the lease of a node on a sharded service, and removes the leases of nodes that have expired.
+     * 
+     * @param serviceId id of the service
+     * @param nodeName host name of this node
+     * @param now current time
+     * @param leaseExpiration time when the lease of this node expires, unless it is renewed
+     * @return host names of the nodes with a lease on the service, including this node
+     */
+    List<String> renewNodeLease(int serviceId, String nodeName, long now, long leaseExpiration);
+
+    /**
+     * Finds a shard of a service, and creates it if it does not exist yet.
+     * 
+     * @param runTimeStamp time the shard was run last, if it is created
+     * @param nextRunTimeStamp time the shard should run next, if it is created
+     * @return the shard
+     */
+    ServiceLeaseData findOrCreateShard(int serviceId, int shard, long runTimeStamp, long nextRunTimeStamp);
+
+    /**
+     * Claims a run of a shard, the same way as {@link #updateTimestamps(Integer, long, long, long, long)} does for a service.
+     * @return true if 1 row was updated
+     */
+    boolean updateShardTimestamps(int serviceId, int shard, String nodeName, long oldRunTimeStamp, long oldNextRunTimeStamp, long newRunTimeStamp,
+            long newNextRunTimeStamp);
+
+    /** Removes the node leases and shards of a service. */
+    void removeServiceLeases(int serviceId);
 }
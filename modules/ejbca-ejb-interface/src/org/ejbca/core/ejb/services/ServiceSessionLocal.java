@@ -21,6 +21,7 @@ import javax.ejb.Timer;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -73,6 +74,18 @@ public interface ServiceSessionLocal extends ServiceSession {
 	 */
     IWorker getWorkerIfItShouldRun(Integer serviceId, long nextTimeout, boolean testRunOnOtherNode);
 
+    /**
+     * Returns the workers this node should run for a service. For a service that is not sharded, this is the worker returned by
+     * {@link #getWorkerIfItShouldRun(Integer, long)}, if any. For a sharded service, this renews the lease of this node on the service, and
+     * returns a worker for each shard of this node that is due, after claiming it the same way as getWorkerIfItShouldRun claims the service.
+     * 
+     * Should only be called from timeoutHandler
+     * @param serviceId the ID of the service to check
+     * @param nextTimeout the next time the service should run
+     * @return the workers to run, or an empty list if none should run
+     */
+    List<IWorker> getWorkersIfTheyShouldRun(Integer serviceId, long nextTimeout);
+
 	/** Executes a the service in a separate in no transaction. */
 	void executeServiceInNoTransaction(final IWorker worker, final String serviceName);
 	
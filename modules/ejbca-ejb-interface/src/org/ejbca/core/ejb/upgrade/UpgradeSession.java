@@ -30,6 +30,14 @@ public interface UpgradeSession {
     
     /** Perform upgrades that require all nodes connected to the same database to run the current EJBCA version. */
     Future<Boolean> startPostUpgrade();
+
+    /**
+     * Stores the data of all CAs and profiles again, in the format selected by database.binarydatamaps in cesecore.properties.
+     * Data that is already stored in that format, or that can not be stored in the binary format, is left as it is.
+     *
+     * @return the number of CAs and profiles whose data was converted
+     */
+    int convertDataMaps();
     
 
 }
@@ -82,6 +82,10 @@ public interface UpgradeSessionLocal  extends UpgradeSession{
     void migrateDatabase800() throws UpgradeFailedException;
     /** For internal user from UpgradeSessionBean only */
     void fixPartitionedCrls(final int limit, final boolean isMSSQL) throws UpgradeFailedException;
+    /** For internal user from UpgradeSessionBean only. Converts the data of a CA to the configured format, returns true if it was converted. */
+    boolean convertCaDataMap(int caId);
+    /** For internal user from UpgradeSessionBean only. Converts the data of a profile to the configured format, returns true if it was converted. */
+    boolean convertProfileDataMap(int profileId);
     /** For internal user from UpgradeSessionBean only */
     IndexUpgradeResult upgradeIndex(final String oldIndexName, final String tableName, final String createIndexQuery);
     
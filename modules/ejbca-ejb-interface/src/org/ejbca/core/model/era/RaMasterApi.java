@@ -29,6 +29,7 @@ import org.cesecore.certificates.ca.SignRequestException;
 import org.cesecore.certificates.ca.SignRequestSignatureException;
 import org.cesecore.certificates.certificate.CertificateCreateException;
 import org.cesecore.certificates.certificate.CertificateDataWrapper;
+import org.cesecore.certificates.certificate.CertificateExpirationCursor;
 import org.cesecore.certificates.certificate.CertificateRevokeException;
 import org.cesecore.certificates.certificate.CertificateStatus;
 import org.cesecore.certificates.certificate.CertificateStoreSession;
@@ -52,6 +53,7 @@ import org.ejbca.config.GlobalAcmeConfiguration;
 import org.ejbca.config.GlobalConfiguration;
 import org.ejbca.core.EjbcaException;
 import org.ejbca.core.ejb.ca.auth.EndEntityAuthenticationSessionLocal;
+import org.ejbca.core.ejb.ca.sign.BatchIssuanceResult;
 import org.ejbca.core.ejb.config.GlobalUpgradeConfiguration;
 import org.ejbca.core.ejb.dto.CertRevocationDto;
 import org.ejbca.core.ejb.ra.CouldNotRemoveEndEntityException;
@@ -776,6 +778,17 @@ public interface RaMasterApi {
             throws CertificateProfileDoesNotExistException, CADoesntExistsException, AuthorizationDeniedException, EndEntityProfileNotFoundException,
             EjbcaException, EndEntityProfileValidationException;
 
+    /**
+     * Generates certificates for a batch of requests. This variant is used from the REST Service interface.
+     * The certificates are issued in chunks, where each chunk is written to the database in one transaction, and a request that fails
+     * does not stop the others.
+     * @param authenticationToken authentication token.
+     * @param enrollCertificateRequests input data objects for enrolling the certificates
+     * @return one result for each request, in the same order as the requests
+     * @since RA Master API version 18 (EJBCA 8.3.0)
+     */
+    List<BatchIssuanceResult> createCertificatesRest(AuthenticationToken authenticationToken, List<EnrollPkcs10CertificateRequest> enrollCertificateRequests);
+
 
     /**
      * Finds end entity by its username.
@@ -1271,6 +1284,28 @@ public interface RaMasterApi {
     Collection<CertificateWrapper> getCertificatesByExpirationTime(AuthenticationToken authenticationToken, long days, int maxNumberOfResults,
             int offset) throws AuthorizationDeniedException;
 
+    /**
+     * Fetches a list of up to <code>maxNumberOfResults</code> certificates which expires within the next <code>days</code> days, ordered
+     * by expiration date and fingerprint, starting after the given position. Unlike an offset, the position does not make later pages
+     * slower to fetch.
+     * <p>
+     * Pass {@link CertificateExpirationCursor#FIRST} for the first page, and {@link CertificateExpirationCursor#after(java.security.cert.Certificate)}
+     * of the last returned certificate for the next page.
+     * <p>
+     * Authorization requirements: the same as for {@link #getCertificatesByExpirationTime(AuthenticationToken, long, int, int)}
+     *
+     * @param authenticationToken an authentication token used for access control
+     * @param days the maximum number of days before the certificates expire
+     * @param maxNumberOfResults the maximum number of returned certificates
+     * @param after position of the last certificate of the previous page
+     * @return a collection of certificate wrappers in order, never null. Fewer than maxNumberOfResults only when there are no more certificates.
+     * @throws AuthorizationDeniedException if the calling user is not authorized to fetch one of the certificates
+     * @throws UnsupportedOperationException if a backend has an earlier API version, so its certificates can not be included
+     * @since RA Master API version 18 (EJBCA 8.3.0)
+     */
+    Collection<CertificateWrapper> getCertificatesByExpirationTime(AuthenticationToken authenticationToken, long days, int maxNumberOfResults,
+            CertificateExpirationCursor after) throws AuthorizationDeniedException;
+
 
     /**
      * Fetches a list of certificates that will expire within the given number of days and of the given type.
@@ -22,8 +22,13 @@ import java.security.SecureRandom;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.ejb.Timer;
@@ -356,6 +361,25 @@ public class OcspResponseGeneratorSessionUnitTest {
         log.trace("<basicCachedRequestSHA1");
     }
 
+    @Test
+    public void cachedRequestWithMultipleCertIdsReadsStatusesInOneQuery() throws Exception {
+        log.trace(">cachedRequestWithMultipleCertIdsReadsStatusesInOneQuery");
+        final BigInteger otherSerial = REQUEST_SERIAL.add(BigInteger.ONE);
+        final byte[] req = makeOcspRequest(getIssuerCert(), Arrays.asList(REQUEST_SERIAL, otherSerial), OIWObjectIdentifiers.idSHA1, null);
+        expectLoggerChecks();
+        final Map<BigInteger, CertificateStatus> statuses = new HashMap<>();
+        statuses.put(REQUEST_SERIAL, status);
+        statuses.put(otherSerial, status);
+        // Strict mock, so getStatus must not be called for the individual serial numbers
+        expect(certificateStoreSessionMock.getStatuses(ISSUER_CERT_DN, new HashSet<>(statuses.keySet()))).andReturn(statuses).once();
+        replay(caSessionMock, auditLogger, transactionLogger, globalConfigurationSessionMock, certificateStoreSessionMock, ocspDataSessionMock);
+        prepareOcspCache();
+        final OcspResponseInformation respInfo = ocspResponseGeneratorSession.getOcspResponse(req, null, REQUEST_IP, null, null, auditLogger, transactionLogger, false, false, false);
+        verify(certificateStoreSessionMock);
+        assertGoodResponse(respInfo);
+        log.trace("<cachedRequestWithMultipleCertIdsReadsStatusesInOneQuery");
+    }
+
     @Test
     public void basicCachedRequestSHA224() throws Exception {
         log.trace(">basicCachedRequestSHA224");
@@ -641,12 +665,17 @@ public class OcspResponseGeneratorSessionUnitTest {
     }
 
     private byte[] makeOcspRequest(final X509Certificate issuerCert, final BigInteger serialNumber, final ASN1ObjectIdentifier digestAlgo, byte[] nonce) {
+        return makeOcspRequest(issuerCert, Collections.singletonList(serialNumber), digestAlgo, nonce);
+    }
+
+    private byte[] makeOcspRequest(final X509Certificate issuerCert, final List<BigInteger> serialNumbers, final ASN1ObjectIdentifier digestAlgo, byte[] nonce) {
         try {
             final X509CertificateHolder issuerCertHolder = new X509CertificateHolder(issuerCert.getEncoded());
             final DigestCalculator digestCalc = new BcDigestCalculatorProvider().get(new AlgorithmIdentifier(digestAlgo));
-            final CertificateID certId = new CertificateID(digestCalc, issuerCertHolder, serialNumber);
             final OCSPReqBuilder gen = new OCSPReqBuilder();
-            gen.addRequest(certId).build();
+            for (final BigInteger serialNumber : serialNumbers) {
+                gen.addRequest(new CertificateID(digestCalc, issuerCertHolder, serialNumber));
+            }
             if (nonce != null) {
                 Extension[] extensions = new Extension[1];
                 // Max size of nonce is 32 bytes
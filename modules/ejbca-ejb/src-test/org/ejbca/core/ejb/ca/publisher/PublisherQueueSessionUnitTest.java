@@ -12,6 +12,7 @@
  *************************************************************************/
 package org.ejbca.core.ejb.ca.publisher;
 
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.reset;
@@ -20,11 +21,13 @@ import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import javax.ejb.AsyncResult;
 import javax.persistence.EntityManager;
 
 import org.cesecore.authentication.tokens.AuthenticationToken;
 import org.cesecore.certificates.certificate.NoConflictCertificateStoreSessionLocal;
 import org.easymock.EasyMock;
+import org.ejbca.config.EjbcaConfigurationHolder;
 import org.ejbca.core.ejb.ocsp.OcspDataSessionLocal;
 import org.ejbca.core.model.ca.publisher.BasePublisher;
 import org.ejbca.core.model.services.workers.PublishQueueProcessWorker;
@@ -109,6 +112,23 @@ public class PublisherQueueSessionUnitTest {
         verify(publisherQueueSessionMock);
     }
 
+    /** Tests that the queue is divided between the configured number of workers, and that their results are combined */
+    @Test
+    public void publishInParallel() {
+        EjbcaConfigurationHolder.updateConfiguration("publisher.queue.parallelism", "2");
+        try {
+            expect(publisherQueueSessionMock.publishQueuePartitionAsync(same(adminMock), same(publisherMock), eq(0), eq(2), eq(10_000L)))
+                    .andReturn(new AsyncResult<>(makePublishingResult(0, 5, 0, 2))); // 5 successes, 2 failures
+            expect(publisherQueueSessionMock.publishQueuePartitionAsync(same(adminMock), same(publisherMock), eq(1), eq(2), eq(10_000L)))
+                    .andReturn(new AsyncResult<>(makePublishingResult(5, 8, 2, 3))); // 3 successes, 1 failure
+            replay(publisherQueueSessionMock);
+            assertResult(8, 3, publisherQueueSession.plainFifoTryAlwaysLimit100EntriesOrderByTimeCreated(adminMock, publisherMock, 20_000L));
+            verify(publisherQueueSessionMock);
+        } finally {
+            EjbcaConfigurationHolder.updateConfiguration("publisher.queue.parallelism", "1");
+        }
+    }
+
     private void assertResult(int numSuccesses, int numFailures, final PublishingResult actualResult) {
         assertNotNull("Should have a result object", actualResult);
         assertEquals("Wrong number of successful fingerprints", numSuccesses, actualResult.getSuccesses());
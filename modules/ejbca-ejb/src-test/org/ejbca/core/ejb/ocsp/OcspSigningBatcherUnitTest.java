@@ -0,0 +1,128 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ocsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.ocsp.CertID;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.keyfactor.util.CryptoProviderTools;
+
+/**
+ * Unit tests of batched signing of OCSP responses.
+ */
+public class OcspSigningBatcherUnitTest {
+
+    private static final String SIGNATURE_ALGORITHM = "SHA256WithRSA";
+    private static final int RESPONSE_COUNT = 10;
+    private static final int FULL_BATCH_SIZE = 64;
+    private static final long SLOW_SIGNATURE_MS = 5;
+
+    private static KeyPair keyPair;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        CryptoProviderTools.installBCProviderIfNotAvailable();
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA", BouncyCastleProvider.PROVIDER_NAME);
+        keyPairGenerator.initialize(2048);
+        keyPair = keyPairGenerator.generateKeyPair();
+    }
+
+    @Test
+    public void testEachResponseInBatchIsSigned() throws Exception {
+        final List<Future<BasicOCSPResp>> futures = new ArrayList<>();
+        for (int i = 0; i < RESPONSE_COUNT; i++) {
+            futures.add(OcspSigningBatcher.INSTANCE.submit(createSigningTask(i), 50));
+        }
+        for (int i = 0; i < RESPONSE_COUNT; i++) {
+            final BasicOCSPResp response = futures.get(i).get(30, TimeUnit.SECONDS);
+            assertEquals("Response should be for the requested serial number.", BigInteger.valueOf(i),
+                    response.getResponses()[0].getCertID().getSerialNumber());
+            assertTrue("Signature of response " + i + " should verify.", response.isSignatureValid(
+                    new JcaContentVerifierProviderBuilder().setProvider(BouncyCastleProvider.PROVIDER_NAME).build(keyPair.getPublic())));
+        }
+    }
+
+    @Test
+    public void testFullBatchIsSpreadOverThePool() throws Exception {
+        // Simulates an HSM that takes longer to sign than the window, so each response should get a task of its own
+        final Set<String> signerThreads = ConcurrentHashMap.newKeySet();
+        final List<Future<BasicOCSPResp>> futures = new ArrayList<>();
+        for (int i = 0; i < FULL_BATCH_SIZE; i++) {
+            futures.add(OcspSigningBatcher.INSTANCE.submit(createSlowSigningTask(i, signerThreads), 1));
+        }
+        for (int i = 0; i < FULL_BATCH_SIZE; i++) {
+            final BasicOCSPResp response = futures.get(i).get(30, TimeUnit.SECONDS);
+            assertEquals("Response should be for the requested serial number.", BigInteger.valueOf(FULL_BATCH_SIZE + i),
+                    response.getResponses()[0].getCertID().getSerialNumber());
+        }
+        assertTrue("A full batch of slow signatures should be signed by more than one thread of the pool, but was signed by " + signerThreads,
+                signerThreads.size() > 1);
+    }
+
+    private static HsmResponseThread createSlowSigningTask(final int index, final Set<String> signerThreads) {
+        return new HsmResponseThread(createResponseBuilder(FULL_BATCH_SIZE + index), SIGNATURE_ALGORITHM, keyPair.getPrivate(),
+                new X509Certificate[0], BouncyCastleProvider.PROVIDER_NAME, null) {
+            @Override
+            BasicOCSPResp sign(final ContentSigner contentSigner) throws OCSPException {
+                signerThreads.add(Thread.currentThread().getName());
+                try {
+                    Thread.sleep(SLOW_SIGNATURE_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.sign(contentSigner);
+            }
+        };
+    }
+
+    private static HsmResponseThread createSigningTask(final int serialNumber) throws Exception {
+        return new HsmResponseThread(createResponseBuilder(serialNumber), SIGNATURE_ALGORITHM, keyPair.getPrivate(), new X509Certificate[0],
+                BouncyCastleProvider.PROVIDER_NAME, null);
+    }
+
+    private static BasicOCSPRespBuilder createResponseBuilder(final int serialNumber) {
+        final BasicOCSPRespBuilder builder = new BasicOCSPRespBuilder(new RespID(new X500Name("CN=OcspSigningBatcherUnitTest")));
+        final CertificateID certificateId = new CertificateID(new CertID(new AlgorithmIdentifier(OIWObjectIdentifiers.idSHA1),
+                new DEROctetString(new byte[20]), new DEROctetString(new byte[20]), new ASN1Integer(serialNumber)));
+        builder.addResponse(certificateId, org.bouncycastle.cert.ocsp.CertificateStatus.GOOD);
+        return builder;
+    }
+}
@@ -0,0 +1,160 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ocsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.cesecore.config.ConfigurationHolder;
+import org.cesecore.config.OcspConfiguration;
+import org.cesecore.internal.JmxRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the bounded OCSP signing thread pools.
+ */
+public class OcspSigningExecutorsUnitTest {
+
+    private String defaultMaxConcurrency = null;
+    private String defaultQueueSize = null;
+
+    @Before
+    public void before() {
+        defaultMaxConcurrency = ConfigurationHolder.getString(OcspConfiguration.SIGNING_MAX_CONCURRENCY);
+        defaultQueueSize = ConfigurationHolder.getString(OcspConfiguration.SIGNING_QUEUE_SIZE);
+        OcspSigningExecutors.INSTANCE.getAndResetRejections(0);
+    }
+
+    @After
+    public void after() {
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.SIGNING_MAX_CONCURRENCY, defaultMaxConcurrency);
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.SIGNING_QUEUE_SIZE, defaultQueueSize);
+    }
+
+    @Test
+    public void testSigning() throws Exception {
+        final Future<String> result = OcspSigningExecutors.INSTANCE.submit("testSigning", () -> "signed");
+        assertEquals("signed", result.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFullQueueIsRejected() throws Exception {
+        // The pool of a provider is configured when it is first used, so the provider name must be unique for this test
+        final String provider = "testFullQueueIsRejected";
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.SIGNING_MAX_CONCURRENCY, "1");
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.SIGNING_QUEUE_SIZE, "1");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final Future<Boolean> running = OcspSigningExecutors.INSTANCE.submit(provider, () -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            });
+            assertTrue("Signing task did not start.", started.await(10, TimeUnit.SECONDS));
+            final Future<Boolean> queued = OcspSigningExecutors.INSTANCE.submit(provider, () -> true);
+            try {
+                OcspSigningExecutors.INSTANCE.submit(provider, () -> true);
+                fail("Signing should be rejected when both the thread and the queue are busy.");
+            } catch (RejectedExecutionException e) {
+                // Expected
+            }
+            final List<OcspSigningExecutors.Rejections> rejections = OcspSigningExecutors.INSTANCE.getAndResetRejections(0);
+            assertEquals(1, rejections.size());
+            assertEquals(provider, rejections.get(0).getProvider());
+            assertEquals(1, rejections.get(0).getRejected());
+            assertEquals(3, rejections.get(0).getRequests());
+            assertTrue("Statistics of the pool should be reported.", rejections.get(0).getStatistics().contains("rejected=1"));
+            assertTrue("Rejections should be reset when read.", OcspSigningExecutors.INSTANCE.getAndResetRejections(0).isEmpty());
+            release.countDown();
+            assertTrue(running.get(10, TimeUnit.SECONDS));
+            assertTrue(queued.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+        // Other providers have pools of their own
+        assertEquals("signed", OcspSigningExecutors.INSTANCE.submit("testFullQueueIsRejected-other", () -> "signed").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRejectionsBelowThresholdAreNotReported() throws Exception {
+        final String provider = "testRejectionsBelowThresholdAreNotReported";
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.SIGNING_MAX_CONCURRENCY, "1");
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.SIGNING_QUEUE_SIZE, "1");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final Future<Boolean> running = OcspSigningExecutors.INSTANCE.submit(provider, () -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            });
+            assertTrue("Signing task did not start.", started.await(10, TimeUnit.SECONDS));
+            final Future<Boolean> queued = OcspSigningExecutors.INSTANCE.submit(provider, () -> true);
+            try {
+                OcspSigningExecutors.INSTANCE.submit(provider, () -> true);
+                fail("Signing should be rejected when both the thread and the queue are busy.");
+            } catch (RejectedExecutionException e) {
+                // Expected
+            }
+            release.countDown();
+            assertTrue(running.get(10, TimeUnit.SECONDS));
+            assertTrue(queued.get(10, TimeUnit.SECONDS));
+            // One of three requests is 33 percent
+            assertTrue("Rejections within the threshold should not be reported.", OcspSigningExecutors.INSTANCE.getAndResetRejections(34).isEmpty());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testShutdownCancelsQueuedSigning() throws Exception {
+        final String provider = "testShutdownCancelsQueuedSigning";
+        ConfigurationHolder.updateConfiguration(OcspConfiguration.SIGNING_MAX_CONCURRENCY, "1");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final String objectName = "org.ejbca:type=OcspSigningPool,name=" + ObjectName.quote(provider);
+        try {
+            final Future<Boolean> running = OcspSigningExecutors.INSTANCE.submit(provider, () -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            });
+            assertTrue("Signing task did not start.", started.await(10, TimeUnit.SECONDS));
+            assertTrue("Statistics of the pool should be published.", JmxRegistry.INSTANCE.isRegistered(objectName));
+            final Future<Boolean> queued = OcspSigningExecutors.INSTANCE.submit(provider, () -> true);
+            OcspSigningExecutors.INSTANCE.shutdown(100);
+            assertTrue("Signing that never started should be cancelled.", queued.isCancelled());
+            assertFalse("Statistics of the pool should be removed.", JmxRegistry.INSTANCE.isRegistered(objectName));
+            try {
+                running.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                // Interrupted when the pool was shut down
+            }
+        } finally {
+            release.countDown();
+        }
+        // A new pool is created if the provider is used again
+        assertEquals("signed", OcspSigningExecutors.INSTANCE.submit(provider, () -> "signed").get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,148 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ocsp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.cesecore.internal.CacheInvalidationBus;
+import org.cesecore.internal.CacheInvalidationEvent;
+import org.cesecore.oscp.OcspResponseData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests of the memory-mapped store of pre-produced OCSP responses.
+ */
+public class PreProducedOcspResponseStoreUnitTest {
+
+    private static final int CA_ID = 123;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final PreProducedOcspResponseStore store = PreProducedOcspResponseStore.INSTANCE;
+
+    @Before
+    public void before() throws Exception {
+        store.reset(temporaryFolder.getRoot());
+    }
+
+    @After
+    public void after() {
+        store.close();
+    }
+
+    @Test
+    public void testPutAndGet() {
+        store.put(CA_ID, "1", 1000L, 2000L, new byte[] { 1, 2, 3 });
+        final OcspResponseData ocspResponseData = store.get(CA_ID, "1");
+        assertEquals(CA_ID, ocspResponseData.getCaId().intValue());
+        assertEquals("1", ocspResponseData.getSerialNumber());
+        assertEquals(1000L, ocspResponseData.getProducedAt());
+        assertEquals(Long.valueOf(2000L), ocspResponseData.getNextUpdate());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, ocspResponseData.getOcspResponse());
+        assertNull("Response of another CA should not be found.", store.get(CA_ID + 1, "1"));
+        assertNull("Response of another serial number should not be found.", store.get(CA_ID, "2"));
+    }
+
+    @Test
+    public void testNewestResponseIsKept() {
+        store.put(CA_ID, "1", 1000L, 2000L, new byte[] { 1 });
+        store.put(CA_ID, "1", 3000L, 4000L, new byte[] { 2, 2 });
+        store.put(CA_ID, "1", 2000L, 3000L, new byte[] { 3, 3, 3 });
+        assertArrayEquals("An older response should not replace a newer one.", new byte[] { 2, 2 }, store.get(CA_ID, "1").getOcspResponse());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testRemove() {
+        store.put(CA_ID, "1", 1000L, 2000L, new byte[] { 1 });
+        store.put(CA_ID, "2", 1000L, 2000L, new byte[] { 2 });
+        store.remove(CA_ID, "1");
+        assertNull(store.get(CA_ID, "1"));
+        assertArrayEquals(new byte[] { 2 }, store.get(CA_ID, "2").getOcspResponse());
+        store.put(CA_ID, "1", 1500L, 2000L, new byte[] { 1 });
+        assertNull("A response produced before the removal, but committed after it, should not be stored.", store.get(CA_ID, "1"));
+    }
+
+    @Test
+    public void testRemovalOnOtherNode() {
+        store.put(CA_ID, "1", 1000L, 2000L, new byte[] { 1 });
+        store.put(CA_ID, "2", 1000L, 2000L, new byte[] { 2 });
+        final int invalidationId = PreProducedOcspResponseStore.getInvalidationId(CA_ID, "1");
+        CacheInvalidationBus.getInstance().receive(
+                new CacheInvalidationEvent(PreProducedOcspResponseStore.CACHE_NAME, invalidationId, "othernode", 1500L));
+        assertNull("Response removed on another node should not be used.", store.get(CA_ID, "1"));
+        assertArrayEquals(new byte[] { 2 }, store.get(CA_ID, "2").getOcspResponse());
+        store.put(CA_ID, "1", 1200L, 2000L, new byte[] { 3 });
+        assertNull("Response produced before the removal should not be used.", store.get(CA_ID, "1"));
+        store.put(CA_ID, "1", 1600L, 2600L, new byte[] { 4 });
+        assertArrayEquals("Response produced after the removal should be used.", new byte[] { 4 }, store.get(CA_ID, "1").getOcspResponse());
+    }
+
+    @Test
+    public void testPurgeRemoved() {
+        store.put(CA_ID, "1", 1000L, 2000L, new byte[] { 1 });
+        store.put(CA_ID, "2", 1000L, 2000L, new byte[] { 2 });
+        store.removeAll(PreProducedOcspResponseStore.getInvalidationId(CA_ID, "1"), 1500L);
+        store.purgeRemoved(1500L);
+        assertEquals("Removal should be kept until it is old enough.", 2, store.size());
+        store.put(CA_ID, "1", 1200L, 2000L, new byte[] { 3 });
+        assertNull(store.get(CA_ID, "1"));
+        store.purgeRemoved(1501L);
+        assertEquals("Hidden response should be removed with the removal.", 1, store.size());
+        assertNull(store.get(CA_ID, "1"));
+        assertArrayEquals(new byte[] { 2 }, store.get(CA_ID, "2").getOcspResponse());
+        store.put(CA_ID, "1", 1200L, 2000L, new byte[] { 3 });
+        assertArrayEquals(new byte[] { 3 }, store.get(CA_ID, "1").getOcspResponse());
+    }
+
+    @Test
+    public void testManyResponses() {
+        final byte[] response = new byte[2048];
+        for (int i = 0; i < 10000; i++) {
+            response[0] = (byte) i;
+            store.put(CA_ID, Integer.toString(i), i, null, response);
+        }
+        assertEquals(10000, store.size());
+        for (int i = 0; i < 10000; i++) {
+            final OcspResponseData ocspResponseData = store.get(CA_ID, Integer.toString(i));
+            assertEquals(i, ocspResponseData.getProducedAt());
+            assertEquals((byte) i, ocspResponseData.getOcspResponse()[0]);
+        }
+    }
+
+    @Test
+    public void testCloseEmptiesStore() throws Exception {
+        store.put(CA_ID, "1", 1000L, 2000L, new byte[] { 1 });
+        store.setLoaded();
+        store.close();
+        assertFalse(store.isLoaded());
+        assertNull(store.get(CA_ID, "1"));
+        assertEquals("Store file should be removed.", 0, temporaryFolder.getRoot().listFiles((dir, name) -> name.endsWith(".dat")).length);
+        // Responses are not stored until the store has been reset
+        store.put(CA_ID, "1", 1000L, 2000L, new byte[] { 1 });
+        assertNull(store.get(CA_ID, "1"));
+        store.reset(new File(temporaryFolder.getRoot(), "sub"));
+        store.put(CA_ID, "1", 1000L, 2000L, new byte[] { 1 });
+        assertArrayEquals(new byte[] { 1 }, store.get(CA_ID, "1").getOcspResponse());
+    }
+}
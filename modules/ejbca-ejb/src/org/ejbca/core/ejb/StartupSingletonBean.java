@@ -31,6 +31,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.LogManager;
 
 import javax.annotation.PostConstruct;
@@ -58,6 +59,7 @@ import org.cesecore.authentication.tokens.AuthenticationToken;
 import org.cesecore.authorization.AuthorizationDeniedException;
 import org.cesecore.authorization.AuthorizationSessionLocal;
 import org.cesecore.authorization.user.matchvalues.AccessMatchValueReverseLookupRegistry;
+import org.cesecore.certificates.ca.internal.SernoPool;
 import org.cesecore.certificates.certificate.CertificateCreateSessionLocal;
 import org.cesecore.certificates.certificate.CertificateStoreSessionLocal;
 import org.cesecore.certificates.certificateprofile.CertificateProfileSessionLocal;
@@ -66,7 +68,11 @@ import org.cesecore.certificates.endentity.EndEntityInformation;
 import org.cesecore.config.CesecoreConfiguration;
 import org.cesecore.config.ConfigurationHolder;
 import org.cesecore.config.GlobalCesecoreConfiguration;
+import org.cesecore.configuration.CacheInvalidationSessionLocal;
 import org.cesecore.configuration.GlobalConfigurationSessionLocal;
+import org.cesecore.internal.CacheInvalidationBus;
+import org.cesecore.internal.CacheInvalidationEvent;
+import org.cesecore.internal.JmxRegistry;
 import org.cesecore.keys.token.CryptoTokenFactory;
 import org.cesecore.util.Log4jLogRedactionRedactHandler;
 import org.ejbca.config.EjbcaConfiguration;
@@ -76,9 +82,12 @@ import org.ejbca.core.ejb.audit.enums.EjbcaModuleTypes;
 import org.ejbca.core.ejb.audit.enums.EjbcaServiceTypes;
 import org.ejbca.core.ejb.authorization.AuthorizationSystemSessionLocal;
 import org.ejbca.core.ejb.ca.caadmin.CAAdminSessionLocal;
+import org.ejbca.core.ejb.config.ClearCacheSessionLocal;
 import org.ejbca.core.ejb.ocsp.OcspKeyRenewalSessionLocal;
 import org.ejbca.core.ejb.ocsp.OcspResponseCleanupSessionLocal;
 import org.ejbca.core.ejb.ocsp.OcspResponseGeneratorSessionLocal;
+import org.ejbca.core.ejb.ocsp.OcspSigningBatcher;
+import org.ejbca.core.ejb.ocsp.OcspSigningExecutors;
 import org.ejbca.core.ejb.ra.EndEntityAccessSessionLocal;
 import org.ejbca.core.ejb.ra.EndEntityManagementSessionLocal;
 import org.ejbca.core.ejb.ra.NoSuchEndEntityException;
@@ -88,6 +97,7 @@ import org.ejbca.core.ejb.upgrade.UpgradeSessionLocal;
 import org.ejbca.core.model.InternalEjbcaResources;
 import org.ejbca.core.model.approval.ApprovalException;
 import org.ejbca.core.model.approval.WaitingForApprovalException;
+import org.ejbca.core.model.ca.publisher.LdapConnectionPool;
 import org.ejbca.util.DatabaseIndexUtil;
 import org.ejbca.util.JDBCUtil;
 
@@ -108,6 +118,8 @@ import com.keyfactor.util.string.StringConfigurationCache;
 public class StartupSingletonBean {
 
     private static final Logger log = Logger.getLogger(StartupSingletonBean.class);
+    /** Maximum time to wait for OCSP responses that are being signed at shutdown */
+    private static final long OCSP_SIGNING_SHUTDOWN_TIMEOUT_MS = 5000L;
     private final AuthenticationToken authenticationToken = new AlwaysAllowLocalAuthenticationToken("Application internal");
         
     @EJB
@@ -142,11 +154,32 @@ public class StartupSingletonBean {
     private ServiceSessionLocal serviceSession;
     @EJB
     private OcspResponseCleanupSessionLocal ocspResponseCleanupSession;
+    @EJB
+    private CacheInvalidationSessionLocal cacheInvalidationSession;
+    @EJB
+    private ClearCacheSessionLocal clearCacheSession;
+
+    /** Clears the caches of this node when the caches are cleared on another node. The id of the event tells if active crypto tokens are kept. */
+    private final Consumer<CacheInvalidationEvent> clearAllCachesListener = event -> clearCacheSession.clearCaches(event.getId() != 0);
 
     @PreDestroy
     private void shutdown() {
         String iMsg = InternalEjbcaResources.getInstance().getLocalizedMessage("startservice.shutdown");
         log.info(iMsg);
+        SernoPool.INSTANCE.shutdown();
+        LdapConnectionPool.INSTANCE.closeAll();
+        // Stop the OCSP signing threads, which would otherwise keep the classes of this deployment loaded
+        OcspSigningBatcher.INSTANCE.shutdown();
+        OcspSigningExecutors.INSTANCE.shutdown(OCSP_SIGNING_SHUTDOWN_TIMEOUT_MS);
+        // Stop sending and reading cache invalidation events, since the bus outlives this deployment if the classes are shared
+        CacheInvalidationBus.getInstance().removeListener(CacheInvalidationEvent.ALL_CACHES, clearAllCachesListener);
+        try {
+            cacheInvalidationSession.stop();
+        } catch (RuntimeException e) {
+            log.debug("Unable to stop cache invalidation: " + e.getMessage());
+        }
+        // The platform MBean server outlives this deployment, so remove the statistics beans that refer to its classes
+        JmxRegistry.INSTANCE.unregisterAll();
         // Make a log row that EJBCA is stopping
         //final Map<String, Object> details = new LinkedHashMap<String, Object>();
         //details.put("msg", iMsg);
@@ -397,6 +430,8 @@ public class StartupSingletonBean {
         } else {
             certificateStoreSession.setUniqueCertificateSerialNumberIndex(unique);
         }
+        // Generate random certificate serial numbers ahead of time, if configured
+        SernoPool.INSTANCE.start(CesecoreConfiguration.getSerialNumberPoolSize());
         
         log.debug(">startup performing (automatic) upgrades, if needed"); 
         // Perform (automatic) upgrades, if needed
@@ -435,6 +470,11 @@ public class StartupSingletonBean {
         log.debug(">startup start OCSP clean up job");
         ocspResponseCleanupSession.start();
 
+        // Start sending and reading cache invalidation events, if enabled
+        log.debug(">startup start cluster wide cache invalidation");
+        CacheInvalidationBus.getInstance().addListener(CacheInvalidationEvent.ALL_CACHES, clearAllCachesListener);
+        cacheInvalidationSession.start();
+
         log.debug(">startup completed");
     }
     
@@ -28,7 +28,10 @@ import org.ejbca.core.model.ca.publisher.BasePublisher;
 public enum PublisherCache implements CommonCache<BasePublisher> {
     INSTANCE;
 
-    final private CommonCache<BasePublisher> cache = new CommonCacheBase<BasePublisher>() {
+    /** Name of the cache in the cache registry and on the cache invalidation bus */
+    public static final String NAME = "PublisherCache";
+
+    final private CommonCache<BasePublisher> cache = new CommonCacheBase<BasePublisher>(NAME) {
         @Override
         protected long getCacheTime() {
             return EjbcaConfiguration.getCachePublisherTime();
@@ -21,6 +21,7 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -31,6 +32,8 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.CreateException;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
@@ -55,6 +58,7 @@ import org.cesecore.configuration.GlobalConfigurationSessionLocal;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.oscp.OcspResponseData;
 import org.cesecore.util.ExternalScriptsAllowlist;
+import org.ejbca.config.DatabaseConfiguration;
 import org.ejbca.config.EjbcaConfiguration;
 import org.ejbca.config.GlobalConfiguration;
 import org.ejbca.core.ejb.ocsp.OcspDataSessionLocal;
@@ -64,6 +68,7 @@ import org.ejbca.core.model.ca.publisher.CustomPublisherContainer;
 import org.ejbca.core.model.ca.publisher.PublisherConst;
 import org.ejbca.core.model.ca.publisher.PublisherException;
 import org.ejbca.core.model.ca.publisher.PublisherQueueData;
+import org.ejbca.core.model.ca.publisher.PublisherQueueStatistics;
 import org.ejbca.core.model.ca.publisher.PublisherQueueVolatileInformation;
 import org.ejbca.core.model.services.workers.PublishQueueProcessWorker;
 
@@ -80,6 +85,7 @@ public class PublisherQueueSessionBean implements PublisherQueueSessionLocal {
     private static final AtomicInteger beanInstanceCount = new AtomicInteger(0);
     private static volatile ExecutorService executorService = null;
     private static final String TIMEOUT_MESSAGE_INDICATOR = "timed out";
+    private static volatile boolean skipLockedUnsupportedLogged = false;
     
     private static final long MAX_JOBS_PER_QUEUE_WORKER = 200000L;
 
@@ -249,20 +255,24 @@ public class PublisherQueueSessionBean implements PublisherQueueSessionLocal {
         List<org.ejbca.core.ejb.ca.publisher.PublisherQueueData> publisherQueueDataList = org.ejbca.core.ejb.ca.publisher.PublisherQueueData
                 .findDataByPublisherIdAndStatus(entityManager, publisherId, PublisherConst.STATUS_PENDING, limit, offset);
         for (org.ejbca.core.ejb.ca.publisher.PublisherQueueData publisherQueueData : publisherQueueDataList) {
-            PublisherQueueData pqd = new PublisherQueueData(publisherQueueData.getPk(), new Date(publisherQueueData.getTimeCreated()), new Date(
-                    publisherQueueData.getLastUpdate()), PublisherConst.STATUS_PENDING, publisherQueueData.getTryCounter(),
-                    publisherQueueData.getPublishType(), publisherQueueData.getFingerprint(), publisherId,
-                    publisherQueueData.getPublisherQueueVolatileData());
-            ret.add(pqd);
-            if (log.isDebugEnabled()) {
-                log.debug("Return pending record with pk " + publisherQueueData.getPk() + ", and timeCreated "
-                        + new Date(publisherQueueData.getTimeCreated()));
-            }
+            ret.add(getPendingEntry(publisherQueueData));
         }
         log.trace("<getPendingEntriesForPublisherWithLimit()");
         return ret;
     }
 
+    /** @return the value object of a pending publisher queue entry */
+    private PublisherQueueData getPendingEntry(final org.ejbca.core.ejb.ca.publisher.PublisherQueueData publisherQueueData) {
+        if (log.isDebugEnabled()) {
+            log.debug("Return pending record with pk " + publisherQueueData.getPk() + ", and timeCreated "
+                    + new Date(publisherQueueData.getTimeCreated()));
+        }
+        return new PublisherQueueData(publisherQueueData.getPk(), new Date(publisherQueueData.getTimeCreated()), new Date(
+                publisherQueueData.getLastUpdate()), PublisherConst.STATUS_PENDING, publisherQueueData.getTryCounter(),
+                publisherQueueData.getPublishType(), publisherQueueData.getFingerprint(), publisherQueueData.getPublisherId(),
+                publisherQueueData.getPublisherQueueVolatileData());
+    }
+
     @Override
     public Collection<PublisherQueueData> getEntriesByFingerprint(String fingerprint) {
         if (log.isTraceEnabled()) {
@@ -287,6 +297,16 @@ public class PublisherQueueSessionBean implements PublisherQueueSessionLocal {
         return ret;
     }
 
+    @Override
+    public PublisherQueueData getEntry(final String pk) {
+        final org.ejbca.core.ejb.ca.publisher.PublisherQueueData d = org.ejbca.core.ejb.ca.publisher.PublisherQueueData.findByPk(entityManager, pk);
+        if (d == null) {
+            return null;
+        }
+        return new PublisherQueueData(d.getPk(), new Date(d.getTimeCreated()), new Date(d.getLastUpdate()), d.getPublishStatus(),
+                d.getTryCounter(), d.getPublishType(), d.getFingerprint(), d.getPublisherId(), d.getPublisherQueueVolatileData());
+    }
+
     @Override
     public void updateData(String pk, int status, int tryCounter) {
         if (log.isTraceEnabled()) {
@@ -315,6 +335,41 @@ public class PublisherQueueSessionBean implements PublisherQueueSessionLocal {
             log.warn("Number of maxmimum jobs for the queue worker must be between 1 and " + MAX_JOBS_PER_QUEUE_WORKER + ". Using the default of "
                     + PublishQueueProcessWorker.DEFAULT_QUEUE_WORKER_JOBS + " instead.");
         }
+        final int parallelism = Math.max(1, EjbcaConfiguration.getPublisherQueueParallelism());
+        if (parallelism == 1) {
+            return publishQueuePartition(admin, publisher, 0, 1, maxNumberOfJobs);
+        }
+        // Each worker publishes its own part of the queue, in its own transactions
+        final long maxNumberOfJobsPerWorker = (maxNumberOfJobs + parallelism - 1) / parallelism;
+        final List<Future<PublishingResult>> workers = new ArrayList<>(parallelism);
+        for (int partition = 0; partition < parallelism; partition++) {
+            workers.add(publisherQueueSession.publishQueuePartitionAsync(admin, publisher, partition, parallelism, maxNumberOfJobsPerWorker));
+        }
+        final PublishingResult result = new PublishingResult();
+        for (final Future<PublishingResult> worker : workers) {
+            try {
+                result.append(worker.get());
+            } catch (ExecutionException e) {
+                // The entries of the partition are left in the queue, and are published the next time the queue is processed
+                log.error("Failed to publish part of the queue for publisher " + publisher.getPublisherId() + ": " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EJBException(e);
+            }
+        }
+        return result;
+    }
+
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    @Override
+    public Future<PublishingResult> publishQueuePartitionAsync(final AuthenticationToken admin, final BasePublisher publisher, final int partition,
+            final int partitions, final long maxNumberOfJobs) {
+        return new AsyncResult<>(publishQueuePartition(admin, publisher, partition, partitions, maxNumberOfJobs));
+    }
+
+    private PublishingResult publishQueuePartition(final AuthenticationToken admin, final BasePublisher publisher, final int partition,
+            final int partitions, final long maxNumberOfJobs) {
         final PublishingResult result = new PublishingResult();
         PublishingResult intermediateResult;
         // Repeat this process as long as we actually manage to publish something
@@ -322,7 +377,11 @@ public class PublisherQueueSessionBean implements PublisherQueueSessionLocal {
         // However, we don't want to publish more than 20000 certificates each time, because we want to commit to the database some time as well.
         int totalCount = 0;
         do {
-            intermediateResult = publisherQueueSession.doChunk(admin, publisher);
+            if (partitions == 1) {
+                intermediateResult = publisherQueueSession.doChunk(admin, publisher);
+            } else {
+                intermediateResult = publisherQueueSession.doChunk(admin, publisher, partition, partitions);
+            }
             result.append(intermediateResult);
             totalCount += intermediateResult.getSuccesses();
         } while ((intermediateResult.getSuccesses() > 0) && (totalCount < maxNumberOfJobs));
@@ -332,8 +391,54 @@ public class PublisherQueueSessionBean implements PublisherQueueSessionLocal {
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
     @Override
     public PublishingResult doChunk(AuthenticationToken admin, BasePublisher publisher) {
-        final Collection<PublisherQueueData> publisherQueueDatas = getPendingEntriesForPublisherWithLimit(publisher.getPublisherId(), 100);
-        return doPublish(admin, publisher, publisherQueueDatas);
+        return doChunk(admin, publisher, 0, 1);
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    public PublishingResult doChunk(final AuthenticationToken admin, final BasePublisher publisher, final int partition, final int partitions) {
+        final long startTime = System.nanoTime();
+        final Collection<PublisherQueueData> publisherQueueDatas = claimPendingEntriesForPublisher(publisher.getPublisherId(), 100, partition, partitions);
+        final PublishingResult result = doPublish(admin, publisher, publisherQueueDatas);
+        if (!publisherQueueDatas.isEmpty()) {
+            PublisherQueueStatistics.INSTANCE.record(publisher.getPublisherId(), result.getSuccesses(), result.getFailures(), System.nanoTime() - startTime);
+        }
+        return result;
+    }
+
+    /**
+     * Finds pending entries to publish in the current transaction. With publisher.queue.skiplocked, the entries are locked until the
+     * transaction ends and entries locked by other workers are skipped, so the workers can share the whole queue. Otherwise each worker
+     * only takes entries from its own partition of the queue.
+     */
+    private Collection<PublisherQueueData> claimPendingEntriesForPublisher(final int publisherId, final int limit, final int partition,
+            final int partitions) {
+        if (EjbcaConfiguration.isPublisherQueueSkipLocked()) {
+            final List<String> pks = org.ejbca.core.ejb.ca.publisher.PublisherQueueData.lockPksByPublisherIdAndStatusSkipLocked(entityManager,
+                    DatabaseConfiguration.getDatabaseName(), publisherId, PublisherConst.STATUS_PENDING, limit);
+            if (pks != null) {
+                final Collection<PublisherQueueData> ret = new ArrayList<>(pks.size());
+                for (final org.ejbca.core.ejb.ca.publisher.PublisherQueueData publisherQueueData : org.ejbca.core.ejb.ca.publisher.PublisherQueueData
+                        .findByPks(entityManager, pks)) {
+                    ret.add(getPendingEntry(publisherQueueData));
+                }
+                return ret;
+            }
+            if (!skipLockedUnsupportedLogged) {
+                skipLockedUnsupportedLogged = true;
+                log.warn("publisher.queue.skiplocked is not supported for database " + DatabaseConfiguration.getDatabaseName()
+                        + ", the publisher queue is divided between the workers instead.");
+            }
+        }
+        if (partitions == 1) {
+            return getPendingEntriesForPublisherWithLimit(publisherId, limit);
+        }
+        final Collection<PublisherQueueData> ret = new ArrayList<>();
+        for (final org.ejbca.core.ejb.ca.publisher.PublisherQueueData publisherQueueData : org.ejbca.core.ejb.ca.publisher.PublisherQueueData
+                .findDataByPublisherIdAndStatusInPartition(entityManager, publisherId, PublisherConst.STATUS_PENDING, limit, partition, partitions)) {
+            ret.add(getPendingEntry(publisherQueueData));
+        }
+        return ret;
     }
 
     @Override
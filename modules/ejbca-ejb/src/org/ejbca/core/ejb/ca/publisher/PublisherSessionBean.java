@@ -15,6 +15,7 @@ package org.ejbca.core.ejb.ca.publisher;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
@@ -29,11 +30,16 @@ import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.annotation.Resource;
 import javax.ejb.Asynchronous;
 import javax.ejb.CreateException;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.persistence.EntityManager;
@@ -61,6 +67,7 @@ import org.cesecore.certificates.endentity.ExtendedInformation;
 import org.cesecore.certificates.util.cert.CrlExtensions;
 import org.cesecore.common.exception.ReferencesToItemExistException;
 import org.cesecore.configuration.GlobalConfigurationSessionLocal;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.oscp.OcspResponseData;
 import org.cesecore.util.Base64GetHashMap;
@@ -68,6 +75,7 @@ import org.cesecore.util.EjbRemoteHelper;
 import org.cesecore.util.LogRedactionUtils;
 import org.cesecore.util.ProfileID;
 import org.cesecore.util.SecureXMLDecoder;
+import org.ejbca.config.EjbcaConfiguration;
 import org.ejbca.core.ejb.audit.enums.EjbcaEventTypes;
 import org.ejbca.core.ejb.audit.enums.EjbcaModuleTypes;
 import org.ejbca.core.ejb.audit.enums.EjbcaServiceTypes;
@@ -107,8 +115,26 @@ public class PublisherSessionBean implements PublisherSessionLocal, PublisherSes
 
     private static final String PROPERTYKEY_STORECRL = "storeCRL";
 
+    /** Timer info of a retry of a queued entry that could not be published directly */
+    private static final class PublishRetry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final AuthenticationToken admin;
+        private final int publisherId;
+        private final String pk;
+        private final int retry;
+
+        private PublishRetry(final AuthenticationToken admin, final int publisherId, final String pk, final int retry) {
+            this.admin = admin;
+            this.publisherId = publisherId;
+            this.pk = pk;
+            this.retry = retry;
+        }
+    }
+
     @PersistenceContext(unitName = "ejbca")
     private EntityManager entityManager;
+    @Resource
+    private SessionContext sessionContext;
 
     @EJB
     private AuthorizationSessionLocal authorizationSession;
@@ -137,6 +163,34 @@ public class PublisherSessionBean implements PublisherSessionLocal, PublisherSes
     @Asynchronous
     @Override
     public void publishQueuedEntry(AuthenticationToken admin, int publisherId, PublisherQueueData entity) {
+        publishQueuedEntry(admin, publisherId, entity, 0);
+    }
+
+    /**
+     * Retries publishing a queued entry that failed earlier. The entry is skipped if it is gone or no longer pending, since the Publish
+     * Queue Process Service may have published it in the meantime.
+     */
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void timeoutHandler(final Timer timer) {
+        final PublishRetry publishRetry = (PublishRetry) timer.getInfo();
+        final PublisherQueueData entity = publisherQueueSession.getEntry(publishRetry.pk);
+        if (entity == null || entity.getPublishStatus() != PublisherConst.STATUS_PENDING) {
+            if (log.isDebugEnabled()) {
+                log.debug("Publisher queue entry " + publishRetry.pk + " is no longer pending, not retrying.");
+            }
+            return;
+        }
+        publishQueuedEntry(publishRetry.admin, publishRetry.publisherId, entity, publishRetry.retry);
+    }
+
+    /**
+     * Publishes a queued entry, and schedules a retry if it fails. Once there are no retries left, the entry is left in the queue for the
+     * Publish Queue Process Service.
+     *
+     * @param retry 0 for the first attempt, and then the number of the retry
+     */
+    private void publishQueuedEntry(final AuthenticationToken admin, final int publisherId, final PublisherQueueData entity, final int retry) {
         final BasePublisher publisher = getPublisher(publisherId);
         final PublishingResult publisherResult = publisherQueueSession.doPublish(admin, publisher, entity);
 
@@ -161,7 +215,24 @@ public class PublisherSessionBean implements PublisherSessionLocal, PublisherSes
             }
             auditSession.log(EjbcaEventTypes.PUBLISHER_STORE_CERTIFICATE, EventStatus.FAILURE, EjbcaModuleTypes.PUBLISHER,
                     EjbcaServiceTypes.EJBCA, admin.toString(), null, entity.getFingerprint(), entity.getVolatileData().getUsername(), details);
+            scheduleRetry(admin, publisherId, entity.getPk(), retry + 1);
+        }
+    }
+
+    /** Schedules a retry of a queued entry, after a delay that is doubled for each retry, unless there are no retries left. */
+    private void scheduleRetry(final AuthenticationToken admin, final int publisherId, final String pk, final int retry) {
+        if (retry > EjbcaConfiguration.getSafeDirectPublishingRetries()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Publisher queue entry " + pk + " could not be published directly, leaving it to the Publish Queue Process Service.");
+            }
+            return;
+        }
+        final long delay = EjbcaConfiguration.getSafeDirectPublishingRetryBackoff() << Math.min(retry - 1, 16);
+        if (log.isDebugEnabled()) {
+            log.debug("Retrying to publish publisher queue entry " + pk + " in " + delay + " ms (retry " + retry + ").");
         }
+        // The timer is not persistent, since the entry stays in the queue if the node is restarted before the retry
+        sessionContext.getTimerService().createSingleActionTimer(delay, new TimerConfig(new PublishRetry(admin, publisherId, pk, retry), false));
     }
     
     @Override
@@ -648,6 +719,7 @@ public class PublisherSessionBean implements PublisherSessionLocal, PublisherSes
             htp.setPublisher(publisher);
             // Since loading a Publisher is quite complex, we simple purge the cache here
             PublisherCache.INSTANCE.removeEntry(htp.getId());
+            CacheInvalidationBus.getInstance().publish(PublisherCache.NAME, htp.getId());
             final String msg = intres.getLocalizedMessage("publisher.changedpublisher", name);
             final Map<String, Object> details = new LinkedHashMap<>();
             details.put("msg", msg);
@@ -719,6 +791,7 @@ public class PublisherSessionBean implements PublisherSessionLocal, PublisherSes
                 entityManager.remove(htp);
                 // Purge the cache here
                 PublisherCache.INSTANCE.removeEntry(htp.getId());
+                CacheInvalidationBus.getInstance().publish(PublisherCache.NAME, htp.getId());
                 final String msg = intres.getLocalizedMessage("publisher.removedpublisher", name);
                 final Map<String, Object> details = new LinkedHashMap<>();
                 details.put("msg", msg);
@@ -792,6 +865,7 @@ public class PublisherSessionBean implements PublisherSessionLocal, PublisherSes
                 success = true;
                 // Since loading a Publisher is quite complex, we simple purge the cache here
                 PublisherCache.INSTANCE.removeEntry(htp.getId());
+                CacheInvalidationBus.getInstance().publish(PublisherCache.NAME, htp.getId());
             }
         }
         if (success) {
@@ -1102,6 +1176,7 @@ public class PublisherSessionBean implements PublisherSessionLocal, PublisherSes
                 publisherData.setPublisher(new LegacyValidationAuthorityPublisher(data));
                 //Purge the entry from the cache
                 PublisherCache.INSTANCE.removeEntry(publisherData.getId());
+                CacheInvalidationBus.getInstance().publish(PublisherCache.NAME, publisherData.getId());
             }           
         }
         return numberOfUpgradedPublishers;
@@ -30,18 +30,27 @@ import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
@@ -159,6 +168,7 @@ import org.cesecore.keys.util.CvcKeyTools;
 import org.cesecore.keys.util.PublicKeyWrapper;
 import org.cesecore.util.ECAUtils;
 import org.cesecore.util.LogRedactionUtils;
+import org.ejbca.config.EjbcaConfiguration;
 import org.ejbca.config.GlobalConfiguration;
 import org.ejbca.core.EjbcaException;
 import org.ejbca.core.ejb.audit.enums.EjbcaEventTypes;
@@ -167,6 +177,7 @@ import org.ejbca.core.ejb.ca.publisher.PublisherSessionLocal;
 import org.ejbca.core.ejb.ca.revoke.RevocationSessionLocal;
 import org.ejbca.core.ejb.ca.store.CertReqHistorySessionLocal;
 import org.ejbca.core.ejb.ocsp.PreSigningOcspResponseSessionLocal;
+import org.ejbca.core.ejb.ra.CertificateRequestSessionLocal;
 import org.ejbca.core.ejb.ra.EndEntityAccessSessionLocal;
 import org.ejbca.core.ejb.ra.EndEntityManagementSessionLocal;
 import org.ejbca.core.ejb.ra.NoSuchEndEntityException;
@@ -205,6 +216,8 @@ import org.ejbca.util.passgen.AllPrintableCharPasswordGenerator;
 public class SignSessionBean implements SignSessionLocal, SignSessionRemote {
 
     private static final Logger log = Logger.getLogger(SignSessionBean.class);
+    /** Number of times a certificate of a batch is issued, when it is rejected because of a serial number collision */
+    private static final int MAX_BATCH_ISSUANCE_ATTEMPTS = 2;
 
     @PersistenceContext(unitName = "ejbca")
     private EntityManager entityManager;
@@ -239,6 +252,11 @@ public class SignSessionBean implements SignSessionLocal, SignSessionRemote {
     private SecurityEventsLoggerSessionLocal securityEventsLoggerSession;
     @EJB
     private PreSigningOcspResponseSessionLocal ocspResponseSigningSession;
+    @EJB
+    private CertificateRequestSessionLocal certificateRequestSession;
+
+    @Resource
+    private SessionContext sessionContext;
 
     // Re-factor: Remove Cyclic module dependency.
     @EJB
@@ -602,6 +620,205 @@ public class SignSessionBean implements SignSessionLocal, SignSessionRemote {
         return ret;
     }
 
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<BatchIssuanceResult> createCertificates(final AuthenticationToken admin, final List<BatchIssuanceRequest> requests,
+            final Class<? extends CertificateResponseMessage> responseClass) {
+        if (log.isTraceEnabled()) {
+            log.trace(">createCertificates(" + requests.size() + ")");
+        }
+        final SignSessionLocal signSession = sessionContext.getBusinessObject(SignSessionLocal.class);
+        final List<Integer> chunkEnds = getChunkEnds(requests, Math.max(1, EjbcaConfiguration.getBatchIssuanceChunkSize()));
+        final int parallelism = Math.max(1, EjbcaConfiguration.getBatchIssuanceParallelism());
+        final List<BatchIssuanceResult> results = new ArrayList<>(requests.size());
+        final List<Future<List<BatchIssuanceResult>>> running = new ArrayList<>(parallelism);
+        int submittedChunks = 0;
+        int collectedChunks = 0;
+        while (results.size() < requests.size()) {
+            while (running.size() < parallelism && submittedChunks < chunkEnds.size()) {
+                final int start = submittedChunks == 0 ? 0 : chunkEnds.get(submittedChunks - 1);
+                final int end = chunkEnds.get(submittedChunks++);
+                running.add(signSession.createCertificateChunkAsync(admin, new ArrayList<>(requests.subList(start, end)), start, responseClass));
+            }
+            // Chunks are collected in the order they were submitted, so the results are in the order of the requests
+            final int first = results.size();
+            final int end = chunkEnds.get(collectedChunks++);
+            List<BatchIssuanceResult> chunkResults;
+            try {
+                chunkResults = running.remove(0).get();
+            } catch (ExecutionException e) {
+                // The transaction could not be committed, for example because of a serial number collision
+                log.info("Failed to issue certificates " + first + " to " + (end - 1) + " of batch in one transaction: "
+                        + LogRedactionUtils.getRedactedMessage(e.getCause().getMessage()));
+                chunkResults = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EJBException(e);
+            }
+            if (chunkResults == null) {
+                chunkResults = new ArrayList<>(end - first);
+                for (int index = first; index < end; index++) {
+                    chunkResults.add(createCertificateAlone(signSession, admin, requests.get(index), index, responseClass));
+                }
+            }
+            results.addAll(chunkResults);
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("<createCertificates(" + requests.size() + ")");
+        }
+        return results;
+    }
+
+    /**
+     * Splits a batch into chunks of at most chunkSize requests. A request whose certificate profile uses Certificate Transparency is a chunk
+     * of its own, since the pre-certificate is submitted to the CT logs before the transaction is committed. If the transaction of a chunk
+     * is rolled back, its requests are issued again, and the pre-certificates of the first attempt would be left in the logs for serial
+     * numbers that are never issued.
+     *
+     * @return the index after the last request of each chunk
+     */
+    private List<Integer> getChunkEnds(final List<BatchIssuanceRequest> requests, final int chunkSize) {
+        final Map<Integer, Boolean> ctUsedByProfile = new HashMap<>();
+        final List<Integer> chunkEnds = new ArrayList<>();
+        int chunkStart = 0;
+        for (int index = 0; index < requests.size(); index++) {
+            if (isCertificateTransparencyUsed(requests.get(index), ctUsedByProfile)) {
+                if (index > chunkStart) {
+                    chunkEnds.add(index);
+                }
+                chunkEnds.add(index + 1);
+                chunkStart = index + 1;
+            } else if (index + 1 - chunkStart == chunkSize) {
+                chunkEnds.add(index + 1);
+                chunkStart = index + 1;
+            }
+        }
+        if (chunkStart < requests.size()) {
+            chunkEnds.add(requests.size());
+        }
+        return chunkEnds;
+    }
+
+    /** @return true if the certificate profile of the request uses Certificate Transparency, or the profile can not be found */
+    private boolean isCertificateTransparencyUsed(final BatchIssuanceRequest request, final Map<Integer, Boolean> ctUsedByProfile) {
+        EndEntityInformation endEntity = request.getEndEntity();
+        if (endEntity == null && request.getRequestMessage() != null && request.getRequestMessage().getUsername() != null) {
+            endEntity = endEntityAccessSession.findUser(request.getRequestMessage().getUsername());
+        }
+        if (endEntity == null) {
+            // Issuance will fail, so there is no reason to issue it together with other requests
+            return true;
+        }
+        return ctUsedByProfile.computeIfAbsent(endEntity.getCertificateProfileId(), certificateProfileId -> {
+            final CertificateProfile certificateProfile = certificateProfileSession.getCertificateProfile(certificateProfileId);
+            return certificateProfile == null || certificateProfile.isUseCertificateTransparencyInCerts();
+        });
+    }
+
+    /**
+     * Issues one certificate of a batch in its own transaction, after the transaction of its chunk was rolled back.
+     * <p>
+     * Certificates are stored without looking for their serial number first when there is a unique index on issuer and serial number,
+     * so a serial number collision makes the database reject the certificate when the transaction is committed. The certificate is then
+     * issued again, with a new serial number, unless the serial number was requested by the end entity.
+     */
+    private BatchIssuanceResult createCertificateAlone(final SignSessionLocal signSession, final AuthenticationToken admin,
+            final BatchIssuanceRequest request, final int index, final Class<? extends CertificateResponseMessage> responseClass) {
+        final EndEntityInformation endEntity = request.getEndEntity();
+        final boolean customSerialNumber = endEntity != null && endEntity.getExtendedInformation() != null
+                && endEntity.getExtendedInformation().certificateSerialNumber() != null;
+        for (int attempt = 1;; attempt++) {
+            try {
+                return signSession.createCertificateChunkAsync(admin, Collections.singletonList(request), index, responseClass).get().get(0);
+            } catch (ExecutionException e) {
+                if (attempt < MAX_BATCH_ISSUANCE_ATTEMPTS && !customSerialNumber && isIntegrityConstraintViolation(e.getCause())) {
+                    log.info("Certificate " + index + " of batch violated a database constraint, issuing it again with a new serial number.");
+                    continue;
+                }
+                return getBatchIssuanceFailure(index, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EJBException(e);
+            }
+        }
+    }
+
+    /** @return true if the database rejected a row because of a constraint, like the unique index on issuer and serial number */
+    private static boolean isIntegrityConstraintViolation(final Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            // SQL state class 23 is "integrity constraint violation" in all supported databases
+            if (cause instanceof SQLException && StringUtils.startsWith(((SQLException) cause).getSQLState(), "23")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    @Asynchronous
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Future<List<BatchIssuanceResult>> createCertificateChunkAsync(final AuthenticationToken admin, final List<BatchIssuanceRequest> requests,
+            final int firstIndex, final Class<? extends CertificateResponseMessage> responseClass) {
+        final SignSessionLocal signSession = sessionContext.getBusinessObject(SignSessionLocal.class);
+        final List<BatchIssuanceResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final int index = firstIndex + i;
+            final BatchIssuanceRequest request = requests.get(i);
+            try {
+                if (request.getEncodedRequest() != null) {
+                    final byte[] certificate = certificateRequestSession.processCertReq(admin, request.getEndEntity(), request.getEncodedRequest(),
+                            request.getRequestType(), CertificateConstants.CERT_RES_TYPE_CERTIFICATE);
+                    results.add(BatchIssuanceResult.success(index, certificate, null));
+                } else {
+                    final ResponseMessage response;
+                    if (request.getEndEntity() != null) {
+                        response = certificateRequestSession.processCertReq(admin, request.getEndEntity(), request.getRequestMessage(), responseClass);
+                    } else {
+                        response = signSession.createCertificate(admin, request.getRequestMessage(), responseClass, null);
+                    }
+                    final Certificate certificate = ((CertificateResponseMessage) response).getCertificate();
+                    if (response.getStatus() == ResponseStatus.SUCCESS && certificate != null) {
+                        results.add(BatchIssuanceResult.success(index, certificate.getEncoded(), response));
+                    } else {
+                        results.add(BatchIssuanceResult.failure(index, null, response.getFailText()));
+                    }
+                }
+            } catch (Exception e) { // NOPMD: each request may fail in any way, without stopping the others
+                if (requests.size() > 1 && sessionContext.getRollbackOnly()) {
+                    // The certificates issued so far in this transaction are lost, so let the caller issue them one by one
+                    if (log.isDebugEnabled()) {
+                        log.debug("Request " + index + " of batch rolled back the transaction of its chunk: "
+                                + LogRedactionUtils.getRedactedMessage(e.getMessage()));
+                    }
+                    return new AsyncResult<>(null);
+                }
+                results.add(getBatchIssuanceFailure(index, e));
+            }
+        }
+        return new AsyncResult<>(results);
+    }
+
+    private static BatchIssuanceResult getBatchIssuanceFailure(final int index, final Throwable throwable) {
+        Throwable cause = throwable;
+        // System exceptions of the sessions that were called are wrapped
+        while (cause instanceof EJBException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        final ErrorCode errorCode;
+        if (cause instanceof CesecoreException) {
+            errorCode = ((CesecoreException) cause).getErrorCode();
+        } else if (cause instanceof EjbcaException) {
+            errorCode = ((EjbcaException) cause).getErrorCode();
+        } else {
+            errorCode = null;
+        }
+        log.info("Failed to issue certificate " + index + " of batch: " + LogRedactionUtils.getRedactedMessage(cause.getMessage()));
+        return BatchIssuanceResult.failure(index, errorCode, LogRedactionUtils.getRedactedMessage(cause.getMessage()));
+    }
+
     @Override
     public Certificate createCertificate(final AuthenticationToken admin, final String username, final String password, final PublicKeyWrapper pk,
                                          final int keyusage, final Date notBefore, final Date notAfter, final int certificateprofileid, final int caid)
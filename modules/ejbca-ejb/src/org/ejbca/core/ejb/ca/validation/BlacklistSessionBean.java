@@ -35,6 +35,7 @@ import org.cesecore.authorization.AuthorizationSessionLocal;
 import org.cesecore.authorization.control.StandardRules;
 import org.cesecore.certificates.ca.CaSessionLocal;
 import org.cesecore.certificates.certificateprofile.CertificateProfileSessionLocal;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.util.ProfileID;
 import org.ejbca.core.ejb.audit.enums.EjbcaEventTypes;
@@ -131,6 +132,7 @@ public class BlacklistSessionBean implements BlacklistSessionLocal, BlacklistSes
             data.setBlacklistEntry(entry);
             // Since loading a Blacklist is quite complex, we simple purge the cache here.
             PublicKeyBlacklistEntryCache.INSTANCE.removeEntry(data.getId());
+            CacheInvalidationBus.getInstance().publish(PublicKeyBlacklistEntryCache.NAME, data.getId());
             final String message = intres.getLocalizedMessage("blacklist.changedpublickeyblacklist", entry.getValue());
             final Map<String, Object> details = new LinkedHashMap<String, Object>();
             details.put("msg", message);
@@ -166,6 +168,7 @@ public class BlacklistSessionBean implements BlacklistSessionLocal, BlacklistSes
             entityManager.remove(data);
             // Purge the cache here.
             PublicKeyBlacklistEntryCache.INSTANCE.removeEntry(data.getId());
+            CacheInvalidationBus.getInstance().publish(PublicKeyBlacklistEntryCache.NAME, data.getId());
             message = intres.getLocalizedMessage("blacklist.removedpublickeyblacklist", value);
             final Map<String, Object> details = new LinkedHashMap<String, Object>();
             details.put("msg", message);
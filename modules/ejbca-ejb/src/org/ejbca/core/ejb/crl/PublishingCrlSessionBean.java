@@ -18,17 +18,23 @@ import java.security.cert.Certificate;
 import java.security.cert.X509CRL;
 import java.security.cert.X509CRLEntry;
 import java.text.ParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
 import javax.ejb.FinderException;
@@ -54,6 +60,7 @@ import org.cesecore.authorization.AuthorizationDeniedException;
 import org.cesecore.certificates.ca.CA;
 import org.cesecore.certificates.ca.CAConstants;
 import org.cesecore.certificates.ca.CADoesntExistsException;
+import org.cesecore.certificates.ca.CAFactory;
 import org.cesecore.certificates.ca.CAInfo;
 import org.cesecore.certificates.ca.CAOfflineException;
 import org.cesecore.certificates.ca.CaSessionLocal;
@@ -67,8 +74,10 @@ import org.cesecore.certificates.certificate.NoConflictCertificateStoreSessionLo
 import org.cesecore.certificates.crl.CRLInfo;
 import org.cesecore.certificates.crl.CrlCreateSessionLocal;
 import org.cesecore.certificates.crl.CrlStoreSessionLocal;
+import org.cesecore.certificates.crl.RevocationJournalDataSessionLocal;
 import org.cesecore.certificates.crl.RevocationReasons;
 import org.cesecore.certificates.crl.RevokedCertInfo;
+import org.cesecore.config.CesecoreConfiguration;
 import org.cesecore.internal.InternalResources;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.util.CompressedCollection;
@@ -110,6 +119,8 @@ public class PublishingCrlSessionBean implements PublishingCrlSessionLocal, Publ
     @EJB
     private PublisherSessionLocal publisherSession;
     @EJB
+    private RevocationJournalDataSessionLocal revocationJournalDataSession;
+    @EJB
     private SecurityEventsLoggerSessionLocal logSession;
 
     private PublishingCrlSessionLocal publishingCrlSession;
@@ -225,9 +236,7 @@ public class PublishingCrlSessionBean implements PublishingCrlSessionLocal, Publ
                             boolean result = createCrlForActiveCa(admin, ca, cacert, CertificateConstants.NO_CRL_PARTITION, now, addToCrlOverlapTime);
                             final IntRange crlPartitions = cainfo.getAllCrlPartitionIndexes();
                             if (crlPartitions != null) {
-                                for (int crlPartitionIndex = crlPartitions.getMinimumInteger(); crlPartitionIndex <= crlPartitions.getMaximumInteger(); crlPartitionIndex++) {
-                                    result &= createCrlForActiveCa(admin, ca, cacert, crlPartitionIndex, now, addToCrlOverlapTime);
-                                }
+                                result &= createPartitionCrls(admin, ca, cacert, crlPartitions, now, addToCrlOverlapTime, false);
                             }
                             return result;
                         }
@@ -245,6 +254,111 @@ public class PublishingCrlSessionBean implements PublishingCrlSessionLocal, Publ
         }
     }
 
+    /**
+     * Creates the CRLs, or delta CRLs, of the CRL partitions of a CA that need to be created. The CA is assumed to be active (no checks are
+     * performed). If {@link CesecoreConfiguration#getCrlPartitionParallelism()} is more than 1, that many partitions are created at the same
+     * time, and the whole CA takes about as long as its slowest partitions instead of the sum of all of them. Each partition that is created
+     * in parallel uses a copy of the CA, since CA instances are not thread safe.
+     *
+     * @return true if all partitions had CRLs created
+     */
+    private boolean createPartitionCrls(final AuthenticationToken admin, final CA ca, final Certificate cacert, final IntRange crlPartitions,
+            final Date now, final long addToCrlOverlapTime, final boolean delta) throws CryptoTokenOfflineException, CAOfflineException, AuthorizationDeniedException {
+        final int parallelism = CesecoreConfiguration.getCrlPartitionParallelism();
+        final long startTime = System.currentTimeMillis();
+        boolean result = true;
+        if (parallelism <= 1) {
+            for (int crlPartitionIndex = crlPartitions.getMinimumInteger(); crlPartitionIndex <= crlPartitions.getMaximumInteger(); crlPartitionIndex++) {
+                result &= createPartitionCrl(admin, ca, cacert, crlPartitionIndex, now, addToCrlOverlapTime, delta);
+            }
+        } else {
+            final Deque<Future<Boolean>> running = new ArrayDeque<>();
+            Exception failure = null;
+            for (int crlPartitionIndex = crlPartitions.getMinimumInteger(); crlPartitionIndex <= crlPartitions.getMaximumInteger() && failure == null; crlPartitionIndex++) {
+                if (running.size() >= parallelism) {
+                    try {
+                        result &= awaitPartitionCrl(running.poll());
+                    } catch (ExecutionException e) {
+                        failure = getPartitionCrlFailure(e);
+                        continue;
+                    }
+                }
+                // CA instances are not thread safe, and local calls pass the same instance, so each partition gets a copy of its own
+                final CA partitionCa = (CA) CAFactory.INSTANCE.getCopy(ca);
+                running.add(publishingCrlSession.internalCreatePartitionCrlAsync(admin, partitionCa, cacert, crlPartitionIndex, now, addToCrlOverlapTime, delta));
+            }
+            // Wait for the partitions that are still being created, also when one of them has failed
+            while (!running.isEmpty()) {
+                try {
+                    result &= awaitPartitionCrl(running.poll());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = getPartitionCrlFailure(e);
+                    }
+                }
+            }
+            if (failure instanceof CryptoTokenOfflineException) {
+                throw (CryptoTokenOfflineException) failure;
+            } else if (failure instanceof CAOfflineException) {
+                throw (CAOfflineException) failure;
+            } else if (failure instanceof AuthorizationDeniedException) {
+                throw (AuthorizationDeniedException) failure;
+            } else if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Processed " + (delta ? "delta CRLs" : "CRLs") + " of " + (crlPartitions.getMaximumInteger() - crlPartitions.getMinimumInteger() + 1)
+                    + " partitions of CA '" + ca.getName() + "' in " + (System.currentTimeMillis() - startTime) + " ms, " + parallelism + " at the time.");
+        }
+        return result;
+    }
+
+    private boolean awaitPartitionCrl(final Future<Boolean> future) throws ExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EJBException("Interrupted while waiting for a CRL partition to be created.", e);
+        }
+    }
+
+    /** @return the exception thrown by an asynchronous partition CRL creation, either a checked exception of that method or an EJBException */
+    private Exception getPartitionCrlFailure(final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof CryptoTokenOfflineException || cause instanceof CAOfflineException || cause instanceof AuthorizationDeniedException
+                || cause instanceof RuntimeException) {
+            return (Exception) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new EJBException((Exception) cause);
+    }
+
+    @Asynchronous
+    @Override
+    public Future<Boolean> internalCreatePartitionCrlAsync(final AuthenticationToken admin, final CA ca, final Certificate cacert, final int crlPartitionIndex,
+            final Date now, final long addToCrlOverlapTime, final boolean delta) throws CryptoTokenOfflineException, CAOfflineException, AuthorizationDeniedException {
+        return new AsyncResult<>(createPartitionCrl(admin, ca, cacert, crlPartitionIndex, now, addToCrlOverlapTime, delta));
+    }
+
+    /** Creates the CRL, or delta CRL, of a CRL partition if it is time to do so, and logs how long it took */
+    private boolean createPartitionCrl(final AuthenticationToken admin, final CA ca, final Certificate cacert, final int crlPartitionIndex,
+            final Date now, final long addToCrlOverlapTime, final boolean delta) throws CryptoTokenOfflineException, CAOfflineException, AuthorizationDeniedException {
+        final long startTime = System.currentTimeMillis();
+        final boolean created;
+        if (delta) {
+            created = createDeltaCrlForActiveCa(admin, ca, cacert, crlPartitionIndex, now, addToCrlOverlapTime);
+        } else {
+            created = createCrlForActiveCa(admin, ca, cacert, crlPartitionIndex, now, addToCrlOverlapTime);
+        }
+        if (created) {
+            log.info("Created " + (delta ? "delta CRL" : "CRL") + " for partition " + crlPartitionIndex + " of CA '" + ca.getName() + "' in "
+                    + (System.currentTimeMillis() - startTime) + " ms.");
+        }
+        return created;
+    }
+
     /** Creates a CRL for a CRL partition. The CA is assumed to be active (no checks are performed) */
     private boolean createCrlForActiveCa(final AuthenticationToken admin, final CA ca, final Certificate cacert, final int crlPartitionIndex,
             final Date now, final long addToCrlOverlapTime) throws CryptoTokenOfflineException, CAOfflineException, AuthorizationDeniedException {
@@ -350,9 +464,7 @@ public class PublishingCrlSessionBean implements PublishingCrlSessionLocal, Publ
                                 boolean result = createDeltaCrlForActiveCa(admin, ca, cacert, CertificateConstants.NO_CRL_PARTITION, now, addToCrlOverlapTime);
                                 final IntRange crlPartitions = cainfo.getAllCrlPartitionIndexes();
                                 if (crlPartitions != null) {
-                                    for (int crlPartitionIndex = crlPartitions.getMinimumInteger(); crlPartitionIndex <= crlPartitions.getMaximumInteger(); crlPartitionIndex++) {
-                                        result &= createDeltaCrlForActiveCa(admin, ca, cacert, crlPartitionIndex, now, addToCrlOverlapTime);
-                                    }
+                                    result &= createPartitionCrls(admin, ca, cacert, crlPartitions, now, addToCrlOverlapTime, true);
                                 }
                                 return result;
                             }
@@ -573,6 +685,9 @@ public class PublishingCrlSessionBean implements PublishingCrlSessionLocal, Publ
                 final byte[] crlBytes = generateAndStoreCRL(admin, ca, crlPartitionIndex, revokedCertificates, lastBaseCrlInfo, false, validFrom);
                 if (crlBytes != null) {
                     ret = CertTools.getFingerprintAsString(crlBytes);
+                    if (lastBaseCrlInfo != null && CesecoreConfiguration.isCrlRevocationJournalEnabled()) {
+                        pruneRevocationJournal(caCertSubjectDN, crlPartitionIndex, lastBaseCrlCreationDate);
+                    }
                 }
                 // This debug logging is very, very heavy if you have large CRLs. Please don't use it :-)
                 //              if (log.isDebugEnabled()) {
@@ -603,6 +718,19 @@ public class PublishingCrlSessionBean implements PublishingCrlSessionLocal, Publ
         return ret;
     }
 
+    /**
+     * Removes the revocation journal entries that were made before the previous base CRL. Delta CRLs are created from the entries made
+     * after the latest base CRL, but entries made after the previous one are kept for delta CRLs that are being created at the same time.
+     */
+    private void pruneRevocationJournal(final String caCertSubjectDN, final int crlPartitionIndex, final Date previousBaseCrlCreationDate) {
+        try {
+            revocationJournalDataSession.removeFromJournal(caCertSubjectDN, crlPartitionIndex, previousBaseCrlCreationDate.getTime());
+        } catch (RuntimeException e) {
+            // The entries will be removed after the next base CRL instead
+            log.warn("Unable to remove old entries from the revocation journal of '" + caCertSubjectDN + "': " + e.getMessage());
+        }
+    }
+
     /**
      * Generates a new Delta CRL by looking in the database for revoked
      * certificates since the last complete CRL issued and generating a CRL with
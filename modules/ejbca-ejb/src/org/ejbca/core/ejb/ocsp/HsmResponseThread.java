@@ -63,20 +63,45 @@ public class HsmResponseThread implements Callable<BasicOCSPResp> {
 
     @Override
     public BasicOCSPResp call() throws OCSPException {
+        return sign(createContentSigner());
+    }
+
+    /**
+     * Creates a signer for the key and algorithm of this response. The signer may be used for several responses with the same key,
+     * algorithm and provider, one at a time, see {@link OcspSigningBatcher}.
+     */
+    ContentSigner createContentSigner() {
         try {
-            /*
-             * BufferingContentSigner defaults to allocating a 4096 bytes buffer. Since a rather large OCSP response (e.g. signed with 4K
-             * RSA key, nonce and a one level chain) is less then 2KiB, this is generally a waste of allocation and garbage collection.
-             * 
-             * In high performance environments, the full OCSP response should in general be smaller than 1492 bytes to fit in a single
-             * Ethernet frame.
-             * 
-             * Lowering this allocation from 20480 to 4096 bytes under ECA-4084 which should still be plenty.
-             */
-            final ContentSigner signer = new BufferingContentSigner(new JcaContentSignerBuilder(signingAlgorithm).setProvider(provider).build(signerKey), 20480);
-            return basicRes.build(signer, chain, producedAt!=null? producedAt : new Date());
+            return new JcaContentSignerBuilder(signingAlgorithm).setProvider(provider).build(signerKey);
         } catch (OperatorCreationException e) {
             throw new OcspFailureException(e);
         }
     }
+
+    /** Builds and signs the response with the given signer, which must have been created with {@link #createContentSigner()} */
+    BasicOCSPResp sign(final ContentSigner contentSigner) throws OCSPException {
+        /*
+         * BufferingContentSigner defaults to allocating a 4096 bytes buffer. Since a rather large OCSP response (e.g. signed with 4K
+         * RSA key, nonce and a one level chain) is less then 2KiB, this is generally a waste of allocation and garbage collection.
+         * 
+         * In high performance environments, the full OCSP response should in general be smaller than 1492 bytes to fit in a single
+         * Ethernet frame.
+         * 
+         * Lowering this allocation from 20480 to 4096 bytes under ECA-4084 which should still be plenty.
+         */
+        final ContentSigner signer = new BufferingContentSigner(contentSigner, 20480);
+        return basicRes.build(signer, chain, producedAt!=null? producedAt : new Date());
+    }
+
+    String getSigningAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    PrivateKey getSignerKey() {
+        return signerKey;
+    }
+
+    String getProvider() {
+        return provider;
+    }
 }
@@ -188,6 +188,21 @@ public class OcspDataSessionBean implements OcspDataSessionLocal, OcspDataSessio
         return rowsDeleted;
     }
 
+    @Override
+    public List<OcspResponseData> findOcspDataProducedAfter(final long producedAt, final String id, final int maxNumberOfResults) {
+        log.trace(">findOcspDataProducedAfter");
+        final TypedQuery<OcspResponseData> query = this.entityManager.createNamedQuery("findOcspDataProducedAfter", OcspResponseData.class);
+        query.setParameter("producedAt", producedAt);
+        query.setParameter("id", id);
+        query.setMaxResults(maxNumberOfResults);
+        final List<OcspResponseData> result = query.getResultList();
+        if (log.isTraceEnabled()) {
+            log.trace("findOcspDataProducedAfter(" + producedAt + ", " + id + ") yielded " + result.size() + " results.");
+        }
+        log.trace("<findOcspDataProducedAfter");
+        return result;
+    }
+
     private OcspResponseData getOcspResponseDataByCaIdSerialNumber(final Integer caId, final String serialNumber) {
         final TypedQuery<OcspResponseData> query = this.entityManager.createNamedQuery("findOcspDataByCaIdSerialNumber", OcspResponseData.class);
         query.setParameter("caId", caId);
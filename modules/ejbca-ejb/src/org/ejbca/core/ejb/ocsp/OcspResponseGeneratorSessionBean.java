@@ -82,6 +82,7 @@ import org.cesecore.certificates.ca.internal.CaCertificateCache;
 import org.cesecore.certificates.certificate.CertificateDataWrapper;
 import org.cesecore.certificates.certificate.CertificateInfo;
 import org.cesecore.certificates.certificate.CertificateStatus;
+import org.cesecore.certificates.certificate.CertificateStatusHelper;
 import org.cesecore.certificates.certificate.CertificateStatusHolder;
 import org.cesecore.certificates.certificate.CertificateStoreSessionLocal;
 import org.cesecore.certificates.certificate.HashID;
@@ -94,6 +95,7 @@ import org.cesecore.certificates.ocsp.cache.OcspDataConfigCache;
 import org.cesecore.certificates.ocsp.cache.OcspDataConfigCacheEntry;
 import org.cesecore.certificates.ocsp.cache.OcspExtensionsCache;
 import org.cesecore.certificates.ocsp.cache.OcspRequestSignerStatusCache;
+import org.cesecore.certificates.ocsp.cache.OcspRevocationStatusIndex;
 import org.cesecore.certificates.ocsp.cache.OcspSigningCache;
 import org.cesecore.certificates.ocsp.cache.OcspSigningCacheEntry;
 import org.cesecore.certificates.ocsp.exception.CryptoProviderException;
@@ -113,6 +115,7 @@ import org.cesecore.config.ConfigurationHolder;
 import org.cesecore.config.GlobalOcspConfiguration;
 import org.cesecore.config.OcspConfiguration;
 import org.cesecore.configuration.GlobalConfigurationSessionLocal;
+import org.cesecore.internal.CacheInvalidationBus;
 import org.cesecore.internal.InternalResources;
 import org.cesecore.jndi.JndiConstants;
 import org.cesecore.keybind.CertificateImportException;
@@ -150,6 +153,9 @@ import javax.ejb.TimerConfig;
 import javax.ejb.TimerService;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -194,9 +200,8 @@ import java.util.TimeZone;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -211,15 +216,29 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
     private static final int MAX_REQUEST_SIZE = 100000;
     /** Timer identifiers */
     private static final int TIMERID_OCSPSIGNINGCACHE = 1;
+    private static final int TIMERID_STATUSINDEX = 2;
+    private static final int TIMERID_RESPONSESTORE = 3;
+    /**
+     * How far back, in milliseconds, each update of the revocation status index looks for changes before the previous update. Rows get their
+     * update time before the transaction commits, and possibly on another node, so rows may become visible with an update time in the past.
+     */
+    private static final long STATUS_INDEX_UPDATE_OVERLAP_MS = 60000L;
+    /**
+     * How far back, in milliseconds, each update of the pre-produced response store looks for responses produced before the previous update.
+     * Responses are stored asynchronously, and possibly on another node, so rows may become visible with a producedAt in the past.
+     */
+    private static final long RESPONSE_STORE_UPDATE_OVERLAP_MS = 60000L;
+    /** Number of rows read at a time when filling the pre-produced response store */
+    private static final int RESPONSE_STORE_PAGE_SIZE = 1000;
 
     private static final Logger log = Logger.getLogger(OcspResponseGeneratorSessionBean.class);
 
     private static final InternalResources intres = InternalResources.getInstance();
     
-    private static volatile ExecutorService service = Executors.newCachedThreadPool();
-    
     @Resource
     private SessionContext sessionContext;
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
     /* When the sessionContext is injected, the timerService should be looked up.
      * This is due to the Glassfish EJB verifier complaining. 
      */
@@ -270,6 +289,12 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
         } else {
             log.info("Not initing OCSP reload timers, there are already some.");
         }
+        if (OcspConfiguration.isRevocationStatusIndexEnabled() && getTimerCount(TIMERID_STATUSINDEX)==0) {
+            refreshRevocationStatusIndex();
+        }
+        if (OcspConfiguration.isPreProducedResponseStoreEnabled() && getTimerCount(TIMERID_RESPONSESTORE)==0) {
+            refreshPreProducedResponseStore();
+        }
     }
     
     @Override
@@ -1244,13 +1269,214 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
         if (log.isTraceEnabled()) {
             log.trace(">timeoutHandler: " + timer.getInfo().toString());
         }
-        // reloadTokenAndChainCache cancels old timers and adds a new timer
-        reloadOcspSigningCache();
+        // Both reload methods cancel old timers of their own type and add a new timer
+        if (Integer.valueOf(TIMERID_STATUSINDEX).equals(timer.getInfo())) {
+            refreshRevocationStatusIndex();
+        } else if (Integer.valueOf(TIMERID_RESPONSESTORE).equals(timer.getInfo())) {
+            refreshPreProducedResponseStore();
+        } else {
+            reloadOcspSigningCache();
+        }
         if (log.isTraceEnabled()) {
             log.trace("<timeoutHandler");
         }
     }
 
+    /**
+     * Gets the status of a certificate from the in-memory revocation status index if it is enabled, and from the database on a miss or if the
+     * index is stale.
+     */
+    private CertificateStatus getCertificateStatus(final String issuerDn, final BigInteger serialNumber,
+            final Map<String, Map<BigInteger, CertificateStatus>> prefetchedStatuses) {
+        final boolean statusIndexEnabled = OcspConfiguration.isRevocationStatusIndexEnabled();
+        CertificateStatus status = statusIndexEnabled ? OcspRevocationStatusIndex.INSTANCE.getStatus(issuerDn, serialNumber) : null;
+        if (status == null) {
+            final Map<BigInteger, CertificateStatus> prefetchedForIssuer = prefetchedStatuses.get(issuerDn);
+            status = prefetchedForIssuer == null ? null : prefetchedForIssuer.get(serialNumber);
+            if (status == null) {
+                status = certificateStoreSession.getStatus(issuerDn, serialNumber);
+            }
+            if (statusIndexEnabled) {
+                OcspRevocationStatusIndex.INSTANCE.putIfAbsent(issuerDn, serialNumber, status);
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Reads the statuses of all certificates in a request with several certificate IDs from the database, using one query per issuer
+     * instead of one per certificate. Only certificate IDs that will be answered with {@link #getCertificateStatus(String, BigInteger, Map)}
+     * are included, i.e. those of issuers we have a signing cache entry for, that are not signed on behalf of another CA and that do not
+     * need the certificate for any OCSP extension. Statuses found in the revocation status index are not read again.
+     *
+     * @return map from issuer DN to the statuses of the requested serial numbers of that issuer, empty if there is nothing to prefetch
+     */
+    private Map<String, Map<BigInteger, CertificateStatus>> prefetchCertificateStatuses(final Req[] ocspRequests) {
+        if (ocspRequests.length < 2) {
+            return Collections.emptyMap();
+        }
+        final boolean statusIndexEnabled = OcspConfiguration.isRevocationStatusIndexEnabled();
+        final Map<String, Set<BigInteger>> serialNumbersByIssuerDn = new HashMap<>();
+        for (final Req ocspRequest : ocspRequests) {
+            final CertificateID certId = ocspRequest.getCertID();
+            final OcspSigningCacheEntry ocspSigningCacheEntry = OcspSigningCache.INSTANCE.getEntry(certId);
+            if (ocspSigningCacheEntry == null || !ocspSigningCacheEntry.getSignedBehalfOfCaIds().isEmpty()
+                    || ocspSigningCacheEntry.getIssuerCaCertificateStatus().equals(CertificateStatus.REVOKED)
+                    || (ocspSigningCacheEntry.getOcspKeyBinding() != null && !ocspSigningCacheEntry.getOcspKeyBinding().getOcspExtensions().isEmpty())) {
+                continue;
+            }
+            final String issuerDn = CertTools.getSubjectDN(ocspSigningCacheEntry.getIssuerCaCertificate());
+            if (statusIndexEnabled && OcspRevocationStatusIndex.INSTANCE.getStatus(issuerDn, certId.getSerialNumber()) != null) {
+                continue;
+            }
+            serialNumbersByIssuerDn.computeIfAbsent(issuerDn, k -> new HashSet<>()).add(certId.getSerialNumber());
+        }
+        final Map<String, Map<BigInteger, CertificateStatus>> ret = new HashMap<>();
+        for (final Map.Entry<String, Set<BigInteger>> entry : serialNumbersByIssuerDn.entrySet()) {
+            // A single serial number is looked up the same way with or without prefetching
+            if (entry.getValue().size() > 1) {
+                ret.put(entry.getKey(), certificateStoreSession.getStatuses(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (log.isDebugEnabled() && !ret.isEmpty()) {
+            log.debug("Prefetched certificate statuses of " + ret.size() + " issuer(s) for an OCSP request with " + ocspRequests.length
+                    + " certificate IDs.");
+        }
+        return ret;
+    }
+
+    /**
+     * Loads the revocation status index of CAs that this responder answers for and that have not been loaded yet, and applies the changes
+     * made in the database since the last refresh to the others. Schedules the next refresh.
+     */
+    private void refreshRevocationStatusIndex() {
+        if (log.isTraceEnabled()) {
+            log.trace(">refreshRevocationStatusIndex");
+        }
+        cancelTimers(TIMERID_STATUSINDEX);
+        if (!OcspConfiguration.isRevocationStatusIndexEnabled()) {
+            OcspRevocationStatusIndex.INSTANCE.flush();
+            return;
+        }
+        try {
+            final Set<String> issuerDns = new HashSet<>();
+            for (final OcspSigningCacheEntry ocspSigningCacheEntry : OcspSigningCache.INSTANCE.getEntries()) {
+                issuerDns.add(CertTools.getSubjectDN(ocspSigningCacheEntry.getIssuerCaCertificate()));
+                for (final X509Certificate signedBehalfOfCaCertificate : ocspSigningCacheEntry.getSignedBehalfOfCaCerticates().values()) {
+                    issuerDns.add(CertTools.getSubjectDN(signedBehalfOfCaCertificate));
+                }
+            }
+            OcspRevocationStatusIndex.INSTANCE.retainIssuers(issuerDns);
+            for (final String issuerDn : issuerDns) {
+                try {
+                    // Changes committed after this point will be picked up by the next refresh
+                    final long refreshTime = System.currentTimeMillis();
+                    if (!OcspRevocationStatusIndex.INSTANCE.isLoaded(issuerDn)) {
+                        OcspRevocationStatusIndex.INSTANCE.load(issuerDn,
+                                toCertificateStatuses(certificateStoreSession.findRevokedCertificateInfos(issuerDn)), refreshTime);
+                    } else {
+                        final long updatedAfter = OcspRevocationStatusIndex.INSTANCE.getHighWaterMark(issuerDn) - STATUS_INDEX_UPDATE_OVERLAP_MS;
+                        OcspRevocationStatusIndex.INSTANCE.update(issuerDn,
+                                toCertificateStatuses(certificateStoreSession.findCertificateInfosUpdatedAfter(issuerDn, updatedAfter)), refreshTime);
+                    }
+                } catch (RuntimeException e) {
+                    // The index of this issuer will become stale and lookups will go to the database until a refresh succeeds
+                    log.warn("Failed to refresh the revocation status index of issuer '" + issuerDn + "': " + e.getMessage());
+                    if (log.isDebugEnabled()) {
+                        log.debug("Failed to refresh the revocation status index.", e);
+                    }
+                }
+            }
+        } finally {
+            addTimer(OcspConfiguration.getRevocationStatusIndexRefreshIntervalMs(), TIMERID_STATUSINDEX);
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("<refreshRevocationStatusIndex");
+        }
+    }
+
+    /**
+     * Fills the local store of pre-produced responses from the database on the first run, and then adds the responses produced since the
+     * last refresh. Schedules the next refresh.
+     */
+    private void refreshPreProducedResponseStore() {
+        if (log.isTraceEnabled()) {
+            log.trace(">refreshPreProducedResponseStore");
+        }
+        cancelTimers(TIMERID_RESPONSESTORE);
+        final PreProducedOcspResponseStore store = PreProducedOcspResponseStore.INSTANCE;
+        if (!OcspConfiguration.isPreProducedResponseStoreEnabled()) {
+            store.close();
+            return;
+        }
+        try {
+            long producedAt;
+            if (store.isLoaded()) {
+                producedAt = Math.max(0L, store.getHighWaterMark() - RESPONSE_STORE_UPDATE_OVERLAP_MS);
+            } else {
+                store.reset(new File(OcspConfiguration.getPreProducedResponseStoreDirectory()));
+                producedAt = 0L;
+            }
+            String id = "";
+            long highWaterMark = store.getHighWaterMark();
+            int count = 0;
+            List<OcspResponseData> page;
+            do {
+                page = ocspDataSession.findOcspDataProducedAfter(producedAt, id, RESPONSE_STORE_PAGE_SIZE);
+                for (final OcspResponseData ocspResponseData : page) {
+                    store.put(ocspResponseData);
+                    producedAt = ocspResponseData.getProducedAt();
+                    id = ocspResponseData.getId();
+                    highWaterMark = Math.max(highWaterMark, producedAt);
+                }
+                count += page.size();
+            } while (page.size() == RESPONSE_STORE_PAGE_SIZE);
+            store.setHighWaterMark(highWaterMark);
+            // Responses produced before a removal can still be stored when their transactions commit, so removals are kept for a while
+            store.purgeRemoved(System.currentTimeMillis() - RESPONSE_STORE_UPDATE_OVERLAP_MS);
+            if (!store.isLoaded()) {
+                store.setLoaded();
+                log.info("Loaded " + store.size() + " pre-produced OCSP responses into the local response store.");
+            } else if (log.isDebugEnabled()) {
+                log.debug("Read " + count + " pre-produced OCSP responses into the local response store, which has " + store.size() + " responses.");
+            }
+        } catch (IOException | RuntimeException e) {
+            // Until a refresh succeeds, lookups of responses that are not in the store go to the database
+            log.warn("Failed to refresh the pre-produced OCSP response store: " + e.getMessage());
+            if (log.isDebugEnabled()) {
+                log.debug("Failed to refresh the pre-produced OCSP response store.", e);
+            }
+        } finally {
+            addTimer(OcspConfiguration.getPreProducedResponseStoreRefreshIntervalMs(), TIMERID_RESPONSESTORE);
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("<refreshPreProducedResponseStore");
+        }
+    }
+
+    /**
+     * Finds the latest pre-produced response for a certificate, from the local response store if it is enabled and has a response that has
+     * not expired, and otherwise from the database.
+     */
+    private OcspResponseData findPreProducedResponse(final int caId, final String serialNumber) {
+        if (OcspConfiguration.isPreProducedResponseStoreEnabled() && PreProducedOcspResponseStore.INSTANCE.isLoaded()) {
+            final OcspResponseData ocspResponseData = PreProducedOcspResponseStore.INSTANCE.get(caId, serialNumber);
+            if (ocspResponseData != null && ocspResponseData.getNextUpdate() != null
+                    && ocspResponseData.getNextUpdate() > System.currentTimeMillis()) {
+                return ocspResponseData;
+            }
+        }
+        return ocspDataSession.findOcspDataByCaIdSerialNumber(caId, serialNumber);
+    }
+
+    private Map<BigInteger, CertificateStatus> toCertificateStatuses(final List<CertificateInfo> certificateInfos) {
+        final Map<BigInteger, CertificateStatus> ret = new HashMap<>();
+        for (final CertificateInfo certificateInfo : certificateInfos) {
+            ret.put(certificateInfo.getSerialNumber(), CertificateStatusHelper.getCertificateStatus(certificateInfo));
+        }
+        return ret;
+    }
+
     /**
      * This method cancels all timers associated with this bean.
      */
@@ -1415,6 +1641,7 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
             // If the Extended Revoked Definition should be added for certificates that we can not find in the database, see RFC6960 4.4.8
             boolean addExtendedRevokedExtension = false;
             Date producedAt = null;
+            final Map<String, Map<BigInteger, CertificateStatus>> prefetchedStatuses = prefetchCertificateStatuses(ocspRequests);
             
             for (Req ocspRequest : ocspRequests) {
                 CertificateID certId = ocspRequest.getCertID();
@@ -1474,7 +1701,7 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
                 // We only store pre-produced single responses
                 if (ocspRequests.length == 1 && ocspDataConfig != null && ocspDataConfig.isPreProductionEnabled()) {
                     
-                    final OcspResponseData ocspResponseData = ocspDataSession.findOcspDataByCaIdSerialNumber(ocspDataConfig.getCaId(), certId.getSerialNumber().toString());
+                    final OcspResponseData ocspResponseData = findPreProducedResponse(ocspDataConfig.getCaId(), certId.getSerialNumber().toString());
 
                     // 1. If no stored response exists. Skip this, produce and new one and store it later on (if storing on-demand is enabled)
                     // 2. If a response is stored, still valid and request has only supported extensions: return it.
@@ -1722,7 +1949,7 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
                         // we will also use certificate profile settings for issuing certificate
                     }
                     if (extensionOids.isEmpty()) {
-                        status = certificateStoreSession.getStatus(issuerDnOcspRequest, certId.getSerialNumber());
+                        status = getCertificateStatus(issuerDnOcspRequest, certId.getSerialNumber(), prefetchedStatuses);
                     } else {
                         certificateStatusHolder = certificateStoreSession.getCertificateAndStatus(issuerDnOcspRequest, certId.getSerialNumber());
                         status = certificateStatusHolder.getCertificateStatus();
@@ -2016,6 +2243,17 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
             }
         } catch (NoSuchAlgorithmException | CertificateException | CryptoTokenOfflineException e) {
             ocspResponse = processDefaultError(isPreSigning, responseGenerator, transactionLogger, auditLogger, e);
+        } catch (RejectedExecutionException e) {
+            // The signing queue of the crypto token is full, ask the client to come back later instead of waiting for the HSM
+            log.info(intres.getLocalizedMessage("ocsp.errorprocessreq", "The OCSP signing queue is full."));
+            // RFC 2560: responseBytes are not set on error.
+            ocspResponse = responseGenerator.build(OCSPRespBuilder.TRY_LATER, null);
+            if (!isPreSigning && transactionLogger.isEnabled()) {
+                transactionLogger.paramPut(TransactionLogger.STATUS, OCSPRespBuilder.TRY_LATER);
+            }
+            if (!isPreSigning && auditLogger.isEnabled()) {
+                auditLogger.paramPut(AuditLogger.STATUS, OCSPRespBuilder.TRY_LATER);
+            }
         }
         try {
             respBytes = ocspResponse.getEncoded();
@@ -2084,8 +2322,36 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
         nextUpdate = nextUpdateDate.getTime();
         final OcspResponseData responseData = new OcspResponseData(UUID.randomUUID().toString(), caId, serialNr, producedAt, nextUpdate, ocspResponse.getEncoded());
         ocspDataSession.storeOcspData(responseData);
+        if (OcspConfiguration.isPreProducedResponseStoreEnabled()) {
+            putInResponseStoreAfterCommit(responseData);
+        }
         publishOcspResponse(caId, responseData);
     }
+
+    /**
+     * Stores a response in the local response store when the transaction that stored it in the database commits, so the store never has a
+     * response that is not in the database. Without a transaction the response has already been committed, and is stored directly.
+     */
+    private void putInResponseStoreAfterCommit(final OcspResponseData responseData) {
+        if (transactionSynchronizationRegistry == null
+                || transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+            PreProducedOcspResponseStore.INSTANCE.put(responseData);
+            return;
+        }
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // NOOP
+            }
+
+            @Override
+            public void afterCompletion(final int transactionStatus) {
+                if (transactionStatus == Status.STATUS_COMMITTED) {
+                    PreProducedOcspResponseStore.INSTANCE.put(responseData);
+                }
+            }
+        });
+    }
     
     private void publishOcspResponse(final int caId, final OcspResponseData responseData) {
         AuthenticationToken authenticationToken = new AlwaysAllowLocalAuthenticationToken(
@@ -2398,8 +2664,14 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
          * 
          * Note that this does in no way break the spirit of the EJB standard, which is to not interrupt EJB's transaction handling by 
          * competing with its own thread pool, since these operations have no database impact.
+         * 
+         * The thread pool is bounded per signature provider, and throws RejectedExecutionException when its queue is full. That is
+         * answered with tryLater by getOcspResponse.
          */
-        final Future<BasicOCSPResp> task = service.submit(new HsmResponseThread(basicRes, sigAlg, signerKey, chain, provider, producedAt));
+        final HsmResponseThread signingTask = new HsmResponseThread(basicRes, sigAlg, signerKey, chain, provider, producedAt);
+        final long batchWindowMs = OcspConfiguration.getSigningBatchWindowMs();
+        final Future<BasicOCSPResp> task = batchWindowMs > 0 ? OcspSigningBatcher.INSTANCE.submit(signingTask, batchWindowMs)
+                : OcspSigningExecutors.INSTANCE.submit(provider, signingTask);
         try {
             returnval = task.get(HsmResponseThread.HSM_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
@@ -2407,6 +2679,10 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
             throw new Error("OCSP response retrieval was interrupted while running. This should not happen", e);
         } catch (ExecutionException e) {
             task.cancel(true);
+            if (e.getCause() instanceof RejectedExecutionException) {
+                // A batch of responses could not be queued for signing
+                throw (RejectedExecutionException) e.getCause();
+            }
             throw new OcspFailureException("Failure encountered while retrieving OCSP response.", e);
         } catch (TimeoutException e) {
             task.cancel(true);
@@ -2902,6 +3178,19 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
             log.error(errMsg, e);
             sb.append(errMsg).append(": ").append(errMsg);
         }
+        // Report crypto tokens that could not keep up with the signing load since the last health check
+        final int maxRejectedPercent = OcspConfiguration.getSigningHealthCheckMaxRejectedPercent();
+        for (final OcspSigningExecutors.Rejections rejections : OcspSigningExecutors.INSTANCE.getAndResetRejections(maxRejectedPercent)) {
+            final String errMsg = intres.getLocalizedMessage("ocsp.errorsigningqueuefull", rejections.getProvider(), rejections.getRejected(),
+                    rejections.getRequests(), maxRejectedPercent, rejections.getStatistics());
+            sb.append('\n').append(errMsg);
+            log.error(errMsg);
+        }
+        if (log.isDebugEnabled()) {
+            for (final String statistics : OcspSigningExecutors.INSTANCE.getStatistics()) {
+                log.debug("OCSP signing pool: " + statistics);
+            }
+        }
         return sb.toString();
     }
 
@@ -2913,6 +3202,10 @@ public class OcspResponseGeneratorSessionBean implements OcspResponseGeneratorSe
     @Override
     public void deleteOcspDataByCaIdSerialNumber(final int caId, final String serialNumber) {
         ocspDataSession.deleteOcspDataByCaIdSerialNumber(caId, serialNumber);
+        PreProducedOcspResponseStore.INSTANCE.remove(caId, serialNumber);
+        // Written in the transaction of the deletion, so the other nodes only remove the response if the deletion is committed
+        CacheInvalidationBus.getInstance().publish(PreProducedOcspResponseStore.CACHE_NAME,
+                PreProducedOcspResponseStore.getInvalidationId(caId, serialNumber));
     }
 }
 
@@ -0,0 +1,226 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ocsp;
+
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.operator.ContentSigner;
+import org.cesecore.config.OcspConfiguration;
+
+/**
+ * Collects OCSP responses that are to be signed with the same key during a short window, see
+ * {@link OcspConfiguration#getSigningBatchWindowMs()}, and signs them in as few tasks of the signing pool of the provider as the window
+ * allows. A task signs one response after another with the same signer, which cuts the per response overhead of going to the HSM. A
+ * task never signs more responses than fit in one window, the rest of the batch is split into tasks of the same size that are signed by
+ * other threads of the pool, so the last response of a large batch doesn't wait for all the signatures before it. Each response still gets
+ * its own signature.
+ */
+public enum OcspSigningBatcher {
+    INSTANCE;
+
+    private static final Logger log = Logger.getLogger(OcspSigningBatcher.class);
+
+    /** A batch is signed without waiting for the rest of the window when it has this many responses */
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private final Map<BatchKey, Batch> openBatches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "OcspSigningBatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Adds a response to the open batch of its signing key, or opens a new batch that is signed when the window has passed.
+     *
+     * @param signingTask the response to sign
+     * @param windowMs how long a new batch is kept open for more responses, in milliseconds
+     * @return a future for the signed response. If the signing pool of the provider is full, the future fails with a
+     *         {@link RejectedExecutionException} as cause.
+     */
+    public Future<BasicOCSPResp> submit(final HsmResponseThread signingTask, final long windowMs) {
+        final BatchKey key = new BatchKey(signingTask);
+        final CompletableFuture<BasicOCSPResp> future = new CompletableFuture<>();
+        while (true) {
+            final Batch batch = openBatches.computeIfAbsent(key, batchKey -> new Batch(batchKey, windowMs));
+            final int size = batch.add(signingTask, future);
+            if (size == 1) {
+                scheduler.schedule(() -> close(batch), windowMs, TimeUnit.MILLISECONDS);
+            }
+            if (size >= MAX_BATCH_SIZE) {
+                close(batch);
+            }
+            if (size > 0) {
+                return future;
+            }
+            // The batch was closed after we got it from the map, try again with a new one
+        }
+    }
+
+    private void close(final Batch batch) {
+        if (!batch.close()) {
+            return;
+        }
+        openBatches.remove(batch.key, batch);
+        try {
+            OcspSigningExecutors.INSTANCE.submit(batch.key.provider, () -> {
+                batch.signAll();
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            batch.failAll(e);
+        }
+    }
+
+    /**
+     * Stops the timer of the batches when the application is undeployed. Responses in batches that are still open are failed with a
+     * {@link RejectedExecutionException}, so they are answered with tryLater.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (final Batch batch : openBatches.values()) {
+            if (batch.close()) {
+                openBatches.remove(batch.key, batch);
+                batch.failAll(new RejectedExecutionException("OCSP signing is shutting down."));
+            }
+        }
+    }
+
+    /** Responses can share a batch if they are signed with the same key object, algorithm and provider */
+    private static final class BatchKey {
+        private final PrivateKey signerKey;
+        private final String signingAlgorithm;
+        private final String provider;
+
+        private BatchKey(final HsmResponseThread signingTask) {
+            this.signerKey = signingTask.getSignerKey();
+            this.signingAlgorithm = signingTask.getSigningAlgorithm();
+            this.provider = signingTask.getProvider();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(signerKey), signingAlgorithm, provider);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof BatchKey)) {
+                return false;
+            }
+            final BatchKey batchKey = (BatchKey) other;
+            return signerKey == batchKey.signerKey && Objects.equals(signingAlgorithm, batchKey.signingAlgorithm)
+                    && Objects.equals(provider, batchKey.provider);
+        }
+    }
+
+    private static final class Batch {
+        private final BatchKey key;
+        private final long windowMs;
+        private final List<HsmResponseThread> signingTasks = new ArrayList<>();
+        private final List<CompletableFuture<BasicOCSPResp>> futures = new ArrayList<>();
+        private boolean closed = false;
+
+        private Batch(final BatchKey key, final long windowMs) {
+            this.key = key;
+            this.windowMs = windowMs;
+        }
+
+        /** @return the number of responses in the batch after adding this one, or 0 if the batch was already closed */
+        private synchronized int add(final HsmResponseThread signingTask, final CompletableFuture<BasicOCSPResp> future) {
+            if (closed) {
+                return 0;
+            }
+            signingTasks.add(signingTask);
+            futures.add(future);
+            return signingTasks.size();
+        }
+
+        /** @return true if the batch was closed by this call */
+        private synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        /**
+         * Signs the first response to measure how long a signature takes, and then splits the rest of the batch into tasks that fit in
+         * one window. This task keeps the first of them, the others are handed to the pool. If the pool is full, they are signed here.
+         */
+        private void signAll() {
+            final int size = signingTasks.size();
+            final long started = System.nanoTime();
+            signRange(0, 1);
+            final long signNanos = Math.max(1L, System.nanoTime() - started);
+            final int perTask = (int) Math.max(1L, Math.min(size, TimeUnit.MILLISECONDS.toNanos(windowMs) / signNanos));
+            if (log.isDebugEnabled()) {
+                log.debug("Signing a batch of " + size + " OCSP responses with provider '" + key.provider + "', " + perTask + " per task.");
+            }
+            final int ownEnd = Math.min(size, 1 + perTask);
+            int inlineStart = size;
+            for (int start = ownEnd; start < size; start += perTask) {
+                final int chunkStart = start;
+                final int chunkEnd = Math.min(size, start + perTask);
+                try {
+                    OcspSigningExecutors.INSTANCE.submit(key.provider, () -> {
+                        signRange(chunkStart, chunkEnd);
+                        return null;
+                    });
+                } catch (RejectedExecutionException e) {
+                    inlineStart = chunkStart;
+                    break;
+                }
+            }
+            signRange(1, ownEnd);
+            signRange(inlineStart, size);
+        }
+
+        /** Signs the responses from start (inclusive) to end (exclusive) one after another, with the same signer */
+        private void signRange(final int start, final int end) {
+            ContentSigner contentSigner = null;
+            for (int i = start; i < end; i++) {
+                try {
+                    if (contentSigner == null) {
+                        contentSigner = signingTasks.get(i).createContentSigner();
+                    }
+                    futures.get(i).complete(signingTasks.get(i).sign(contentSigner));
+                } catch (Exception e) {
+                    futures.get(i).completeExceptionally(e);
+                    // Don't reuse a signer that may have been left in an unknown state
+                    contentSigner = null;
+                }
+            }
+        }
+
+        private void failAll(final Throwable cause) {
+            for (final CompletableFuture<BasicOCSPResp> future : futures) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+}
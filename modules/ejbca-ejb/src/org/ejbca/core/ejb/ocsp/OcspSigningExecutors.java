@@ -0,0 +1,269 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ocsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+import org.cesecore.config.OcspConfiguration;
+import org.cesecore.internal.JmxRegistry;
+
+/**
+ * Bounded thread pools used to sign OCSP responses, one per signature provider. Keys of the same crypto token share a provider, and
+ * therefore share the sessions of the HSM, so the number of concurrent signing operations per provider is limited by
+ * {@link OcspConfiguration#getSigningMaxConcurrency()}. Responses waiting for a free thread are queued, up to
+ * {@link OcspConfiguration#getSigningQueueSize()}, after which new responses are rejected right away instead of piling up threads that
+ * would all wait for the same HSM.
+ * <p>
+ * The pool size and queue size are read when the pool of a provider is first used. The statistics of each pool are published through JMX,
+ * see {@link OcspSigningPoolMXBean}.
+ */
+public enum OcspSigningExecutors {
+    INSTANCE;
+
+    private static final Logger log = Logger.getLogger(OcspSigningExecutors.class);
+
+    private final Map<String, SigningExecutor> executors = new ConcurrentHashMap<>();
+
+    /**
+     * Submits a signing task to the pool of the given signature provider.
+     *
+     * @param provider name of the signature provider of the signing key
+     * @param task the signing operation
+     * @return a future for the signed response
+     * @throws RejectedExecutionException if the queue of the provider is full
+     */
+    public <T> Future<T> submit(final String provider, final Callable<T> task) {
+        return executors.computeIfAbsent(provider == null ? "" : provider, SigningExecutor::new).submit(task);
+    }
+
+    /** @return a summary of queue depth, wait time and signing time per signature provider, for logging */
+    public List<String> getStatistics() {
+        final List<String> ret = new ArrayList<>();
+        for (final SigningExecutor executor : executors.values()) {
+            ret.add(executor.toString());
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the signature providers that rejected more than the given share of their signing requests since the last call to this
+     * method. Used by the health check to report that the responder is overloaded, without failing on a short burst of tryLater responses.
+     *
+     * @param maxRejectedPercent the share of rejected requests, in percent, that a provider may have without being reported. 0 to report
+     *            any rejection.
+     * @return the overloaded providers, empty if no provider rejected too many requests
+     */
+    public List<Rejections> getAndResetRejections(final int maxRejectedPercent) {
+        final List<Rejections> ret = new ArrayList<>();
+        for (final SigningExecutor executor : executors.values()) {
+            final long rejected = executor.rejectedSinceLastCheck.getAndSet(0);
+            final long requests = executor.requestsSinceLastCheck.getAndSet(0);
+            if (rejected > 0 && rejected * 100 > requests * maxRejectedPercent) {
+                ret.add(new Rejections(executor.provider, rejected, requests, executor.toString()));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Shuts down the pools when the application is undeployed. Signing tasks that are already running may finish within the given time,
+     * queued tasks that have not started are cancelled.
+     *
+     * @param timeoutMs maximum time to wait for running signing tasks
+     */
+    public void shutdown(final long timeoutMs) {
+        final List<SigningExecutor> removed = new ArrayList<>(executors.values());
+        executors.clear();
+        for (final SigningExecutor executor : removed) {
+            executor.threadPool.shutdown();
+            JmxRegistry.INSTANCE.unregister(getObjectName(executor.provider));
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (final SigningExecutor executor : removed) {
+            try {
+                if (!executor.threadPool.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    log.info("OCSP signing pool for provider '" + executor.provider + "' did not finish in time, cancelling remaining tasks.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Cancel the tasks that never started, so that request threads waiting for them don't wait until they time out
+            for (final Runnable queued : executor.threadPool.shutdownNow()) {
+                if (queued instanceof Future) {
+                    ((Future<?>) queued).cancel(false);
+                }
+            }
+        }
+    }
+
+    private static String getObjectName(final String provider) {
+        return "org.ejbca:type=OcspSigningPool,name=" + ObjectName.quote(provider);
+    }
+
+    /** Signing requests of one signature provider that were rejected since the last health check */
+    public static final class Rejections {
+        private final String provider;
+        private final long rejected;
+        private final long requests;
+        private final String statistics;
+
+        private Rejections(final String provider, final long rejected, final long requests, final String statistics) {
+            this.provider = provider;
+            this.rejected = rejected;
+            this.requests = requests;
+            this.statistics = statistics;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        /** @return the number of requests that were answered with tryLater */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /** @return the number of requests, including the rejected ones */
+        public long getRequests() {
+            return requests;
+        }
+
+        /** @return the current queue depth, wait time and signing time of the provider */
+        public String getStatistics() {
+            return statistics;
+        }
+    }
+
+    /** Pool of a single signature provider, with statistics */
+    private static final class SigningExecutor implements OcspSigningPoolMXBean {
+        private final String provider;
+        private final ThreadPoolExecutor threadPool;
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAdder totalSignNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0L);
+        private final AtomicLong rejectedSinceLastCheck = new AtomicLong();
+        private final AtomicLong requestsSinceLastCheck = new AtomicLong();
+
+        private SigningExecutor(final String provider) {
+            this.provider = provider;
+            final int maxConcurrency = OcspConfiguration.getSigningMaxConcurrency();
+            final int queueSize = OcspConfiguration.getSigningQueueSize();
+            final AtomicInteger threadNumber = new AtomicInteger();
+            final ThreadFactory threadFactory = runnable -> {
+                final Thread thread = new Thread(runnable, "OcspSigner-" + provider + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            this.threadPool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueSize),
+                    threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            // Don't keep threads for providers that are rarely used
+            this.threadPool.allowCoreThreadTimeOut(true);
+            if (log.isDebugEnabled()) {
+                log.debug("Created OCSP signing pool for provider '" + provider + "' with " + maxConcurrency + " threads and a queue of " + queueSize
+                        + ".");
+            }
+            JmxRegistry.INSTANCE.register(this, getObjectName(provider));
+        }
+
+        private <T> Future<T> submit(final Callable<T> task) {
+            final long submitted = System.nanoTime();
+            requestsSinceLastCheck.incrementAndGet();
+            try {
+                return threadPool.submit(() -> {
+                    final long started = System.nanoTime();
+                    final long waited = started - submitted;
+                    totalWaitNanos.add(waited);
+                    maxWaitNanos.accumulate(waited);
+                    try {
+                        return task.call();
+                    } finally {
+                        totalSignNanos.add(System.nanoTime() - started);
+                        completed.increment();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                rejectedSinceLastCheck.incrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        public String getProvider() {
+            return provider;
+        }
+
+        @Override
+        public int getActiveCount() {
+            return threadPool.getActiveCount();
+        }
+
+        @Override
+        public int getQueuedCount() {
+            return threadPool.getQueue().size();
+        }
+
+        @Override
+        public long getCompletedCount() {
+            return completed.sum();
+        }
+
+        @Override
+        public long getRejectedCount() {
+            return rejected.sum();
+        }
+
+        @Override
+        public long getAverageWaitMillis() {
+            final long completedCount = completed.sum();
+            return completedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / completedCount);
+        }
+
+        @Override
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+        }
+
+        @Override
+        public long getAverageSignMillis() {
+            final long completedCount = completed.sum();
+            return completedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalSignNanos.sum() / completedCount);
+        }
+
+        @Override
+        public String toString() {
+            return "provider=" + provider + ", active=" + getActiveCount() + ", queued=" + getQueuedCount() + ", completed=" + getCompletedCount()
+                    + ", rejected=" + getRejectedCount() + ", avgWaitMs=" + getAverageWaitMillis() + ", maxWaitMs=" + getMaxWaitMillis()
+                    + ", avgSignMs=" + getAverageSignMillis();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ocsp;
+
+/**
+ * JMX view of the OCSP signing pool of one signature provider on this node, registered as
+ * <code>org.ejbca:type=OcspSigningPool,name=&lt;provider&gt;</code>.
+ */
+public interface OcspSigningPoolMXBean {
+
+    String getProvider();
+
+    /** @return the number of responses being signed right now */
+    int getActiveCount();
+
+    /** @return the number of responses waiting for a free thread */
+    int getQueuedCount();
+
+    /** @return the number of signing tasks that have finished */
+    long getCompletedCount();
+
+    /** @return the number of responses that were answered with tryLater since the queue was full */
+    long getRejectedCount();
+
+    /** @return the average time signing tasks waited in the queue */
+    long getAverageWaitMillis();
+
+    /** @return the longest time a signing task waited in the queue */
+    long getMaxWaitMillis();
+
+    /** @return the average time of a signing task */
+    long getAverageSignMillis();
+}
@@ -0,0 +1,374 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.ocsp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.cesecore.internal.CacheInvalidationBus;
+import org.cesecore.oscp.OcspResponseData;
+
+/**
+ * Local store of the latest pre-produced OCSP response for each CA and serial number, kept in memory-mapped files outside of the Java heap.
+ * The store is filled from the OcspResponseData table and kept current by reading the rows produced since the last refresh, so the
+ * responder does not have to query the database for pre-produced responses.
+ * <p>
+ * Responses are appended to fixed size segments of a file, and an index in memory points to the latest response of each CA and
+ * serial number. Lookups are lock free. Superseded responses take up space until the store is compacted, which happens when they make
+ * up more than half of the store.
+ * <p>
+ * Deleted responses, for example of revoked certificates, are removed from the stores of all nodes through the {@link CacheInvalidationBus}.
+ * The events only carry a number, so a removal is kept as a tombstone for the hash of the CA and serial number, and hides the responses
+ * with that hash that were produced before the removal. Other responses with the same hash are looked up in the database until a newer
+ * response is stored, which is harmless since hashes seldom collide.
+ */
+public enum PreProducedOcspResponseStore {
+    INSTANCE;
+
+    private static final Logger log = Logger.getLogger(PreProducedOcspResponseStore.class);
+
+    /** Size of each memory-mapped segment. A single response must fit in a segment. */
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    /** Compaction is not considered before the store has used this many segments */
+    private static final int MIN_SEGMENTS_BEFORE_COMPACTION = 2;
+
+    /** Name of the removal events of the store on the {@link CacheInvalidationBus} */
+    public static final String CACHE_NAME = "PreProducedOcspResponseStore";
+
+    private static final String FILE_PREFIX = "ocspresponses-";
+    private static final String FILE_SUFFIX = ".dat";
+
+    /** Location of a stored response */
+    private static final class Entry {
+        private final long producedAt;
+        private final Long nextUpdate;
+        private final ByteBuffer segment;
+        private final int offset;
+        private final int length;
+
+        private Entry(final long producedAt, final Long nextUpdate, final ByteBuffer segment, final int offset, final int length) {
+            this.producedAt = producedAt;
+            this.nextUpdate = nextUpdate;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class Key {
+        private final int caId;
+        private final String serialNumber;
+
+        private Key(final int caId, final String serialNumber) {
+            this.caId = caId;
+            this.serialNumber = serialNumber;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * caId + serialNumber.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return caId == key.caId && Objects.equals(serialNumber, key.serialNumber);
+        }
+    }
+
+    private final Map<Key, Entry> index = new ConcurrentHashMap<>();
+    /** Time of the latest removal for each hash of CA and serial number. Responses produced at or before that time are not used. */
+    private final Map<Integer, Long> tombstones = new ConcurrentHashMap<>();
+    /** Everything below is only changed while holding the lock of this object */
+    private File directory;
+    private File file;
+    private FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int writeOffset;
+    private long liveBytes;
+    private long usedBytes;
+    private volatile boolean loaded = false;
+    private volatile long highWaterMark = 0;
+
+    PreProducedOcspResponseStore() {
+        CacheInvalidationBus.getInstance().addListener(CACHE_NAME, event -> removeAll(event.getId(), event.getTime()));
+    }
+
+    /**
+     * Empties the store and starts over with a new file in the given directory. Files left behind by earlier runs are removed.
+     *
+     * @param directory where the memory-mapped files are kept
+     * @throws IOException if the file could not be created
+     */
+    public synchronized void reset(final File directory) throws IOException {
+        close();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory.getAbsolutePath());
+        }
+        final File[] oldFiles = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (oldFiles != null) {
+            for (final File oldFile : oldFiles) {
+                if (!oldFile.delete()) {
+                    log.warn("Unable to remove old OCSP response store file " + oldFile.getAbsolutePath());
+                }
+            }
+        }
+        this.directory = directory;
+        openNewFile();
+        if (log.isDebugEnabled()) {
+            log.debug("Created OCSP response store in " + file.getAbsolutePath());
+        }
+    }
+
+    /** Empties the store and releases its file. */
+    public synchronized void close() {
+        index.clear();
+        tombstones.clear();
+        segments.clear();
+        loaded = false;
+        highWaterMark = 0;
+        liveBytes = 0;
+        usedBytes = 0;
+        closeFile(channel, file);
+        channel = null;
+        file = null;
+    }
+
+    /** @return true if the store has been filled from the database and can be used for lookups */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Marks the store as filled from the database */
+    public void setLoaded() {
+        loaded = true;
+    }
+
+    /** @return the highest producedAt of the rows read from the database */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /** Records the highest producedAt of the rows read from the database */
+    public void setHighWaterMark(final long highWaterMark) {
+        this.highWaterMark = highWaterMark;
+    }
+
+    /** @return the number of responses in the store */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the latest stored response for the given CA and serial number, or null if there is none. The response bytes are copied
+     *         from the memory-mapped file, the id of the returned object is null.
+     */
+    public OcspResponseData get(final int caId, final String serialNumber) {
+        final Key key = new Key(caId, serialNumber);
+        final Entry entry = index.get(key);
+        if (entry == null || isRemoved(key, entry.producedAt)) {
+            return null;
+        }
+        final byte[] response = new byte[entry.length];
+        // Absolute reads on a duplicate, since the position of a shared buffer can not be used by several threads
+        final ByteBuffer buffer = entry.segment.duplicate();
+        buffer.position(entry.offset);
+        buffer.get(response);
+        return new OcspResponseData(null, caId, serialNumber, entry.producedAt, entry.nextUpdate, response);
+    }
+
+    /**
+     * Stores a response, unless a response for the same CA and serial number that was produced at the same time or later is already
+     * stored, or the responses of the CA and serial number have been removed after the response was produced. Does nothing if the store
+     * has not been reset.
+     */
+    public synchronized void put(final int caId, final String serialNumber, final long producedAt, final Long nextUpdate, final byte[] response) {
+        if (channel == null) {
+            return;
+        }
+        final Key key = new Key(caId, serialNumber);
+        final Entry existing = index.get(key);
+        if ((existing != null && existing.producedAt >= producedAt) || isRemoved(key, producedAt)) {
+            return;
+        }
+        if (response.length > SEGMENT_SIZE) {
+            log.warn("OCSP response for serial number " + serialNumber + " of CA " + caId + " is too large for the OCSP response store.");
+            return;
+        }
+        try {
+            final Entry entry = append(producedAt, nextUpdate, response);
+            index.put(key, entry);
+            liveBytes += response.length - (existing == null ? 0 : existing.length);
+            compactIfNeeded();
+        } catch (IOException e) {
+            log.warn("Unable to write to the OCSP response store: " + e.getMessage());
+        }
+    }
+
+    /** Stores the response of an OcspResponseData row, see {@link #put(int, String, long, Long, byte[])} */
+    public void put(final OcspResponseData ocspResponseData) {
+        put(ocspResponseData.getCaId(), ocspResponseData.getSerialNumber(), ocspResponseData.getProducedAt(), ocspResponseData.getNextUpdate(),
+                ocspResponseData.getOcspResponse());
+    }
+
+    /**
+     * Removes the response for the given CA and serial number, for example when the certificate has been revoked. Responses produced
+     * before now that are stored later, because their transaction committed later, are ignored as well. Use
+     * {@link #getInvalidationId(int, String)} to remove the response from the stores of the other nodes.
+     */
+    public synchronized void remove(final int caId, final String serialNumber) {
+        final Key key = new Key(caId, serialNumber);
+        tombstones.merge(key.hashCode(), System.currentTimeMillis(), Math::max);
+        final Entry removed = index.remove(key);
+        if (removed != null) {
+            liveBytes -= removed.length;
+        }
+    }
+
+    /**
+     * Hides the responses produced at or before the given time for all CAs and serial numbers with the given invalidation id. Called for
+     * the removal events of other nodes.
+     *
+     * @param invalidationId see {@link #getInvalidationId(int, String)}
+     * @param removedAt time of the removal, in milliseconds since epoch
+     */
+    public void removeAll(final int invalidationId, final long removedAt) {
+        tombstones.merge(invalidationId, removedAt, Math::max);
+    }
+
+    /** @return the id to publish on the {@link CacheInvalidationBus} with {@link #CACHE_NAME} when a response has been removed */
+    public static int getInvalidationId(final int caId, final String serialNumber) {
+        return new Key(caId, serialNumber).hashCode();
+    }
+
+    /**
+     * Removes the responses hidden by removals made before the given time, and forgets those removals. Removals are kept for a while,
+     * since a response that was produced before a removal may be stored after it.
+     *
+     * @param removedBefore removals made before this time, in milliseconds since epoch, are forgotten
+     */
+    public synchronized void purgeRemoved(final long removedBefore) {
+        if (tombstones.isEmpty()) {
+            return;
+        }
+        final Map<Integer, Long> purged = new HashMap<>();
+        for (final Map.Entry<Integer, Long> tombstone : tombstones.entrySet()) {
+            if (tombstone.getValue() < removedBefore) {
+                purged.put(tombstone.getKey(), tombstone.getValue());
+            }
+        }
+        if (purged.isEmpty()) {
+            return;
+        }
+        for (final Iterator<Map.Entry<Key, Entry>> iterator = index.entrySet().iterator(); iterator.hasNext();) {
+            final Map.Entry<Key, Entry> mapEntry = iterator.next();
+            final Long removedAt = purged.get(mapEntry.getKey().hashCode());
+            if (removedAt != null && mapEntry.getValue().producedAt <= removedAt) {
+                iterator.remove();
+                liveBytes -= mapEntry.getValue().length;
+            }
+        }
+        // A removal received meanwhile has a later time and is kept
+        for (final Map.Entry<Integer, Long> tombstone : purged.entrySet()) {
+            tombstones.remove(tombstone.getKey(), tombstone.getValue());
+        }
+    }
+
+    private boolean isRemoved(final Key key, final long producedAt) {
+        final Long removedAt = tombstones.get(key.hashCode());
+        return removedAt != null && producedAt <= removedAt;
+    }
+
+    private Entry append(final long producedAt, final Long nextUpdate, final byte[] response) throws IOException {
+        if (segments.isEmpty() || writeOffset + response.length > SEGMENT_SIZE) {
+            if (!segments.isEmpty()) {
+                // The rest of the current segment is never used
+                usedBytes += SEGMENT_SIZE - writeOffset;
+            }
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+            writeOffset = 0;
+        }
+        final MappedByteBuffer segment = segments.get(segments.size() - 1);
+        final ByteBuffer buffer = segment.duplicate();
+        buffer.position(writeOffset);
+        buffer.put(response);
+        final Entry entry = new Entry(producedAt, nextUpdate, segment, writeOffset, response.length);
+        writeOffset += response.length;
+        usedBytes += response.length;
+        return entry;
+    }
+
+    /** Copies the live responses to a new file when superseded responses take up more than half of the store */
+    private void compactIfNeeded() throws IOException {
+        if (segments.size() < MIN_SEGMENTS_BEFORE_COMPACTION || liveBytes * 2 > usedBytes) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        final FileChannel oldChannel = channel;
+        final File oldFile = file;
+        openNewFile();
+        liveBytes = 0;
+        // Lookups keep using the old entries, which stay valid as long as they are referenced, until each entry has been replaced
+        for (final Map.Entry<Key, Entry> mapEntry : index.entrySet()) {
+            final Entry oldEntry = mapEntry.getValue();
+            final byte[] response = new byte[oldEntry.length];
+            final ByteBuffer buffer = oldEntry.segment.duplicate();
+            buffer.position(oldEntry.offset);
+            buffer.get(response);
+            index.put(mapEntry.getKey(), append(oldEntry.producedAt, oldEntry.nextUpdate, response));
+            liveBytes += response.length;
+        }
+        closeFile(oldChannel, oldFile);
+        if (log.isDebugEnabled()) {
+            log.debug("Compacted OCSP response store with " + index.size() + " responses in " + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+
+    private void openNewFile() throws IOException {
+        file = File.createTempFile(FILE_PREFIX, FILE_SUFFIX, directory);
+        file.deleteOnExit();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.clear();
+        writeOffset = 0;
+        usedBytes = 0;
+    }
+
+    private static void closeFile(final FileChannel channel, final File file) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Unable to close OCSP response store file: " + e.getMessage());
+            }
+        }
+        // Mapped segments stay readable until they are garbage collected, also after the file has been removed
+        if (file != null && !file.delete()) {
+            log.debug("Unable to remove OCSP response store file " + file.getAbsolutePath());
+        }
+    }
+}
@@ -12,6 +12,7 @@
  *************************************************************************/
 package org.ejbca.core.ejb.services;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.ejb.Stateless;
@@ -96,4 +97,44 @@ public class ServiceDataSessionBean implements ServiceDataSessionLocal, ServiceD
 	public boolean updateTimestamps(Integer serviceId, long oldRunTimeStamp, long oldNextRunTimeStamp, long newRunTimeStamp, long newNextRunTimeStamp) {
     	return ServiceData.updateTimestamps(entityManager, serviceId, oldRunTimeStamp, oldNextRunTimeStamp, newRunTimeStamp, newNextRunTimeStamp);
     }
+
+    @Override
+    public List<String> renewNodeLease(final int serviceId, final String nodeName, final long now, final long leaseExpiration) {
+        ServiceLeaseData.removeExpiredNodeLeases(entityManager, serviceId, now);
+        if (!ServiceLeaseData.renewNodeLease(entityManager, serviceId, nodeName, leaseExpiration)) {
+            entityManager.persist(new ServiceLeaseData(serviceId, nodeName, leaseExpiration));
+            entityManager.flush();
+        }
+        final List<String> ret = new ArrayList<>();
+        for (final ServiceLeaseData lease : ServiceLeaseData.findByServiceId(entityManager, serviceId)) {
+            if (lease.getShard() == ServiceLeaseData.NODE) {
+                ret.add(lease.getNodeName());
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public ServiceLeaseData findOrCreateShard(final int serviceId, final int shard, final long runTimeStamp, final long nextRunTimeStamp) {
+        ServiceLeaseData ret = entityManager.find(ServiceLeaseData.class, ServiceLeaseData.getShardLeaseId(serviceId, shard));
+        if (ret == null) {
+            ret = new ServiceLeaseData(serviceId, shard, runTimeStamp, nextRunTimeStamp);
+            entityManager.persist(ret);
+            // Write the row before its timestamps are updated with a query
+            entityManager.flush();
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean updateShardTimestamps(final int serviceId, final int shard, final String nodeName, final long oldRunTimeStamp,
+            final long oldNextRunTimeStamp, final long newRunTimeStamp, final long newNextRunTimeStamp) {
+        return ServiceLeaseData.updateShardTimestamps(entityManager, serviceId, shard, nodeName, oldRunTimeStamp, oldNextRunTimeStamp,
+                newRunTimeStamp, newNextRunTimeStamp);
+    }
+
+    @Override
+    public void removeServiceLeases(final int serviceId) {
+        ServiceLeaseData.removeByServiceId(entityManager, serviceId);
+    }
 }
@@ -32,6 +32,7 @@ import org.cesecore.jndi.JndiConstants;
 import org.cesecore.keybind.InternalKeyBindingMgmtSessionLocal;
 import org.cesecore.keys.token.CryptoTokenManagementSessionLocal;
 import org.cesecore.util.ProfileID;
+import org.ejbca.config.EjbcaConfiguration;
 import org.ejbca.core.ejb.approval.ApprovalProfileSessionLocal;
 import org.ejbca.core.ejb.approval.ApprovalSessionLocal;
 import org.ejbca.core.ejb.audit.enums.EjbcaEventTypes;
@@ -64,6 +65,8 @@ import org.ejbca.core.model.services.ServiceConfiguration;
 import org.ejbca.core.model.services.ServiceExecutionFailedException;
 import org.ejbca.core.model.services.ServiceExecutionResult;
 import org.ejbca.core.model.services.ServiceExistsException;
+import org.ejbca.core.model.services.ServiceRunStatistics;
+import org.ejbca.core.model.services.ServiceSharding;
 import org.ejbca.core.protocol.cmp.CmpMessageDispatcherSessionLocal;
 
 import javax.annotation.PostConstruct;
@@ -86,6 +89,7 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -116,6 +120,9 @@ public class ServiceSessionBean implements ServiceSessionLocal, ServiceSessionRe
 
     private static final long SERVICELOADER_PERIOD = 5 * 60 * 1000;
 
+    /** Minimum time a node keeps its lease on a sharded service, so a short service interval does not make nodes drop out between runs */
+    private static final long MIN_NODE_LEASE_TIME = 60 * 1000;
+
     @Resource
     private SessionContext sessionContext;
     private TimerService timerService; // When the sessionContext is injected, the timerService should be looked up.
@@ -299,6 +306,7 @@ public class ServiceSessionBean implements ServiceSessionLocal, ServiceSessionRe
                     serviceSession.cancelTimer(htp.getId());
                 }
                 serviceDataSession.removeServiceData(htp.getId());
+                serviceDataSession.removeServiceLeases(htp.getId());
                 final String msg = intres.getLocalizedMessage("services.serviceremoved", name);
                 final Map<String, Object> details = new LinkedHashMap<>();
                 details.put("msg", msg);
@@ -496,23 +504,23 @@ public class ServiceSessionBean implements ServiceSessionLocal, ServiceSessionRe
                 }
         
                 // Reschedule timer
-                IWorker worker = null;
+                List<IWorker> workers = Collections.emptyList();
                 if (serviceInterval != IInterval.DONT_EXECUTE) {
                     Timer nextTrigger = addTimer(serviceInterval * 1000, timerInfo, true);
                     try {
-                        // Try to acquire lock / see if this node should run
-                        worker = serviceSession.getWorkerIfItShouldRun(timerInfo, nextTrigger.getNextTimeout().getTime());
+                        // Try to acquire lock / see if this node should run, or which shards it should run
+                        workers = serviceSession.getWorkersIfTheyShouldRun(timerInfo, nextTrigger.getNextTimeout().getTime());
                     } catch (Throwable t) { // NOPMD: we really need to catch everything to not risk hanging somewhere in limbo
                         if (log.isDebugEnabled()) {
                             log.debug("Exception: ", t); // Don't spam log with stacktraces in normal production cases
                         }
                     }
-                    if (worker != null) {
+                    if (!workers.isEmpty()) {
                         // Verify with the service worker that it can run - if not then this CA instance may be in a temporary (or not) fail 
                         // state. In that case, reschedule the timer so that it skips the next loop. If this is a single node
                         // installation then the job will be picked up again, if it's a multi node installation then this avoids this node 
                         // preemting one of the other nodes, which may be functioning. 
-                        if (!serviceSession.canWorkerRun(worker)) {
+                        if (!serviceSession.canWorkerRun(workers.get(0))) {
                             nextTrigger.cancel();
                             addTimer(serviceInterval * 1000 * 2, timerInfo);
                             if (log.isDebugEnabled()) {
@@ -523,18 +531,20 @@ public class ServiceSessionBean implements ServiceSessionLocal, ServiceSessionRe
                         }
                    
                    
-                        try {
-                            serviceSession.executeServiceInNoTransaction(worker, serviceName);
-                        } catch (RuntimeException e) {
-                            /*
-                             * If the service worker fails with a RuntimeException we need to
-                             * swallow this here. If we allow it to propagate outside the
-                             * ejbTimeout method it is up to the application server config how it
-                             * should be retried, but we have already scheduled a new try
-                             * previously in this method. We still want to log this as an ERROR
-                             * since it is some kind of catastrophic failure..
-                             */
-                            log.error("Service worker execution failed.", e);
+                        for (final IWorker worker : workers) {
+                            try {
+                                serviceSession.executeServiceInNoTransaction(worker, serviceName);
+                            } catch (RuntimeException e) {
+                                /*
+                                 * If the service worker fails with a RuntimeException we need to
+                                 * swallow this here. If we allow it to propagate outside the
+                                 * ejbTimeout method it is up to the application server config how it
+                                 * should be retried, but we have already scheduled a new try
+                                 * previously in this method. We still want to log this as an ERROR
+                                 * since it is some kind of catastrophic failure..
+                                 */
+                                log.error("Service worker execution failed.", e);
+                            }
                         }
                     } else {
                         if (log.isDebugEnabled()) {
@@ -758,6 +768,73 @@ public class ServiceSessionBean implements ServiceSessionLocal, ServiceSessionRe
         return worker;
     }
 
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    public List<IWorker> getWorkersIfTheyShouldRun(final Integer serviceId, final long nextTimeout) {
+        final int shards = EjbcaConfiguration.getServiceShards();
+        if (shards > 1) {
+            final ServiceData serviceData = serviceDataSession.findById(serviceId);
+            final ServiceConfiguration serviceConfiguration = serviceData.getServiceConfiguration();
+            if (serviceConfiguration.isActive() && !serviceConfiguration.isRunOnAllNodes()) {
+                final IWorker worker = getWorker(serviceConfiguration, serviceData.getName(), serviceData.getRunTimeStamp(),
+                        serviceData.getNextRunTimeStamp());
+                if (worker != null && worker.isShardable() && worker.getNextInterval() != IInterval.DONT_EXECUTE) {
+                    return getShardWorkersIfTheyShouldRun(serviceData, serviceConfiguration, shards, nextTimeout);
+                }
+            }
+        }
+        final IWorker worker = getWorkerIfItShouldRun(serviceId, nextTimeout, false);
+        return worker == null ? Collections.emptyList() : Collections.singletonList(worker);
+    }
+
+    /**
+     * Renews the lease of this node on a sharded service, and claims the shards of this node that are due.
+     * 
+     * @return a worker for each claimed shard
+     */
+    private List<IWorker> getShardWorkersIfTheyShouldRun(final ServiceData serviceData, final ServiceConfiguration serviceConfiguration,
+            final int shards, final long nextTimeout) {
+        final int serviceId = serviceData.getId();
+        final String serviceName = serviceData.getName();
+        final String hostname = getHostName();
+        if (hostname == null || !shouldRunOnThisNode(hostname, Arrays.asList(serviceConfiguration.getPinToNodes()))) {
+            if (log.isDebugEnabled()) {
+                log.debug("Service " + serviceName + " will not run on this node: \"" + hostname + "\", Pinned to: "
+                        + Arrays.toString(serviceConfiguration.getPinToNodes()));
+            }
+            return Collections.emptyList();
+        }
+        final long now = System.currentTimeMillis();
+        // The lease lasts two intervals, so a node is not regarded as gone if a run is delayed a bit
+        final long leaseExpiration = now + Math.max(2 * (nextTimeout - now), MIN_NODE_LEASE_TIME);
+        final List<String> nodes = serviceDataSession.renewNodeLease(serviceId, hostname, now, leaseExpiration);
+        final List<Integer> ownShards = ServiceSharding.getShardsOfNode(nodes, hostname, shards);
+        if (log.isDebugEnabled()) {
+            log.debug("Service " + serviceName + " is sharded between the nodes " + nodes + ", this node runs the shards " + ownShards + " of " + shards + ".");
+        }
+        final List<IWorker> workers = new ArrayList<>();
+        for (final int shard : ownShards) {
+            final ServiceLeaseData shardLease = serviceDataSession.findOrCreateShard(serviceId, shard, serviceData.getRunTimeStamp(),
+                    serviceData.getNextRunTimeStamp());
+            final long oldRunTimeStamp = shardLease.getRunTimeStamp();
+            final long oldNextRunTimeStamp = shardLease.getNextRunTimeStamp();
+            // Same semaphore as for a service that is not sharded. The shard may have been run by another node, before the nodes were
+            // divided differently.
+            if (now > oldNextRunTimeStamp && serviceDataSession.updateShardTimestamps(serviceId, shard, hostname, oldRunTimeStamp,
+                    oldNextRunTimeStamp, oldNextRunTimeStamp, nextTimeout)) {
+                final IWorker worker = getWorker(serviceConfiguration, serviceName, oldRunTimeStamp, oldNextRunTimeStamp);
+                worker.setShard(shard, shards);
+                workers.add(worker);
+            } else if (log.isTraceEnabled()) {
+                log.trace("Shard " + shard + " of service " + serviceName + " is not due or was claimed by another node.");
+            }
+        }
+        // Always update the timestamps of the service, so we have a record of running, and nextTimeout is set for service reload
+        serviceDataSession.updateTimestamps(serviceId, serviceData.getRunTimeStamp(), serviceData.getNextRunTimeStamp(),
+                serviceData.getNextRunTimeStamp(), nextTimeout);
+        return workers;
+    }
+
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     @Override
     public void executeServiceInNoTransaction(IWorker worker, String serviceName) {
@@ -798,9 +875,17 @@ public class ServiceSessionBean implements ServiceSessionLocal, ServiceSessionRe
             ejbs.put(OcspResponseGeneratorSessionLocal.class, ocspGeneratorResponseSessionLocal);
             ejbs.put(OcspDataSessionLocal.class, ocspDataSessionLocal);
             ejbs.put(RevocationSessionLocal.class, revocationSession);
-            ServiceExecutionResult result = worker.work(ejbs);
-            final String msg = intres.getLocalizedMessage("services.serviceexecuted", serviceName, result.getResult().getOutput(), result.getMessage());
-            log.info(msg);
+            final long startTime = System.nanoTime();
+            try {
+                ServiceExecutionResult result = worker.work(ejbs);
+                ServiceRunStatistics.INSTANCE.record(serviceName, worker.getShard(), worker.getShards(), result.getItemCount(),
+                        System.nanoTime() - startTime, result.getResult() == ServiceExecutionResult.Result.FAILURE);
+                final String msg = intres.getLocalizedMessage("services.serviceexecuted", serviceName, result.getResult().getOutput(), result.getMessage());
+                log.info(msg);
+            } catch (ServiceExecutionFailedException | RuntimeException e) {
+                ServiceRunStatistics.INSTANCE.record(serviceName, worker.getShard(), worker.getShards(), 0, System.nanoTime() - startTime, true);
+                throw e;
+            }
         } catch (ServiceExecutionFailedException e) {
             final String msg = intres.getLocalizedMessage("services.serviceexecutionfailed", serviceName);
             log.info(msg, e);
@@ -78,6 +78,7 @@ import org.cesecore.authorization.user.AccessUserAspectData;
 import org.cesecore.authorization.user.matchvalues.X500PrincipalAccessMatchValue;
 import org.cesecore.certificates.ca.ApprovalRequestType;
 import org.cesecore.certificates.ca.CACommon;
+import org.cesecore.certificates.ca.CAData;
 import org.cesecore.certificates.ca.CADoesntExistsException;
 import org.cesecore.certificates.ca.CAInfo;
 import org.cesecore.certificates.ca.CaSessionLocal;
@@ -94,6 +95,7 @@ import org.cesecore.certificates.ocsp.logging.PatternLogger;
 import org.cesecore.certificates.ocsp.logging.TransactionLogger;
 import org.cesecore.certificates.util.DNFieldExtractor;
 import org.cesecore.config.AvailableExtendedKeyUsagesConfiguration;
+import org.cesecore.config.CesecoreConfiguration;
 import org.cesecore.config.ConfigurationHolder;
 import org.cesecore.config.GlobalOcspConfiguration;
 import org.cesecore.config.OAuthConfiguration;
@@ -107,6 +109,7 @@ import org.cesecore.keybind.InternalKeyBindingRules;
 import org.cesecore.keybind.InternalKeyBindingTrustEntry;
 import org.cesecore.keybind.impl.OcspKeyBinding;
 import org.cesecore.keys.token.CryptoTokenSessionLocal;
+import org.cesecore.profiles.ProfileData;
 import org.cesecore.roles.AccessRulesHelper;
 import org.cesecore.roles.AccessRulesMigrator;
 import org.cesecore.roles.AdminGroupData;
@@ -117,6 +120,7 @@ import org.cesecore.roles.management.RoleSessionLocal;
 import org.cesecore.roles.member.RoleMember;
 import org.cesecore.roles.member.RoleMemberDataSessionLocal;
 import org.cesecore.util.Base64GetHashMap;
+import org.cesecore.util.BinaryMapSerializer;
 import org.cesecore.util.SecureXMLDecoder;
 import org.cesecore.util.SimpleTime;
 import org.cesecore.util.ui.PropertyValidationException;
@@ -2601,6 +2605,64 @@ public class UpgradeSessionBean implements UpgradeSessionLocal, UpgradeSessionRe
 		return exists;
     }
 
+    @Override
+    public int convertDataMaps() {
+        final boolean binary = CesecoreConfiguration.isBinaryDataMapEncodingEnabled();
+        log.info("Converting data of CAs and profiles to " + (binary ? "the binary format." : "XML."));
+        int converted = 0;
+        final List<Integer> caIds = entityManager.createQuery("SELECT a.caId FROM CAData a", Integer.class).getResultList();
+        for (final int caId : caIds) {
+            if (upgradeSession.convertCaDataMap(caId)) {
+                converted++;
+            }
+        }
+        final List<Integer> profileIds = entityManager.createQuery("SELECT a.id FROM ProfileData a", Integer.class).getResultList();
+        for (final int profileId : profileIds) {
+            if (upgradeSession.convertProfileDataMap(profileId)) {
+                converted++;
+            }
+        }
+        log.info("Converted the data of " + converted + " of " + (caIds.size() + profileIds.size()) + " CAs and profiles.");
+        return converted;
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    public boolean convertCaDataMap(final int caId) {
+        final CAData caData = entityManager.find(CAData.class, caId);
+        if (caData == null) {
+            return false;
+        }
+        // Data that can not be stored in the binary format stays XML
+        final String data = BinaryMapSerializer.encodeDataMap(caData.getDataMap());
+        if (BinaryMapSerializer.isBinary(data) == BinaryMapSerializer.isBinary(caData.getData())) {
+            return false;
+        }
+        caData.setData(data);
+        if (log.isDebugEnabled()) {
+            log.debug("Converted data of CA '" + caData.getName() + "' (" + caId + ").");
+        }
+        return true;
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    public boolean convertProfileDataMap(final int profileId) {
+        final ProfileData profileData = entityManager.find(ProfileData.class, profileId);
+        if (profileData == null) {
+            return false;
+        }
+        final String data = BinaryMapSerializer.encodeDataMap(profileData.getDataMap());
+        if (BinaryMapSerializer.isBinary(data) == BinaryMapSerializer.isBinary(profileData.getRawData())) {
+            return false;
+        }
+        profileData.setRawData(data);
+        if (log.isDebugEnabled()) {
+            log.debug("Converted data of " + profileData.getProfileType() + " '" + profileData.getProfileName() + "' (" + profileId + ").");
+        }
+        return true;
+    }
+
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @Override
     public boolean isLesserThan(final String first, final String second) {
@@ -84,6 +84,7 @@ import org.cesecore.certificates.ca.SignRequestSignatureException;
 import org.cesecore.certificates.certificate.CertificateConstants;
 import org.cesecore.certificates.certificate.CertificateCreateException;
 import org.cesecore.certificates.certificate.CertificateDataWrapper;
+import org.cesecore.certificates.certificate.CertificateExpirationCursor;
 import org.cesecore.certificates.certificate.CertificateRevokeException;
 import org.cesecore.certificates.certificate.CertificateStatus;
 import org.cesecore.certificates.certificate.IllegalKeyException;
@@ -106,6 +107,7 @@ import org.cesecore.roles.member.RoleMember;
 import org.cesecore.util.LogRedactionUtils;
 import org.ejbca.config.GlobalConfiguration;
 import org.ejbca.core.EjbcaException;
+import org.ejbca.core.ejb.ca.sign.BatchIssuanceResult;
 import org.ejbca.core.ejb.dto.CertRevocationDto;
 import org.ejbca.core.ejb.keyrecovery.KeyRecoverySessionLocal;
 import org.ejbca.core.ejb.ra.CouldNotRemoveEndEntityException;
@@ -1906,6 +1908,24 @@ public class RaMasterApiProxyBean implements RaMasterApiProxyBeanLocal {
         return null;
     }
 
+    @Override
+    public List<BatchIssuanceResult> createCertificatesRest(final AuthenticationToken authenticationToken,
+            final List<EnrollPkcs10CertificateRequest> enrollCertificateRequests) {
+        for (final RaMasterApi raMasterApi : raMasterApisLocalFirst) {
+            if (raMasterApi.isBackendAvailable() && raMasterApi.getApiVersion() >= 18) {
+                if (log.isDebugEnabled()) {
+                    log.debug("raMasterApi calling createCertificatesRest: "+raMasterApi.getApiVersion()+", "+raMasterApi.isBackendAvailable()+", "+raMasterApi.getClass());
+                }
+                try {
+                    return raMasterApi.createCertificatesRest(authenticationToken, enrollCertificateRequests);
+                } catch (UnsupportedOperationException | RaMasterBackendUnavailableException e) {
+                    // Just try next implementation
+                }
+            }
+        }
+        return null;
+    }
+
     @Override
     public void keyRecoverWS(AuthenticationToken authenticationToken, String username, String certSNinHex, String issuerDN)
             throws EjbcaException, AuthorizationDeniedException, WaitingForApprovalException, CADoesntExistsException {
@@ -2900,6 +2920,43 @@ public class RaMasterApiProxyBean implements RaMasterApiProxyBeanLocal {
         return new ArrayList<>(result.values());
     }
 
+    @Override
+    public Collection<CertificateWrapper> getCertificatesByExpirationTime(final AuthenticationToken authenticationToken, final long days,
+            final int maxNumberOfResults, final CertificateExpirationCursor after) throws AuthorizationDeniedException {
+        // Every backend returns its first page after the position, in the same order, so the first certificates of the merged pages are
+        // the first page of all backends
+        final TreeMap<CertificateExpirationCursor, CertificateWrapper> result = new TreeMap<>();
+        AuthorizationDeniedException authorizationDeniedException = null;
+        boolean oneSucceeded = false;
+        for (RaMasterApi raMasterApi : raMasterApisLocalFirst) {
+            if (raMasterApi.isBackendAvailable() && raMasterApi.getApiVersion() >= 4 && raMasterApi.getApiVersion() < 18) {
+                // Leaving out the certificates of a backend would give a page that looks complete, so fail instead
+                throw new UnsupportedOperationException("Paging expiring certificates with a cursor is not supported by a backend with API version "
+                        + raMasterApi.getApiVersion() + ". Page with an offset instead, or upgrade the backend.");
+            }
+            if (raMasterApi.isBackendAvailable() && raMasterApi.getApiVersion() >= 18) {
+                try {
+                    for (final CertificateWrapper certificate : raMasterApi.getCertificatesByExpirationTime(authenticationToken, days, maxNumberOfResults, after)) {
+                        result.put(CertificateExpirationCursor.after(certificate.getCertificate()), certificate);
+                        if (result.size() > maxNumberOfResults) {
+                            result.pollLastEntry();
+                        }
+                    }
+                    oneSucceeded = true;
+                } catch (AuthorizationDeniedException e) {
+                    log.debug("Authorization was denied in getCertificatesByExpirationTime", e);
+                    authorizationDeniedException = e;
+                } catch (UnsupportedOperationException | RaMasterBackendUnavailableException e) {
+                    // Just try next implementation
+                }
+            }
+        }
+        if (!oneSucceeded && authorizationDeniedException != null) {
+            throw authorizationDeniedException;
+        }
+        return new ArrayList<>(result.values());
+    }
+
     @Override
     public Collection<CertificateWrapper> getCertificatesByExpirationTimeAndType(AuthenticationToken authenticationToken, long days, int certificateType, int maxNumberOfResults)
             throws AuthorizationDeniedException, EjbcaException {
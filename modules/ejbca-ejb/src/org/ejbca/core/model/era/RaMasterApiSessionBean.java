@@ -63,6 +63,8 @@ import org.cesecore.certificates.certificate.CertificateConstants;
 import org.cesecore.certificates.certificate.CertificateCreateException;
 import org.cesecore.certificates.certificate.CertificateCreateSessionLocal;
 import org.cesecore.certificates.certificate.CertificateDataWrapper;
+import org.cesecore.certificates.certificate.CertificateExpirationCursor;
+import org.cesecore.certificates.certificate.CertificateInfo;
 import org.cesecore.certificates.certificate.CertificateRevokeException;
 import org.cesecore.certificates.certificate.CertificateStatus;
 import org.cesecore.certificates.certificate.CertificateStoreSessionLocal;
@@ -129,6 +131,8 @@ import org.ejbca.core.ejb.ca.auth.EndEntityAuthenticationSessionLocal;
 import org.ejbca.core.ejb.ca.caadmin.CAAdminSessionLocal;
 import org.ejbca.core.ejb.ca.publisher.PublisherQueueSessionLocal;
 import org.ejbca.core.ejb.ca.publisher.PublisherSessionLocal;
+import org.ejbca.core.ejb.ca.sign.BatchIssuanceRequest;
+import org.ejbca.core.ejb.ca.sign.BatchIssuanceResult;
 import org.ejbca.core.ejb.ca.sign.SignSessionLocal;
 import org.ejbca.core.ejb.ca.store.CertReqHistorySessionLocal;
 import org.ejbca.core.ejb.config.GlobalUpgradeConfiguration;
@@ -367,9 +371,10 @@ public class RaMasterApiSessionBean implements RaMasterApiSessionLocal {
      * <tr><th>15<td>=<td>7.11.0
      * <tr><th>16<td>=<td>8.1.0
      * <tr><th>17<td>=<td>8.2.0
+     * <tr><th>18<td>=<td>8.3.0
      * </table>
      */
-    private static final int RA_MASTER_API_VERSION = 17;
+    private static final int RA_MASTER_API_VERSION = 18;
 
     /**
      * Cached value of an active CA, so we don't have to list through all CAs every time as this is a critical path executed every time
@@ -2528,6 +2533,38 @@ public class RaMasterApiSessionBean implements RaMasterApiSessionLocal {
     }
 
 
+    @Override
+    public List<BatchIssuanceResult> createCertificatesRest(final AuthenticationToken authenticationToken,
+            final List<EnrollPkcs10CertificateRequest> enrollCertificateRequests) {
+        // Requests that can not be converted fail here, and the others are issued as one batch
+        final BatchIssuanceResult[] results = new BatchIssuanceResult[enrollCertificateRequests.size()];
+        final List<BatchIssuanceRequest> batchRequests = new ArrayList<>(enrollCertificateRequests.size());
+        final List<Integer> batchIndexes = new ArrayList<>(enrollCertificateRequests.size());
+        for (int index = 0; index < enrollCertificateRequests.size(); index++) {
+            final EnrollPkcs10CertificateRequest enrollCertificateRequest = enrollCertificateRequests.get(index);
+            try {
+                final EndEntityInformation endEntityInformation = ejbcaRestHelperSession.convertToEndEntityInformation(authenticationToken,
+                        enrollCertificateRequest);
+                batchRequests.add(new BatchIssuanceRequest(endEntityInformation, enrollCertificateRequest.getCertificateRequest(),
+                        CertificateHelper.CERT_REQ_TYPE_PKCS10));
+                batchIndexes.add(index);
+            } catch (AuthorizationDeniedException | EndEntityProfileNotFoundException | CertificateProfileDoesNotExistException
+                    | CADoesntExistsException e) {
+                log.debug("EJBCA REST exception", e);
+                results[index] = BatchIssuanceResult.failure(index, null, e.getMessage());
+            } catch (EjbcaException e) {
+                log.debug("EJBCA REST exception", e);
+                results[index] = BatchIssuanceResult.failure(index, e.getErrorCode(), e.getMessage());
+            }
+        }
+        for (final BatchIssuanceResult result : signSessionLocal.createCertificates(authenticationToken, batchRequests, X509ResponseMessage.class)) {
+            final int index = batchIndexes.get(result.getIndex());
+            results[index] = result.isSuccess() ? BatchIssuanceResult.success(index, result.getCertificate(), null)
+                    : BatchIssuanceResult.failure(index, result.getErrorCode(), result.getErrorMessage());
+        }
+        return Arrays.asList(results);
+    }
+
     @Override
     public byte[] createCertificateWS(final AuthenticationToken authenticationToken, final UserDataVOWS userData, final String requestData, final int requestType,
                                       final String hardTokenSN, final String responseType) throws AuthorizationDeniedException, EjbcaException,
@@ -3221,6 +3258,35 @@ public class RaMasterApiSessionBean implements RaMasterApiSessionLocal {
         return EJBTools.wrapCertCollection(certificateStoreSession.findExpiringCertificates(findDate, maxNumberOfResults, offset));
     }
 
+    @Override
+    public Collection<CertificateWrapper> getCertificatesByExpirationTime(final AuthenticationToken authenticationToken, final long days,
+            final int maxNumberOfResults, final CertificateExpirationCursor after) throws AuthorizationDeniedException {
+        if (!authorizationSession.isAuthorizedNoLogging(authenticationToken, StandardRules.CAFUNCTIONALITY.resource() + "/view_certificate")) {
+            final String msg = intres.getLocalizedMessage("authorization.notauthorizedtoresource",
+                    StandardRules.CAFUNCTIONALITY.resource() + "/view_certificate", null);
+            throw new AuthorizationDeniedException(msg);
+        }
+        final List<Certificate> ret = new ArrayList<>();
+        final Date expireDate = getDate(days);
+        // Only the certificates of the page are read. Certificates without stored certificate data are skipped, so the following
+        // certificates are read until the page is full or there are no more certificates.
+        CertificateExpirationCursor position = after;
+        while (ret.size() < maxNumberOfResults) {
+            final int remaining = maxNumberOfResults - ret.size();
+            final List<CertificateInfo> certificateInfos = certificateStoreSession.findExpiringCertificateInfos(expireDate, position, remaining);
+            final List<String> fingerprints = new ArrayList<>(certificateInfos.size());
+            for (final CertificateInfo certificateInfo : certificateInfos) {
+                fingerprints.add(certificateInfo.getFingerprint());
+            }
+            ret.addAll(certificateStoreSession.findCertificatesByFingerprints(fingerprints));
+            if (certificateInfos.size() < remaining) {
+                break;
+            }
+            position = CertificateExpirationCursor.after(certificateInfos.get(certificateInfos.size() - 1));
+        }
+        return EJBTools.wrapCertCollection(ret);
+    }
+
     @Override
     public Collection<CertificateWrapper> getCertificatesByExpirationTimeAndType(AuthenticationToken authenticationToken, long days, int certificateType, int maxNumberOfResults)
             throws AuthorizationDeniedException {
@@ -12,24 +12,17 @@
  *************************************************************************/
 package org.ejbca.util;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import org.cesecore.internal.ManagedCache;
 
 /** A simple object cache that can be used to cache object for a limited time. By default object are cached for 5 seconds.
- * Uses synchronized collections.
+ * Backed by a {@link ManagedCache}, so lookups do not lock and expired objects are removed.
  * 
  * @version $Id$
  */
 public class ObjectCache<K,V> {
 
-	/** The objects */
-	private final Map<K,V> objects;
-	/** map holding expire times for the object, so we know when we should not cache them any more */
-	private final Map<K, Long> expire;
-
-	/** expiration time in milliseconds*/
-	private long expireTime;
+	/** The objects, which expire the expiration time after they were put in the cache */
+	private final ManagedCache<K,V> objects;
 
 	/**
 	 * Constructor with default expire of 5 seconds.
@@ -40,18 +33,15 @@ public class ObjectCache<K,V> {
 
 	/**
 	 * Constructor with expire as argument.
-	 * @param expireTime expiration time in milliseconds
+	 * @param expireTime expiration time in milliseconds, larger than 0
 	 */
 	public ObjectCache(final long expireTime) {
-		this.objects = Collections.synchronizedMap(new HashMap<K,V>());
-		this.expire = Collections.synchronizedMap(new HashMap<K,Long>());
-		this.expireTime = expireTime;
+		this.objects = ManagedCache.<K,V>newBuilder().expireAfterWrite(expireTime).build();
 	}
 
 	/** empties the cache completely */
-	public synchronized void emptyCache() {
-		this.objects.clear();
-		this.expire.clear();
+	public void emptyCache() {
+		this.objects.invalidateAll();
 	}
 	/**
 	 * Put an object into the cache, the expiration time will be set.
@@ -61,7 +51,6 @@ public class ObjectCache<K,V> {
 	 */
 	public void put(final K key, final V o) {
 		this.objects.put(key, o);
-		this.expire.put(key, Long.valueOf(System.currentTimeMillis() + expireTime));
 	}
 
 	/**
@@ -71,16 +60,6 @@ public class ObjectCache<K,V> {
 	 * @return the cached object
 	 */
 	public V get(final K key) {
-		final Long expiresAt = this.expire.get(key);
-		V ret = null;
-		if (expiresAt != null) {
-			if (System.currentTimeMillis() < expiresAt) {
-				return this.objects.get(key);
-			} else {
-				this.objects.remove(key);
-				this.expire.remove(key);				
-			}
-		}
-		return ret;
+		return this.objects.getIfPresent(key);
 	}
 }
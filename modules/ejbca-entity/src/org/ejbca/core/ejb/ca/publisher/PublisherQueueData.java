@@ -287,6 +287,20 @@ public class PublisherQueueData extends ProtectedData implements Serializable {
     	return entityManager.find(PublisherQueueData.class, pk);
     }
 
+    /**
+     * @param pks primary keys, for example of items locked by {@link #lockPksByPublisherIdAndStatusSkipLocked}
+     * @return the items that exist, ordered by the time they were created in descending order (i.e. newest items first)
+     */
+    @SuppressWarnings("unchecked")
+    public static List<PublisherQueueData> findByPks(EntityManager entityManager, List<String> pks) {
+        if (pks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final Query query = entityManager.createQuery("SELECT a FROM PublisherQueueData a WHERE a.pk IN (:pks) ORDER BY a.timeCreated DESC");
+        query.setParameter("pks", pks);
+        return query.getResultList();
+    }
+
     /** @return return the query results as a List. */
     @SuppressWarnings("unchecked")
     public static List<PublisherQueueData> findDataByFingerprint(EntityManager entityManager, String fingerprint) {
@@ -320,6 +334,62 @@ public class PublisherQueueData extends ProtectedData implements Serializable {
     	return query.getResultList();
     }
 
+    /**
+     * Lookup publisher queue data items with the specified status for the publisher specified, in one of a number of partitions of the
+     * queue, so several workers can process the queue at the same time without processing the same items. The results are ordered by
+     * the time they were created in descending order (i.e. newest items first).
+     *
+     * @param entityManager the entity manager used to create the query.
+     * @param publisherId the id of a publisher, only publisher queue data items for this publisher is returned.
+     * @param publishStatus one of the constants in {@link PublisherConst}, only publisher queue data items with this status is returned.
+     * @param maxRows If set > 0, limits the number of rows fetched.
+     * @param partition the partition to return items from, from 0 to partitions-1
+     * @param partitions the number of partitions the queue is divided into
+     * @return return a list of publisher queue data items.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<PublisherQueueData> findDataByPublisherIdAndStatusInPartition(EntityManager entityManager, int publisherId,
+            int publishStatus, int maxRows, int partition, int partitions) {
+        final Query query = entityManager.createQuery("SELECT a FROM PublisherQueueData a WHERE a.publisherId=:publisherId AND a.publishStatus=:publishStatus"
+                + " AND MOD(a.timeCreated, :partitions)=:partition ORDER BY a.timeCreated DESC");
+        query.setParameter("publisherId", publisherId);
+        query.setParameter("publishStatus", publishStatus);
+        query.setParameter("partitions", partitions);
+        query.setParameter("partition", partition);
+        if (maxRows > 0) {
+            query.setMaxResults(maxRows);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Locks publisher queue data items with the specified status for the publisher specified, skipping items that are locked by other
+     * transactions, so several workers can process the queue at the same time without waiting for each other. The items stay locked
+     * until the transaction ends. The results are ordered by the time they were created in descending order (i.e. newest items first).
+     *
+     * @param entityManager the entity manager used to create the query.
+     * @param databaseName the type of database, as in database.name
+     * @param publisherId the id of a publisher, only publisher queue data items for this publisher is returned.
+     * @param publishStatus one of the constants in {@link PublisherConst}, only publisher queue data items with this status is returned.
+     * @param maxRows limits the number of rows locked.
+     * @return the primary keys of the locked items, or null if the database does not support skipping locked rows.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<String> lockPksByPublisherIdAndStatusSkipLocked(EntityManager entityManager, String databaseName, int publisherId,
+            int publishStatus, int maxRows) {
+        final String sql;
+        if ("postgres".equals(databaseName) || "mysql".equals(databaseName)) {
+            sql = "SELECT pk FROM PublisherQueueData WHERE publisherId=" + publisherId + " AND publishStatus=" + publishStatus
+                    + " ORDER BY timeCreated DESC LIMIT " + maxRows + " FOR UPDATE SKIP LOCKED";
+        } else if ("mssql".equals(databaseName)) {
+            sql = "SELECT TOP " + maxRows + " pk FROM PublisherQueueData WITH (UPDLOCK, ROWLOCK, READPAST) WHERE publisherId=" + publisherId
+                    + " AND publishStatus=" + publishStatus + " ORDER BY timeCreated DESC";
+        } else {
+            return null;
+        }
+        return entityManager.createNativeQuery(sql).getResultList();
+    }
+
 	/** @return return the count. */
 	public static long findCountOfPendingEntriesForPublisher(EntityManager entityManager, int publisherId) {
 		Query query = entityManager.createQuery("SELECT COUNT(a) FROM PublisherQueueData a WHERE a.publisherId=:publisherId AND publishStatus=" + PublisherConst.STATUS_PENDING);
@@ -0,0 +1,273 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.core.ejb.services;
+
+import java.io.Serializable;
+import java.util.List;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.PostLoad;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Query;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.TypedQuery;
+
+import org.cesecore.dbprotection.DatabaseProtectionException;
+import org.cesecore.dbprotection.ProtectedData;
+import org.cesecore.dbprotection.ProtectionStringBuilder;
+
+/**
+ * Leases of a service whose work is split into shards that are run by all nodes of a cluster.
+ * <p>
+ * There are two kinds of rows. A node row, with shard {@link #NODE}, tells that the node is running the service until its lease
+ * expires. A shard row holds the run timestamps of one shard, the same way as {@link ServiceData} does for a service that is not sharded,
+ * and the name of the node that ran it last.
+ */
+@Entity
+@Table(name = "ServiceLeaseData")
+public class ServiceLeaseData extends ProtectedData implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int LATEST_PROTECT_VERSON = 1;
+
+    /** Shard of the rows that are node leases */
+    public static final int NODE = -1;
+
+    private String id;
+    private int serviceId;
+    private int shard;
+    private String nodeName;
+    private long leaseExpiration;
+    private long runTimeStamp;
+    private long nextRunTimeStamp;
+    private int rowVersion;
+    private String rowProtection;
+
+    public ServiceLeaseData() { }
+
+    /**
+     * Creates the lease of a node.
+     *
+     * @param serviceId id of the service
+     * @param nodeName host name of the node
+     * @param leaseExpiration time when the node is no longer regarded as running the service
+     */
+    public ServiceLeaseData(final int serviceId, final String nodeName, final long leaseExpiration) {
+        this.id = getNodeLeaseId(serviceId, nodeName);
+        this.serviceId = serviceId;
+        this.shard = NODE;
+        this.nodeName = nodeName;
+        this.leaseExpiration = leaseExpiration;
+    }
+
+    /**
+     * Creates a shard that has not been run yet.
+     *
+     * @param serviceId id of the service
+     * @param shard number of the shard, from 0
+     * @param runTimeStamp time when the shard was run last, initially the same as for the whole service
+     * @param nextRunTimeStamp time when the shard should run next, initially the same as for the whole service
+     */
+    public ServiceLeaseData(final int serviceId, final int shard, final long runTimeStamp, final long nextRunTimeStamp) {
+        this.id = getShardLeaseId(serviceId, shard);
+        this.serviceId = serviceId;
+        this.shard = shard;
+        this.runTimeStamp = runTimeStamp;
+        this.nextRunTimeStamp = nextRunTimeStamp;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(final int serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    /** @return number of the shard from 0, or {@link #NODE} for the lease of a node */
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(final int shard) {
+        this.shard = shard;
+    }
+
+    /** @return the node holding the lease, or the node that ran the shard last */
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public void setNodeName(final String nodeName) {
+        this.nodeName = nodeName;
+    }
+
+    /** @return time when the lease of a node expires. Not used by shards. */
+    public long getLeaseExpiration() {
+        return leaseExpiration;
+    }
+
+    public void setLeaseExpiration(final long leaseExpiration) {
+        this.leaseExpiration = leaseExpiration;
+    }
+
+    /** @return time when the shard was run last. Not used by nodes. */
+    public long getRunTimeStamp() {
+        return runTimeStamp;
+    }
+
+    public void setRunTimeStamp(final long runTimeStamp) {
+        this.runTimeStamp = runTimeStamp;
+    }
+
+    /** @return time when the shard should run next. Not used by nodes. */
+    public long getNextRunTimeStamp() {
+        return nextRunTimeStamp;
+    }
+
+    public void setNextRunTimeStamp(final long nextRunTimeStamp) {
+        this.nextRunTimeStamp = nextRunTimeStamp;
+    }
+
+    public int getRowVersion() {
+        return rowVersion;
+    }
+
+    public void setRowVersion(final int rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
+    @Override
+    public String getRowProtection() {
+        return rowProtection;
+    }
+
+    @Override
+    public void setRowProtection(final String rowProtection) {
+        this.rowProtection = rowProtection;
+    }
+
+    //
+    // Start Database integrity protection methods
+    //
+
+    @Transient
+    @Override
+    protected String getProtectString(final int version) {
+        // rowVersion is automatically updated by JPA, so it's not important, it is only used for optimistic locking.
+        // The node name, lease expiration and run timestamps are excluded for the same reason as the timestamps of ServiceData, so they
+        // can be updated efficiently with the queries below.
+        return new ProtectionStringBuilder().append(getId()).append(getServiceId()).append(getShard()).toString();
+    }
+
+    @Transient
+    @Override
+    protected int getProtectVersion() {
+        return LATEST_PROTECT_VERSON;
+    }
+
+    @PrePersist
+    @PreUpdate
+    @Override
+    protected void protectData() throws DatabaseProtectionException {
+        super.protectData();
+    }
+
+    @PostLoad
+    @Override
+    protected void verifyData() throws DatabaseProtectionException {
+        super.verifyData();
+    }
+
+    @Override
+    @Transient
+    protected String getRowId() {
+        return new ProtectionStringBuilder().append(getId()).toString();
+    }
+
+    //
+    // End Database integrity protection methods
+    //
+
+    public static String getNodeLeaseId(final int serviceId, final String nodeName) {
+        return serviceId + ";node;" + nodeName;
+    }
+
+    public static String getShardLeaseId(final int serviceId, final int shard) {
+        return serviceId + ";shard;" + shard;
+    }
+
+    /** @return all node and shard rows of a service */
+    public static List<ServiceLeaseData> findByServiceId(final EntityManager entityManager, final int serviceId) {
+        final TypedQuery<ServiceLeaseData> query = entityManager.createQuery("SELECT a FROM ServiceLeaseData a WHERE a.serviceId=:serviceId",
+                ServiceLeaseData.class);
+        query.setParameter("serviceId", serviceId);
+        return query.getResultList();
+    }
+
+    /** @return true if the lease of the node existed and was renewed */
+    public static boolean renewNodeLease(final EntityManager entityManager, final int serviceId, final String nodeName, final long leaseExpiration) {
+        final Query query = entityManager.createQuery("UPDATE ServiceLeaseData a SET a.leaseExpiration=:leaseExpiration WHERE a.id=:id");
+        query.setParameter("leaseExpiration", leaseExpiration);
+        query.setParameter("id", getNodeLeaseId(serviceId, nodeName));
+        return query.executeUpdate() == 1;
+    }
+
+    /**
+     * Claims a run of a shard, by updating its timestamps if no other node has done so since they were read. This is the same semaphore as
+     * {@link ServiceData#updateTimestamps(EntityManager, Integer, long, long, long, long)}, for one shard.
+     *
+     * @return true if 1 row was updated
+     */
+    public static boolean updateShardTimestamps(final EntityManager entityManager, final int serviceId, final int shard, final String nodeName,
+            final long oldRunTimeStamp, final long oldNextRunTimeStamp, final long newRunTimeStamp, final long newNextRunTimeStamp) {
+        final Query query = entityManager.createQuery("UPDATE ServiceLeaseData a SET a.runTimeStamp=:newRunTimeStamp,"
+                + " a.nextRunTimeStamp=:newNextRunTimeStamp, a.nodeName=:nodeName"
+                + " WHERE a.id=:id AND a.runTimeStamp=:oldRunTimeStamp AND a.nextRunTimeStamp=:oldNextRunTimeStamp");
+        query.setParameter("newRunTimeStamp", newRunTimeStamp);
+        query.setParameter("newNextRunTimeStamp", newNextRunTimeStamp);
+        query.setParameter("nodeName", nodeName);
+        query.setParameter("id", getShardLeaseId(serviceId, shard));
+        query.setParameter("oldRunTimeStamp", oldRunTimeStamp);
+        query.setParameter("oldNextRunTimeStamp", oldNextRunTimeStamp);
+        return query.executeUpdate() == 1;
+    }
+
+    /** Removes the leases of nodes that expired before the given time. */
+    public static int removeExpiredNodeLeases(final EntityManager entityManager, final int serviceId, final long expiredBefore) {
+        final Query query = entityManager.createQuery("DELETE FROM ServiceLeaseData a WHERE a.serviceId=:serviceId AND a.shard=:shard"
+                + " AND a.leaseExpiration<:expiredBefore");
+        query.setParameter("serviceId", serviceId);
+        query.setParameter("shard", NODE);
+        query.setParameter("expiredBefore", expiredBefore);
+        return query.executeUpdate();
+    }
+
+    /** Removes all node and shard rows of a service. */
+    public static int removeByServiceId(final EntityManager entityManager, final int serviceId) {
+        final Query query = entityManager.createQuery("DELETE FROM ServiceLeaseData a WHERE a.serviceId=:serviceId");
+        query.setParameter("serviceId", serviceId);
+        return query.executeUpdate();
+    }
+}
@@ -28,10 +28,14 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.security.KeyPair;
 import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
 import java.text.DateFormat;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.client.Entity;
@@ -41,6 +45,7 @@ import javax.ws.rs.core.Response.Status;
 
 import org.cesecore.authentication.tokens.AuthenticationToken;
 import org.cesecore.authentication.tokens.UsernamePrincipal;
+import org.cesecore.certificates.certificate.CertificateExpirationCursor;
 import org.cesecore.certificates.certificate.CertificateStatus;
 import org.cesecore.certificates.crl.RevocationReasons;
 import org.cesecore.mock.authentication.tokens.UsernameBasedAuthenticationToken;
@@ -49,12 +54,16 @@ import org.easymock.EasyMock;
 import org.easymock.EasyMockRunner;
 import org.easymock.Mock;
 import org.easymock.TestSubject;
+import org.ejbca.config.EjbcaConfigurationHolder;
 import org.ejbca.config.GlobalConfiguration;
+import org.ejbca.core.ejb.ca.sign.BatchIssuanceResult;
 import org.ejbca.core.ejb.dto.CertRevocationDto;
 import org.ejbca.core.model.era.RaMasterApiProxyBeanLocal;
+import org.ejbca.core.protocol.rest.EnrollPkcs10CertificateRequest;
 import org.ejbca.ui.web.rest.api.InMemoryRestServer;
 import org.ejbca.ui.web.rest.api.config.JsonDateSerializer;
 import org.ejbca.ui.web.rest.api.resource.swagger.CertificateRestResourceSwagger;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.junit.AfterClass;
@@ -62,7 +71,12 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.keyfactor.ErrorCode;
+import com.keyfactor.util.CertTools;
+import com.keyfactor.util.CryptoProviderTools;
 import com.keyfactor.util.EJBTools;
+import com.keyfactor.util.crypto.algorithm.AlgorithmConstants;
+import com.keyfactor.util.keys.KeyTools;
 
 /**
  * A unit test class for CertificateRestResource to test its content.
@@ -95,6 +109,7 @@ public class CertificateRestResourceUnitTest {
 
     @BeforeClass
     public static void beforeClass() throws IOException {
+        CryptoProviderTools.installBCProviderIfNotAvailable();
         server = InMemoryRestServer.create(testClass);
         server.start();
     }
@@ -310,6 +325,82 @@ public class CertificateRestResourceUnitTest {
         verify(raMasterApiProxy);
     }
 
+    @Test
+    public void shouldReturnNextCursorWhenPagingExpiringCertificatesAfterCursor() throws Exception {
+        // given
+        final long days = 1;
+        final int maxNumberOfResults = 2;
+        final KeyPair keyPair = KeyTools.genKeys("secp256r1", AlgorithmConstants.KEYALGORITHM_EC);
+        final Certificate first = CertTools.genSelfCert("CN=Expiring1", 1, null, keyPair.getPrivate(), keyPair.getPublic(),
+                AlgorithmConstants.SIGALG_SHA256_WITH_ECDSA, false);
+        final Certificate second = CertTools.genSelfCert("CN=Expiring2", 1, null, keyPair.getPrivate(), keyPair.getPublic(),
+                AlgorithmConstants.SIGALG_SHA256_WITH_ECDSA, false);
+        final Certificate third = CertTools.genSelfCert("CN=Expiring3", 1, null, keyPair.getPrivate(), keyPair.getPublic(),
+                AlgorithmConstants.SIGALG_SHA256_WITH_ECDSA, false);
+        final CertificateExpirationCursor after = CertificateExpirationCursor.after(1700000000000L, "caba75f68c833c3c2d33f3f5052b7d5a76e80383");
+        // One more certificate than asked for is fetched, to tell if there are more results
+        expect(raMasterApiProxy.getCertificatesByExpirationTime(anyObject(AuthenticationToken.class), eq(days), eq(maxNumberOfResults + 1), eq(after)))
+                        .andReturn(EJBTools.wrapCertCollection(Arrays.asList(first, second, third)));
+        replay(raMasterApiProxy);
+        // when
+        final Invocation.Builder request = server
+                .newRequest("/v1/certificate/expire")
+                .queryParam("days", days)
+                .queryParam("maxNumberOfResults", maxNumberOfResults)
+                .queryParam("after", after.getToken())
+                .request();
+        final Response actualResponse = request.get();
+        final String actualJsonString = actualResponse.readEntity(String.class);
+        final int actualStatus = actualResponse.getStatus();
+        final JSONObject actualJsonObject = (JSONObject) jsonParser.parse(actualJsonString);
+        final JSONObject responseStatus = (JSONObject) actualJsonObject.get("pagination_rest_response_component");
+        final JSONArray certificates = (JSONArray) ((JSONObject) actualJsonObject.get("certificates_rest_response")).get("certificates");
+        // then
+        assertEquals(Status.OK.getStatusCode(), actualStatus);
+        assertJsonContentType(actualResponse);
+        assertTrue((Boolean) responseStatus.get("more_results"));
+        assertEquals(CertificateExpirationCursor.after(second).getToken(), responseStatus.get("next_cursor"));
+        assertEquals(maxNumberOfResults, certificates.size());
+        verify(raMasterApiProxy);
+    }
+
+    @Test
+    public void shouldReturnBadRequestForMalformedExpirationCursor() throws Exception {
+        // given
+        replay(raMasterApiProxy);
+        // when
+        final Invocation.Builder request = server
+                .newRequest("/v1/certificate/expire")
+                .queryParam("days", 1)
+                .queryParam("maxNumberOfResults", 2)
+                .queryParam("after", "tomorrow")
+                .request();
+        final Response actualResponse = request.get();
+        // then
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), actualResponse.getStatus());
+        verify(raMasterApiProxy);
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenExpirationCursorIsNotSupported() throws Exception {
+        // given
+        expect(raMasterApiProxy.getCertificatesByExpirationTime(anyObject(AuthenticationToken.class), eq(1L), eq(3),
+                eq(CertificateExpirationCursor.FIRST))).andThrow(new UnsupportedOperationException("Not supported by a backend."));
+        replay(raMasterApiProxy);
+        // when
+        final Invocation.Builder request = server
+                .newRequest("/v1/certificate/expire")
+                .queryParam("days", 1)
+                .queryParam("maxNumberOfResults", 2)
+                .queryParam("after", "")
+                .request();
+        final Response actualResponse = request.get();
+        // then
+        assertEquals("A page without the certificates of a backend should not be returned.", Status.BAD_REQUEST.getStatusCode(),
+                actualResponse.getStatus());
+        verify(raMasterApiProxy);
+    }
+
     @Test
     public void shouldReturnRevocationStatusRevokedWithReasonUnspecified() throws Exception {
         // given
@@ -345,4 +436,67 @@ public class CertificateRestResourceUnitTest {
         final int actualStatus = actualResponse.getStatus();
         assertEquals(Status.BAD_REQUEST.getStatusCode(), actualStatus);
     }
+
+    @Test
+    public void shouldReturnResultOfEachRequestInBatchEnrollment() throws Exception {
+        // given
+        final KeyPair keyPair = KeyTools.genKeys("secp256r1", AlgorithmConstants.KEYALGORITHM_EC);
+        final X509Certificate certificate = CertTools.genSelfCert("CN=BatchUser1", 365, null, keyPair.getPrivate(), keyPair.getPublic(),
+                AlgorithmConstants.SIGALG_SHA256_WITH_ECDSA, false);
+        final Capture<List<EnrollPkcs10CertificateRequest>> requestsCapture = EasyMock.newCapture();
+        expect(raMasterApiProxy.createCertificatesRest(anyObject(AuthenticationToken.class), capture(requestsCapture))).andReturn(Arrays.asList(
+                BatchIssuanceResult.success(0, certificate.getEncoded(), null),
+                BatchIssuanceResult.failure(1, ErrorCode.CERTIFICATE_WITH_THIS_SUBJECTDN_ALREADY_EXISTS_FOR_ANOTHER_USER, "Subject DN is in use.")));
+        replay(raMasterApiProxy);
+        final String requestBody = "{\"requests\":["
+                + "{\"certificate_request\":\"csr1\",\"certificate_authority_name\":\"TestCA\",\"username\":\"BatchUser1\"},"
+                + "{\"certificate_request\":\"csr2\",\"certificate_authority_name\":\"TestCA\",\"username\":\"BatchUser2\"}]}";
+        // when
+        final Invocation.Builder request = server.newRequest("/v1/certificate/pkcs10enroll/batch").request();
+        final Response actualResponse = request.post(Entity.json(requestBody));
+        final String actualJsonString = actualResponse.readEntity(String.class);
+        final JSONObject actualJsonObject = (JSONObject) jsonParser.parse(actualJsonString);
+        final JSONArray results = (JSONArray) actualJsonObject.get("results");
+        final JSONObject success = (JSONObject) results.get(0);
+        final JSONObject failure = (JSONObject) results.get(1);
+        // then
+        assertEquals(Status.OK.getStatusCode(), actualResponse.getStatus());
+        assertJsonContentType(actualResponse);
+        assertEquals("Requests should be passed on in order.", "BatchUser2", requestsCapture.getValue().get(1).getUsername());
+        assertEquals(1L, actualJsonObject.get("success_count"));
+        assertEquals(1L, actualJsonObject.get("failure_count"));
+        assertEquals(0L, success.get("index"));
+        assertEquals(CertTools.getSerialNumberAsString(certificate), ((JSONObject) success.get("certificate")).get("serial_number"));
+        assertFalse(success.containsKey("error_message"));
+        assertEquals(1L, failure.get("index"));
+        assertFalse(failure.containsKey("certificate"));
+        assertEquals(ErrorCode.CERTIFICATE_WITH_THIS_SUBJECTDN_ALREADY_EXISTS_FOR_ANOTHER_USER.getInternalErrorCode(), failure.get("error_code"));
+        assertEquals("Subject DN is in use.", failure.get("error_message"));
+        verify(raMasterApiProxy);
+    }
+
+    @Test
+    public void emptyBatchEnrollmentShouldReturnBadRequest() throws Exception {
+        final Invocation.Builder request = server.newRequest("/v1/certificate/pkcs10enroll/batch").request();
+        final Response actualResponse = request.post(Entity.json("{\"requests\":[]}"));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), actualResponse.getStatus());
+    }
+
+    @Test
+    public void tooLargeBatchEnrollmentShouldReturnBadRequest() throws Exception {
+        EjbcaConfigurationHolder.updateConfiguration("batchissuance.maxrequests", "1");
+        try {
+            replay(raMasterApiProxy);
+            final String requestBody = "{\"requests\":["
+                    + "{\"certificate_request\":\"csr1\",\"certificate_authority_name\":\"TestCA\",\"username\":\"BatchUser1\"},"
+                    + "{\"certificate_request\":\"csr2\",\"certificate_authority_name\":\"TestCA\",\"username\":\"BatchUser2\"}]}";
+            final Invocation.Builder request = server.newRequest("/v1/certificate/pkcs10enroll/batch").request();
+            final Response actualResponse = request.post(Entity.json(requestBody));
+            assertEquals(Status.BAD_REQUEST.getStatusCode(), actualResponse.getStatus());
+            // No certificates should be issued
+            verify(raMasterApiProxy);
+        } finally {
+            EjbcaConfigurationHolder.restoreConfiguration();
+        }
+    }
 }
@@ -32,11 +32,13 @@ import org.ejbca.core.model.ra.RevokeBackDateNotAllowedForProfileException;
 import org.ejbca.cvc.exception.ConstructionException;
 import org.ejbca.ui.web.rest.api.exception.RestException;
 import org.ejbca.ui.web.rest.api.io.request.CertificateRequestRestRequest;
+import org.ejbca.ui.web.rest.api.io.request.EnrollCertificateBatchRestRequest;
 import org.ejbca.ui.web.rest.api.io.request.EnrollCertificateRestRequest;
 import org.ejbca.ui.web.rest.api.io.request.FinalizeRestRequest;
 import org.ejbca.ui.web.rest.api.io.request.KeyStoreRestRequest;
 import org.ejbca.ui.web.rest.api.io.request.SearchCertificatesRestRequest;
 import org.ejbca.ui.web.rest.api.io.response.CertificateRestResponse;
+import org.ejbca.ui.web.rest.api.io.response.EnrollCertificateBatchRestResponse;
 import org.ejbca.ui.web.rest.api.io.response.ExpiringCertificatesRestResponse;
 import org.ejbca.ui.web.rest.api.io.response.RestResourceStatusRestResponse;
 import org.ejbca.ui.web.rest.api.io.response.RevokeStatusRestResponse;
@@ -110,6 +112,20 @@ public class CertificateRestResourceSwagger extends CertificateRestResource {
         return super.enrollPkcs10Certificate(requestContext, enrollCertificateRestRequest);
     }
 
+    @POST
+    @Path("/pkcs10enroll/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Batch enrollment with client generated keys, using CSR subject",
+            notes = "Enroll for a certificate for each of the given PEM encoded PKCS#10 CSRs. Returns the certificate or the error of each request, "
+                    + "in the order of the requests. The number of requests in one batch is limited by batchissuance.maxrequests in ejbca.properties.",
+            response = EnrollCertificateBatchRestResponse.class)
+    public Response enrollPkcs10CertificateBatch(@Context HttpServletRequest requestContext,
+                                                 final EnrollCertificateBatchRestRequest enrollCertificateBatchRestRequest)
+            throws RestException, AuthorizationDeniedException {
+        return super.enrollPkcs10CertificateBatch(requestContext, enrollCertificateBatchRestRequest);
+    }
+
     @POST
     @Path("/certificaterequest")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -196,9 +212,12 @@ public class CertificateRestResourceSwagger extends CertificateRestResource {
             @ApiParam(value = "Next offset to display results of, if maxNumberOfResults is exceeded. Starts from 0.")
             @QueryParam("offset") int offset,
             @ApiParam(value = "Maximum number of certificates to display. If result exceeds this value. Modify 'offset' to retrieve more results")
-            @QueryParam("maxNumberOfResults") int maxNumberOfResults)
+            @QueryParam("maxNumberOfResults") int maxNumberOfResults,
+            @ApiParam(value = "Page through the certificates ordered by expiration date instead of by 'offset', which stays fast for large results. "
+                    + "Empty for the first page, then the 'next_cursor' of the previous page. 'offset' is ignored, and 'number_of_results' is not returned.")
+            @QueryParam("after") String after)
             throws AuthorizationDeniedException, CertificateEncodingException, RestException {
-        return super.getCertificatesAboutToExpire(requestContext, days, offset, maxNumberOfResults);
+        return super.getCertificatesAboutToExpire(requestContext, days, offset, maxNumberOfResults, after);
     }
 
     @POST
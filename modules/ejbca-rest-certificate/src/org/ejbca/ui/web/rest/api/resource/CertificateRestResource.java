@@ -27,6 +27,7 @@ import org.cesecore.authorization.AuthorizationDeniedException;
 import org.cesecore.certificates.ca.CADoesntExistsException;
 import org.cesecore.certificates.certificate.CertificateConstants;
 import org.cesecore.certificates.certificate.CertificateCreateException;
+import org.cesecore.certificates.certificate.CertificateExpirationCursor;
 import org.cesecore.certificates.certificate.CertificateStatus;
 import org.cesecore.certificates.certificate.IllegalKeyException;
 import org.cesecore.certificates.certificate.certextensions.CertificateExtensionException;
@@ -36,7 +37,9 @@ import org.cesecore.certificates.endentity.EndEntityConstants;
 import org.cesecore.certificates.endentity.EndEntityInformation;
 import org.cesecore.certificates.endentity.ExtendedInformation;
 import org.cesecore.util.LogRedactionUtils;
+import org.ejbca.config.EjbcaConfiguration;
 import org.ejbca.core.EjbcaException;
+import org.ejbca.core.ejb.ca.sign.BatchIssuanceResult;
 import org.ejbca.core.ejb.dto.CertRevocationDto;
 import org.ejbca.core.ejb.ra.NoSuchEndEntityException;
 import org.ejbca.core.model.InternalEjbcaResources;
@@ -60,12 +63,15 @@ import org.ejbca.cvc.exception.ConstructionException;
 import org.ejbca.cvc.exception.ParseException;
 import org.ejbca.ui.web.rest.api.exception.RestException;
 import org.ejbca.ui.web.rest.api.io.request.CertificateRequestRestRequest;
+import org.ejbca.ui.web.rest.api.io.request.EnrollCertificateBatchRestRequest;
 import org.ejbca.ui.web.rest.api.io.request.EnrollCertificateRestRequest;
 import org.ejbca.ui.web.rest.api.io.request.FinalizeRestRequest;
 import org.ejbca.ui.web.rest.api.io.request.KeyStoreRestRequest;
 import org.ejbca.ui.web.rest.api.io.request.SearchCertificatesRestRequest;
 import org.ejbca.ui.web.rest.api.io.response.CertificateRestResponse;
 import org.ejbca.ui.web.rest.api.io.response.CertificatesRestResponse;
+import org.ejbca.ui.web.rest.api.io.response.EnrollCertificateBatchRestResponse;
+import org.ejbca.ui.web.rest.api.io.response.EnrollCertificateBatchResultRestResponse;
 import org.ejbca.ui.web.rest.api.io.response.ExpiringCertificatesRestResponse;
 import org.ejbca.ui.web.rest.api.io.response.PaginationRestResponseComponent;
 import org.ejbca.ui.web.rest.api.io.response.RevokeStatusRestResponse;
@@ -97,6 +103,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -151,6 +158,66 @@ public class CertificateRestResource extends BaseRestResource {
         }
     }
 
+    /**
+     * Enrolls for a certificate for each request in the batch. The certificates are issued in chunks, where each chunk is stored in
+     * one transaction, so a failed request does not fail the others. There is one result for each request, in the order of the requests.
+     */
+    public Response enrollPkcs10CertificateBatch(final HttpServletRequest requestContext,
+                                                 final EnrollCertificateBatchRestRequest enrollCertificateBatchRestRequest)
+            throws RestException, AuthorizationDeniedException {
+        if (enrollCertificateBatchRestRequest == null || enrollCertificateBatchRestRequest.getRequests() == null
+                || enrollCertificateBatchRestRequest.getRequests().isEmpty()) {
+            throw new RestException(Status.BAD_REQUEST.getStatusCode(), "No certificate requests were passed.");
+        }
+        final int maxRequests = EjbcaConfiguration.getBatchIssuanceMaxRequests();
+        if (enrollCertificateBatchRestRequest.getRequests().size() > maxRequests) {
+            throw new RestException(Status.BAD_REQUEST.getStatusCode(), "Too many certificate requests were passed. At most " + maxRequests
+                    + " requests are allowed in one batch.");
+        }
+        final AuthenticationToken authenticationToken = getAdmin(requestContext, false);
+        final List<EnrollCertificateRestRequest> requests = enrollCertificateBatchRestRequest.getRequests();
+        final List<BatchIssuanceResult> batchIssuanceResults = raMasterApi.createCertificatesRest(
+                authenticationToken,
+                EnrollCertificateBatchRestRequest.converter().toEnrollPkcs10CertificateRequests(enrollCertificateBatchRestRequest)
+        );
+        if (batchIssuanceResults == null) {
+            throw new RestException(Status.SERVICE_UNAVAILABLE.getStatusCode(), "Batch certificate enrollment is not available.");
+        }
+        // Most batches are issued by a few CAs, so only look up the chain of each CA once
+        final Map<String, List<Certificate>> certificateChains = new HashMap<>();
+        final List<EnrollCertificateBatchResultRestResponse> results = new ArrayList<>(batchIssuanceResults.size());
+        for (final BatchIssuanceResult batchIssuanceResult : batchIssuanceResults) {
+            final int index = batchIssuanceResult.getIndex();
+            if (!batchIssuanceResult.isSuccess()) {
+                results.add(EnrollCertificateBatchResultRestResponse.failure(index,
+                        batchIssuanceResult.getErrorCode() == null ? null : batchIssuanceResult.getErrorCode().getInternalErrorCode(),
+                        batchIssuanceResult.getErrorMessage()));
+                continue;
+            }
+            try {
+                final Certificate certificate = CertTools.getCertfromByteArray(batchIssuanceResult.getCertificate(), Certificate.class);
+                final String certificateAuthorityName = requests.get(index).getCertificateAuthorityName();
+                List<Certificate> certificateChain = null;
+                if (requests.get(index).getIncludeChain()) {
+                    certificateChain = certificateChains.get(certificateAuthorityName);
+                    if (certificateChain == null) {
+                        certificateChain = raMasterApi.getLastCaChain(authenticationToken, certificateAuthorityName)
+                                .stream()
+                                .map(CertificateWrapper::getCertificate)
+                                .collect(Collectors.toList());
+                        certificateChains.put(certificateAuthorityName, certificateChain);
+                    }
+                }
+                results.add(EnrollCertificateBatchResultRestResponse.success(index,
+                        CertificateRestResponse.converter().toRestResponse(certificateChain, certificate)));
+            } catch (CertificateException | CADoesntExistsException e) {
+                log.info("exception during enrollPkcs10CertificateBatch: ", LogRedactionUtils.getRedactedThrowable(e));
+                results.add(EnrollCertificateBatchResultRestResponse.failure(index, null, e.getMessage()));
+            }
+        }
+        return Response.ok(new EnrollCertificateBatchRestResponse(results)).build();
+    }
+
     public Response certificateRequest(final HttpServletRequest requestContext, final CertificateRequestRestRequest certificateRequestRestRequest)
             throws RestException, AuthorizationDeniedException, CesecoreException, IOException, SignatureException, NoSuchFieldException {
         try {
@@ -352,9 +419,13 @@ public class CertificateRestResource extends BaseRestResource {
     public Response getCertificatesAboutToExpire(final HttpServletRequest requestContext,
                                                  final long days,
                                                  final int offset,
-                                                 final int maxNumberOfResults)
+                                                 final int maxNumberOfResults,
+                                                 final String after)
             throws AuthorizationDeniedException, CertificateEncodingException, RestException {
         final AuthenticationToken admin = getAdmin(requestContext, true);
+        if (after != null) {
+            return getCertificatesAboutToExpire(admin, days, maxNumberOfResults, after);
+        }
         int count = raMasterApi.getCountOfCertificatesByExpirationTime(admin, days);
         final Collection<Certificate> expiringCertificates = EJBTools
                 .unwrapCertCollection(raMasterApi.getCertificatesByExpirationTime(admin, days, maxNumberOfResults, offset));
@@ -369,6 +440,36 @@ public class CertificateRestResource extends BaseRestResource {
         return Response.ok(response).build();
     }
 
+    /**
+     * Reads a page of expiring certificates after the position of a cursor, which takes the same time for every page, unlike an offset.
+     * One more certificate than asked for is read, to tell if there are more results.
+     */
+    private Response getCertificatesAboutToExpire(final AuthenticationToken admin, final long days, final int maxNumberOfResults,
+            final String after) throws AuthorizationDeniedException, CertificateEncodingException, RestException {
+        final CertificateExpirationCursor cursor;
+        try {
+            cursor = CertificateExpirationCursor.fromToken(after);
+        } catch (IllegalArgumentException e) {
+            throw new RestException(Status.BAD_REQUEST.getStatusCode(), e.getMessage());
+        }
+        final List<Certificate> expiringCertificates;
+        try {
+            expiringCertificates = new ArrayList<>(EJBTools
+                    .unwrapCertCollection(raMasterApi.getCertificatesByExpirationTime(admin, days, maxNumberOfResults + 1, cursor)));
+        } catch (UnsupportedOperationException e) {
+            throw new RestException(Status.BAD_REQUEST.getStatusCode(), e.getMessage());
+        }
+        final boolean moreResults = expiringCertificates.size() > maxNumberOfResults;
+        final List<Certificate> page = moreResults ? expiringCertificates.subList(0, maxNumberOfResults) : expiringCertificates;
+        final PaginationRestResponseComponent paginationRestResponseComponent = PaginationRestResponseComponent.builder()
+                .setMoreResults(moreResults)
+                .setNextCursor(page.isEmpty() ? null : CertificateExpirationCursor.after(page.get(page.size() - 1)).getToken())
+                .build();
+        final CertificatesRestResponse certificatesRestResponse = new CertificatesRestResponse(
+                CertificatesRestResponse.converter().toRestResponses(new ArrayList<>(page)));
+        return Response.ok(new ExpiringCertificatesRestResponse(paginationRestResponseComponent, certificatesRestResponse)).build();
+    }
+
     public Response finalizeEnrollment(
             final HttpServletRequest requestContext,
             final int requestId,
@@ -0,0 +1,71 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.web.rest.api.io.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.swagger.annotations.ApiModelProperty;
+import org.ejbca.core.protocol.rest.EnrollPkcs10CertificateRequest;
+
+/**
+ * A class representing the input for the batch certificate enrollment REST method. Each request is enrolled as if it was passed to
+ * the single certificate enrollment method.
+ */
+public class EnrollCertificateBatchRestRequest {
+    @ApiModelProperty(value = "Certificate enrollment requests")
+    private List<EnrollCertificateRestRequest> requests = new ArrayList<>();
+
+    public EnrollCertificateBatchRestRequest() {
+    }
+
+    public List<EnrollCertificateRestRequest> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<EnrollCertificateRestRequest> requests) {
+        this.requests = requests;
+    }
+
+    /**
+     * Returns a converter instance for this class.
+     *
+     * @return instance of converter for this class.
+     */
+    public static EnrollCertificateBatchRestRequestConverter converter() {
+        return new EnrollCertificateBatchRestRequestConverter();
+    }
+
+    /**
+     * Converter instance for this class.
+     */
+    public static class EnrollCertificateBatchRestRequestConverter {
+
+        /**
+         * Converts a EnrollCertificateBatchRestRequest into a list of EnrollPkcs10CertificateRequest, in the same order.
+         *
+         * @param enrollCertificateBatchRestRequest input.
+         *
+         * @return list of EnrollPkcs10CertificateRequest instances.
+         */
+        public List<EnrollPkcs10CertificateRequest> toEnrollPkcs10CertificateRequests(final EnrollCertificateBatchRestRequest enrollCertificateBatchRestRequest) {
+            final EnrollCertificateRestRequest.EnrollCertificateRestRequestConverter converter = EnrollCertificateRestRequest.converter();
+            return enrollCertificateBatchRestRequest.getRequests()
+                    .stream()
+                    .map(converter::toEnrollPkcs10CertificateRequest)
+                    .collect(Collectors.toList());
+        }
+    }
+
+}
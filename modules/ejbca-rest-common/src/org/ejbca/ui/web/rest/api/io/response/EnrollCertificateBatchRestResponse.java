@@ -0,0 +1,52 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.web.rest.api.io.response;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * A class representing the response of the batch certificate enrollment REST method. There is one result for each request, in the
+ * order of the requests.
+ */
+public class EnrollCertificateBatchRestResponse {
+    @ApiModelProperty(value = "Number of certificates that were issued", example = "2")
+    private int successCount;
+    @ApiModelProperty(value = "Number of requests that failed", example = "0")
+    private int failureCount;
+    @ApiModelProperty(value = "Result of each request")
+    private List<EnrollCertificateBatchResultRestResponse> results;
+
+    public EnrollCertificateBatchRestResponse(final List<EnrollCertificateBatchResultRestResponse> results) {
+        this.results = results;
+        this.successCount = (int) results.stream().filter(result -> result.getCertificate() != null).count();
+        this.failureCount = results.size() - successCount;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public List<EnrollCertificateBatchResultRestResponse> getResults() {
+        return results;
+    }
+
+    public void setResults(List<EnrollCertificateBatchResultRestResponse> results) {
+        this.results = results;
+    }
+}
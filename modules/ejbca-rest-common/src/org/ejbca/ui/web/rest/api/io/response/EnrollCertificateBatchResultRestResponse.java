@@ -0,0 +1,66 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.web.rest.api.io.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * A class representing the result of one request in a batch certificate enrollment. Either the certificate or the error is set.
+ */
+public class EnrollCertificateBatchResultRestResponse {
+    @ApiModelProperty(value = "Position of the request in the batch, starting from 0", example = "0")
+    private int index;
+    @ApiModelProperty(value = "Issued certificate")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private CertificateRestResponse certificate;
+    @ApiModelProperty(value = "Error code", example = "CERT_PROFILE_NOT_AUTHORIZED")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String errorCode;
+    @ApiModelProperty(value = "Error message", example = "Certificate profile ENDUSER is not authorized for this end entity profile.")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String errorMessage;
+
+    private EnrollCertificateBatchResultRestResponse(final int index, final CertificateRestResponse certificate, final String errorCode,
+            final String errorMessage) {
+        this.index = index;
+        this.certificate = certificate;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public static EnrollCertificateBatchResultRestResponse success(final int index, final CertificateRestResponse certificate) {
+        return new EnrollCertificateBatchResultRestResponse(index, certificate, null, null);
+    }
+
+    public static EnrollCertificateBatchResultRestResponse failure(final int index, final String errorCode, final String errorMessage) {
+        return new EnrollCertificateBatchResultRestResponse(index, null, errorCode, errorMessage);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public CertificateRestResponse getCertificate() {
+        return certificate;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -12,6 +12,8 @@
  *************************************************************************/
 package org.ejbca.ui.web.rest.api.io.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
  * A container for response status information. Are where more results? Next offset, how many results left etc..
  *
@@ -22,12 +24,16 @@ public class PaginationRestResponseComponent {
     private boolean moreResults;
     private int nextOffset;
     private int numberOfResults;
+    /** Position to continue from, for resources that page with a cursor instead of an offset */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 
-    private PaginationRestResponseComponent(boolean moreResults, int nextOffset, int numberOfResults) {
+    private PaginationRestResponseComponent(boolean moreResults, int nextOffset, int numberOfResults, String nextCursor) {
         this.moreResults = moreResults;
         if(moreResults) {
             this.nextOffset = nextOffset;
             this.numberOfResults = numberOfResults;
+            this.nextCursor = nextCursor;
         }
     }
 
@@ -55,6 +61,14 @@ public class PaginationRestResponseComponent {
         this.numberOfResults = numberOfResults;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     public static PaginationRestResponseComponentBuilder builder() {
         return new PaginationRestResponseComponentBuilder();
     }
@@ -63,6 +77,7 @@ public class PaginationRestResponseComponent {
         private boolean moreResults;
         private int nextOffset;
         private int numberOfResults;
+        private String nextCursor;
 
         public PaginationRestResponseComponentBuilder setMoreResults(boolean moreResults) {
             this.moreResults = moreResults;
@@ -79,8 +94,13 @@ public class PaginationRestResponseComponent {
             return this;
         }
 
+        public PaginationRestResponseComponentBuilder setNextCursor(String nextCursor) {
+            this.nextCursor = nextCursor;
+            return this;
+        }
+
         public PaginationRestResponseComponent build() {
-            return new PaginationRestResponseComponent(moreResults, nextOffset, numberOfResults);
+            return new PaginationRestResponseComponent(moreResults, nextOffset, numberOfResults, nextCursor);
         }
     }
 }
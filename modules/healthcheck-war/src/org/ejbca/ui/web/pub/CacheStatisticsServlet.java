@@ -0,0 +1,73 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.web.pub;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cesecore.internal.CacheRegistry;
+import org.cesecore.internal.CacheStatistics;
+
+/**
+ * <p>Servlet returning the statistics of the object caches of this node, so a monitoring system can see how efficient the caches are
+ * and how large they grow. The same statistics are available through JMX as <code>org.cesecore:type=Cache,name=&lt;cache name&gt;</code>.</p>
+ *
+ * <p>Example of request and response:</p>
+ * <pre>
+ * curl -s http://localhost:8080/ejbca/publicweb/healthcheck/cachestats | jq .
+ * {
+ *   "caches": [
+ *     {
+ *       "name": "CaCache",
+ *       "size": 3,
+ *       "hitCount": 1200,
+ *       "missCount": 3,
+ *       "hitRate": 0.9975,
+ *       "loadSuccessCount": 0,
+ *       "loadFailureCount": 0,
+ *       "averageLoadTimeMillis": 0.0,
+ *       "evictionCount": 0
+ *     }
+ *   ]
+ * }
+ * </pre>
+ */
+public class CacheStatisticsServlet extends StatisticsServletBase {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected String getName() {
+        return "caches";
+    }
+
+    @Override
+    protected List<Map<String, Object>> getStatistics() {
+        final List<Map<String, Object>> caches = new ArrayList<>();
+        for (final CacheStatistics statistics : CacheRegistry.INSTANCE.getStatistics()) {
+            final Map<String, Object> cache = new LinkedHashMap<>();
+            cache.put("name", statistics.getName());
+            cache.put("size", statistics.getEstimatedSize());
+            cache.put("hitCount", statistics.getHitCount());
+            cache.put("missCount", statistics.getMissCount());
+            cache.put("hitRate", statistics.getHitRate());
+            cache.put("loadSuccessCount", statistics.getLoadSuccessCount());
+            cache.put("loadFailureCount", statistics.getLoadFailureCount());
+            cache.put("averageLoadTimeMillis", statistics.getAverageLoadTimeMillis());
+            cache.put("evictionCount", statistics.getEvictionCount());
+            caches.add(cache);
+        }
+        return caches;
+    }
+}
@@ -0,0 +1,64 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.web.pub;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cesecore.certificates.certificate.IssuanceStatistics;
+
+/**
+ * <p>Servlet returning the time spent in each stage of certificate issuance on this node, to see where the latency of issuance comes from.
+ * The same values are available through JMX as <code>org.cesecore:type=IssuanceStage,name=&lt;stage&gt;</code>.</p>
+ *
+ * <p>Example of request and response:</p>
+ * <pre>
+ * curl -s http://localhost:8080/ejbca/publicweb/healthcheck/issuancestats | jq .
+ * {
+ *   "stages": [
+ *     {
+ *       "name": "KEY_VALIDATION",
+ *       "count": 1000,
+ *       "totalTimeMillis": 812.4,
+ *       "averageTimeMillis": 0.8124,
+ *       "maxTimeMillis": 35.1
+ *     }
+ *   ]
+ * }
+ * </pre>
+ */
+public class IssuanceStatisticsServlet extends StatisticsServletBase {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected String getName() {
+        return "stages";
+    }
+
+    @Override
+    protected List<Map<String, Object>> getStatistics() {
+        final List<Map<String, Object>> stages = new ArrayList<>();
+        for (final IssuanceStatistics.Stage statistics : IssuanceStatistics.INSTANCE.getStages()) {
+            final Map<String, Object> stage = new LinkedHashMap<>();
+            stage.put("name", statistics.getStage().name());
+            stage.put("count", statistics.getCount());
+            stage.put("totalTimeMillis", statistics.getTotalTimeMillis());
+            stage.put("averageTimeMillis", statistics.getAverageTimeMillis());
+            stage.put("maxTimeMillis", statistics.getMaxTimeMillis());
+            stages.add(stage);
+        }
+        return stages;
+    }
+}
@@ -0,0 +1,66 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.web.pub;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ejbca.core.model.ca.publisher.PublisherQueueStatistics;
+
+/**
+ * <p>Servlet returning how fast the publisher queues have been published on this node, so a monitoring system can see if the workers keep
+ * up with the queues. The same statistics are available through JMX as <code>org.ejbca:type=PublisherQueue,id=&lt;publisher id&gt;</code>.</p>
+ *
+ * <p>Example of request and response:</p>
+ * <pre>
+ * curl -s http://localhost:8080/ejbca/publicweb/healthcheck/publisherqueuestats | jq .
+ * {
+ *   "publishers": [
+ *     {
+ *       "publisherId": 1871542530,
+ *       "publishedCount": 12000,
+ *       "failedCount": 3,
+ *       "batchCount": 121,
+ *       "totalTimeMillis": 40210.5,
+ *       "publishedPerSecond": 298.4
+ *     }
+ *   ]
+ * }
+ * </pre>
+ */
+public class PublisherQueueStatisticsServlet extends StatisticsServletBase {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected String getName() {
+        return "publishers";
+    }
+
+    @Override
+    protected List<Map<String, Object>> getStatistics() {
+        final List<Map<String, Object>> publishers = new ArrayList<>();
+        for (final PublisherQueueStatistics.Publisher statistics : PublisherQueueStatistics.INSTANCE.getPublishers()) {
+            final Map<String, Object> publisher = new LinkedHashMap<>();
+            publisher.put("publisherId", statistics.getPublisherId());
+            publisher.put("publishedCount", statistics.getPublishedCount());
+            publisher.put("failedCount", statistics.getFailedCount());
+            publisher.put("batchCount", statistics.getBatchCount());
+            publisher.put("totalTimeMillis", statistics.getTotalTimeMillis());
+            publisher.put("publishedPerSecond", statistics.getPublishedPerSecond());
+            publishers.add(publisher);
+        }
+        return publishers;
+    }
+}
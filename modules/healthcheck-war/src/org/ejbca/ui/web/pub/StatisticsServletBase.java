@@ -0,0 +1,57 @@
+/*************************************************************************
+ *                                                                       *
+ *  EJBCA Community: The OpenSource Certificate Authority                *
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.ui.web.pub;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.log4j.Logger;
+import org.ejbca.config.EjbcaConfiguration;
+import org.json.simple.JSONValue;
+
+/**
+ * Base of the servlets returning statistics of this node as JSON, on the form <code>{"&lt;name&gt;": [ {...}, ... ]}</code>, with one object
+ * for each cache, stage or similar that statistics are kept for.
+ * <p>
+ * Authentication to the servlets is controlled by the property <code>healthcheck.authorizedips</code>.
+ */
+public abstract class StatisticsServletBase extends HttpServlet {
+    private static final Logger log = Logger.getLogger(StatisticsServletBase.class);
+    private static final long serialVersionUID = 1L;
+
+    /** @return name of the array of statistics in the response */
+    protected abstract String getName();
+
+    /** @return the statistics, with the values of each element in the order they are written */
+    protected abstract List<Map<String, Object>> getStatistics();
+
+    @Override
+    public void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+        response.setContentType("application/json");
+        final String[] authorizedIps = EjbcaConfiguration.getHealthCheckAuthorizedIps().split(";");
+        if (!ArrayUtils.contains(authorizedIps, "ANY") && !ArrayUtils.contains(authorizedIps, request.getRemoteAddr())) {
+            log.error("The IP " + request.getRemoteAddr() + " is not authorized.");
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        response.getWriter().write(JSONValue.toJSONString(Collections.singletonMap(getName(), getStatistics())));
+    }
+}